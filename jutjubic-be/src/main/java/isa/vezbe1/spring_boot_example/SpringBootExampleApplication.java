@@ -4,6 +4,7 @@ import org.springframework.boot.ConfigurableBootstrapContext;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import java.util.Arrays;
 
@@ -22,6 +23,7 @@ import java.util.Arrays;
  *
  */
 @SpringBootApplication
+@EnableScheduling
 public class SpringBootExampleApplication {
 
     public static void main(String[] args) {
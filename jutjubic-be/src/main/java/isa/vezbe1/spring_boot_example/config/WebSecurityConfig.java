@@ -72,12 +72,24 @@ public class WebSecurityConfig {
                 // Static uploads (videos and thumbnails served from filesystem)
                 .requestMatchers(HttpMethod.GET, "/uploads/**").permitAll()
 
+                // Error page rendered for response.sendError (stream and thumbnail endpoints)
+                .requestMatchers("/error").permitAll()
+
                 // Videos - ONLY allow GET requests without authentication (3.1 requirement)
                 .requestMatchers(HttpMethod.GET, "/api/videos").permitAll()           // Get all videos
                 .requestMatchers(HttpMethod.GET, "/api/videos/search").permitAll()    // Search videos
+                .requestMatchers(HttpMethod.GET, "/api/videos/trending").permitAll()  // Trending videos
+                .requestMatchers(HttpMethod.GET, "/api/videos/feed").permitAll()      // Cursor-paginated feed
+                .requestMatchers(HttpMethod.GET, "/api/videos/autocomplete").permitAll() // Search-as-you-type
+                .requestMatchers(HttpMethod.GET, "/api/videos/by-tags").permitAll()   // Browse by tags
+                .requestMatchers(HttpMethod.GET, "/api/videos/map").permitAll()       // Map clusters
                 .requestMatchers(HttpMethod.GET, "/api/videos/*/comments").permitAll() // Get comments (must be before /api/videos/*)
                 .requestMatchers(HttpMethod.GET, "/api/videos/*/comments/count").permitAll() // Get comment count
                 .requestMatchers(HttpMethod.GET, "/api/videos/*/thumbnail").permitAll() // Get thumbnail
+                .requestMatchers(HttpMethod.GET, "/api/videos/*/storyboard", "/api/videos/storyboards/*/*").permitAll() // Scrub-preview storyboard
+                .requestMatchers(HttpMethod.GET, "/api/videos/*/related").permitAll() // Related videos
+                .requestMatchers(HttpMethod.GET, "/api/videos/*/status").permitAll() // Processing status
+                .requestMatchers(HttpMethod.GET, "/api/videos/*/stream").permitAll() // Stream video (Range requests)
                 .requestMatchers(HttpMethod.POST, "/api/videos/*/view").permitAll() // Increment view count
                 .requestMatchers(HttpMethod.GET, "/api/videos/*").permitAll()      // Get single video
 
@@ -135,9 +147,18 @@ public class WebSecurityConfig {
                 // Public video viewing endpoints (3.1)
                 .requestMatchers(HttpMethod.GET, "/api/videos")               // 3.1 - Get all videos
                 .requestMatchers(HttpMethod.GET, "/api/videos/search")        // 3.1 - Search videos
+                .requestMatchers(HttpMethod.GET, "/api/videos/trending")      // Trending videos
+                .requestMatchers(HttpMethod.GET, "/api/videos/feed")          // Cursor-paginated feed
+                .requestMatchers(HttpMethod.GET, "/api/videos/autocomplete")  // Search-as-you-type
+                .requestMatchers(HttpMethod.GET, "/api/videos/by-tags")       // Browse by tags
+                .requestMatchers(HttpMethod.GET, "/api/videos/map")           // Map clusters
                 .requestMatchers(HttpMethod.GET, "/api/videos/*/comments")    // 3.1 - Get comments for video
                 .requestMatchers(HttpMethod.GET, "/api/videos/*/comments/count") // Get comment count
                 .requestMatchers(HttpMethod.GET, "/api/videos/*/thumbnail")   // Get cached thumbnail
+                .requestMatchers(HttpMethod.GET, "/api/videos/*/storyboard", "/api/videos/storyboards/*/*") // Scrub-preview storyboard
+                .requestMatchers(HttpMethod.GET, "/api/videos/*/related")     // Related videos
+                .requestMatchers(HttpMethod.GET, "/api/videos/*/status")      // Processing status
+                .requestMatchers(HttpMethod.GET, "/api/videos/*/stream")      // Stream video (Range requests)
                 .requestMatchers(HttpMethod.GET, "/api/videos/*")             // 3.1 - Get single video
                 .requestMatchers(HttpMethod.GET, "/api/users/*")              // 3.1 - Get user profile
 
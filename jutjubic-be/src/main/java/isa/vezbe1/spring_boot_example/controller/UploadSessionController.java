@@ -0,0 +1,192 @@
+package isa.vezbe1.spring_boot_example.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import isa.vezbe1.spring_boot_example.dto.CreateUploadSessionDTO;
+import isa.vezbe1.spring_boot_example.dto.UploadSessionDTO;
+import isa.vezbe1.spring_boot_example.dto.VideoDTO;
+import isa.vezbe1.spring_boot_example.exception.ServiceBusyException;
+import isa.vezbe1.spring_boot_example.model.User;
+import isa.vezbe1.spring_boot_example.service.AuthenticationService;
+import isa.vezbe1.spring_boot_example.service.UploadSessionService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/videos/uploads")
+@CrossOrigin(origins = "http://localhost:5173", exposedHeaders = {HttpHeaders.LOCATION, "Upload-Offset", "Upload-Length"})
+@Tag(name = "Resumable uploads", description = "Chunked video uploads that can be resumed after a dropped connection")
+public class UploadSessionController {
+
+    private static final String UPLOAD_OFFSET = "Upload-Offset";
+    private static final String UPLOAD_LENGTH = "Upload-Length";
+    private static final String OFFSET_OCTET_STREAM = "application/offset+octet-stream";
+
+    @Autowired
+    private UploadSessionService uploadSessionService;
+
+    @Autowired
+    private AuthenticationService authenticationService;
+
+    @Operation(summary = "Create upload session", description = "Starts a resumable upload for a video of the given size. Requires authentication.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "201", description = "Upload session created"),
+            @ApiResponse(responseCode = "400", description = "Invalid input"),
+            @ApiResponse(responseCode = "401", description = "Not authenticated"),
+            @ApiResponse(responseCode = "429", description = "Too many open upload sessions")
+    })
+    @PostMapping
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> createSession(@Valid @RequestBody CreateUploadSessionDTO createDTO) {
+        try {
+            User currentUser = authenticationService.getCurrentUser();
+            UploadSessionDTO session = uploadSessionService.createSession(createDTO, currentUser);
+
+            return ResponseEntity.created(URI.create("/api/videos/uploads/" + session.getUploadId()))
+                    .header(UPLOAD_OFFSET, String.valueOf(session.getOffset()))
+                    .header(UPLOAD_LENGTH, String.valueOf(session.getFileSize()))
+                    .body(session);
+
+        } catch (IllegalArgumentException e) {
+            return errorResponse(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IllegalStateException e) {
+            return errorResponse(HttpStatus.TOO_MANY_REQUESTS, e.getMessage());
+        } catch (Exception e) {
+            return errorResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to create upload session: " + e.getMessage());
+        }
+    }
+
+    @Operation(summary = "Get upload session state", description = "Returns the offset to resume from. Also answers HEAD requests. Requires authentication.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Upload state returned"),
+            @ApiResponse(responseCode = "404", description = "Upload session not found")
+    })
+    @GetMapping("/{uploadId}")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> getSession(@Parameter(description = "Upload session ID") @PathVariable String uploadId) {
+        try {
+            User currentUser = authenticationService.getCurrentUser();
+            UploadSessionDTO session = uploadSessionService.getSession(uploadId, currentUser);
+
+            return ResponseEntity.ok()
+                    .header(UPLOAD_OFFSET, String.valueOf(session.getOffset()))
+                    .header(UPLOAD_LENGTH, String.valueOf(session.getFileSize()))
+                    .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                    .body(session);
+
+        } catch (RuntimeException e) {
+            return errorResponse(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    @Operation(summary = "Upload a chunk", description = "Writes the request body at the position given by the Upload-Offset header. Requires authentication.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "204", description = "Chunk stored, new offset in Upload-Offset header"),
+            @ApiResponse(responseCode = "400", description = "Offset or length out of range"),
+            @ApiResponse(responseCode = "404", description = "Upload session not found"),
+            @ApiResponse(responseCode = "409", description = "Upload is being finalized")
+    })
+    @PatchMapping(value = "/{uploadId}", consumes = {OFFSET_OCTET_STREAM, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> uploadChunk(
+            @Parameter(description = "Upload session ID") @PathVariable String uploadId,
+            @Parameter(description = "Byte offset of this chunk") @RequestHeader(UPLOAD_OFFSET) long offset,
+            HttpServletRequest request) {
+        try {
+            User currentUser = authenticationService.getCurrentUser();
+            UploadSessionDTO session = uploadSessionService.writeChunk(
+                    uploadId, offset, request.getContentLengthLong(), request.getInputStream(), currentUser);
+
+            return ResponseEntity.noContent()
+                    .header(UPLOAD_OFFSET, String.valueOf(session.getOffset()))
+                    .header(UPLOAD_LENGTH, String.valueOf(session.getFileSize()))
+                    .build();
+
+        } catch (IllegalArgumentException e) {
+            return errorResponse(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IllegalStateException e) {
+            return errorResponse(HttpStatus.CONFLICT, e.getMessage());
+        } catch (RuntimeException e) {
+            return errorResponse(HttpStatus.NOT_FOUND, e.getMessage());
+        } catch (Exception e) {
+            return errorResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to store chunk: " + e.getMessage());
+        }
+    }
+
+    @Operation(summary = "Finalize upload", description = "Completes a fully received upload with its thumbnail and creates the video. Requires authentication.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "201", description = "Video created"),
+            @ApiResponse(responseCode = "400", description = "Invalid thumbnail"),
+            @ApiResponse(responseCode = "404", description = "Upload session not found"),
+            @ApiResponse(responseCode = "409", description = "Upload incomplete or already being finalized"),
+            @ApiResponse(responseCode = "500", description = "Upload failed"),
+            @ApiResponse(responseCode = "503", description = "Too many uploads are being processed, retry later")
+    })
+    @PostMapping(value = "/{uploadId}/finalize", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> finalizeUpload(
+            @Parameter(description = "Upload session ID") @PathVariable String uploadId,
+            @Parameter(description = "Thumbnail image") @RequestPart("thumbnail") MultipartFile thumbnailFile) {
+        try {
+            User currentUser = authenticationService.getCurrentUser();
+            VideoDTO video = uploadSessionService.finalizeUpload(uploadId, thumbnailFile, currentUser);
+
+            return ResponseEntity.status(HttpStatus.CREATED).body(video);
+
+        } catch (IllegalArgumentException e) {
+            return errorResponse(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IllegalStateException e) {
+            return errorResponse(HttpStatus.CONFLICT, e.getMessage());
+        } catch (ServiceBusyException e) {
+            return errorResponse(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        } catch (Exception e) {
+            if ("Upload session not found".equals(e.getMessage())) {
+                return errorResponse(HttpStatus.NOT_FOUND, e.getMessage());
+            }
+            return errorResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to upload video: " + e.getMessage());
+        }
+    }
+
+    @Operation(summary = "Abort upload", description = "Discards an upload session and its partial file. Requires authentication.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Upload session deleted"),
+            @ApiResponse(responseCode = "404", description = "Upload session not found")
+    })
+    @DeleteMapping("/{uploadId}")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> abortSession(@Parameter(description = "Upload session ID") @PathVariable String uploadId) {
+        try {
+            User currentUser = authenticationService.getCurrentUser();
+            uploadSessionService.abortSession(uploadId, currentUser);
+
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "Upload session deleted");
+
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            return errorResponse(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    private ResponseEntity<Map<String, String>> errorResponse(HttpStatus status, String message) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", message);
+        return ResponseEntity.status(status).body(error);
+    }
+}
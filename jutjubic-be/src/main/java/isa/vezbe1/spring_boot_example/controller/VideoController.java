@@ -8,16 +8,32 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import isa.vezbe1.spring_boot_example.dto.CommentDTO;
 import isa.vezbe1.spring_boot_example.dto.CreateVideoDTO;
 import isa.vezbe1.spring_boot_example.dto.VideoDTO;
+import isa.vezbe1.spring_boot_example.dto.VideoFeedDTO;
+import isa.vezbe1.spring_boot_example.dto.VideoSearchResultDTO;
 import isa.vezbe1.spring_boot_example.dto.VideoUploadDTO;
+import isa.vezbe1.spring_boot_example.exception.ResourceNotFoundException;
+import isa.vezbe1.spring_boot_example.exception.ServiceBusyException;
 import isa.vezbe1.spring_boot_example.model.User;
+import isa.vezbe1.spring_boot_example.service.AutocompleteService;
 import isa.vezbe1.spring_boot_example.service.AuthenticationService;
 import isa.vezbe1.spring_boot_example.service.CommentService;
+import isa.vezbe1.spring_boot_example.service.GeoTileIndex;
+import isa.vezbe1.spring_boot_example.service.StoryboardService;
+import isa.vezbe1.spring_boot_example.service.ThumbnailCache;
+import isa.vezbe1.spring_boot_example.service.ThumbnailSegmentStore;
+import isa.vezbe1.spring_boot_example.service.TrendingService;
 import isa.vezbe1.spring_boot_example.service.VideoService;
+import isa.vezbe1.spring_boot_example.service.VideoStreamService;
+import isa.vezbe1.spring_boot_example.util.IpAddressUtil;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -25,9 +41,13 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/videos")
@@ -35,9 +55,30 @@ import java.util.Map;
 @Tag(name = "Videos", description = "Video CRUD, upload, search, thumbnails, and video comments")
 public class VideoController {
 
+    // Storyboard files are written once and never change; their URLs carry the video's content hash
+    private static final CacheControl STORYBOARD_CACHE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+
     @Autowired
     private VideoService videoService;
 
+    @Autowired
+    private VideoStreamService videoStreamService;
+
+    @Autowired
+    private TrendingService trendingService;
+
+    @Autowired
+    private AutocompleteService autocompleteService;
+
+    @Autowired
+    private GeoTileIndex geoTileIndex;
+
+    @Autowired
+    private ThumbnailSegmentStore thumbnailSegmentStore;
+
+    @Autowired
+    private StoryboardService storyboardService;
+
     @Autowired
     private CommentService commentService;
 
@@ -72,6 +113,29 @@ public class VideoController {
         }
     }
 
+    @Operation(summary = "Get video feed", description = "Returns the newest videos using cursor (keyset) pagination. Pass nextCursor from the previous page as 'after'.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Feed page returned"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor")
+    })
+    @GetMapping("/feed")
+    public ResponseEntity<?> getFeed(
+            @Parameter(description = "Cursor from the previous page (omit for the first page)") @RequestParam(required = false) String after,
+            @Parameter(description = "Page size (max 100)") @RequestParam(defaultValue = "20") int limit) {
+        try {
+            if (limit <= 0 || limit > 100) {
+                limit = 20;
+            }
+            VideoFeedDTO feed = videoService.getFeed(after, limit);
+            return ResponseEntity.ok(feed);
+
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
     @Operation(summary = "Get video by ID", description = "Returns a single video by its ID")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Video found"),
@@ -90,13 +154,58 @@ public class VideoController {
         }
     }
 
+    @Operation(summary = "Get processing status", description = "Returns whether an uploaded video is still processing, ready or failed, and the pipeline stage it is in")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Status returned"),
+            @ApiResponse(responseCode = "404", description = "Video not found")
+    })
+    @GetMapping("/{id}/status")
+    public ResponseEntity<?> getVideoStatus(@Parameter(description = "Video ID") @PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(videoService.getVideoStatus(id));
+
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+        }
+    }
+
+    @Operation(summary = "Get related videos", description = "Returns videos with similar tags and titles (MinHash LSH), most similar first")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Related videos returned"),
+            @ApiResponse(responseCode = "404", description = "Video not found"),
+            @ApiResponse(responseCode = "503", description = "Related videos index is still loading")
+    })
+    @GetMapping("/{id}/related")
+    public ResponseEntity<?> getRelatedVideos(
+            @Parameter(description = "Video ID") @PathVariable Long id,
+            @Parameter(description = "Number of videos (max 50)") @RequestParam(defaultValue = "10") int limit) {
+        try {
+            if (limit <= 0 || limit > 50) {
+                limit = 10;
+            }
+            return ResponseEntity.ok(videoService.getRelatedVideos(id, limit));
+
+        } catch (IllegalStateException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+        }
+    }
+
 
-    @Operation(summary = "Upload a video", description = "Uploads a video file with thumbnail. Requires authentication.")
+    @Operation(summary = "Upload a video", description = "Uploads a video file with thumbnail. The video is created as PROCESSING; poll /{id}/status until it is READY. Requires authentication.")
     @ApiResponses({
             @ApiResponse(responseCode = "201", description = "Video uploaded successfully"),
             @ApiResponse(responseCode = "400", description = "Invalid input"),
             @ApiResponse(responseCode = "401", description = "Not authenticated"),
-            @ApiResponse(responseCode = "500", description = "Upload failed")
+            @ApiResponse(responseCode = "500", description = "Upload failed"),
+            @ApiResponse(responseCode = "503", description = "Too many uploads are being processed, retry later")
     })
     @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @PreAuthorize("isAuthenticated()")
@@ -106,7 +215,9 @@ public class VideoController {
             @Parameter(description = "Video title") @RequestParam("title") String title,
             @Parameter(description = "Video description") @RequestParam("description") String description,
             @Parameter(description = "Video tags") @RequestParam(value = "tags", required = false) List<String> tags,
-            @Parameter(description = "Video location") @RequestParam(value = "location", required = false) String location) {
+            @Parameter(description = "Video location") @RequestParam(value = "location", required = false) String location,
+            @Parameter(description = "Latitude where the video was recorded") @RequestParam(value = "latitude", required = false) Double latitude,
+            @Parameter(description = "Longitude where the video was recorded") @RequestParam(value = "longitude", required = false) Double longitude) {
         try {
             User currentUser = authenticationService.getCurrentUser();
 
@@ -115,6 +226,8 @@ public class VideoController {
             uploadDTO.setDescription(description);
             uploadDTO.setTags(tags);
             uploadDTO.setLocation(location);
+            uploadDTO.setLatitude(latitude);
+            uploadDTO.setLongitude(longitude);
 
             VideoDTO video = videoService.uploadVideo(videoFile, thumbnailFile, uploadDTO, currentUser);
 
@@ -124,6 +237,10 @@ public class VideoController {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        } catch (ServiceBusyException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Failed to upload video: " + e.getMessage());
@@ -159,9 +276,16 @@ public class VideoController {
             @ApiResponse(responseCode = "400", description = "Video not found")
     })
     @PostMapping("/{id}/view")
-    public ResponseEntity<?> incrementViewCount(@Parameter(description = "Video ID") @PathVariable Long id) {
+    public ResponseEntity<?> incrementViewCount(@Parameter(description = "Video ID") @PathVariable Long id,
+                                                HttpServletRequest request) {
         try {
-            videoService.incrementViewCount(id);
+            // Logged-in viewers are identified by account, anonymous ones by client IP
+            String username = authenticationService.getCurrentUsernameOrNull();
+            String viewerKey = username != null
+                    ? "user:" + username
+                    : "ip:" + IpAddressUtil.getClientIpAddress(request);
+
+            videoService.incrementViewCount(id, viewerKey);
 
             Map<String, String> response = new HashMap<>();
             response.put("message", "View count incremented");
@@ -175,17 +299,30 @@ public class VideoController {
         }
     }
 
-    @Operation(summary = "Search videos", description = "Searches videos by title")
+    @Operation(summary = "Search videos", description = "Searches title, tags and description; results are ranked by relevance and paginated with a cursor")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Search results returned"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor"),
             @ApiResponse(responseCode = "500", description = "Search failed")
     })
     @GetMapping("/search")
-    public ResponseEntity<?> searchVideos(@Parameter(description = "Search query") @RequestParam String query) {
+    public ResponseEntity<?> searchVideos(
+            @Parameter(description = "Search query (all words must match)") @RequestParam String query,
+            @Parameter(description = "Cursor from the previous page (omit for the first page)") @RequestParam(required = false) String after,
+            @Parameter(description = "Page size (max 100)") @RequestParam(defaultValue = "20") int limit,
+            @Parameter(description = "Search mode: index, fulltext, fuzzy or like (default from configuration; pass back the mode of the previous page with its cursor)")
+            @RequestParam(required = false) String mode) {
         try {
-            List<VideoDTO> videos = videoService.searchVideosByTitle(query);
-            return ResponseEntity.ok(videos);
+            if (limit <= 0 || limit > 100) {
+                limit = 20;
+            }
+            VideoSearchResultDTO results = videoService.searchVideos(mode, query, after, limit);
+            return ResponseEntity.ok(results);
 
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Failed to search videos: " + e.getMessage());
@@ -193,26 +330,211 @@ public class VideoController {
         }
     }
 
-    @Operation(summary = "Get video thumbnail", description = "Returns the cached thumbnail image for a video")
+    @Operation(summary = "Browse videos by tags", description = "Returns videos that have all 'all' tags, at least one 'any' tag and none of the 'none' tags, newest first")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Videos returned"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor"),
+            @ApiResponse(responseCode = "503", description = "Tag index is still loading")
+    })
+    @GetMapping("/by-tags")
+    public ResponseEntity<?> getVideosByTags(
+            @Parameter(description = "Comma-separated tags the video must all have") @RequestParam(required = false) List<String> all,
+            @Parameter(description = "Comma-separated tags of which the video must have at least one") @RequestParam(required = false) List<String> any,
+            @Parameter(description = "Comma-separated tags the video must not have") @RequestParam(required = false) List<String> none,
+            @Parameter(description = "Cursor from the previous page (omit for the first page)") @RequestParam(required = false) String after,
+            @Parameter(description = "Page size (max 100)") @RequestParam(defaultValue = "20") int limit) {
+        try {
+            if (limit <= 0 || limit > 100) {
+                limit = 20;
+            }
+            VideoFeedDTO videos = videoService.getVideosByTags(
+                    all != null ? all : List.of(), any != null ? any : List.of(), none != null ? none : List.of(), after, limit);
+            return ResponseEntity.ok(videos);
+
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        } catch (IllegalStateException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+        }
+    }
+
+    @Operation(summary = "Map clusters", description = "Returns the number of videos per map tile (slippy map numbering) inside a bounding box at one zoom level")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Clusters returned"),
+            @ApiResponse(responseCode = "400", description = "Invalid zoom or bounding box too large for the zoom level"),
+            @ApiResponse(responseCode = "503", description = "Map index is still loading")
+    })
+    @GetMapping("/map")
+    public ResponseEntity<?> getMapClusters(
+            @Parameter(description = "Southern edge of the box") @RequestParam double minLat,
+            @Parameter(description = "Western edge of the box (greater than maxLon when crossing the antimeridian)") @RequestParam double minLon,
+            @Parameter(description = "Northern edge of the box") @RequestParam double maxLat,
+            @Parameter(description = "Eastern edge of the box") @RequestParam double maxLon,
+            @Parameter(description = "Map zoom level") @RequestParam int zoom) {
+        try {
+            return ResponseEntity.ok(geoTileIndex.clusters(minLat, minLon, maxLat, maxLon, zoom));
+
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        } catch (IllegalStateException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+        }
+    }
+
+    @Operation(summary = "Autocomplete", description = "Suggests video titles and tags starting with the typed prefix (at any word), most viewed first")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Suggestions returned")
+    })
+    @GetMapping("/autocomplete")
+    public ResponseEntity<?> autocomplete(
+            @Parameter(description = "What the user has typed so far") @RequestParam String prefix,
+            @Parameter(description = "Number of suggestions (max 10)") @RequestParam(defaultValue = "10") int limit) {
+        if (limit <= 0) {
+            limit = 10;
+        }
+        return ResponseEntity.ok(autocompleteService.suggest(prefix, limit));
+    }
+
+    @Operation(summary = "Get trending videos", description = "Returns the most popular videos right now, ranked by time-decayed views, comments and uploads")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Trending videos returned")
+    })
+    @GetMapping("/trending")
+    public ResponseEntity<?> getTrendingVideos(
+            @Parameter(description = "Number of videos (max 100)") @RequestParam(defaultValue = "20") int limit) {
+        if (limit <= 0 || limit > 100) {
+            limit = 20;
+        }
+        return ResponseEntity.ok(trendingService.getTrending(limit));
+    }
+
+    @Operation(summary = "Get video thumbnail", description = "Returns the thumbnail image for a video, from memory, the segment store, Redis or disk. "
+            + "With w, returns the smallest resized JPEG variant at least w pixels wide (the original until it has been derived).")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Thumbnail returned"),
             @ApiResponse(responseCode = "404", description = "Thumbnail not found"),
             @ApiResponse(responseCode = "500", description = "Failed to retrieve thumbnail")
     })
     @GetMapping("/{id}/thumbnail")
-    public ResponseEntity<byte[]> getThumbnail(@Parameter(description = "Video ID") @PathVariable Long id) {
+    public void getThumbnail(@Parameter(description = "Video ID") @PathVariable Long id,
+                             @Parameter(description = "Display width in pixels (omit for the original)") @RequestParam(required = false) Integer w,
+                             HttpServletResponse response) throws IOException {
         try {
-            byte[] thumbnail = videoService.getCachedThumbnail(id);
-            if (thumbnail != null) {
-                return ResponseEntity.ok()
-                        .contentType(MediaType.IMAGE_JPEG)
-                        .body(thumbnail);
+            ThumbnailCache.Thumbnail thumbnail = videoService.getThumbnail(id, w).orElse(null);
+            if (thumbnail == null) {
+                response.sendError(HttpStatus.NOT_FOUND.value());
+                return;
             }
 
-            return ResponseEntity.notFound().build();
+            // The servlet stream has no channel of its own, so this copies the (possibly memory-mapped) buffer
+            // through one 8 KB heap chunk at a time; the thumbnail is never copied into a byte[] of its full size
+            ByteBuffer data = thumbnail.data().duplicate();
+            response.setContentType(thumbnail.contentType());
+            response.setContentLength(data.remaining());
+            Channels.newChannel(response.getOutputStream()).write(data);
 
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        } catch (RuntimeException e) {
+            if (!response.isCommitted()) {
+                response.sendError(HttpStatus.INTERNAL_SERVER_ERROR.value());
+            }
+        }
+    }
+
+    @Operation(summary = "Pack thumbnail files into segments",
+            description = "Copies thumbnails still stored as single files into the segment store. Safe to repeat. Requires ADMIN role.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Number of packed thumbnails returned"),
+            @ApiResponse(responseCode = "403", description = "Insufficient permissions"),
+            @ApiResponse(responseCode = "500", description = "Migration failed")
+    })
+    @PostMapping("/thumbnails/migrate")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> migrateThumbnails() {
+        try {
+            Map<String, Object> result = new HashMap<>();
+            result.put("packed", thumbnailSegmentStore.migrateFromFiles());
+            return ResponseEntity.ok(result);
+
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Thumbnail migration failed: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+
+    @Operation(summary = "Get storyboard index", description = "Returns the WebVTT index of the scrub-preview storyboard: one cue per sampled frame, "
+            + "pointing at a tile of a sprite sheet with a #xywh= fragment. The index is revalidated by its ETag, since a video id can be reused; "
+            + "the sheets it points at are named after the video's content and cached for a year.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Storyboard index returned"),
+            @ApiResponse(responseCode = "404", description = "Video not found, or its storyboard is not built yet (building is queued for READY videos)")
+    })
+    @GetMapping("/{id}/storyboard")
+    public ResponseEntity<?> getStoryboard(@Parameter(description = "Video ID") @PathVariable Long id) {
+        return storyboardService.getIndex(id)
+                .<ResponseEntity<?>>map(index -> ResponseEntity.ok()
+                        .cacheControl(CacheControl.noCache())
+                        .eTag(index.getParent().getFileName().toString())
+                        .contentType(MediaType.parseMediaType("text/vtt;charset=UTF-8"))
+                        .body(new FileSystemResource(index)))
+                .orElseGet(() -> {
+                    Map<String, String> error = new HashMap<>();
+                    error.put("error", "Storyboard is not ready");
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+                });
+    }
+
+    @Operation(summary = "Get storyboard sprite sheet", description = "Returns one JPEG sprite sheet of the storyboard, as referenced by its index")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Sprite sheet returned"),
+            @ApiResponse(responseCode = "404", description = "Sprite sheet not found")
+    })
+    @GetMapping("/storyboards/{key}/{sheet}.jpg")
+    public ResponseEntity<?> getStoryboardSheet(@Parameter(description = "Storyboard key, from the index") @PathVariable String key,
+                                                @Parameter(description = "Sheet number, from 0") @PathVariable int sheet) {
+        return storyboardService.getSheet(key, sheet)
+                .<ResponseEntity<?>>map(file -> ResponseEntity.ok()
+                        .cacheControl(STORYBOARD_CACHE)
+                        .contentType(MediaType.IMAGE_JPEG)
+                        .body(new FileSystemResource(file)))
+                .orElseGet(() -> {
+                    Map<String, String> error = new HashMap<>();
+                    error.put("error", "Sprite sheet not found");
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+                });
+    }
+
+    @Operation(summary = "Stream video", description = "Streams the video file with support for single and multi-range requests")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Full video returned"),
+            @ApiResponse(responseCode = "206", description = "Requested byte ranges returned"),
+            @ApiResponse(responseCode = "404", description = "Video not found"),
+            @ApiResponse(responseCode = "416", description = "Requested range not satisfiable"),
+            @ApiResponse(responseCode = "500", description = "Failed to stream video")
+    })
+    @GetMapping("/{id}/stream")
+    public void streamVideo(@Parameter(description = "Video ID") @PathVariable Long id,
+                            HttpServletRequest request,
+                            HttpServletResponse response) throws IOException {
+        try {
+            videoStreamService.streamVideo(id, request, response);
+
+        } catch (ResourceNotFoundException e) {
+            if (!response.isCommitted()) {
+                response.sendError(HttpStatus.NOT_FOUND.value(), e.getMessage());
+            }
+        } catch (RuntimeException e) {
+            if (!response.isCommitted()) {
+                response.sendError(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Failed to stream video: " + e.getMessage());
+            }
         }
     }
 
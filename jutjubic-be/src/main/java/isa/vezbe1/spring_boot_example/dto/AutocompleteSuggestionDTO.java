@@ -0,0 +1,49 @@
+package isa.vezbe1.spring_boot_example.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Search-as-you-type suggestion")
+public class AutocompleteSuggestionDTO {
+
+    @Schema(description = "Text to show and search for", example = "Java Spring Boot Tutorial for Beginners")
+    private String text;
+
+    @Schema(description = "What the suggestion is", example = "video", allowableValues = {"video", "tag"})
+    private String type;
+
+    @Schema(description = "Video ID or tag ID", example = "1")
+    private Long id;
+
+    public AutocompleteSuggestionDTO() {
+    }
+
+    public AutocompleteSuggestionDTO(String text, String type, Long id) {
+        this.text = text;
+        this.type = type;
+        this.id = id;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+}
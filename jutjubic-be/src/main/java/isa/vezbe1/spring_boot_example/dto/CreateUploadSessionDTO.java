@@ -0,0 +1,117 @@
+package isa.vezbe1.spring_boot_example.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+@Schema(description = "Data for starting a resumable video upload")
+public class CreateUploadSessionDTO {
+
+    @Schema(description = "Video title (max 200 chars)", example = "My Tutorial Video")
+    @NotBlank(message = "Title is required")
+    @Size(max = 200, message = "Title must not exceed 200 characters")
+    private String title;
+
+    @Schema(description = "Video description (max 5000 chars)", example = "This is a detailed tutorial")
+    @Size(max = 5000, message = "Description must not exceed 5000 characters")
+    private String description;
+
+    @Schema(description = "Video tags", example = "[\"tutorial\", \"java\"]")
+    private List<String> tags;
+
+    @Schema(description = "Video location", example = "Novi Sad")
+    @Size(max = 255, message = "Location must not exceed 255 characters")
+    private String location;
+
+    @Schema(description = "Latitude where the video was recorded (WGS84)", example = "45.2671")
+    @DecimalMin(value = "-90", message = "Latitude must be between -90 and 90")
+    @DecimalMax(value = "90", message = "Latitude must be between -90 and 90")
+    private Double latitude;
+
+    @Schema(description = "Longitude where the video was recorded (WGS84)", example = "19.8335")
+    @DecimalMin(value = "-180", message = "Longitude must be between -180 and 180")
+    @DecimalMax(value = "180", message = "Longitude must be between -180 and 180")
+    private Double longitude;
+
+    @Schema(description = "Original video file name", example = "tutorial.mp4")
+    @NotBlank(message = "File name is required")
+    private String fileName;
+
+    @Schema(description = "Total video file size in bytes", example = "52428800")
+    @NotNull(message = "File size is required")
+    @Positive(message = "File size must be positive")
+    private Long fileSize;
+
+    public CreateUploadSessionDTO() {
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public void setTags(List<String> tags) {
+        this.tags = tags;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public void setLocation(String location) {
+        this.location = location;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public Long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+}
@@ -1,8 +1,11 @@
 package isa.vezbe1.spring_boot_example.dto;
 
 import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 
 import java.util.List;
@@ -10,6 +13,9 @@ import java.util.List;
 @Schema(description = "Data for creating a video entry")
 public class CreateVideoDTO {
 
+    // Under /uploads/, with no parent segments or backslashes
+    private static final String UPLOAD_PATH = "^/uploads/(?!(.*/)?\\.\\.(/|$))[^\\\\]+$";
+
     @Schema(description = "Video title (max 200 chars)", example = "My Tutorial Video")
     @NotBlank(message = "Title is required")
     @Size(max = 200, message = "Title must not exceed 200 characters")
@@ -21,10 +27,12 @@ public class CreateVideoDTO {
 
     @Schema(description = "Path to thumbnail image", example = "/uploads/thumbnails/thumb1.jpg")
     @NotBlank(message = "Thumbnail path is required")
+    @Pattern(regexp = UPLOAD_PATH, message = "Thumbnail path must be an /uploads/ path")
     private String thumbnailPath;
 
     @Schema(description = "Path to video file", example = "/uploads/videos/video1.mp4")
     @NotBlank(message = "Video path is required")
+    @Pattern(regexp = UPLOAD_PATH, message = "Video path must be an /uploads/ path")
     private String videoPath;
 
     @Schema(description = "Video file size in MB", example = "50.0")
@@ -34,6 +42,16 @@ public class CreateVideoDTO {
     @Schema(description = "Video tags", example = "[\"tutorial\", \"java\"]")
     private List<String> tags;
 
+    @Schema(description = "Latitude where the video was recorded (WGS84)", example = "45.2671")
+    @DecimalMin(value = "-90", message = "Latitude must be between -90 and 90")
+    @DecimalMax(value = "90", message = "Latitude must be between -90 and 90")
+    private Double latitude;
+
+    @Schema(description = "Longitude where the video was recorded (WGS84)", example = "19.8335")
+    @DecimalMin(value = "-180", message = "Longitude must be between -180 and 180")
+    @DecimalMax(value = "180", message = "Longitude must be between -180 and 180")
+    private Double longitude;
+
     public CreateVideoDTO() {
     }
 
@@ -94,4 +112,20 @@ public class CreateVideoDTO {
     public void setTags(List<String> tags) {
         this.tags = tags;
     }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
 }
\ No newline at end of file
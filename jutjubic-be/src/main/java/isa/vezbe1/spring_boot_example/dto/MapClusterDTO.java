@@ -0,0 +1,73 @@
+package isa.vezbe1.spring_boot_example.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Videos recorded inside one map tile, drawn as a single marker")
+public class MapClusterDTO {
+
+    @Schema(description = "Tile column (slippy map / Web Mercator numbering)", example = "1141")
+    private Integer x;
+
+    @Schema(description = "Tile row (slippy map / Web Mercator numbering)", example = "733")
+    private Integer y;
+
+    @Schema(description = "Number of videos in the tile", example = "17")
+    private Long count;
+
+    @Schema(description = "Average latitude of the videos in the tile (where to draw the marker)", example = "45.2671")
+    private Double latitude;
+
+    @Schema(description = "Average longitude of the videos in the tile", example = "19.8335")
+    private Double longitude;
+
+    public MapClusterDTO() {
+    }
+
+    public MapClusterDTO(Integer x, Integer y, Long count, Double latitude, Double longitude) {
+        this.x = x;
+        this.y = y;
+        this.count = count;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    public Integer getX() {
+        return x;
+    }
+
+    public void setX(Integer x) {
+        this.x = x;
+    }
+
+    public Integer getY() {
+        return y;
+    }
+
+    public void setY(Integer y) {
+        this.y = y;
+    }
+
+    public Long getCount() {
+        return count;
+    }
+
+    public void setCount(Long count) {
+        this.count = count;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+}
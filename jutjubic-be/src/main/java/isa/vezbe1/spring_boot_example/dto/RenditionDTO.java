@@ -0,0 +1,62 @@
+package isa.vezbe1.spring_boot_example.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import isa.vezbe1.spring_boot_example.model.VideoRendition;
+
+@Schema(description = "Lower-resolution H.264 copy of a video")
+public class RenditionDTO {
+
+    @Schema(description = "Frame height in pixels", example = "480")
+    private Integer height;
+
+    @Schema(description = "Frame width in pixels", example = "848")
+    private Integer width;
+
+    @Schema(description = "Average bitrate in kbit/s", example = "900")
+    private Integer bitrateKbps;
+
+    @Schema(description = "Path to the rendition file", example = "/uploads/renditions/7/480p.mp4")
+    private String path;
+
+    public RenditionDTO() {
+    }
+
+    public RenditionDTO(VideoRendition rendition) {
+        this.height = rendition.getHeight();
+        this.width = rendition.getWidth();
+        this.bitrateKbps = rendition.getBitrateKbps();
+        this.path = rendition.getPath();
+    }
+
+    public Integer getHeight() {
+        return height;
+    }
+
+    public void setHeight(Integer height) {
+        this.height = height;
+    }
+
+    public Integer getWidth() {
+        return width;
+    }
+
+    public void setWidth(Integer width) {
+        this.width = width;
+    }
+
+    public Integer getBitrateKbps() {
+        return bitrateKbps;
+    }
+
+    public void setBitrateKbps(Integer bitrateKbps) {
+        this.bitrateKbps = bitrateKbps;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+}
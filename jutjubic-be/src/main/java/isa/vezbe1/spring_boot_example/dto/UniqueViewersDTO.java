@@ -0,0 +1,49 @@
+package isa.vezbe1.spring_boot_example.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Estimated unique viewers of a video (HyperLogLog, ~0.8% standard error)")
+public class UniqueViewersDTO {
+
+    @Schema(description = "Unique viewers in the last 24 hours, counted in whole UTC days", example = "120")
+    private Long last24Hours;
+
+    @Schema(description = "Unique viewers in the last 7 days, counted in whole UTC days", example = "560")
+    private Long last7Days;
+
+    @Schema(description = "Unique viewers since the video was uploaded", example = "1320")
+    private Long allTime;
+
+    public UniqueViewersDTO() {
+    }
+
+    public UniqueViewersDTO(Long last24Hours, Long last7Days, Long allTime) {
+        this.last24Hours = last24Hours;
+        this.last7Days = last7Days;
+        this.allTime = allTime;
+    }
+
+    public Long getLast24Hours() {
+        return last24Hours;
+    }
+
+    public void setLast24Hours(Long last24Hours) {
+        this.last24Hours = last24Hours;
+    }
+
+    public Long getLast7Days() {
+        return last7Days;
+    }
+
+    public void setLast7Days(Long last7Days) {
+        this.last7Days = last7Days;
+    }
+
+    public Long getAllTime() {
+        return allTime;
+    }
+
+    public void setAllTime(Long allTime) {
+        this.allTime = allTime;
+    }
+}
@@ -0,0 +1,61 @@
+package isa.vezbe1.spring_boot_example.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "State of a resumable video upload")
+public class UploadSessionDTO {
+
+    @Schema(description = "Upload session identifier", example = "3f2b9c1e-8d7a-4f0e-9a51-0c6f2d4b7e11")
+    private String uploadId;
+
+    @Schema(description = "Total video file size in bytes", example = "52428800")
+    private Long fileSize;
+
+    @Schema(description = "Length of the contiguous prefix received so far, the offset to resume from", example = "10485760")
+    private Long offset;
+
+    @Schema(description = "Total number of bytes received, including chunks past the offset", example = "15728640")
+    private Long receivedBytes;
+
+    public UploadSessionDTO() {
+    }
+
+    public UploadSessionDTO(String uploadId, Long fileSize, Long offset, Long receivedBytes) {
+        this.uploadId = uploadId;
+        this.fileSize = fileSize;
+        this.offset = offset;
+        this.receivedBytes = receivedBytes;
+    }
+
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public void setUploadId(String uploadId) {
+        this.uploadId = uploadId;
+    }
+
+    public Long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public Long getOffset() {
+        return offset;
+    }
+
+    public void setOffset(Long offset) {
+        this.offset = offset;
+    }
+
+    public Long getReceivedBytes() {
+        return receivedBytes;
+    }
+
+    public void setReceivedBytes(Long receivedBytes) {
+        this.receivedBytes = receivedBytes;
+    }
+}
@@ -4,6 +4,7 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import isa.vezbe1.spring_boot_example.model.Video;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -43,6 +44,33 @@ public class VideoDTO {
     @Schema(description = "Number of comments", example = "42")
     private Long commentCount;
 
+    @Schema(description = "Latitude where the video was recorded, if known", example = "45.2671")
+    private Double latitude;
+
+    @Schema(description = "Longitude where the video was recorded, if known", example = "19.8335")
+    private Double longitude;
+
+    @Schema(description = "Duration in milliseconds, once the upload has been processed", example = "73500")
+    private Long durationMs;
+
+    @Schema(description = "Frame width in pixels", example = "1920")
+    private Integer width;
+
+    @Schema(description = "Frame height in pixels", example = "1080")
+    private Integer height;
+
+    @Schema(description = "Average bitrate in kbit/s", example = "4500")
+    private Integer bitrateKbps;
+
+    @Schema(description = "Video codec as named in the MP4 sample entry", example = "avc1")
+    private String videoCodec;
+
+    @Schema(description = "Estimated unique viewers, only filled in on the single video endpoint")
+    private UniqueViewersDTO uniqueViewers;
+
+    @Schema(description = "Transcoded lower-resolution copies, lowest first; only filled in on the single video endpoint")
+    private List<RenditionDTO> renditions;
+
     public VideoDTO() {
     }
 
@@ -62,6 +90,25 @@ public class VideoDTO {
         this.commentCount = commentCount;
     }
 
+    // Used by the projection queries in VideoRepository; tags are filled in by VideoSummaryService
+    public VideoDTO(Long id, String title, String description, String thumbnailPath,
+                    String videoPath, Double videoSizeMb, Long viewCount, Timestamp createdAt,
+                    Long uploaderId, String uploaderUsername, String uploaderFirstName,
+                    String uploaderLastName, String uploaderEmail, Long commentCount,
+                    Double latitude, Double longitude, Long durationMs, Integer width,
+                    Integer height, Integer bitrateKbps, String videoCodec) {
+        this(id, title, description, thumbnailPath, videoPath, videoSizeMb, viewCount, createdAt,
+                new UserDTO(uploaderId, uploaderUsername, uploaderFirstName, uploaderLastName, uploaderEmail),
+                new ArrayList<>(), commentCount);
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.durationMs = durationMs;
+        this.width = width;
+        this.height = height;
+        this.bitrateKbps = bitrateKbps;
+        this.videoCodec = videoCodec;
+    }
+
     public VideoDTO(Video video) {
         this.id = video.getId();
         this.title = video.getTitle();
@@ -75,7 +122,14 @@ public class VideoDTO {
         this.tags = video.getTags().stream()
                 .map(tag -> tag.getName())
                 .collect(Collectors.toList());
-        this.commentCount = (long) video.getComments().size();
+        this.commentCount = video.getCommentCount();
+        this.latitude = video.getLatitude();
+        this.longitude = video.getLongitude();
+        this.durationMs = video.getDurationMs();
+        this.width = video.getWidth();
+        this.height = video.getHeight();
+        this.bitrateKbps = video.getBitrateKbps();
+        this.videoCodec = video.getVideoCodec();
     }
 
     // Getters and Setters
@@ -166,4 +220,76 @@ public class VideoDTO {
     public void setCommentCount(Long commentCount) {
         this.commentCount = commentCount;
     }
-}
\ No newline at end of file
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    public Long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(Long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public Integer getWidth() {
+        return width;
+    }
+
+    public void setWidth(Integer width) {
+        this.width = width;
+    }
+
+    public Integer getHeight() {
+        return height;
+    }
+
+    public void setHeight(Integer height) {
+        this.height = height;
+    }
+
+    public Integer getBitrateKbps() {
+        return bitrateKbps;
+    }
+
+    public void setBitrateKbps(Integer bitrateKbps) {
+        this.bitrateKbps = bitrateKbps;
+    }
+
+    public String getVideoCodec() {
+        return videoCodec;
+    }
+
+    public void setVideoCodec(String videoCodec) {
+        this.videoCodec = videoCodec;
+    }
+
+    public UniqueViewersDTO getUniqueViewers() {
+        return uniqueViewers;
+    }
+
+    public void setUniqueViewers(UniqueViewersDTO uniqueViewers) {
+        this.uniqueViewers = uniqueViewers;
+    }
+
+    public List<RenditionDTO> getRenditions() {
+        return renditions;
+    }
+
+    public void setRenditions(List<RenditionDTO> renditions) {
+        this.renditions = renditions;
+    }
+}
@@ -0,0 +1,40 @@
+package isa.vezbe1.spring_boot_example.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "One page of the newest-first video feed")
+public class VideoFeedDTO {
+
+    @Schema(description = "Videos on this page, newest first")
+    private List<VideoDTO> videos;
+
+    @Schema(description = "Opaque cursor for the next page (pass as 'after'); null on the last page",
+            example = "MjAyNi0wMS0xNVQxMDozMDowMFosNDI")
+    private String nextCursor;
+
+    public VideoFeedDTO() {
+    }
+
+    public VideoFeedDTO(List<VideoDTO> videos, String nextCursor) {
+        this.videos = videos;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<VideoDTO> getVideos() {
+        return videos;
+    }
+
+    public void setVideos(List<VideoDTO> videos) {
+        this.videos = videos;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,64 @@
+package isa.vezbe1.spring_boot_example.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "One page of video search results, best match first")
+public class VideoSearchResultDTO {
+
+    @Schema(description = "Matching videos on this page")
+    private List<VideoDTO> videos;
+
+    @Schema(description = "Opaque cursor for the next page (pass as 'after'); null on the last page")
+    private String nextCursor;
+
+    @Schema(description = "Total number of matching videos, if the search backend knows it", example = "37")
+    private Long totalHits;
+
+    @Schema(description = "Search mode that produced these results; pass it back as 'mode' together with the cursor",
+            example = "index")
+    private String mode;
+
+    public VideoSearchResultDTO() {
+    }
+
+    public VideoSearchResultDTO(List<VideoDTO> videos, String nextCursor, Long totalHits, String mode) {
+        this.videos = videos;
+        this.nextCursor = nextCursor;
+        this.totalHits = totalHits;
+        this.mode = mode;
+    }
+
+    public List<VideoDTO> getVideos() {
+        return videos;
+    }
+
+    public void setVideos(List<VideoDTO> videos) {
+        this.videos = videos;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public Long getTotalHits() {
+        return totalHits;
+    }
+
+    public void setTotalHits(Long totalHits) {
+        this.totalHits = totalHits;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+}
@@ -0,0 +1,49 @@
+package isa.vezbe1.spring_boot_example.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Processing state of an uploaded video")
+public class VideoStatusDTO {
+
+    @Schema(description = "Video ID", example = "1")
+    private Long id;
+
+    @Schema(description = "PROCESSING, READY or FAILED", example = "PROCESSING")
+    private String status;
+
+    @Schema(description = "Pipeline stage the video is in while processing (thumbnails, metadata, events)", example = "metadata")
+    private String stage;
+
+    public VideoStatusDTO() {
+    }
+
+    public VideoStatusDTO(Long id, String status, String stage) {
+        this.id = id;
+        this.status = status;
+        this.stage = stage;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public void setStage(String stage) {
+        this.stage = stage;
+    }
+}
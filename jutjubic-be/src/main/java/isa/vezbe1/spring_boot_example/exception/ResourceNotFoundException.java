@@ -0,0 +1,11 @@
+package isa.vezbe1.spring_boot_example.exception;
+
+// Thrown when a requested video or its file does not exist
+public class ResourceNotFoundException extends RuntimeException {
+
+    private static final long serialVersionUID = 6203718892214135471L;
+
+    public ResourceNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package isa.vezbe1.spring_boot_example.exception;
+
+// Thrown when background work is at capacity and new work should be retried later
+public class ServiceBusyException extends RuntimeException {
+
+    private static final long serialVersionUID = 4180316752905113622L;
+
+    public ServiceBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,41 @@
+package isa.vezbe1.spring_boot_example.model;
+
+import jakarta.persistence.*;
+import java.sql.Timestamp;
+
+/**
+ * Marker of a reconciled Redis view count batch, written in the same transaction as the counts,
+ * so a batch whose Redis copy outlived the commit is not added a second time.
+ */
+@Entity
+@Table(name = "applied_view_batches", indexes = {
+        @Index(name = "idx_applied_view_batches_applied_at", columnList = "applied_at")
+})
+public class AppliedViewBatch {
+
+    @Id
+    @Column(name = "batch_id", length = 36)
+    private String batchId;
+
+    @Column(name = "applied_at", nullable = false)
+    private Timestamp appliedAt;
+
+    public AppliedViewBatch() {
+    }
+
+    public String getBatchId() {
+        return batchId;
+    }
+
+    public void setBatchId(String batchId) {
+        this.batchId = batchId;
+    }
+
+    public Timestamp getAppliedAt() {
+        return appliedAt;
+    }
+
+    public void setAppliedAt(Timestamp appliedAt) {
+        this.appliedAt = appliedAt;
+    }
+}
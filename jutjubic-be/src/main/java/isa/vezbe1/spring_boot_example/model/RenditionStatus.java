@@ -0,0 +1,12 @@
+package isa.vezbe1.spring_boot_example.model;
+
+/**
+ * State of a transcoding job for one rendition. RUNNING jobs found at startup were interrupted
+ * and go back to PENDING.
+ */
+public enum RenditionStatus {
+    PENDING,
+    RUNNING,
+    READY,
+    FAILED
+}
@@ -7,7 +7,9 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "videos")
+@Table(name = "videos", indexes = {
+        @Index(name = "idx_videos_created_at_id", columnList = "created_at DESC, id DESC")
+})
 public class Video {
 
     @Id
@@ -32,6 +34,10 @@ public class Video {
     @Column(name = "view_count", nullable = false, columnDefinition = "BIGINT DEFAULT 0")
     private Long viewCount = 0L;
 
+    // Maintained by CommentService in the same transaction as the comment; see CommentCountRepairService
+    @Column(name = "comment_count", nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long commentCount = 0L;
+
     @Column(name = "created_at", nullable = false)
     private Timestamp createdAt;
 
@@ -41,6 +47,34 @@ public class Video {
     @Column(name = "location")
     private String location;
 
+    // WGS84 degrees; both set or both null
+    @Column(name = "latitude")
+    private Double latitude;
+
+    @Column(name = "longitude")
+    private Double longitude;
+
+    // Uploads start PROCESSING and are set READY by UploadPipeline; other videos are READY from the start
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16, columnDefinition = "VARCHAR(16) DEFAULT 'READY'")
+    private VideoStatus status = VideoStatus.READY;
+
+    // Read from the MP4 boxes by UploadPipeline; null for videos that were never inspected
+    @Column(name = "duration_ms")
+    private Long durationMs;
+
+    @Column(name = "width")
+    private Integer width;
+
+    @Column(name = "height")
+    private Integer height;
+
+    @Column(name = "bitrate_kbps")
+    private Integer bitrateKbps;
+
+    @Column(name = "video_codec", length = 16)
+    private String videoCodec;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "uploader_id", nullable = false)
     private User uploader;
@@ -57,6 +91,10 @@ public class Video {
     @JsonIgnore
     private Set<Comment> comments = new HashSet<>();
 
+    @OneToMany(mappedBy = "video", cascade = CascadeType.ALL, orphanRemoval = true)
+    @JsonIgnore
+    private Set<VideoRendition> renditions = new HashSet<>();
+
     public Video() {
     }
 
@@ -132,6 +170,14 @@ public class Video {
         this.viewCount++;
     }
 
+    public Long getCommentCount() {
+        return commentCount;
+    }
+
+    public void setCommentCount(Long commentCount) {
+        this.commentCount = commentCount;
+    }
+
     public Timestamp getCreatedAt() {
         return createdAt;
     }
@@ -156,6 +202,70 @@ public class Video {
         this.location = location;
     }
 
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    public VideoStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(VideoStatus status) {
+        this.status = status;
+    }
+
+    public Long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(Long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public Integer getWidth() {
+        return width;
+    }
+
+    public void setWidth(Integer width) {
+        this.width = width;
+    }
+
+    public Integer getHeight() {
+        return height;
+    }
+
+    public void setHeight(Integer height) {
+        this.height = height;
+    }
+
+    public Integer getBitrateKbps() {
+        return bitrateKbps;
+    }
+
+    public void setBitrateKbps(Integer bitrateKbps) {
+        this.bitrateKbps = bitrateKbps;
+    }
+
+    public String getVideoCodec() {
+        return videoCodec;
+    }
+
+    public void setVideoCodec(String videoCodec) {
+        this.videoCodec = videoCodec;
+    }
+
     public User getUploader() {
         return uploader;
     }
@@ -179,4 +289,12 @@ public class Video {
     public void setComments(Set<Comment> comments) {
         this.comments = comments;
     }
+
+    public Set<VideoRendition> getRenditions() {
+        return renditions;
+    }
+
+    public void setRenditions(Set<VideoRendition> renditions) {
+        this.renditions = renditions;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,147 @@
+package isa.vezbe1.spring_boot_example.model;
+
+import jakarta.persistence.*;
+import java.sql.Timestamp;
+
+/**
+ * A lower-resolution H.264 copy of a video, produced by TranscodingService. The row is the
+ * job as well: it is created PENDING and records progress until the file is READY.
+ */
+@Entity
+@Table(name = "video_renditions",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"video_id", "height"}))
+public class VideoRendition {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "video_id", nullable = false)
+    private Video video;
+
+    @Column(name = "height", nullable = false)
+    private Integer height;
+
+    @Column(name = "width")
+    private Integer width;
+
+    @Column(name = "path")
+    private String path;
+
+    @Column(name = "bitrate_kbps")
+    private Integer bitrateKbps;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16)
+    private RenditionStatus status = RenditionStatus.PENDING;
+
+    @Column(name = "frames_done", nullable = false)
+    private Integer framesDone = 0;
+
+    @Column(name = "total_frames")
+    private Integer totalFrames;
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "updated_at", nullable = false)
+    private Timestamp updatedAt;
+
+    public VideoRendition() {
+    }
+
+    public VideoRendition(Video video, Integer height, Timestamp updatedAt) {
+        this.video = video;
+        this.height = height;
+        this.updatedAt = updatedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Video getVideo() {
+        return video;
+    }
+
+    public void setVideo(Video video) {
+        this.video = video;
+    }
+
+    public Integer getHeight() {
+        return height;
+    }
+
+    public void setHeight(Integer height) {
+        this.height = height;
+    }
+
+    public Integer getWidth() {
+        return width;
+    }
+
+    public void setWidth(Integer width) {
+        this.width = width;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public Integer getBitrateKbps() {
+        return bitrateKbps;
+    }
+
+    public void setBitrateKbps(Integer bitrateKbps) {
+        this.bitrateKbps = bitrateKbps;
+    }
+
+    public RenditionStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(RenditionStatus status) {
+        this.status = status;
+    }
+
+    public Integer getFramesDone() {
+        return framesDone;
+    }
+
+    public void setFramesDone(Integer framesDone) {
+        this.framesDone = framesDone;
+    }
+
+    public Integer getTotalFrames() {
+        return totalFrames;
+    }
+
+    public void setTotalFrames(Integer totalFrames) {
+        this.totalFrames = totalFrames;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public Timestamp getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Timestamp updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
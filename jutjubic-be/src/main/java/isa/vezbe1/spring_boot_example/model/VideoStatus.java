@@ -0,0 +1,11 @@
+package isa.vezbe1.spring_boot_example.model;
+
+/**
+ * Where a video is in the post-upload pipeline. PROCESSING videos are already stored and
+ * playable; their thumbnails, metadata and upload events are still being handled in the background.
+ */
+public enum VideoStatus {
+    PROCESSING,
+    READY,
+    FAILED
+}
@@ -0,0 +1,48 @@
+package isa.vezbe1.spring_boot_example.repository;
+
+import isa.vezbe1.spring_boot_example.model.ContentBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ContentBlobRepository extends JpaRepository<ContentBlob, String> {
+
+    Optional<ContentBlob> findByPath(String path);
+
+    /**
+     * Inserts the blob with one reference, or adds a reference if the hash is already stored.
+     * Returns the blob's stored path, which for an existing blob may differ from the one given,
+     * and whether the row was newly inserted (xmax is 0 only for a fresh tuple).
+     */
+    @Query(value = "INSERT INTO content_blobs (hash, path, size_bytes, ref_count, created_at) " +
+            "VALUES (:hash, :path, :sizeBytes, 1, NOW()) " +
+            "ON CONFLICT (hash) DO UPDATE SET ref_count = content_blobs.ref_count + 1 " +
+            "RETURNING path AS path, (xmax = 0) AS inserted", nativeQuery = true)
+    BlobReference acquire(@Param("hash") String hash, @Param("path") String path, @Param("sizeBytes") Long sizeBytes);
+
+    /**
+     * Serializes work on one hash until the end of the current transaction: acquiring a
+     * reference and deleting the file of a released blob never overlap.
+     */
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(hashtext(:hash))", nativeQuery = true)
+    Integer lockHash(@Param("hash") String hash);
+
+    @Modifying
+    @Query("UPDATE ContentBlob b SET b.refCount = b.refCount - 1 WHERE b.hash = :hash")
+    int decrementRefCount(@Param("hash") String hash);
+
+    @Modifying
+    @Query("DELETE FROM ContentBlob b WHERE b.hash = :hash AND b.refCount <= 0")
+    int deleteIfUnreferenced(@Param("hash") String hash);
+
+    interface BlobReference {
+        String getPath();
+
+        Boolean getInserted();
+    }
+}
@@ -0,0 +1,61 @@
+package isa.vezbe1.spring_boot_example.repository;
+
+import isa.vezbe1.spring_boot_example.model.RenditionStatus;
+import isa.vezbe1.spring_boot_example.model.VideoRendition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+@Repository
+public interface VideoRenditionRepository extends JpaRepository<VideoRendition, Long> {
+
+    String STATUS = "isa.vezbe1.spring_boot_example.model.RenditionStatus.";
+
+    @Query("SELECT r FROM VideoRendition r WHERE r.video.id = :videoId AND r.status = :status ORDER BY r.height")
+    List<VideoRendition> findByVideoIdAndStatus(@Param("videoId") Long videoId, @Param("status") RenditionStatus status);
+
+    @Query("SELECT r.id FROM VideoRendition r WHERE r.status = :status ORDER BY r.id")
+    List<Long> findIdsByStatus(@Param("status") RenditionStatus status, Limit limit);
+
+    /**
+     * Takes a pending job; returns 0 when another poll already took it.
+     */
+    @Modifying
+    @Query("UPDATE VideoRendition r SET r.status = " + STATUS + "RUNNING, r.attempts = r.attempts + 1, r.updatedAt = :now " +
+            "WHERE r.id = :id AND r.status = " + STATUS + "PENDING")
+    int claim(@Param("id") Long id, @Param("now") Timestamp now);
+
+    @Modifying
+    @Query("UPDATE VideoRendition r SET r.framesDone = :framesDone, r.totalFrames = :totalFrames, r.updatedAt = :now " +
+            "WHERE r.id = :id AND r.status = " + STATUS + "RUNNING")
+    int saveProgress(@Param("id") Long id, @Param("framesDone") Integer framesDone,
+                     @Param("totalFrames") Integer totalFrames, @Param("now") Timestamp now);
+
+    @Modifying
+    @Query("UPDATE VideoRendition r SET r.status = " + STATUS + "READY, r.width = :width, r.path = :path, " +
+            "r.bitrateKbps = :bitrateKbps, r.framesDone = :framesDone, r.updatedAt = :now " +
+            "WHERE r.id = :id AND r.status = " + STATUS + "RUNNING")
+    int markReady(@Param("id") Long id, @Param("width") Integer width, @Param("path") String path,
+                  @Param("bitrateKbps") Integer bitrateKbps, @Param("framesDone") Integer framesDone,
+                  @Param("now") Timestamp now);
+
+    /**
+     * Puts a failed job back in the queue while it has attempts left, otherwise fails it for good.
+     */
+    @Modifying
+    @Query("UPDATE VideoRendition r SET r.status = CASE WHEN r.attempts < :maxAttempts " +
+            "THEN " + STATUS + "PENDING " +
+            "ELSE " + STATUS + "FAILED END, r.updatedAt = :now " +
+            "WHERE r.id = :id AND r.status = " + STATUS + "RUNNING")
+    int markFailed(@Param("id") Long id, @Param("maxAttempts") int maxAttempts, @Param("now") Timestamp now);
+
+    @Modifying
+    @Query("UPDATE VideoRendition r SET r.status = " + STATUS + "PENDING WHERE r.status = " + STATUS + "RUNNING")
+    int requeueRunning();
+}
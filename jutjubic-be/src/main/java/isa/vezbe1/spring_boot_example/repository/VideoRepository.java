@@ -1,7 +1,10 @@
 package isa.vezbe1.spring_boot_example.repository;
 
+import isa.vezbe1.spring_boot_example.dto.VideoDTO;
 import isa.vezbe1.spring_boot_example.model.Video;
+import isa.vezbe1.spring_boot_example.model.VideoStatus;
 import isa.vezbe1.spring_boot_example.model.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -10,7 +13,10 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface VideoRepository extends JpaRepository<Video, Long> {
@@ -19,6 +25,53 @@ public interface VideoRepository extends JpaRepository<Video, Long> {
 
     List<Video> findAllByOrderByCreatedAtDesc();
 
+    // ========== READ MODEL (VideoDTO projections) ==========
+    // One row per video with the uploader summary and the denormalized comment count;
+    // tags are loaded for the whole page with findTagNamesByVideoIds.
+
+    String SUMMARY_SELECT = "SELECT new isa.vezbe1.spring_boot_example.dto.VideoDTO(" +
+            "v.id, v.title, v.description, v.thumbnailPath, v.videoPath, v.videoSizeMb, v.viewCount, v.createdAt, " +
+            "u.id, u.username, u.firstName, u.lastName, u.email, v.commentCount, v.latitude, v.longitude, " +
+            "v.durationMs, v.width, v.height, v.bitrateKbps, v.videoCodec) " +
+            "FROM Video v JOIN v.uploader u ";
+
+    @Query(SUMMARY_SELECT + "ORDER BY v.createdAt DESC")
+    List<VideoDTO> findAllSummaries();
+
+    @Query(value = SUMMARY_SELECT + "ORDER BY v.createdAt DESC",
+            countQuery = "SELECT COUNT(v) FROM Video v")
+    Page<VideoDTO> findSummaryPage(Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE v.id = :videoId")
+    Optional<VideoDTO> findSummaryById(@Param("videoId") Long videoId);
+
+    @Query(SUMMARY_SELECT + "WHERE v.id IN :videoIds")
+    List<VideoDTO> findSummariesByIds(@Param("videoIds") Collection<Long> videoIds);
+
+    @Query(SUMMARY_SELECT + "WHERE v.uploader = :uploader ORDER BY v.createdAt DESC")
+    List<VideoDTO> findSummariesByUploader(@Param("uploader") User uploader);
+
+    @Query(SUMMARY_SELECT + "WHERE LOWER(v.title) LIKE LOWER(CONCAT('%', :title, '%')) ORDER BY v.createdAt DESC")
+    List<VideoDTO> searchSummariesByTitle(@Param("title") String title);
+
+    // Feed: first page and seek pages walk idx_videos_created_at_id, with no OFFSET and no count query
+    @Query(SUMMARY_SELECT + "ORDER BY v.createdAt DESC, v.id DESC")
+    List<VideoDTO> findFeedSummaries(Limit limit);
+
+    @Query(SUMMARY_SELECT + "WHERE (v.createdAt, v.id) < (:createdAt, :id) ORDER BY v.createdAt DESC, v.id DESC")
+    List<VideoDTO> findFeedSummariesAfter(@Param("createdAt") Timestamp createdAt,
+                                          @Param("id") Long id,
+                                          Limit limit);
+
+    @Query("SELECT v.id AS videoId, t.name AS name FROM Video v JOIN v.tags t WHERE v.id IN :videoIds")
+    List<TagName> findTagNamesByVideoIds(@Param("videoIds") Collection<Long> videoIds);
+
+    interface TagName {
+        Long getVideoId();
+
+        String getName();
+    }
+
     List<Video> findByUploaderOrderByCreatedAtDesc(User uploader);
 
     @Modifying
@@ -27,5 +80,44 @@ public interface VideoRepository extends JpaRepository<Video, Long> {
 
     List<Video> findByTitleContainingIgnoreCaseOrderByCreatedAtDesc(String title);
 
+    // Baseline search strategy: the same LIKE scan, returning one page of ids
+    @Query("SELECT v.id FROM Video v WHERE LOWER(v.title) LIKE LOWER(CONCAT('%', :title, '%')) ORDER BY v.createdAt DESC, v.id DESC")
+    List<Long> searchIdsByTitle(@Param("title") String title, Pageable pageable);
+
     Long countByUploader(User uploader);
-}
\ No newline at end of file
+
+    @Query("SELECT v.commentCount FROM Video v WHERE v.id = :videoId")
+    Optional<Long> findCommentCountById(@Param("videoId") Long videoId);
+
+    @Modifying
+    @Query("UPDATE Video v SET v.commentCount = v.commentCount + :delta WHERE v.id = :videoId")
+    void adjustCommentCount(@Param("videoId") Long videoId, @Param("delta") long delta);
+
+    @Query("SELECT v.videoPath FROM Video v WHERE v.id = :videoId")
+    Optional<String> findVideoPathById(@Param("videoId") Long videoId);
+
+    @Query("SELECT v.thumbnailPath FROM Video v WHERE v.id = :videoId")
+    Optional<String> findThumbnailPathById(@Param("videoId") Long videoId);
+
+    boolean existsByThumbnailPath(String thumbnailPath);
+
+    boolean existsByVideoPath(String videoPath);
+
+    @Query("SELECT v.status FROM Video v WHERE v.id = :videoId")
+    Optional<VideoStatus> findStatusById(@Param("videoId") Long videoId);
+
+    @Query("SELECT v.id FROM Video v WHERE v.status = :status ORDER BY v.id")
+    List<Long> findIdsByStatus(@Param("status") VideoStatus status);
+
+    @Modifying
+    @Query("UPDATE Video v SET v.status = :status WHERE v.id = :videoId AND v.status = :expected")
+    int updateStatus(@Param("videoId") Long videoId, @Param("expected") VideoStatus expected,
+                     @Param("status") VideoStatus status);
+
+    @Modifying
+    @Query("UPDATE Video v SET v.durationMs = :durationMs, v.width = :width, v.height = :height, " +
+            "v.bitrateKbps = :bitrateKbps, v.videoCodec = :videoCodec WHERE v.id = :videoId")
+    int updateMediaInfo(@Param("videoId") Long videoId, @Param("durationMs") Long durationMs,
+                        @Param("width") Integer width, @Param("height") Integer height,
+                        @Param("bitrateKbps") Integer bitrateKbps, @Param("videoCodec") String videoCodec);
+}
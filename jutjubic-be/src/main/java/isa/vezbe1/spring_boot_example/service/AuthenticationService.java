@@ -6,6 +6,7 @@ import isa.vezbe1.spring_boot_example.model.User;
 import isa.vezbe1.spring_boot_example.repository.UserRepository;
 import isa.vezbe1.spring_boot_example.util.TokenUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -67,6 +68,20 @@ public class AuthenticationService {
     }
 
 
+    /**
+     * Returns the authenticated username without loading the user, or null for anonymous requests.
+     */
+    public String getCurrentUsernameOrNull() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+
+        return authentication.getName();
+    }
+
     public UserDTO getCurrentUserDTO() {
         User user = getCurrentUser();
         return new UserDTO(user);
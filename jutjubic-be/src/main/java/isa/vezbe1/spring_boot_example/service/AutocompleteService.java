@@ -0,0 +1,559 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.dto.AutocompleteSuggestionDTO;
+import isa.vezbe1.spring_boot_example.util.TextNormalizer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Search-as-you-type suggestions over video titles and tag names, ranked by view count.
+ *
+ * The dictionary is an immutable snapshot: every title and tag name is normalized once and packed
+ * into a single byte array, and each word start inside it becomes a sorted key that only stores
+ * (target, offset). A prefix therefore maps to one contiguous key range found by binary search.
+ * Short prefixes cover most of the dictionary, so their top completions are precomputed at build
+ * time; longer prefixes take the best keys of their range from a max-weight segment tree, which is
+ * O(k log n) no matter how large the range is. The snapshot is rebuilt in the background and
+ * swapped in with a single volatile write, so readers never lock.
+ */
+@Service
+public class AutocompleteService {
+
+    private static final Logger log = LoggerFactory.getLogger(AutocompleteService.class);
+
+    private static final String VIDEOS_SQL = "SELECT id, title, view_count FROM videos";
+
+    private static final String TAGS_SQL =
+            "SELECT t.id, t.name, COALESCE(SUM(v.view_count), 0) FROM video_tags t " +
+            "LEFT JOIN video_tag_mapping m ON m.tag_id = t.id " +
+            "LEFT JOIN videos v ON v.id = m.video_id " +
+            "GROUP BY t.id, t.name";
+
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    // Prefixes up to this many bytes match a large share of all keys, so their answers are precomputed
+    private static final int PRECOMPUTED_PREFIX_BYTES = 2;
+
+    private static final byte TYPE_VIDEO = 0;
+    private static final byte TYPE_TAG = 1;
+
+    @Value("${autocomplete.max-results:10}")
+    private int maxResults;
+
+    @Value("${autocomplete.max-words-per-entry:8}")
+    private int maxWordsPerEntry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private volatile Dictionary dictionary = Dictionary.EMPTY;
+
+    private final AtomicBoolean building = new AtomicBoolean();
+
+    private final ExecutorService buildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "autocomplete-build");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public AutocompleteService(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Completions for a typed prefix, most viewed first. Matches the start of any word,
+     * so "boot" suggests "Java Spring Boot Tutorial for Beginners". Served from memory only.
+     *
+     * @param prefix What the user has typed so far
+     * @param limit Maximum number of suggestions (capped at autocomplete.max-results)
+     * @return Suggestions, empty until the first build finishes
+     */
+    public List<AutocompleteSuggestionDTO> suggest(String prefix, int limit) {
+        byte[] key = normalizePrefix(prefix);
+        if (key.length == 0) {
+            return List.of();
+        }
+
+        Dictionary current = dictionary;
+        int[] targets = current.complete(key, Math.min(limit, maxResults));
+
+        List<AutocompleteSuggestionDTO> suggestions = new ArrayList<>(targets.length);
+        for (int target : targets) {
+            suggestions.add(new AutocompleteSuggestionDTO(
+                    current.display(target),
+                    current.types[target] == TYPE_TAG ? "tag" : "video",
+                    current.ids[target]));
+        }
+        return suggestions;
+    }
+
+    public boolean isReady() {
+        return dictionary != Dictionary.EMPTY;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        rebuildInBackground();
+    }
+
+    /**
+     * New uploads and view counts show up in suggestions after the next rebuild.
+     */
+    @Scheduled(fixedDelayString = "${autocomplete.rebuild-interval-ms:300000}",
+            initialDelayString = "${autocomplete.rebuild-interval-ms:300000}")
+    public void rebuildInBackground() {
+        if (!building.compareAndSet(false, true)) {
+            return;
+        }
+        buildExecutor.execute(() -> {
+            try {
+                rebuild();
+            } finally {
+                building.set(false);
+            }
+        });
+    }
+
+    /**
+     * Builds a fresh dictionary from the database and swaps it in. Blocks the calling thread.
+     */
+    public void rebuild() {
+        long started = System.nanoTime();
+        Builder builder = new Builder(maxWordsPerEntry);
+
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                stream(VIDEOS_SQL, rs -> builder.add(TYPE_VIDEO, rs.getLong(1), rs.getString(2), rs.getLong(3)));
+                stream(TAGS_SQL, rs -> builder.add(TYPE_TAG, rs.getLong(1), rs.getString(2), rs.getLong(3)));
+            });
+        } catch (RuntimeException e) {
+            log.error("Failed to build autocomplete dictionary: {}", e.getMessage());
+            return;
+        }
+
+        Dictionary fresh = builder.build(maxResults);
+        dictionary = fresh;
+
+        log.info("Built autocomplete dictionary: {} entries, {} keys, ~{} KB in {} ms",
+                fresh.ids.length, fresh.keyTargets.length, fresh.sizeInBytes() / 1024,
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        buildExecutor.shutdownNow();
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private void stream(String sql, RowCallbackHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            return statement;
+        }, handler);
+    }
+
+    private static String normalize(String text) {
+        return String.join(" ", TextNormalizer.tokenize(text));
+    }
+
+    private static byte[] normalizePrefix(String prefix) {
+        if (prefix == null) {
+            return new byte[0];
+        }
+        String normalized = normalize(prefix);
+        // "spring " should only complete the whole word, not "springfield"
+        if (!normalized.isEmpty() && Character.isWhitespace(prefix.charAt(prefix.length() - 1))) {
+            normalized += " ";
+        }
+        return normalized.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Collects titles and tag names while the database is streamed, then packs them.
+     */
+    private static final class Builder {
+
+        private final int maxWordsPerEntry;
+        private final ByteArrayOutputStream text = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream display = new ByteArrayOutputStream();
+        private final IntList textOffsets = new IntList();
+        private final IntList displayOffsets = new IntList();
+        private final IntList keyTargets = new IntList();
+        private final IntList keyStarts = new IntList();
+        private final List<Long> ids = new ArrayList<>();
+        private final List<Long> weights = new ArrayList<>();
+        private final ByteArrayOutputStream types = new ByteArrayOutputStream();
+
+        Builder(int maxWordsPerEntry) {
+            this.maxWordsPerEntry = maxWordsPerEntry;
+            textOffsets.add(0);
+            displayOffsets.add(0);
+        }
+
+        void add(byte type, long id, String name, long weight) {
+            String normalized = normalize(name);
+            if (normalized.isEmpty()) {
+                return;
+            }
+
+            int target = ids.size();
+            int textStart = text.size();
+            byte[] normalizedBytes = normalized.getBytes(StandardCharsets.UTF_8);
+            text.writeBytes(normalizedBytes);
+            textOffsets.add(text.size());
+            display.writeBytes(name.trim().getBytes(StandardCharsets.UTF_8));
+            displayOffsets.add(display.size());
+            ids.add(id);
+            weights.add(weight);
+            types.write(type);
+
+            // One key per word start; words are separated by exactly one space after normalization
+            int words = 0;
+            for (int i = 0; i < normalizedBytes.length && words < maxWordsPerEntry; i++) {
+                if (i == 0 || normalizedBytes[i - 1] == ' ') {
+                    keyTargets.add(target);
+                    keyStarts.add(textStart + i);
+                    words++;
+                }
+            }
+        }
+
+        Dictionary build(int topK) {
+            long[] weightArray = new long[weights.size()];
+            long[] idArray = new long[ids.size()];
+            for (int i = 0; i < weightArray.length; i++) {
+                weightArray[i] = weights.get(i);
+                idArray[i] = ids.get(i);
+            }
+
+            Dictionary dictionary = new Dictionary(text.toByteArray(), textOffsets.toArray(),
+                    display.toByteArray(), displayOffsets.toArray(), types.toByteArray(), idArray, weightArray,
+                    keyTargets.toArray(), keyStarts.toArray());
+            dictionary.sortKeys();
+            dictionary.buildRangeMaxTree();
+            dictionary.precomputeShortPrefixes(topK);
+            return dictionary;
+        }
+    }
+
+    /**
+     * Immutable once built; shared by all readers without locking.
+     */
+    private static final class Dictionary {
+
+        static final Dictionary EMPTY = new Dictionary(new byte[0], new int[]{0}, new byte[0], new int[]{0},
+                new byte[0], new long[0], new long[0], new int[0], new int[0]);
+
+        // Per target (one video or tag): normalized text, display text, type, id and weight
+        final byte[] text;
+        final int[] textOffsets;
+        final byte[] displayText;
+        final int[] displayOffsets;
+        final byte[] types;
+        final long[] ids;
+        final long[] weights;
+
+        // Per key, sorted by the normalized text from keyStarts to the end of its target
+        int[] keyTargets;
+        int[] keyStarts;
+
+        // Segment tree over keys holding the index of the heaviest key in each node's range
+        int[] tree = new int[0];
+        int leaves;
+
+        final Map<String, int[]> shortPrefixes = new HashMap<>();
+
+        Dictionary(byte[] text, int[] textOffsets, byte[] displayText, int[] displayOffsets, byte[] types,
+                   long[] ids, long[] weights, int[] keyTargets, int[] keyStarts) {
+            this.text = text;
+            this.textOffsets = textOffsets;
+            this.displayText = displayText;
+            this.displayOffsets = displayOffsets;
+            this.types = types;
+            this.ids = ids;
+            this.weights = weights;
+            this.keyTargets = keyTargets;
+            this.keyStarts = keyStarts;
+        }
+
+        int[] complete(byte[] prefix, int limit) {
+            if (limit <= 0 || keyTargets.length == 0) {
+                return new int[0];
+            }
+            if (prefix.length <= PRECOMPUTED_PREFIX_BYTES) {
+                int[] cached = shortPrefixes.get(new String(prefix, StandardCharsets.ISO_8859_1));
+                if (cached == null) {
+                    return new int[0];
+                }
+                return cached.length <= limit ? cached : Arrays.copyOf(cached, limit);
+            }
+            int from = lowerBound(prefix);
+            int to = upperBound(prefix, from);
+            return topTargets(from, to, limit);
+        }
+
+        String display(int target) {
+            int start = displayOffsets[target];
+            return new String(displayText, start, displayOffsets[target + 1] - start, StandardCharsets.UTF_8);
+        }
+
+        long sizeInBytes() {
+            return text.length + displayText.length + 4L * (textOffsets.length + displayOffsets.length)
+                    + types.length + 16L * ids.length + 4L * (keyTargets.length + keyStarts.length + tree.length);
+        }
+
+        /**
+         * Best distinct targets among keys [from, to): repeatedly take the heaviest key of a
+         * range and split the range around it. Two titles that normalize to the same text are
+         * suggested once.
+         */
+        private int[] topTargets(int from, int to, int limit) {
+            if (from >= to) {
+                return new int[0];
+            }
+
+            PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) ->
+                    Long.compare(weightOfKey(b[0]), weightOfKey(a[0])));
+            ranges.add(new int[]{maxKey(from, to), from, to});
+
+            IntList result = new IntList();
+            Set<String> seen = new HashSet<>();
+            while (!ranges.isEmpty() && result.size() < limit) {
+                int[] range = ranges.poll();
+                int key = range[0];
+                int target = keyTargets[key];
+                if (seen.add(normalizedText(target))) {
+                    result.add(target);
+                }
+                if (range[1] < key) {
+                    ranges.add(new int[]{maxKey(range[1], key), range[1], key});
+                }
+                if (key + 1 < range[2]) {
+                    ranges.add(new int[]{maxKey(key + 1, range[2]), key + 1, range[2]});
+                }
+            }
+            return result.toArray();
+        }
+
+        private String normalizedText(int target) {
+            int start = textOffsets[target];
+            return new String(text, start, textOffsets[target + 1] - start, StandardCharsets.UTF_8);
+        }
+
+        private long weightOfKey(int key) {
+            return weights[keyTargets[key]];
+        }
+
+        private int heavier(int a, int b) {
+            if (a < 0) {
+                return b;
+            }
+            if (b < 0) {
+                return a;
+            }
+            return weightOfKey(b) > weightOfKey(a) ? b : a;
+        }
+
+        private int maxKey(int from, int to) {
+            int best = -1;
+            for (int l = from + leaves, r = to + leaves; l < r; l >>= 1, r >>= 1) {
+                if ((l & 1) == 1) {
+                    best = heavier(best, tree[l++]);
+                }
+                if ((r & 1) == 1) {
+                    best = heavier(best, tree[--r]);
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Compares the first prefix.length bytes of a key with the prefix; a key that is a
+         * proper prefix of it sorts before.
+         */
+        private int compareToPrefix(int key, byte[] prefix) {
+            int pos = keyStarts[key];
+            int end = textOffsets[keyTargets[key] + 1];
+            for (int i = 0; i < prefix.length; i++, pos++) {
+                if (pos >= end) {
+                    return -1;
+                }
+                int diff = (text[pos] & 0xFF) - (prefix[i] & 0xFF);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return 0;
+        }
+
+        private int lowerBound(byte[] prefix) {
+            int lo = 0;
+            int hi = keyTargets.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (compareToPrefix(mid, prefix) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        private int upperBound(byte[] prefix, int from) {
+            int lo = from;
+            int hi = keyTargets.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (compareToPrefix(mid, prefix) <= 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        private int compareKeys(int a, int b) {
+            int posA = keyStarts[a];
+            int endA = textOffsets[keyTargets[a] + 1];
+            int posB = keyStarts[b];
+            int endB = textOffsets[keyTargets[b] + 1];
+            while (posA < endA && posB < endB) {
+                int diff = (text[posA++] & 0xFF) - (text[posB++] & 0xFF);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return (endA - posA) - (endB - posB);
+        }
+
+        /**
+         * Bottom-up merge sort of key indices, then both key arrays are permuted.
+         * Works on int[] so a million keys do not turn into a million boxed Integers.
+         */
+        void sortKeys() {
+            int n = keyTargets.length;
+            int[] order = new int[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+            }
+            int[] buffer = new int[n];
+            for (int width = 1; width < n; width <<= 1) {
+                for (int left = 0; left < n; left += width << 1) {
+                    int mid = Math.min(left + width, n);
+                    int right = Math.min(left + (width << 1), n);
+                    int i = left, j = mid, k = left;
+                    while (i < mid && j < right) {
+                        buffer[k++] = compareKeys(order[i], order[j]) <= 0 ? order[i++] : order[j++];
+                    }
+                    while (i < mid) {
+                        buffer[k++] = order[i++];
+                    }
+                    while (j < right) {
+                        buffer[k++] = order[j++];
+                    }
+                }
+                int[] swap = order;
+                order = buffer;
+                buffer = swap;
+            }
+
+            int[] sortedTargets = new int[n];
+            int[] sortedStarts = new int[n];
+            for (int i = 0; i < n; i++) {
+                sortedTargets[i] = keyTargets[order[i]];
+                sortedStarts[i] = keyStarts[order[i]];
+            }
+            keyTargets = sortedTargets;
+            keyStarts = sortedStarts;
+        }
+
+        void buildRangeMaxTree() {
+            leaves = Math.max(1, Integer.highestOneBit(Math.max(1, keyTargets.length - 1)) << 1);
+            tree = new int[leaves << 1];
+            Arrays.fill(tree, -1);
+            for (int i = 0; i < keyTargets.length; i++) {
+                tree[leaves + i] = i;
+            }
+            for (int node = leaves - 1; node > 0; node--) {
+                tree[node] = heavier(tree[node << 1], tree[(node << 1) | 1]);
+            }
+        }
+
+        /**
+         * Walks the sorted keys once and stores the answer for every distinct prefix
+         * of 1..PRECOMPUTED_PREFIX_BYTES bytes. Keys are byte strings, so the map key is
+         * the prefix bytes read as ISO-8859-1 (one char per byte).
+         */
+        void precomputeShortPrefixes(int topK) {
+            for (int length = 1; length <= PRECOMPUTED_PREFIX_BYTES; length++) {
+                int key = 0;
+                while (key < keyTargets.length) {
+                    int available = textOffsets[keyTargets[key] + 1] - keyStarts[key];
+                    if (available < length) {
+                        key++;
+                        continue;
+                    }
+                    byte[] prefix = Arrays.copyOfRange(text, keyStarts[key], keyStarts[key] + length);
+                    int end = upperBound(prefix, key);
+                    shortPrefixes.put(new String(prefix, StandardCharsets.ISO_8859_1), topTargets(key, end, topK));
+                    key = end;
+                }
+            }
+        }
+    }
+
+    private static final class IntList {
+
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size << 1);
+            }
+            values[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
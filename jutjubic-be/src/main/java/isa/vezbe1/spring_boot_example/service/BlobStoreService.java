@@ -0,0 +1,269 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.model.ContentBlob;
+import isa.vezbe1.spring_boot_example.repository.ContentBlobRepository;
+import isa.vezbe1.spring_boot_example.util.UploadPaths;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Content-addressed store for uploaded files.
+ * Files are named by the SHA-256 of their content, so a duplicate upload only adds a reference
+ * to the existing blob instead of writing the bytes again. References are counted in the
+ * content_blobs table and a blob's file is removed once its last video is deleted.
+ *
+ * Storing is split in two so the database transaction stays short: stage puts the upload on disk
+ * and hashes it while copying, with no transaction open, store then takes the reference inside the caller's
+ * transaction and renames the file into place. The reference count changes commit or roll back
+ * together with the video row, and files written by a rolled back transaction are deleted.
+ * Taking a reference and deleting an unreferenced blob's file hold the same per-hash advisory lock,
+ * so a re-upload of released content never has its file deleted from under it.
+ */
+@Service
+public class BlobStoreService {
+
+    private static final Logger log = LoggerFactory.getLogger(BlobStoreService.class);
+
+    private static final String STAGING_DIRECTORY = ".staging";
+
+    @Autowired
+    private UploadPaths uploadPaths;
+
+    @Autowired
+    private ContentBlobRepository contentBlobRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * First half of storing a multipart upload, done before the caller's transaction opens: the
+     * part is copied to a staging file and hashed in the same pass. No database work happens here.
+     */
+    public StagedBlob stage(MultipartFile file, String directory, String extension) throws IOException {
+        return stage(file, directory, extension, staged -> false);
+    }
+
+    /**
+     * Same as above, with the staged file rewritten before it is stored, so that the blob is
+     * addressed by the bytes that will actually be served. Only a file the rewriter changed is
+     * read again to hash it.
+     */
+    public StagedBlob stage(MultipartFile file, String directory, String extension,
+                            ContentRewriter rewriter) throws IOException {
+        Path staging = uploadPaths.root().resolve(STAGING_DIRECTORY).resolve(UUID.randomUUID() + ".part");
+        Files.createDirectories(staging.getParent());
+        try {
+            MessageDigest digest = sha256();
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                Files.copy(in, staging);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            if (rewriter.rewrite(staging)) {
+                return hashed(staging, directory, extension, true);
+            }
+            return new StagedBlob(hash, Files.size(staging), directory, extension, staging, true);
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(staging);
+            throw e;
+        }
+    }
+
+    /**
+     * First half of storing a file that is already on disk, e.g. a completed resumable upload.
+     * Only hashes it; the file stays where it is until store moves it into place. Chunks of a
+     * resumable upload may arrive out of order, so it is hashed in one read once complete.
+     */
+    public StagedBlob stage(Path source, String directory, String extension) throws IOException {
+        return stage(source, directory, extension, staged -> false);
+    }
+
+    /**
+     * Same as above, with the file rewritten in place before it is hashed.
+     */
+    public StagedBlob stage(Path source, String directory, String extension,
+                            ContentRewriter rewriter) throws IOException {
+        rewriter.rewrite(source);
+        return hashed(source, directory, extension, false);
+    }
+
+    /**
+     * Second half: takes a reference on the blob and moves the staged file into place, which is
+     * a rename, so the transaction holds its connection for milliseconds rather than for the copy.
+     * For duplicate content the staged file is simply deleted.
+     *
+     * @return public path of the blob, e.g. /uploads/videos/{hash}.mp4
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public String store(StagedBlob staged) throws IOException {
+        return commit(staged.hash(), staged.size(), staged.directory(), staged.extension(),
+                target -> Files.move(staged.file(), target, StandardCopyOption.ATOMIC_MOVE),
+                () -> Files.deleteIfExists(staged.file()));
+    }
+
+    /**
+     * Deletes a staged upload that never made it into the store. Files the caller staged from
+     * its own path are left alone.
+     */
+    public void discard(StagedBlob staged) {
+        if (staged != null && staged.owned()) {
+            deleteQuietly(staged.file());
+        }
+    }
+
+    /**
+     * Drops one reference to the blob behind the given path. The file is deleted after commit
+     * when no video references it anymore, unless the same content has been stored again by then.
+     * Paths that are not blobs (seed data, legacy files) are ignored.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(String publicPath) {
+        if (publicPath == null) {
+            return;
+        }
+
+        ContentBlob blob = contentBlobRepository.findByPath(publicPath).orElse(null);
+        if (blob == null) {
+            return;
+        }
+
+        contentBlobRepository.decrementRefCount(blob.getHash());
+        if (contentBlobRepository.deleteIfUnreferenced(blob.getHash()) > 0) {
+            String hash = blob.getHash();
+            Path file = uploadPaths.resolve(publicPath);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deleteIfUnreferenced(hash, file);
+                }
+            });
+        }
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    /**
+     * Deletes a released blob's file in its own transaction, under the hash lock. An upload of the
+     * same content that has already re-inserted the row holds the lock until it commits, so the
+     * row is seen here and the file it moved into place is kept.
+     */
+    private void deleteIfUnreferenced(String hash, Path file) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            transaction.executeWithoutResult(status -> {
+                contentBlobRepository.lockHash(hash);
+                if (!contentBlobRepository.existsById(hash)) {
+                    deleteQuietly(file);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("Failed to clean up released blob {}: {}", hash, e.getMessage());
+        }
+    }
+
+    private String commit(String hash, long size, String directory, String extension,
+                          FileWriter writer, FileDiscarder discarder) throws IOException {
+        // Held until the caller commits, so the file cleanup of a concurrent release waits for this row
+        contentBlobRepository.lockHash(hash);
+
+        // Identical bytes uploaded under another extension or directory share the first upload's path
+        ContentBlobRepository.BlobReference reference = contentBlobRepository.acquire(hash,
+                UploadPaths.PUBLIC_PREFIX + directory + "/" + hash + extension, size);
+        String publicPath = reference.getPath();
+        Path target = uploadPaths.resolve(publicPath);
+
+        boolean inserted = Boolean.TRUE.equals(reference.getInserted());
+        if (!inserted && Files.exists(target)) {
+            discarder.discard();
+            return publicPath;
+        }
+
+        // Writers of the same hash are serialized by the lock, so nothing else is moving this file in
+        Files.createDirectories(target.getParent());
+        writer.write(target);
+
+        if (inserted) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        deleteQuietly(target);
+                    }
+                }
+            });
+        }
+
+        return publicPath;
+    }
+
+    private StagedBlob hashed(Path file, String directory, String extension, boolean owned) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return new StagedBlob(HexFormat.of().formatHex(digest.digest()), Files.size(file), directory, extension, file, owned);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete blob file {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Hashed upload waiting to be stored. owned is true when the file was created by stage.
+     */
+    public record StagedBlob(String hash, long size, String directory, String extension, Path file, boolean owned) {
+    }
+
+    /**
+     * Rewrites a staged file in place before it is stored, e.g. to make an MP4 fast-start.
+     * Returns whether the file was changed.
+     */
+    @FunctionalInterface
+    public interface ContentRewriter {
+        boolean rewrite(Path file) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface FileWriter {
+        void write(Path target) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface FileDiscarder {
+        void discard() throws IOException;
+    }
+}
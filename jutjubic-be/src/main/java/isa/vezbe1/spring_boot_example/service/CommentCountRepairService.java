@@ -0,0 +1,78 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Recomputes videos.comment_count from the comments table, one id range per transaction,
+ * and fixes only the rows that drifted (e.g. after manual data changes or a bug).
+ */
+@Service
+public class CommentCountRepairService {
+
+    private static final Logger log = LoggerFactory.getLogger(CommentCountRepairService.class);
+
+    // Locking the video rows first makes concurrent comment writers wait on their counter update,
+    // so a comment is either visible to the recount or added on top of it afterwards - never both or neither
+    private static final String LOCK_BATCH_SQL =
+            "SELECT id FROM videos WHERE id > ? AND id <= ? ORDER BY id FOR UPDATE";
+
+    private static final String REPAIR_BATCH_SQL =
+            "UPDATE videos v SET comment_count = counted.total " +
+            "FROM (SELECT b.id, COUNT(c.id) AS total FROM videos b " +
+            "      LEFT JOIN comments c ON c.video_id = b.id " +
+            "      WHERE b.id > ? AND b.id <= ? GROUP BY b.id) counted " +
+            "WHERE v.id = counted.id AND v.comment_count <> counted.total";
+
+    @Value("${comments.count-repair.batch-size:1000}")
+    private int batchSize;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public CommentCountRepairService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(cron = "${comments.count-repair.cron:0 30 3 * * *}")
+    public void scheduledRepair() {
+        repairAll();
+    }
+
+    /**
+     * @return number of videos whose comment_count was corrected
+     */
+    public long repairAll() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM videos", Long.class);
+        if (maxId == null) {
+            return 0;
+        }
+
+        long repaired = 0;
+        for (long from = 0; from < maxId; from += batchSize) {
+            long lower = from;
+            long upper = from + batchSize;
+            Integer updated = transactionTemplate.execute(status -> {
+                jdbcTemplate.queryForList(LOCK_BATCH_SQL, Long.class, lower, upper);
+                return jdbcTemplate.update(REPAIR_BATCH_SQL, lower, upper);
+            });
+            repaired += updated != null ? updated : 0;
+        }
+
+        if (repaired > 0) {
+            log.warn("Repaired drifted comment counts of {} videos", repaired);
+        } else {
+            log.info("Comment counts verified, no drift found");
+        }
+        return repaired;
+    }
+}
@@ -30,6 +30,9 @@ public class CommentService {
     @Autowired
     private VideoRepository videoRepository;
 
+    @Autowired
+    private TrendingService trendingService;
+
     @Autowired
     private RedisTemplate<String, Integer> redisTemplate;  // YOUR existing RedisTemplate
 
@@ -95,6 +98,8 @@ public class CommentService {
         comment.setCreatedAt(new Timestamp(System.currentTimeMillis()));
 
         Comment savedComment = commentRepository.save(comment);
+        videoRepository.adjustCommentCount(video.getId(), 1);
+        trendingService.recordCommentAfterCommit(video.getId());
 
         return new CommentDTO(savedComment);
     }
@@ -112,6 +117,7 @@ public class CommentService {
         }
 
         commentRepository.delete(comment);
+        videoRepository.adjustCommentCount(comment.getVideo().getId(), -1);
     }
 
     @Transactional(readOnly = true)
@@ -124,9 +130,9 @@ public class CommentService {
 
     @Transactional(readOnly = true)
     public Long getCommentCount(Long videoId) {
-        Video video = videoRepository.findById(videoId)
+        // Denormalized on videos.comment_count, so this never touches the comments table
+        return videoRepository.findCommentCountById(videoId)
                 .orElseThrow(() -> new RuntimeException("Video not found"));
-        return commentRepository.countByVideo(video);
     }
 
     // Helper method to check remaining comments for a user (useful for debugging)
@@ -0,0 +1,322 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.dto.MapClusterDTO;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Map clusters: for every zoom level, how many videos fall into each slippy-map tile and where
+ * their centroid is.
+ *
+ * Aggregates are kept for zoom 0..geo.max-zoom and adjusted one tile per zoom level when a video
+ * with coordinates is uploaded or deleted, so a map request never aggregates: it only reads the
+ * tiles of one zoom level that intersect its bounding box. Loaded at startup by streaming the
+ * videos that have coordinates.
+ */
+@Service
+public class GeoTileIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(GeoTileIndex.class);
+
+    // Web Mercator cannot show the poles; points beyond are drawn on the edge tiles
+    private static final double MAX_MERCATOR_LATITUDE = 85.05112878;
+
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private static final String STREAM_SQL =
+            "SELECT id, latitude, longitude FROM videos WHERE latitude IS NOT NULL AND longitude IS NOT NULL";
+
+    @Value("${geo.max-zoom:16}")
+    private int maxZoom;
+
+    @Value("${geo.max-tiles-per-request:4096}")
+    private int maxTilesPerRequest;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock; null until the first load finishes
+    private Index index;
+
+    // Guarded by lock; changes made while the load streams, replayed onto the new index before the swap
+    private List<Consumer<Index>> pendingChanges;
+
+    private final ExecutorService loadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "geo-index-load");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public GeoTileIndex(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return index != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Non-empty tiles of one zoom level inside a bounding box. A box with minLongitude greater
+     * than maxLongitude crosses the antimeridian.
+     */
+    public List<MapClusterDTO> clusters(double minLatitude, double minLongitude,
+                                        double maxLatitude, double maxLongitude, int zoom) {
+        if (zoom < 0 || zoom > maxZoom) {
+            throw new IllegalArgumentException("Zoom must be between 0 and " + maxZoom);
+        }
+        if (minLatitude > maxLatitude) {
+            throw new IllegalArgumentException("minLat must not be greater than maxLat");
+        }
+
+        int n = 1 << zoom;
+        int fromX = tileX(minLongitude, zoom);
+        int toX = tileX(maxLongitude, zoom);
+        // Tile rows grow southwards
+        int fromY = tileY(maxLatitude, zoom);
+        int toY = tileY(minLatitude, zoom);
+        long columns = fromX <= toX ? toX - fromX + 1L : (n - fromX) + toX + 1L;
+        long tiles = columns * (toY - fromY + 1L);
+        if (tiles > maxTilesPerRequest) {
+            throw new IllegalArgumentException("Bounding box covers " + tiles + " tiles at zoom " + zoom
+                    + "; zoom out or request a smaller area (max " + maxTilesPerRequest + ")");
+        }
+
+        lock.readLock().lock();
+        try {
+            if (index == null) {
+                throw new IllegalStateException("Map index is still being loaded");
+            }
+            Map<Long, Tile> level = index.levels[zoom];
+            List<MapClusterDTO> clusters = new ArrayList<>();
+            // Walk whichever is smaller: the tiles in the box or the non-empty tiles of the level
+            if (tiles <= level.size()) {
+                for (long i = 0; i < columns; i++) {
+                    int x = (int) ((fromX + i) % n);
+                    for (int y = fromY; y <= toY; y++) {
+                        Tile tile = level.get(tileKey(x, y));
+                        if (tile != null) {
+                            clusters.add(tile.toDTO(x, y));
+                        }
+                    }
+                }
+            } else {
+                for (Map.Entry<Long, Tile> entry : level.entrySet()) {
+                    int x = (int) (entry.getKey() >>> 32);
+                    int y = (int) (long) entry.getKey();
+                    boolean insideX = fromX <= toX ? x >= fromX && x <= toX : x >= fromX || x <= toX;
+                    if (insideX && y >= fromY && y <= toY) {
+                        clusters.add(entry.getValue().toDTO(x, y));
+                    }
+                }
+            }
+            return clusters;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void addAfterCommit(Long videoId, Double latitude, Double longitude) {
+        if (latitude == null || longitude == null) {
+            return;
+        }
+        afterCommit(target -> target.add(videoId, latitude, longitude));
+    }
+
+    public void removeAfterCommit(Long videoId) {
+        afterCommit(target -> target.remove(videoId));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        lock.writeLock().lock();
+        try {
+            if (pendingChanges != null) {
+                return;
+            }
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        loadExecutor.execute(this::load);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loadExecutor.shutdownNow();
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private void afterCommit(Consumer<Index> change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(change);
+                }
+            });
+        } else {
+            apply(change);
+        }
+    }
+
+    private void apply(Consumer<Index> change) {
+        lock.writeLock().lock();
+        try {
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+            if (index != null) {
+                change.accept(index);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void load() {
+        Index fresh = new Index(maxZoom);
+        long started = System.nanoTime();
+
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(STREAM_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(STREAM_FETCH_SIZE);
+                return statement;
+            }, rs -> {
+                fresh.add(rs.getLong(1), rs.getDouble(2), rs.getDouble(3));
+            }));
+        } catch (RuntimeException e) {
+            log.error("Failed to load map index: {}", e.getMessage());
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            // Add and remove are idempotent, so replaying a change the scan already saw is harmless
+            pendingChanges.forEach(change -> change.accept(fresh));
+            pendingChanges = null;
+            index = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("Loaded map index: {} videos with coordinates, zoom 0-{} in {} ms",
+                fresh.points.size(), maxZoom, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private static int tileX(double longitude, int zoom) {
+        int n = 1 << zoom;
+        int x = (int) Math.floor((longitude + 180.0) / 360.0 * n);
+        return Math.max(0, Math.min(n - 1, x));
+    }
+
+    private static int tileY(double latitude, int zoom) {
+        int n = 1 << zoom;
+        double clamped = Math.max(-MAX_MERCATOR_LATITUDE, Math.min(MAX_MERCATOR_LATITUDE, latitude));
+        double radians = Math.toRadians(clamped);
+        int y = (int) Math.floor((1 - Math.log(Math.tan(radians) + 1 / Math.cos(radians)) / Math.PI) / 2 * n);
+        return Math.max(0, Math.min(n - 1, y));
+    }
+
+    private static long tileKey(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    private static final class Tile {
+        long count;
+        double latitudeSum;
+        double longitudeSum;
+
+        MapClusterDTO toDTO(int x, int y) {
+            return new MapClusterDTO(x, y, count, latitudeSum / count, longitudeSum / count);
+        }
+    }
+
+    /**
+     * One tile map per zoom level. Not thread-safe; guarded by the enclosing lock.
+     */
+    private static class Index {
+        final Map<Long, Tile>[] levels;
+        final Map<Long, double[]> points = new HashMap<>();
+
+        @SuppressWarnings("unchecked")
+        Index(int maxZoom) {
+            levels = new Map[maxZoom + 1];
+            for (int zoom = 0; zoom <= maxZoom; zoom++) {
+                levels[zoom] = new HashMap<>();
+            }
+        }
+
+        void add(long videoId, double latitude, double longitude) {
+            if (points.putIfAbsent(videoId, new double[]{latitude, longitude}) != null) {
+                return;
+            }
+            for (int zoom = 0; zoom < levels.length; zoom++) {
+                Tile tile = levels[zoom].computeIfAbsent(
+                        tileKey(tileX(longitude, zoom), tileY(latitude, zoom)), key -> new Tile());
+                tile.count++;
+                tile.latitudeSum += latitude;
+                tile.longitudeSum += longitude;
+            }
+        }
+
+        void remove(long videoId) {
+            double[] point = points.remove(videoId);
+            if (point == null) {
+                return;
+            }
+            for (int zoom = 0; zoom < levels.length; zoom++) {
+                long key = tileKey(tileX(point[1], zoom), tileY(point[0], zoom));
+                Tile tile = levels[zoom].get(key);
+                if (tile == null) {
+                    continue;
+                }
+                if (--tile.count == 0) {
+                    levels[zoom].remove(key);
+                } else {
+                    tile.latitudeSum -= point[0];
+                    tile.longitudeSum -= point[1];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads MP4 (ISO-BMFF) files box by box without decoding any media: only the box headers and
+ * the moov box are read, the media data is never touched.
+ *
+ * inspect extracts duration, dimensions, bitrate and the video codec. makeFastStart moves a
+ * trailing moov in front of the media data, so players can start before they have fetched the
+ * end of the file; the media data is copied channel to channel and the chunk offset tables
+ * (stco/co64) are shifted by the size of the moved box.
+ */
+@Service
+public class Mp4MetadataService {
+
+    private static final Logger log = LoggerFactory.getLogger(Mp4MetadataService.class);
+
+    private static final long UINT32_MAX = 0xFFFFFFFFL;
+
+    @Value("${upload.mp4.max-moov-bytes:67108864}")
+    private long maxMoovBytes;
+
+    @Value("${upload.mp4.fast-start:true}")
+    private boolean fastStartEnabled;
+
+    /**
+     * Metadata of an MP4 file. Values that the file does not carry are null.
+     *
+     * @throws IllegalArgumentException when the file is not an MP4 or its boxes are corrupt
+     */
+    public MediaInfo inspect(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<Box> boxes = scan(channel);
+            Box moov = find(boxes, "moov");
+            if (moov == null) {
+                throw new IllegalArgumentException("Not an MP4 file: no moov box");
+            }
+            Box mdat = find(boxes, "mdat");
+            boolean fastStart = mdat == null || moov.offset() < mdat.offset();
+            return parseMoov(readBox(channel, moov), channel.size(), fastStart);
+        }
+    }
+
+    /**
+     * Rewrites the file with moov in front of the first mdat, unless it already is laid out that
+     * way, is fragmented, or fast-start is disabled. The new file replaces the old one atomically.
+     *
+     * @return true when the file was rewritten
+     */
+    public boolean makeFastStart(Path file) throws IOException {
+        if (!fastStartEnabled) {
+            return false;
+        }
+
+        Path rewritten;
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<Box> boxes = scan(source);
+            Box moov = find(boxes, "moov");
+            Box mdat = find(boxes, "mdat");
+            // Fragmented files keep their sample tables in moof boxes, there is nothing to move
+            if (moov == null || mdat == null || moov.offset() < mdat.offset() || find(boxes, "moof") != null) {
+                return false;
+            }
+
+            ByteBuffer moovBox = readBox(source, moov);
+            if (!shiftChunkOffsets(moovBox, mdat.offset(), moov.offset(), moov.size())) {
+                // Would need 32-bit offsets upgraded to co64, which changes the moov size again
+                log.info("Leaving {} as is: chunk offsets do not fit 32 bits after relocation", file);
+                return false;
+            }
+            if ((moovBox.getInt(0) & UINT32_MAX) == 0) {
+                // "Extends to end of file" no longer holds once the box is moved
+                moovBox.putInt(0, (int) moov.size());
+            }
+
+            rewritten = Files.createTempFile(file.toAbsolutePath().getParent(), "faststart-", ".tmp");
+            try (FileChannel target = FileChannel.open(rewritten, StandardOpenOption.WRITE)) {
+                for (Box box : boxes) {
+                    if (box == mdat) {
+                        writeFully(target, moovBox.rewind());
+                    }
+                    if (box != moov) {
+                        transferFully(source, box.offset(), box.size(), target);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(rewritten);
+                throw e;
+            }
+        }
+
+        Files.move(rewritten, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return true;
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    /**
+     * Top-level boxes, read header by header.
+     */
+    private static List<Box> scan(FileChannel channel) throws IOException {
+        List<Box> boxes = new ArrayList<>();
+        long fileSize = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(8);
+        long position = 0;
+        while (position + 8 <= fileSize) {
+            readFully(channel, header.clear(), position);
+            long size = header.getInt(0) & UINT32_MAX;
+            String type = fourcc(header.getInt(4));
+            int headerSize = 8;
+            if (size == 1) {
+                readFully(channel, header.clear(), position + 8);
+                size = header.getLong(0);
+                headerSize = 16;
+            } else if (size == 0) {
+                size = fileSize - position;
+            }
+            if (size < headerSize || position + size > fileSize) {
+                throw new IllegalArgumentException("Corrupt or truncated '" + type + "' box at offset " + position);
+            }
+            boxes.add(new Box(type, position, size));
+            position += size;
+        }
+        return boxes;
+    }
+
+    private ByteBuffer readBox(FileChannel channel, Box box) throws IOException {
+        if (box.size() > maxMoovBytes) {
+            throw new IllegalArgumentException("'" + box.type() + "' box is too large: " + box.size() + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) box.size());
+        readFully(channel, buffer, box.offset());
+        return buffer.flip();
+    }
+
+    private static MediaInfo parseMoov(ByteBuffer moovBox, long fileSize, boolean fastStart) {
+        Child moov = root(moovBox);
+
+        Long durationMs = null;
+        Child mvhd = child(moovBox, moov, "mvhd");
+        if (mvhd != null) {
+            int p = mvhd.start();
+            requirePayload(mvhd, 1);
+            boolean v1 = moovBox.get(p) == 1;
+            requirePayload(mvhd, v1 ? 32 : 20);
+            long timescale = moovBox.getInt(p + (v1 ? 20 : 12)) & UINT32_MAX;
+            long duration = v1 ? moovBox.getLong(p + 24) : moovBox.getInt(p + 16) & UINT32_MAX;
+            // All ones means unknown duration
+            if (timescale > 0 && duration > 0 && duration != UINT32_MAX && duration != -1) {
+                durationMs = duration * 1000 / timescale;
+            }
+        }
+
+        Integer width = null;
+        Integer height = null;
+        String codec = null;
+        for (Child trak : children(moovBox, moov.start(), moov.end())) {
+            if (!trak.type().equals("trak")) {
+                continue;
+            }
+            Child mdia = child(moovBox, trak, "mdia");
+            Child hdlr = mdia != null ? child(moovBox, mdia, "hdlr") : null;
+            // hdlr: version/flags, pre_defined, then the handler type
+            if (hdlr == null) {
+                continue;
+            }
+            requirePayload(hdlr, 12);
+            if (!fourcc(moovBox.getInt(hdlr.start() + 8)).equals("vide")) {
+                continue;
+            }
+
+            Child stsd = descend(moovBox, mdia, "minf", "stbl", "stsd");
+            if (stsd != null) {
+                requirePayload(stsd, 8);
+                // stsd: version/flags, entry count, then the sample entries; the first one names the codec
+                List<Child> entries = children(moovBox, stsd.start() + 8, stsd.end());
+                if (!entries.isEmpty()) {
+                    Child entry = entries.get(0);
+                    codec = entry.type();
+                    // VisualSampleEntry: 24 bytes of reserved and predefined fields, then width and height
+                    if (entry.end() - entry.start() >= 28) {
+                        width = positiveOrNull(moovBox.getShort(entry.start() + 24) & 0xFFFF);
+                        height = positiveOrNull(moovBox.getShort(entry.start() + 26) & 0xFFFF);
+                    }
+                }
+            }
+
+            Child tkhd = child(moovBox, trak, "tkhd");
+            if ((width == null || height == null) && tkhd != null) {
+                // tkhd ends with width and height as 16.16 fixed point
+                requirePayload(tkhd, 8);
+                width = positiveOrNull(moovBox.getInt(tkhd.end() - 8) >>> 16);
+                height = positiveOrNull(moovBox.getInt(tkhd.end() - 4) >>> 16);
+            }
+            break;
+        }
+
+        Integer bitrateKbps = durationMs != null && durationMs > 0
+                ? (int) Math.min(Integer.MAX_VALUE, fileSize * 8 / durationMs)
+                : null;
+        return new MediaInfo(durationMs, width, height, bitrateKbps, codec, fastStart);
+    }
+
+    /**
+     * Adds delta to every chunk offset in [from, to), i.e. every chunk stored between the
+     * insertion point and the old moov position. Nothing is changed when a 32-bit offset would overflow.
+     */
+    private static boolean shiftChunkOffsets(ByteBuffer moovBox, long from, long to, long delta) {
+        Child moov = root(moovBox);
+        List<Child> tables = new ArrayList<>();
+        for (Child trak : children(moovBox, moov.start(), moov.end())) {
+            Child stbl = trak.type().equals("trak") ? descend(moovBox, trak, "mdia", "minf", "stbl") : null;
+            if (stbl == null) {
+                continue;
+            }
+            for (Child table : children(moovBox, stbl.start(), stbl.end())) {
+                if (table.type().equals("stco") || table.type().equals("co64")) {
+                    // version/flags and entry count
+                    requirePayload(table, 8);
+                    tables.add(table);
+                }
+            }
+        }
+
+        for (Child table : tables) {
+            if (table.type().equals("stco")) {
+                for (int p = table.start() + 8; p + 4 <= table.end(); p += 4) {
+                    long offset = moovBox.getInt(p) & UINT32_MAX;
+                    if (offset >= from && offset < to && offset + delta > UINT32_MAX) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        for (Child table : tables) {
+            boolean wide = table.type().equals("co64");
+            int entrySize = wide ? 8 : 4;
+            long count = moovBox.getInt(table.start() + 4) & UINT32_MAX;
+            int end = (int) Math.min(table.end(), table.start() + 8 + count * entrySize);
+            for (int p = table.start() + 8; p + entrySize <= end; p += entrySize) {
+                long offset = wide ? moovBox.getLong(p) : moovBox.getInt(p) & UINT32_MAX;
+                if (offset >= from && offset < to) {
+                    if (wide) {
+                        moovBox.putLong(p, offset + delta);
+                    } else {
+                        moovBox.putInt(p, (int) (offset + delta));
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Boxes directly inside [from, to) of the buffer.
+     */
+    private static List<Child> children(ByteBuffer buffer, int from, int to) {
+        List<Child> children = new ArrayList<>();
+        int position = from;
+        while (position + 8 <= to) {
+            long size = buffer.getInt(position) & UINT32_MAX;
+            String type = fourcc(buffer.getInt(position + 4));
+            int headerSize = 8;
+            if (size == 1 && position + 16 <= to) {
+                size = buffer.getLong(position + 8);
+                headerSize = 16;
+            } else if (size == 0) {
+                size = to - position;
+            }
+            if (size < headerSize || position + size > to) {
+                throw new IllegalArgumentException("Corrupt '" + type + "' box in moov");
+            }
+            children.add(new Child(type, position + headerSize, (int) (position + size)));
+            position += (int) size;
+        }
+        return children;
+    }
+
+    /**
+     * The moov box itself, i.e. the single box the buffer was read from.
+     */
+    private static Child root(ByteBuffer moovBox) {
+        List<Child> boxes = children(moovBox, 0, moovBox.limit());
+        if (boxes.isEmpty()) {
+            throw new IllegalArgumentException("Corrupt moov box");
+        }
+        return boxes.get(0);
+    }
+
+    /**
+     * Fails on a box too short for the fixed fields about to be read from it.
+     */
+    private static void requirePayload(Child box, int bytes) {
+        if (box.end() - box.start() < bytes) {
+            throw new IllegalArgumentException("Corrupt '" + box.type() + "' box in moov: "
+                    + (box.end() - box.start()) + " bytes, expected at least " + bytes);
+        }
+    }
+
+    private static Child child(ByteBuffer buffer, Child parent, String type) {
+        for (Child child : children(buffer, parent.start(), parent.end())) {
+            if (child.type().equals(type)) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    private static Child descend(ByteBuffer buffer, Child parent, String... path) {
+        Child current = parent;
+        for (String type : path) {
+            current = child(buffer, current, type);
+            if (current == null) {
+                return null;
+            }
+        }
+        return current;
+    }
+
+    private static Box find(List<Box> boxes, String type) {
+        for (Box box : boxes) {
+            if (box.type().equals(type)) {
+                return box;
+            }
+        }
+        return null;
+    }
+
+    private static String fourcc(int value) {
+        byte[] bytes = {(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    private static Integer positiveOrNull(int value) {
+        return value > 0 ? value : null;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, offset);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of file at offset " + offset);
+            }
+            offset += read;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void transferFully(FileChannel source, long position, long count, FileChannel target) throws IOException {
+        long done = 0;
+        while (done < count) {
+            long transferred = source.transferTo(position + done, count - done, target);
+            if (transferred <= 0) {
+                throw new EOFException("Unexpected end of file at offset " + (position + done));
+            }
+            done += transferred;
+        }
+    }
+
+    /**
+     * What inspect found; fastStart tells whether moov comes before the media data.
+     */
+    public record MediaInfo(Long durationMs, Integer width, Integer height, Integer bitrateKbps,
+                            String videoCodec, boolean fastStart) {
+    }
+
+    /**
+     * Top-level box: offset of its header and its total size.
+     */
+    private record Box(String type, long offset, long size) {
+    }
+
+    /**
+     * Box inside the moov buffer: where its payload starts and where the box ends.
+     */
+    private record Child(String type, int start, int end) {
+    }
+}
@@ -0,0 +1,179 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Database-side search: videos.search_vector holds title (weight A), tag names (B) and description (C),
+ * is indexed with GIN and queried with websearch_to_tsquery, ranked by ts_rank_cd.
+ *
+ * A generated column cannot read tag names from another table, so the vector is kept current by
+ * triggers instead: one on videos (title or description change) and one on video_tag_mapping.
+ * Pages are keyset on (rank, id). Enabled when search.mode=fulltext or search.fulltext.enabled=true,
+ * because the triggers add work to every upload.
+ */
+@Service
+@ConditionalOnExpression("'${search.mode:index}' == 'fulltext' or ${search.fulltext.enabled:false}")
+public class PostgresFullTextSearch implements VideoSearchStrategy {
+
+    private static final Logger log = LoggerFactory.getLogger(PostgresFullTextSearch.class);
+
+    // 'simple' plus unaccent, so "čačak" matches "cacak"; falls back to plain 'simple' without the extension
+    private static final String ACCENT_FOLDING_CONFIG = "video_search";
+    private static final String FALLBACK_CONFIG = "simple";
+
+    private static final String SEARCH_SQL =
+            "SELECT v.id, ts_rank_cd(v.search_vector, q.query) AS rank " +
+            "FROM videos v, (SELECT websearch_to_tsquery(CAST(? AS regconfig), ?) AS query) q " +
+            "WHERE v.search_vector @@ q.query ";
+
+    private static final String AFTER_CURSOR_SQL =
+            "AND (ts_rank_cd(v.search_vector, q.query), v.id) < (CAST(? AS real), ?) ";
+
+    private static final String ORDER_SQL = "ORDER BY rank DESC, v.id DESC LIMIT ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private volatile String config;
+
+    @Override
+    public String getName() {
+        return "fulltext";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return config != null;
+    }
+
+    @Override
+    public SearchHits search(String query, String after, int limit) {
+        List<Object> args = new ArrayList<>(List.of(config, query));
+        String sql = SEARCH_SQL;
+
+        if (after != null && !after.isBlank()) {
+            Object[] cursor = decodeCursor(after);
+            sql += AFTER_CURSOR_SQL;
+            args.add(cursor[0]);
+            args.add(cursor[1]);
+        }
+        args.add(limit + 1);
+
+        List<Long> ids = new ArrayList<>();
+        List<Float> ranks = new ArrayList<>();
+        jdbcTemplate.query(sql + ORDER_SQL, rs -> {
+            ids.add(rs.getLong(1));
+            ranks.add(rs.getFloat(2));
+        }, args.toArray());
+
+        String nextCursor = null;
+        if (ids.size() > limit) {
+            nextCursor = encodeCursor(ranks.get(limit - 1), ids.get(limit - 1));
+            return new SearchHits(new ArrayList<>(ids.subList(0, limit)), nextCursor, null);
+        }
+        return new SearchHits(ids, null, null);
+    }
+
+    /**
+     * Creates the column, triggers and GIN index and fills in rows that have no vector yet.
+     * Runs once the schema and import.sql are in place; every statement is idempotent.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        long started = System.nanoTime();
+        String textConfig = createTextSearchConfig();
+
+        jdbcTemplate.execute("ALTER TABLE videos ADD COLUMN IF NOT EXISTS search_vector tsvector");
+
+        jdbcTemplate.execute(
+                "CREATE OR REPLACE FUNCTION video_search_vector(p_title TEXT, p_description TEXT, p_video_id BIGINT) " +
+                "RETURNS tsvector LANGUAGE sql STABLE AS $$ " +
+                "  SELECT setweight(to_tsvector('" + textConfig + "', coalesce(p_title, '')), 'A') " +
+                "      || setweight(to_tsvector('" + textConfig + "', coalesce((" +
+                "             SELECT string_agg(t.name, ' ') FROM video_tag_mapping m " +
+                "             JOIN video_tags t ON t.id = m.tag_id WHERE m.video_id = p_video_id), '')), 'B') " +
+                "      || setweight(to_tsvector('" + textConfig + "', coalesce(p_description, '')), 'C') " +
+                "$$");
+
+        jdbcTemplate.execute(
+                "CREATE OR REPLACE FUNCTION videos_search_vector_trigger() RETURNS trigger LANGUAGE plpgsql AS $$ " +
+                "BEGIN " +
+                "  NEW.search_vector := video_search_vector(NEW.title, NEW.description, NEW.id); " +
+                "  RETURN NEW; " +
+                "END $$");
+        jdbcTemplate.execute("DROP TRIGGER IF EXISTS videos_search_vector ON videos");
+        jdbcTemplate.execute(
+                "CREATE TRIGGER videos_search_vector BEFORE INSERT OR UPDATE OF title, description ON videos " +
+                "FOR EACH ROW EXECUTE FUNCTION videos_search_vector_trigger()");
+
+        // Tags are attached after the video row is inserted, so the mapping table refreshes the vector too
+        jdbcTemplate.execute(
+                "CREATE OR REPLACE FUNCTION video_tags_search_vector_trigger() RETURNS trigger LANGUAGE plpgsql AS $$ " +
+                "DECLARE affected BIGINT; " +
+                "BEGIN " +
+                "  IF TG_OP = 'DELETE' THEN affected := OLD.video_id; ELSE affected := NEW.video_id; END IF; " +
+                "  UPDATE videos SET search_vector = video_search_vector(title, description, id) WHERE id = affected; " +
+                "  RETURN NULL; " +
+                "END $$");
+        jdbcTemplate.execute("DROP TRIGGER IF EXISTS video_tags_search_vector ON video_tag_mapping");
+        jdbcTemplate.execute(
+                "CREATE TRIGGER video_tags_search_vector AFTER INSERT OR DELETE ON video_tag_mapping " +
+                "FOR EACH ROW EXECUTE FUNCTION video_tags_search_vector_trigger()");
+
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_videos_search_vector ON videos USING GIN (search_vector)");
+
+        int filled = jdbcTemplate.update(
+                "UPDATE videos SET search_vector = video_search_vector(title, description, id) WHERE search_vector IS NULL");
+
+        config = textConfig;
+        log.info("Full-text search ready (config {}), filled {} vectors in {} ms",
+                textConfig, filled, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private String createTextSearchConfig() {
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS unaccent");
+            Integer exists = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM pg_ts_config WHERE cfgname = ?", Integer.class, ACCENT_FOLDING_CONFIG);
+            if (exists == null || exists == 0) {
+                jdbcTemplate.execute("CREATE TEXT SEARCH CONFIGURATION " + ACCENT_FOLDING_CONFIG + " (COPY = simple)");
+                jdbcTemplate.execute("ALTER TEXT SEARCH CONFIGURATION " + ACCENT_FOLDING_CONFIG +
+                        " ALTER MAPPING FOR hword, hword_part, word WITH unaccent, simple");
+            }
+            return ACCENT_FOLDING_CONFIG;
+        } catch (DataAccessException e) {
+            log.warn("unaccent extension not available, full-text search will not fold diacritics: {}", e.getMessage());
+            return FALLBACK_CONFIG;
+        }
+    }
+
+    private String encodeCursor(float rank, long videoId) {
+        String raw = rank + "," + videoId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Object[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int comma = raw.indexOf(',');
+            return new Object[]{Float.parseFloat(raw.substring(0, comma)), Long.parseLong(raw.substring(comma + 1))};
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid search cursor");
+        }
+    }
+}
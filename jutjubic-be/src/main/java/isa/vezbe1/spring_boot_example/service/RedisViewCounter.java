@@ -0,0 +1,392 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.dto.VideoDTO;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Cluster-wide view counter.
+ * Every node buffers views locally for a short interval and pushes them with pipelined HINCRBY
+ * into sharded Redis hashes (views:{shard}, field = video id). One node at a time holds a Redis
+ * lease and reconciles: it renames each shard hash out of the way and folds it into
+ * videos.view_count with a single batch UPDATE. No view costs a database write on the request path.
+ *
+ * The rename tags the reconciling hash with a batch id, which is recorded in the database together
+ * with the counts. A leader that stops between the commit and deleting the hash leaves it behind;
+ * the next attempt finds the batch id already recorded and only deletes the hash, so no view is
+ * counted twice. The lease is re-checked before every shard, and the hash is only deleted while
+ * it still carries the batch id that was applied.
+ */
+@Service
+@ConditionalOnProperty(name = "views.mode", havingValue = "redis")
+public class RedisViewCounter implements ViewCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisViewCounter.class);
+
+    // Hash tags keep a shard and its reconciling copy in the same cluster slot, as RENAME requires
+    private static final String SHARD_PREFIX = "views:{";
+    private static final String SHARD_SUFFIX = "}";
+    private static final String RECONCILING_SUFFIX = ":reconciling";
+    private static final String BATCH_SUFFIX = ":batch";
+    private static final String LEADER_KEY = "views:reconciler:leader";
+
+    private static final RedisScript<Long> RENEW_LEASE = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+
+    private static final RedisScript<Long> RELEASE_LEASE = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    // KEYS: live, reconciling, batch id. Returns the id of the batch to reconcile, or nil when the shard is empty.
+    // A leftover reconciling hash is resumed under its own id.
+    private static final RedisScript<String> BEGIN_BATCH = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[2]) == 1 then " +
+            "  local id = redis.call('get', KEYS[3]) " +
+            "  if not id then id = ARGV[1]; redis.call('set', KEYS[3], id) end " +
+            "  return id " +
+            "end " +
+            "if redis.call('exists', KEYS[1]) == 0 then return false end " +
+            "redis.call('rename', KEYS[1], KEYS[2]) " +
+            "redis.call('set', KEYS[3], ARGV[1]) " +
+            "return ARGV[1]",
+            String.class);
+
+    // KEYS: reconciling, batch id
+    private static final RedisScript<Long> END_BATCH = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[2]) == ARGV[1] then return redis.call('del', KEYS[1], KEYS[2]) else return 0 end",
+            Long.class);
+
+    // Far longer than a reconciling hash can survive; markers older than this are pruned hourly
+    private static final Duration APPLIED_BATCH_RETENTION = Duration.ofDays(1);
+    private static final Duration PRUNE_INTERVAL = Duration.ofHours(1);
+
+    // A shard has to start or finish a batch during every attempt to use them all up
+    private static final int MAX_OVERLAY_ATTEMPTS = 5;
+
+    @Value("${views.redis.shards:16}")
+    private int shardCount;
+
+    @Value("${views.redis.leader-ttl-ms:15000}")
+    private long leaderTtlMs;
+
+    @Autowired
+    private RedisTemplate<String, Integer> redisTemplate;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private ViewCountBatchWriter viewCountBatchWriter;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private volatile Instant lastPruned = Instant.EPOCH;
+
+    private final ConcurrentHashMap<Long, LongAdder> buffered = new ConcurrentHashMap<>();
+
+    private final ReentrantReadWriteLock pushLock = new ReentrantReadWriteLock();
+
+    @Override
+    public void recordView(Long videoId) {
+        buffered.computeIfAbsent(videoId, id -> new LongAdder()).increment();
+    }
+
+    @Override
+    public long overlay(Long videoId, Long dbViewCount) {
+        List<VideoDTO> single = new ArrayList<>();
+        VideoDTO video = new VideoDTO();
+        video.setId(videoId);
+        video.setViewCount(dbViewCount);
+        single.add(video);
+
+        overlay(single);
+        return video.getViewCount();
+    }
+
+    /**
+     * Reads the view counts from the database itself, in one ordered pass for the whole page:
+     * 1. under the push lock, the shard batch ids, then the live and reconciling deltas, then this node's unpushed views;
+     * 2. view_count and the applied markers of those batches, in one statement;
+     * 3. the batch ids again.
+     * A reconciling delta is skipped when its batch is already in view_count. If a shard started or finished
+     * another batch in between, the read is repeated, so a count neither dips nor counts a batch twice.
+     * The caller's view counts are only used when Redis or the database cannot be read.
+     */
+    @Override
+    public void overlay(List<VideoDTO> videos) {
+        if (videos.isEmpty()) {
+            return;
+        }
+
+        List<Long> videoIds = new ArrayList<>();
+        Set<String> batchKeySet = new LinkedHashSet<>();
+        for (VideoDTO video : videos) {
+            videoIds.add(video.getId());
+            batchKeySet.add(shardKey(video.getId()) + BATCH_SUFFIX);
+        }
+        List<String> batchKeys = new ArrayList<>(batchKeySet);
+
+        try {
+            for (int attempt = 1; ; attempt++) {
+                PendingViews pending = readPending(videoIds, batchKeys);
+                Set<String> batchIds = new HashSet<>(pending.batchIds().values());
+                batchIds.remove(null);
+                ViewCountBatchWriter.StoredViews stored = viewCountBatchWriter.readStoredViews(videoIds, batchIds);
+
+                if (readBatchIds(batchKeys).equals(pending.batchIds()) || attempt == MAX_OVERLAY_ATTEMPTS) {
+                    for (int i = 0; i < videos.size(); i++) {
+                        VideoDTO video = videos.get(i);
+                        String batchId = pending.batchIds().get(shardKey(video.getId()) + BATCH_SUFFIX);
+                        long count = stored.viewCounts().getOrDefault(video.getId(), storedCount(video))
+                                + pending.live()[i] + pending.local()[i];
+                        if (batchId == null || !stored.appliedBatches().contains(batchId)) {
+                            count += pending.reconciling()[i];
+                        }
+                        video.setViewCount(count);
+                    }
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to read pending view counts: {}", e.getMessage());
+        }
+
+        for (VideoDTO video : videos) {
+            LongAdder local = buffered.get(video.getId());
+            video.setViewCount(storedCount(video) + (local != null ? local.sum() : 0L));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${views.redis.push-interval-ms:200}")
+    public void push() {
+        // Readers wait until the deltas are in Redis, so they never see them in neither place nor in both
+        pushLock.writeLock().lock();
+        try {
+            pushBuffered();
+        } finally {
+            pushLock.writeLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${views.redis.reconcile-interval-ms:5000}")
+    public void reconcile() {
+        for (int shard = 0; shard < shardCount; shard++) {
+            // Another node may have taken over while the previous shard was written
+            if (!holdsLease()) {
+                return;
+            }
+
+            String live = SHARD_PREFIX + shard + SHARD_SUFFIX;
+            String reconciling = live + RECONCILING_SUFFIX;
+            String batchKey = live + BATCH_SUFFIX;
+
+            try {
+                // A leftover reconciling hash means a previous leader stopped midway; finish it first
+                String batchId = stringRedisTemplate.execute(BEGIN_BATCH, List.of(live, reconciling, batchKey),
+                        UUID.randomUUID().toString());
+                if (batchId == null) {
+                    continue;
+                }
+
+                Map<Long, Long> deltas = new HashMap<>();
+                for (Map.Entry<Object, Object> entry : redisTemplate.opsForHash().entries(reconciling).entrySet()) {
+                    long delta = toLong(entry.getValue());
+                    if (delta != 0) {
+                        deltas.put(Long.valueOf((String) entry.getKey()), delta);
+                    }
+                }
+
+                if (!viewCountBatchWriter.addViewsOnce(batchId, deltas)) {
+                    log.info("View count batch {} of shard {} was already applied", batchId, shard);
+                }
+                stringRedisTemplate.execute(END_BATCH, List.of(reconciling, batchKey), batchId);
+
+                log.debug("Reconciled view counts of {} videos from shard {}", deltas.size(), shard);
+            } catch (RuntimeException e) {
+                log.error("Failed to reconcile view count shard {}: {}", shard, e.getMessage());
+            }
+        }
+
+        if (lastPruned.plus(PRUNE_INTERVAL).isBefore(Instant.now())) {
+            try {
+                viewCountBatchWriter.pruneAppliedBatches(APPLIED_BATCH_RETENTION);
+                lastPruned = Instant.now();
+            } catch (RuntimeException e) {
+                log.warn("Failed to prune applied view count batches: {}", e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        push();
+        stringRedisTemplate.execute(RELEASE_LEASE, List.of(LEADER_KEY), nodeId);
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private void pushBuffered() {
+        Map<Long, Long> deltas = new HashMap<>();
+        for (Map.Entry<Long, LongAdder> entry : buffered.entrySet()) {
+            long delta = entry.getValue().sumThenReset();
+            if (delta > 0) {
+                deltas.put(entry.getKey(), delta);
+            } else {
+                buffered.remove(entry.getKey(), entry.getValue());
+                // A view may have landed between the read and the removal; keep it
+                long late = entry.getValue().sumThenReset();
+                if (late > 0) {
+                    deltas.put(entry.getKey(), late);
+                }
+            }
+        }
+
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, Integer> ops = (RedisOperations<String, Integer>) operations;
+                    for (Map.Entry<Long, Long> entry : deltas.entrySet()) {
+                        ops.opsForHash().increment(shardKey(entry.getKey()), String.valueOf(entry.getKey()), entry.getValue());
+                    }
+                    return null;
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("Failed to push view counts to Redis: {}", e.getMessage());
+            for (Map.Entry<Long, Long> entry : deltas.entrySet()) {
+                buffered.computeIfAbsent(entry.getKey(), id -> new LongAdder()).add(entry.getValue());
+            }
+        }
+    }
+
+
+    /**
+     * Reads the batch id of every given shard, then the live and reconciling deltas of every video, in one pipeline.
+     * Runs under the push lock, so this node's views are either in the local buffer or in Redis, never in flight.
+     */
+    private PendingViews readPending(List<Long> videoIds, List<String> batchKeys) {
+        pushLock.readLock().lock();
+        try {
+            List<Object> results = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                    for (String batchKey : batchKeys) {
+                        ops.opsForValue().get(batchKey);
+                    }
+                    for (Long videoId : videoIds) {
+                        String shard = shardKey(videoId);
+                        ops.opsForHash().get(shard, String.valueOf(videoId));
+                        ops.opsForHash().get(shard + RECONCILING_SUFFIX, String.valueOf(videoId));
+                    }
+                    return null;
+                }
+            });
+
+            Map<String, String> batchIds = new HashMap<>();
+            for (int i = 0; i < batchKeys.size(); i++) {
+                batchIds.put(batchKeys.get(i), (String) results.get(i));
+            }
+            long[] live = new long[videoIds.size()];
+            long[] reconciling = new long[videoIds.size()];
+            long[] local = new long[videoIds.size()];
+            for (int i = 0; i < videoIds.size(); i++) {
+                live[i] = toLong(results.get(batchKeys.size() + i * 2));
+                reconciling[i] = toLong(results.get(batchKeys.size() + i * 2 + 1));
+                LongAdder buffer = buffered.get(videoIds.get(i));
+                local[i] = buffer != null ? buffer.sum() : 0L;
+            }
+            return new PendingViews(batchIds, live, reconciling, local);
+        } finally {
+            pushLock.readLock().unlock();
+        }
+    }
+
+    private Map<String, String> readBatchIds(List<String> batchKeys) {
+        List<Object> results = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                for (String batchKey : batchKeys) {
+                    ops.opsForValue().get(batchKey);
+                }
+                return null;
+            }
+        });
+
+        Map<String, String> batchIds = new HashMap<>();
+        for (int i = 0; i < batchKeys.size(); i++) {
+            batchIds.put(batchKeys.get(i), (String) results.get(i));
+        }
+        return batchIds;
+    }
+
+    private long storedCount(VideoDTO video) {
+        return video.getViewCount() != null ? video.getViewCount() : 0L;
+    }
+
+    private boolean holdsLease() {
+        Boolean acquired = stringRedisTemplate.opsForValue()
+                .setIfAbsent(LEADER_KEY, nodeId, Duration.ofMillis(leaderTtlMs));
+        if (Boolean.TRUE.equals(acquired)) {
+            return true;
+        }
+
+        Long renewed = stringRedisTemplate.execute(RENEW_LEASE, List.of(LEADER_KEY), nodeId, String.valueOf(leaderTtlMs));
+        return renewed != null && renewed == 1L;
+    }
+
+    private String shardKey(Long videoId) {
+        return SHARD_PREFIX + Math.floorMod(videoId, shardCount) + SHARD_SUFFIX;
+    }
+
+    private long toLong(Object value) {
+        if (value == null) {
+            return 0L;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return Long.parseLong(value.toString());
+    }
+
+    // Deltas are indexed like the video ids; batch ids by batch key, null for a shard with no batch in progress
+    private record PendingViews(Map<String, String> batchIds, long[] live, long[] reconciling, long[] local) {
+    }
+}
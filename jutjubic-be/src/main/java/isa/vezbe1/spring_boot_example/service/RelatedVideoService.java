@@ -0,0 +1,474 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.dto.VideoDTO;
+import isa.vezbe1.spring_boot_example.util.TextNormalizer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * "Up next" recommendations: videos whose tags and titles overlap the most with a given video.
+ *
+ * Each video is reduced to a set of features (its tag names, title words and adjacent title word
+ * pairs) and then to a 64-value MinHash signature; the share of equal values between two signatures
+ * estimates the Jaccard similarity of their feature sets. Signatures are split into 32 bands of 2
+ * values and every band is hashed into a bucket, so videos that are even moderately similar
+ * (Jaccard around 0.2 and up) very likely share a bucket. A lookup reads only the buckets of one
+ * video, re-ranks those candidates by estimated Jaccard and then by popularity.
+ *
+ * Signatures are stored in videos.related_signature: an upload writes its signature in the same
+ * transaction, and startup only rebuilds the buckets from stored signatures, computing features
+ * just for rows that have none yet.
+ */
+@Service
+public class RelatedVideoService {
+
+    private static final Logger log = LoggerFactory.getLogger(RelatedVideoService.class);
+
+    // Fixed, because stored signatures are only comparable when computed with the same functions
+    private static final int SIGNATURE_SIZE = 64;
+    private static final int BANDS = 32;
+    private static final int ROWS_PER_BAND = SIGNATURE_SIZE / BANDS;
+    private static final long[] SEEDS = new long[SIGNATURE_SIZE];
+
+    static {
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            SEEDS[i] = mix(0x9E3779B97F4A7C15L * (i + 1));
+        }
+    }
+
+    private static final int STREAM_FETCH_SIZE = 1000;
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    private static final String SIGNATURES_SQL = "SELECT id, related_signature FROM videos";
+
+    private static final String MISSING_FEATURES_SQL =
+            "SELECT v.id, v.title, " +
+            "(SELECT string_agg(t.name, '|') FROM video_tag_mapping m JOIN video_tags t ON t.id = m.tag_id " +
+            " WHERE m.video_id = v.id) " +
+            "FROM videos v WHERE v.related_signature IS NULL AND v.id > ? ORDER BY v.id LIMIT ?";
+
+    @Value("${related.max-candidates:500}")
+    private int maxCandidates;
+
+    @Value("${related.popularity-weight:0.02}")
+    private double popularityWeight;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private VideoSummaryService videoSummaryService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock; null until the first load finishes
+    private Index index;
+
+    // Guarded by lock; changes made while the load streams, replayed onto the new index before the swap
+    private List<Consumer<Index>> pendingChanges;
+
+    private final ExecutorService loadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "related-index-load");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public RelatedVideoService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return index != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Most similar videos first, with a small log(view count) bonus for popular ones.
+     *
+     * @return related videos, or an empty list if the video is not indexed (yet)
+     */
+    public List<VideoDTO> findRelated(Long videoId, int limit) {
+        List<Candidate> candidates;
+        lock.readLock().lock();
+        try {
+            if (index == null) {
+                throw new IllegalStateException("Related videos index is still being loaded");
+            }
+            candidates = index.candidates(videoId, maxCandidates);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+
+        // Keep a few more than asked for, so popularity can reorder near-equal candidates
+        candidates.sort(Comparator.comparingDouble((Candidate c) -> c.similarity).reversed());
+        List<Candidate> shortlist = candidates.subList(0, Math.min(candidates.size(), limit * 3));
+
+        Map<Long, Double> similarity = new HashMap<>();
+        shortlist.forEach(candidate -> similarity.put(candidate.videoId, candidate.similarity));
+        List<VideoDTO> videos = new ArrayList<>(videoSummaryService.getByIds(new ArrayList<>(similarity.keySet())));
+
+        videos.sort(Comparator.comparingDouble((VideoDTO video) -> similarity.get(video.getId())
+                + popularityWeight * Math.log1p(Math.max(0, video.getViewCount() == null ? 0 : video.getViewCount())))
+                .reversed());
+        return videos.size() > limit ? new ArrayList<>(videos.subList(0, limit)) : videos;
+    }
+
+    /**
+     * Computes the signature of a new video and stores it in the current transaction;
+     * the in-memory buckets are updated after commit.
+     */
+    public void indexVideo(Long videoId, String title, Collection<String> tagNames) {
+        int[] signature = signature(title, tagNames);
+        jdbcTemplate.update("UPDATE videos SET related_signature = ? WHERE id = ?", encode(signature), videoId);
+        afterCommit(target -> target.add(videoId, signature));
+    }
+
+    public void removeAfterCommit(Long videoId) {
+        afterCommit(target -> target.remove(videoId));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        // Before uploads can write signatures; the rest of the load runs in the background
+        jdbcTemplate.execute("ALTER TABLE videos ADD COLUMN IF NOT EXISTS related_signature BYTEA");
+
+        lock.writeLock().lock();
+        try {
+            if (pendingChanges != null) {
+                return;
+            }
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        loadExecutor.execute(this::load);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loadExecutor.shutdownNow();
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private void afterCommit(Consumer<Index> change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(change);
+                }
+            });
+        } else {
+            apply(change);
+        }
+    }
+
+    private void apply(Consumer<Index> change) {
+        lock.writeLock().lock();
+        try {
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+            if (index != null) {
+                change.accept(index);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void load() {
+        Index fresh = new Index();
+        long started = System.nanoTime();
+        int[] loaded = {0};
+
+        try {
+            int backfilled = backfillMissingSignatures();
+
+            transactionTemplate.executeWithoutResult(status -> stream(SIGNATURES_SQL, rs -> {
+                byte[] stored = rs.getBytes(2);
+                if (stored != null && stored.length == SIGNATURE_SIZE * Integer.BYTES) {
+                    fresh.add(rs.getLong(1), decode(stored));
+                    loaded[0]++;
+                }
+            }));
+            if (backfilled > 0) {
+                log.info("Computed {} missing related-video signatures", backfilled);
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to load related videos index: {}", e.getMessage());
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            // Add and remove are idempotent, so replaying a change the scan already saw is harmless
+            pendingChanges.forEach(change -> change.accept(fresh));
+            pendingChanges = null;
+            index = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("Loaded related videos index: {} videos, {} buckets in {} ms",
+                loaded[0], fresh.buckets.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Computes signatures for rows that have none (seed data, or rows written before the column
+     * existed), one id range per transaction.
+     */
+    private int backfillMissingSignatures() {
+        int total = 0;
+        long lastId = 0;
+        while (true) {
+            List<Object[]> updates = new ArrayList<>();
+            long afterId = lastId;
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.query(MISSING_FEATURES_SQL, rs -> {
+                    String tags = rs.getString(3);
+                    int[] signature = signature(rs.getString(2), tags == null ? List.of() : Arrays.asList(tags.split("\\|")));
+                    updates.add(new Object[]{encode(signature), rs.getLong(1)});
+                }, afterId, BACKFILL_BATCH_SIZE);
+                if (!updates.isEmpty()) {
+                    jdbcTemplate.batchUpdate("UPDATE videos SET related_signature = ? WHERE id = ?", updates);
+                }
+            });
+            if (updates.isEmpty()) {
+                return total;
+            }
+            total += updates.size();
+            lastId = (Long) updates.get(updates.size() - 1)[1];
+        }
+    }
+
+    private void stream(String sql, RowCallbackHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            return statement;
+        }, handler);
+    }
+
+    /**
+     * Features: "t:" + tag name, "w:" + title word and "p:" + pair of adjacent title words.
+     */
+    static int[] signature(String title, Collection<String> tagNames) {
+        Set<String> features = new LinkedHashSet<>();
+        for (String tag : tagNames) {
+            if (tag != null && !tag.isBlank()) {
+                features.add("t:" + tag.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        List<String> words = TextNormalizer.tokenize(title);
+        for (int i = 0; i < words.size(); i++) {
+            features.add("w:" + words.get(i));
+            if (i > 0) {
+                features.add("p:" + words.get(i - 1) + " " + words.get(i));
+            }
+        }
+
+        long[] minimums = new long[SIGNATURE_SIZE];
+        Arrays.fill(minimums, Long.MAX_VALUE);
+        for (String feature : features) {
+            long hash = hash(feature);
+            for (int i = 0; i < SIGNATURE_SIZE; i++) {
+                long value = mix(hash ^ SEEDS[i]);
+                if (value < minimums[i]) {
+                    minimums[i] = value;
+                }
+            }
+        }
+
+        int[] signature = new int[SIGNATURE_SIZE];
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            signature[i] = (int) (minimums[i] ^ (minimums[i] >>> 32));
+        }
+        return signature;
+    }
+
+    // 64-bit FNV-1a over UTF-16 code units
+    private static long hash(String text) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    // MurmurHash3 finalizer
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    private static byte[] encode(int[] signature) {
+        ByteBuffer buffer = ByteBuffer.allocate(signature.length * Integer.BYTES);
+        buffer.asIntBuffer().put(signature);
+        return buffer.array();
+    }
+
+    private static int[] decode(byte[] bytes) {
+        int[] signature = new int[bytes.length / Integer.BYTES];
+        ByteBuffer.wrap(bytes).asIntBuffer().get(signature);
+        return signature;
+    }
+
+    private static final class Candidate {
+        final long videoId;
+        final double similarity;
+
+        Candidate(long videoId, double similarity) {
+            this.videoId = videoId;
+            this.similarity = similarity;
+        }
+    }
+
+    /**
+     * Signatures and LSH buckets. Not thread-safe; guarded by the enclosing lock.
+     */
+    private static class Index {
+        final Map<Long, int[]> signatures = new HashMap<>();
+        final Map<Long, Bucket> buckets = new HashMap<>();
+
+        void add(long videoId, int[] signature) {
+            if (signatures.containsKey(videoId)) {
+                return;
+            }
+            signatures.put(videoId, signature);
+            for (int band = 0; band < BANDS; band++) {
+                buckets.computeIfAbsent(bandKey(signature, band), key -> new Bucket()).add(videoId);
+            }
+        }
+
+        void remove(long videoId) {
+            int[] signature = signatures.remove(videoId);
+            if (signature == null) {
+                return;
+            }
+            for (int band = 0; band < BANDS; band++) {
+                long key = bandKey(signature, band);
+                Bucket bucket = buckets.get(key);
+                if (bucket != null && bucket.remove(videoId) && bucket.size == 0) {
+                    buckets.remove(key);
+                }
+            }
+        }
+
+        List<Candidate> candidates(long videoId, int maxCandidates) {
+            int[] signature = signatures.get(videoId);
+            if (signature == null) {
+                return new ArrayList<>();
+            }
+
+            Set<Long> seen = new HashSet<>();
+            seen.add(videoId);
+            List<Candidate> candidates = new ArrayList<>();
+            for (int band = 0; band < BANDS && candidates.size() < maxCandidates; band++) {
+                Bucket bucket = buckets.get(bandKey(signature, band));
+                if (bucket == null) {
+                    continue;
+                }
+                for (int i = 0; i < bucket.size && candidates.size() < maxCandidates; i++) {
+                    long candidate = bucket.ids[i];
+                    if (seen.add(candidate)) {
+                        candidates.add(new Candidate(candidate, similarity(signature, signatures.get(candidate))));
+                    }
+                }
+            }
+            return candidates;
+        }
+
+        private static double similarity(int[] a, int[] b) {
+            int equal = 0;
+            for (int i = 0; i < SIGNATURE_SIZE; i++) {
+                if (a[i] == b[i]) {
+                    equal++;
+                }
+            }
+            return (double) equal / SIGNATURE_SIZE;
+        }
+
+        private static long bandKey(int[] signature, int band) {
+            long key = band;
+            for (int row = 0; row < ROWS_PER_BAND; row++) {
+                key = mix(key * 31 + signature[band * ROWS_PER_BAND + row]);
+            }
+            return key;
+        }
+    }
+
+    private static final class Bucket {
+        long[] ids = new long[4];
+        int size;
+
+        void add(long videoId) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size << 1);
+            }
+            ids[size++] = videoId;
+        }
+
+        boolean remove(long videoId) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == videoId) {
+                    ids[i] = ids[--size];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import java.util.List;
+
+/**
+ * One page of search results from a VideoSearchStrategy: video ids in rank order.
+ */
+public class SearchHits {
+
+    private static final SearchHits EMPTY = new SearchHits(List.of(), null, 0L);
+
+    private final List<Long> videoIds;
+    private final String nextCursor;
+    private final Long totalHits;
+
+    public SearchHits(List<Long> videoIds, String nextCursor, Long totalHits) {
+        this.videoIds = videoIds;
+        this.nextCursor = nextCursor;
+        this.totalHits = totalHits;
+    }
+
+    public static SearchHits empty() {
+        return EMPTY;
+    }
+
+    public List<Long> getVideoIds() {
+        return videoIds;
+    }
+
+    /**
+     * @return cursor for the next page, or null on the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * @return number of matching videos, or null if the strategy does not count them
+     */
+    public Long getTotalHits() {
+        return totalHits;
+    }
+}
@@ -0,0 +1,454 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import isa.vezbe1.spring_boot_example.model.VideoStatus;
+import isa.vezbe1.spring_boot_example.repository.VideoRepository;
+import isa.vezbe1.spring_boot_example.util.UploadPaths;
+import jakarta.annotation.PreDestroy;
+import org.jcodec.api.FrameGrab;
+import org.jcodec.api.JCodecException;
+import org.jcodec.common.DemuxerTrackMeta;
+import org.jcodec.common.io.FileChannelWrapper;
+import org.jcodec.common.io.NIOUtils;
+import org.jcodec.common.model.ColorSpace;
+import org.jcodec.common.model.Picture;
+import org.jcodec.scale.ColorUtil;
+import org.jcodec.scale.Transform;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Builds scrub-preview storyboards: one frame every storyboard.interval-seconds, scaled to a small
+ * tile and packed into JPEG sprite sheets of columns x rows tiles, plus a WebVTT index whose cues
+ * point at a tile with a #xywh= fragment. Frames are decoded with JCodec, so only H.264 MP4s get a
+ * storyboard. Long videos get a wider interval, so that no video needs more than max-tiles tiles.
+ *
+ * Files live in /uploads/storyboards/{key}/, where the key is the content hash in the video's blob
+ * file name, and the index is written last. A storyboard therefore exists exactly when its index
+ * does, never changes afterwards, and is shared by identical uploads. Video ids are not used: they
+ * are reused once the database is recreated, and a sheet URL is cached for a year. Work runs on a
+ * small bounded pool of low-priority threads; when the queue is full the job is dropped and queued
+ * again the next time the storyboard is requested.
+ */
+@Service
+public class StoryboardService {
+
+    private static final Logger log = LoggerFactory.getLogger(StoryboardService.class);
+
+    private static final String STORYBOARDS_PREFIX = "/uploads/storyboards/";
+    private static final String INDEX_FILE = "storyboard.vtt";
+    private static final Pattern KEY = Pattern.compile("[A-Za-z0-9_-]+");
+
+    @Autowired
+    private UploadPaths uploadPaths;
+
+    @Value("${storyboard.enabled:true}")
+    private boolean enabled;
+
+    @Value("${storyboard.interval-seconds:5}")
+    private double intervalSeconds;
+
+    @Value("${storyboard.max-tiles:300}")
+    private int maxTiles;
+
+    @Value("${storyboard.tile-width:160}")
+    private int tileWidth;
+
+    @Value("${storyboard.columns:5}")
+    private int columns;
+
+    @Value("${storyboard.rows:5}")
+    private int rows;
+
+    @Value("${storyboard.jpeg-quality:0.7}")
+    private float jpegQuality;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Map<Long, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+
+    // Videos that could not be decoded are not retried on every request
+    private final Cache<Long, Boolean> failedVideos = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofHours(1))
+            .build();
+
+    public StoryboardService(@Value("${storyboard.threads:1}") int threads,
+                             @Value("${storyboard.queue-capacity:50}") int queueCapacity) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "storyboard-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    public static String sheetUrl(String key, int sheet) {
+        return "/api/videos/storyboards/" + key + "/" + sheet + ".jpg";
+    }
+
+    /**
+     * Storyboard key of a video file: the name of a blob (its content hash) without the extension.
+     * Names that are not safe in a URL are hashed instead.
+     */
+    public static String keyOf(String videoPath) {
+        String fileName = videoPath.substring(videoPath.lastIndexOf('/') + 1);
+        int extension = fileName.lastIndexOf('.');
+        String name = extension > 0 ? fileName.substring(0, extension) : fileName;
+        if (KEY.matcher(name).matches()) {
+            return name;
+        }
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(videoPath.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The WebVTT index of a video's storyboard. When it does not exist yet and the video is READY,
+     * its generation is queued and the caller is expected to ask again later.
+     */
+    public Optional<Path> getIndex(Long videoId) {
+        String videoPath = videoRepository.findVideoPathById(videoId).orElse(null);
+        if (videoPath == null) {
+            return Optional.empty();
+        }
+        Path index = directory(keyOf(videoPath)).resolve(INDEX_FILE);
+        if (Files.exists(index)) {
+            return Optional.of(index);
+        }
+        if (videoRepository.findStatusById(videoId).orElse(null) == VideoStatus.READY) {
+            generateAsync(videoId);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * A sprite sheet of a finished storyboard.
+     */
+    public Optional<Path> getSheet(String key, int sheet) {
+        if (!KEY.matcher(key).matches() || sheet < 0) {
+            return Optional.empty();
+        }
+        Path directory = directory(key);
+        Path file = directory.resolve(sheet + ".jpg");
+        return Files.exists(directory.resolve(INDEX_FILE)) && Files.exists(file)
+                ? Optional.of(file)
+                : Optional.empty();
+    }
+
+    public void generateAfterCommit(Long videoId) {
+        afterCommit(() -> generateAsync(videoId));
+    }
+
+    /**
+     * Queues generation of a video's storyboard; a video that is already queued is not queued
+     * twice and its callers share one future. The future fails when the video cannot be decoded
+     * or the queue is full.
+     */
+    public CompletableFuture<Void> generateAsync(Long videoId) {
+        if (!enabled) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Storyboards are disabled"));
+        }
+        if (failedVideos.getIfPresent(videoId) != null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Video cannot be decoded"));
+        }
+        CompletableFuture<Void> generated = new CompletableFuture<>();
+        CompletableFuture<Void> queued = inFlight.putIfAbsent(videoId, generated);
+        if (queued != null) {
+            return queued;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(videoId);
+                    generated.complete(null);
+                } catch (IOException | JCodecException | RuntimeException e) {
+                    failedVideos.put(videoId, Boolean.TRUE);
+                    log.warn("Failed to build storyboard of video {}: {}", videoId, e.getMessage());
+                    generated.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(videoId, generated);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(videoId, generated);
+            log.debug("Storyboard queue full, skipping video {}", videoId);
+            generated.completeExceptionally(e);
+        }
+        return generated;
+    }
+
+    /**
+     * Deletes a deleted video's storyboard once the delete is committed, unless another video still
+     * uses the same file. A job still running finds the file unused when it finishes and deletes its
+     * own output.
+     */
+    public void removeAfterCommit(String videoPath) {
+        afterCommit(() -> {
+            if (!videoRepository.existsByVideoPath(videoPath)) {
+                remove(keyOf(videoPath));
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private void generate(Long videoId) throws IOException, JCodecException {
+        String videoPath = videoRepository.findVideoPathById(videoId)
+                .orElseThrow(() -> new IllegalArgumentException("Video not found"));
+        String key = keyOf(videoPath);
+        Path directory = directory(key);
+        if (Files.exists(directory.resolve(INDEX_FILE))) {
+            return;
+        }
+        Files.createDirectories(directory);
+        try {
+            build(videoId, videoPath, key, directory);
+        } catch (IOException | JCodecException | RuntimeException e) {
+            remove(key);
+            throw e;
+        }
+    }
+
+    private void build(Long videoId, String videoPath, String key, Path directory) throws IOException, JCodecException {
+        long started = System.nanoTime();
+        StringBuilder index = new StringBuilder("WEBVTT\n");
+        int tiles;
+        try (FileChannelWrapper in = NIOUtils.readableChannel(uploadPaths.resolve(videoPath).toFile())) {
+            FrameGrab grab = FrameGrab.createFrameGrab(in);
+            DemuxerTrackMeta meta = grab.getVideoTrack().getMeta();
+            int totalFrames = meta.getTotalFrames();
+            double seconds = meta.getTotalDuration();
+            if (totalFrames <= 0 || seconds <= 0) {
+                throw new IllegalArgumentException("Video has no frames");
+            }
+            double interval = Math.max(intervalSeconds, seconds / maxTiles);
+            tiles = (int) Math.ceil(seconds / interval);
+            int tilesPerSheet = columns * rows;
+
+            Picture scaled = null;
+            Picture rgb = null;
+            Transform toRgb = null;
+            BufferedImage sheet = null;
+            for (int tile = 0; tile < tiles; tile++) {
+                double start = tile * interval;
+                int frameIndex = Math.min(totalFrames - 1, (int) (start * totalFrames / seconds));
+                Picture frame = frameAt(grab, frameIndex);
+                if (frame == null) {
+                    // Frames ran out early, e.g. a truncated file: keep the sheet's tiles drawn so far
+                    int drawn = tile % tilesPerSheet;
+                    if (drawn > 0) {
+                        BufferedImage partial = sheet.getSubimage(0, 0, Math.min(columns, drawn) * rgb.getWidth(),
+                                (drawn + columns - 1) / columns * rgb.getHeight());
+                        writeJpeg(partial, directory.resolve(tile / tilesPerSheet + ".jpg"));
+                    }
+                    tiles = tile;
+                    break;
+                }
+                if (scaled == null) {
+                    int tileHeight = Math.max(2, (int) Math.round((double) tileWidth * frame.getCroppedHeight()
+                            / frame.getCroppedWidth() / 2) * 2);
+                    scaled = Picture.create(tileWidth, tileHeight, frame.getColor());
+                    rgb = Picture.create(tileWidth, tileHeight, ColorSpace.RGB);
+                    toRgb = ColorUtil.getTransform(frame.getColor(), ColorSpace.RGB);
+                }
+                // Scaled down in YUV first, so only the tile's pixels are converted
+                TranscodingService.scale(frame, scaled);
+                toRgb.transform(scaled, rgb);
+
+                int position = tile % tilesPerSheet;
+                if (position == 0) {
+                    int sheetTiles = Math.min(tilesPerSheet, tiles - tile);
+                    int sheetColumns = Math.min(columns, sheetTiles);
+                    int sheetRows = (sheetTiles + columns - 1) / columns;
+                    sheet = new BufferedImage(sheetColumns * rgb.getWidth(), sheetRows * rgb.getHeight(),
+                            BufferedImage.TYPE_3BYTE_BGR);
+                }
+                int x = position % columns * rgb.getWidth();
+                int y = position / columns * rgb.getHeight();
+                draw(rgb, sheet, x, y);
+
+                int sheetNumber = tile / tilesPerSheet;
+                index.append('\n')
+                        .append(timestamp(start)).append(" --> ").append(timestamp(Math.min(start + interval, seconds)))
+                        .append('\n')
+                        .append(sheetUrl(key, sheetNumber))
+                        .append("#xywh=").append(x).append(',').append(y).append(',')
+                        .append(rgb.getWidth()).append(',').append(rgb.getHeight())
+                        .append('\n');
+
+                if (position == tilesPerSheet - 1 || tile == tiles - 1) {
+                    writeJpeg(sheet, directory.resolve(sheetNumber + ".jpg"));
+                }
+            }
+        }
+        if (tiles == 0) {
+            throw new IllegalArgumentException("Video has no frames");
+        }
+
+        writeAtomically(directory.resolve(INDEX_FILE), out -> out.write(index.toString().getBytes(StandardCharsets.UTF_8)));
+        if (!videoRepository.existsByVideoPath(videoPath)) {
+            // Every video using the file was deleted while we were sampling it
+            remove(key);
+            return;
+        }
+        log.info("Built storyboard of video {}: {} tiles in {}ms", videoId, tiles, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Decodes from the preceding key frame, so the tile shows the cue's first frame. Returns null
+     * when the frame cannot be read: a truncated file runs out of packets before its sample
+     * tables say it should, and JCodec then returns no frame or fails inside the demuxer.
+     */
+    private static Picture frameAt(FrameGrab grab, int frameIndex) throws IOException, JCodecException {
+        try {
+            return grab.seekToFramePrecise(frameIndex).getNativeFrame();
+        } catch (RuntimeException e) {
+            log.debug("No frame {}: {}", frameIndex, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Copies an RGB picture into a BGR sheet. JCodec stores samples as signed bytes offset by 128.
+     */
+    private static void draw(Picture rgb, BufferedImage sheet, int x, int y) {
+        byte[] source = rgb.getPlaneData(0);
+        byte[] target = ((DataBufferByte) sheet.getRaster().getDataBuffer()).getData();
+        int rowBytes = rgb.getWidth() * 3;
+        int sheetRowBytes = sheet.getWidth() * 3;
+        for (int row = 0; row < rgb.getHeight(); row++) {
+            int from = row * rowBytes;
+            int to = (y + row) * sheetRowBytes + x * 3;
+            for (int i = 0; i < rowBytes; i += 3) {
+                target[to + i] = (byte) (source[from + i + 2] + 128);
+                target[to + i + 1] = (byte) (source[from + i + 1] + 128);
+                target[to + i + 2] = (byte) (source[from + i] + 128);
+            }
+        }
+    }
+
+    private static String timestamp(double seconds) {
+        long millis = Math.round(seconds * 1000);
+        return String.format("%02d:%02d:%02d.%03d", millis / 3_600_000, millis / 60_000 % 60, millis / 1000 % 60, millis % 1000);
+    }
+
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try {
+            writeAtomically(target, out -> {
+                try (ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+                    ImageWriteParam param = writer.getDefaultWriteParam();
+                    param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    param.setCompressionQuality(jpegQuality);
+                    writer.setOutput(imageOut);
+                    writer.write(null, new IIOImage(image, null, null), param);
+                }
+            });
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private void writeAtomically(Path target, FileWriter content) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), "storyboard-", ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            content.write(out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Path directory(String key) {
+        return uploadPaths.resolve(STORYBOARDS_PREFIX + key + "/");
+    }
+
+    private void remove(String key) {
+        Path directory = directory(key);
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.warn("Failed to delete {}: {}", file, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Failed to delete storyboard {}: {}", key, e.getMessage());
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    @FunctionalInterface
+    private interface FileWriter {
+        void write(OutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,168 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.model.VideoTag;
+import isa.vezbe1.spring_boot_example.repository.VideoTagRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves tag names to tags on the upload path with at most two statements, whatever the tag count.
+ *
+ * Names are matched case-insensitively. Known tags come from an in-memory name -> (id, name) cache;
+ * the misses are looked up in one batch, and whatever is still missing is created in one
+ * INSERT ... ON CONFLICT DO UPDATE ... RETURNING. The no-op update makes the insert return the
+ * existing row when a concurrent upload created the same tag first, so no upload fails on the
+ * unique constraint and no extra lookup is needed. Tags are never renamed or deleted, so cache
+ * entries do not go stale. Tags read from the database are cached only after the upload's
+ * transaction commits, so a rolled back insert never leaves an id in the cache.
+ */
+@Service
+public class TagDictionaryService {
+
+    private static final Logger log = LoggerFactory.getLogger(TagDictionaryService.class);
+
+    @Value("${tags.cache.max-size:100000}")
+    private int maxCacheSize;
+
+    @Autowired
+    private VideoTagRepository videoTagRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ConcurrentHashMap<String, CachedTag> cache = new ConcurrentHashMap<>();
+
+    // Until the lower(name) index exists only exact-case duplicates can be caught by ON CONFLICT
+    private volatile String conflictTarget = "(name)";
+
+    /**
+     * Returns one tag per distinct name (ignoring case and surrounding whitespace), creating
+     * the missing ones. The returned tags carry id and stored name and can be attached to a video.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Set<VideoTag> resolve(Collection<String> names) {
+        Map<String, String> wanted = new LinkedHashMap<>();
+        if (names != null) {
+            for (String name : names) {
+                if (name != null && !name.isBlank()) {
+                    wanted.putIfAbsent(key(name), name.trim());
+                }
+            }
+        }
+
+        Set<VideoTag> tags = new HashSet<>();
+        List<String> misses = new ArrayList<>();
+        for (Map.Entry<String, String> entry : wanted.entrySet()) {
+            CachedTag cached = cache.get(entry.getKey());
+            if (cached != null) {
+                tags.add(cached.toTag());
+            } else {
+                misses.add(entry.getValue());
+            }
+        }
+        if (misses.isEmpty()) {
+            return tags;
+        }
+
+        List<CachedTag> loaded = new ArrayList<>();
+        rememberAfterCommit(loaded);
+
+        // Statement 1: every cache miss in one lookup
+        for (VideoTag existing : videoTagRepository.findByNameInIgnoreCase(misses)) {
+            if (wanted.containsKey(key(existing.getName()))) {
+                loaded.add(new CachedTag(existing.getId(), existing.getName()));
+                tags.add(existing);
+                misses.removeIf(name -> key(name).equals(key(existing.getName())));
+            }
+        }
+        if (misses.isEmpty()) {
+            return tags;
+        }
+
+        // Statement 2: create the rest; a tag created concurrently comes back through DO UPDATE
+        StringBuilder sql = new StringBuilder("INSERT INTO video_tags (name) VALUES ");
+        for (int i = 0; i < misses.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append("(?)");
+        }
+        sql.append(" ON CONFLICT ").append(conflictTarget)
+                .append(" DO UPDATE SET name = video_tags.name RETURNING id, name");
+
+        jdbcTemplate.query(sql.toString(), rs -> {
+            CachedTag created = new CachedTag(rs.getLong(1), rs.getString(2));
+            loaded.add(created);
+            tags.add(created.toTag());
+        }, misses.toArray());
+
+        return tags;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS ux_video_tags_lower_name ON video_tags (lower(name))");
+            conflictTarget = "(lower(name))";
+        } catch (DataAccessException e) {
+            log.warn("Tag names differing only in case already exist, tags will be deduplicated by exact name: {}",
+                    e.getMessage());
+        }
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    /**
+     * Caches the given tags once the transaction commits; the list is filled in after registering.
+     */
+    private void rememberAfterCommit(List<CachedTag> tags) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    tags.forEach(TagDictionaryService.this::remember);
+                }
+            });
+        }
+    }
+
+    private void remember(CachedTag tag) {
+        if (cache.size() >= maxCacheSize) {
+            // Plain reset keeps the cache bounded; the next uploads refill it with the tags in use
+            cache.clear();
+        }
+        cache.put(key(tag.name()), tag);
+    }
+
+    private static String key(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record CachedTag(Long id, String name) {
+
+        // A detached VideoTag is enough for the join table; only its id is written
+        VideoTag toTag() {
+            VideoTag tag = new VideoTag(name);
+            tag.setId(id);
+            return tag;
+        }
+    }
+}
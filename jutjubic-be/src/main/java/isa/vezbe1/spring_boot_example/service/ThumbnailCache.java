@@ -0,0 +1,316 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import isa.vezbe1.spring_boot_example.repository.VideoRepository;
+import isa.vezbe1.spring_boot_example.util.UploadPaths;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thumbnails in three tiers: an in-process L1 bounded by bytes (Caffeine, W-TinyLFU eviction),
+ * Redis as a shared L2 and the uploaded file on disk as the source of truth.
+ *
+ * A miss in L1 reads through Redis and then disk, repopulating the tiers above it. Concurrent
+ * requests for the same missing thumbnail share one load instead of each going to Redis and disk.
+ * Content type is taken from the image bytes, so it is right no matter which tier answered.
+ *
+ * With the segment store enabled it replaces Redis and the per-file reads: L1 then only holds
+ * slices of the mapped segments, which weigh next to nothing because the bytes live in the page cache.
+ * Resized variants (see ThumbnailVariantService) are cached under their own keys next to the original.
+ */
+@Service
+public class ThumbnailCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailCache.class);
+
+    private static final String REDIS_KEY_PREFIX = "thumbnail:";
+
+    private static final long PNG_SIGNATURE = 0x89504E470D0A1A0AL;
+
+    // Rough per-entry bookkeeping (key, node, record), so that tiny images are not weighed as free
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    @Autowired
+    private UploadPaths uploadPaths;
+
+    @Value("${thumbnails.cache.redis-ttl-hours:24}")
+    private long redisTtlHours;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private ThumbnailSegmentStore segmentStore;
+
+    @Autowired
+    private ThumbnailVariantService variantService;
+
+    @Autowired
+    @Qualifier("thumbnailRedisTemplate")
+    private RedisTemplate<String, byte[]> redisTemplate;
+
+    private final ExecutorService loadExecutor;
+
+    private final AsyncCache<ThumbnailKey, Thumbnail> local;
+
+    public ThumbnailCache(@Value("${thumbnails.cache.local-max-bytes:67108864}") long localMaxBytes,
+                          @Value("${thumbnails.cache.load-threads:8}") int loadThreads) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.loadExecutor = Executors.newFixedThreadPool(loadThreads, runnable -> {
+            Thread thread = new Thread(runnable, "thumbnail-load-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Loads run as futures, so a slow Redis or disk read never holds a lock other keys need
+        this.local = Caffeine.newBuilder()
+                .maximumWeight(localMaxBytes)
+                .weigher((ThumbnailKey key, Thumbnail thumbnail) -> thumbnail.data().isDirect()
+                        ? ENTRY_OVERHEAD_BYTES
+                        : thumbnail.data().remaining() + ENTRY_OVERHEAD_BYTES)
+                .executor(loadExecutor)
+                .buildAsync();
+    }
+
+    /**
+     * Thumbnail of a video, or empty when the video or its image file does not exist.
+     */
+    public Optional<Thumbnail> get(Long videoId) {
+        return get(videoId, null);
+    }
+
+    /**
+     * Thumbnail for display at the given width: the smallest variant at least that wide, or the
+     * original when no width is given. Until a variant has been derived the original is served.
+     */
+    public Optional<Thumbnail> get(Long videoId, Integer requestedWidth) {
+        ThumbnailKey key = new ThumbnailKey(videoId, variantService.pickWidth(requestedWidth));
+        try {
+            // A future that completes with null is dropped from the cache, so missing thumbnails are retried
+            return Optional.ofNullable(local.get(key, this::load).join());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Puts a freshly uploaded thumbnail into the segment store, or into Redis when segments are
+     * disabled, once the video row is committed.
+     */
+    public void warmAfterCommit(Long videoId, String thumbnailPath) {
+        afterCommit(() -> {
+            if (segmentStore.isEnabled()) {
+                loadPacked(thumbnailPath);
+                return;
+            }
+            byte[] data = readFile(thumbnailPath);
+            if (data != null && detectContentType(ByteBuffer.wrap(data)) != null) {
+                storeInRedis(new ThumbnailKey(videoId, 0), data);
+            }
+        });
+    }
+
+    /**
+     * Drops a deleted video's thumbnail and its variants from both cache tiers once the delete is committed.
+     */
+    public void evictAfterCommit(Long videoId) {
+        afterCommit(() -> {
+            List<ThumbnailKey> keys = keysOf(videoId);
+            local.synchronous().invalidateAll(keys);
+            try {
+                redisTemplate.delete(keys.stream().map(ThumbnailKey::redisKey).toList());
+            } catch (DataAccessException e) {
+                log.warn("Failed to evict thumbnail {} from Redis: {}", videoId, e.getMessage());
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loadExecutor.shutdownNow();
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private Thumbnail load(ThumbnailKey key) {
+        if (!segmentStore.isEnabled()) {
+            Thumbnail cached = readFromRedis(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        String sourcePath = videoRepository.findThumbnailPathById(key.videoId()).orElse(null);
+        if (sourcePath == null) {
+            return null;
+        }
+
+        String path = key.width() > 0 ? ThumbnailVariantService.variantPath(sourcePath, key.width()) : sourcePath;
+        Thumbnail thumbnail = read(key, path);
+        if (thumbnail != null || key.width() == 0) {
+            return thumbnail;
+        }
+
+        // Not derived yet (older upload, or still queued): serve the original under this key until
+        // derivation ends, then let the next request pick up the variant or try again
+        variantService.deriveAsync(sourcePath).whenComplete((derived, error) -> local.synchronous().invalidate(key));
+        return segmentStore.isEnabled() ? loadPacked(sourcePath) : toThumbnail(readFile(sourcePath));
+    }
+
+    /**
+     * Image behind a public path, from the segment store or from the file, which then goes to Redis.
+     */
+    private Thumbnail read(ThumbnailKey key, String path) {
+        if (segmentStore.isEnabled()) {
+            // Packed thumbnails are page cache reads; Redis would only add a network hop
+            return loadPacked(path);
+        }
+        byte[] data = readFile(path);
+        Thumbnail fromDisk = toThumbnail(data);
+        if (fromDisk != null) {
+            storeInRedis(key, data);
+        }
+        return fromDisk;
+    }
+
+    private Thumbnail loadPacked(String thumbnailPath) {
+        ByteBuffer packed = segmentStore.get(thumbnailPath);
+        if (packed == null) {
+            byte[] data = readFile(thumbnailPath);
+            if (data == null) {
+                return null;
+            }
+            packed = segmentStore.put(thumbnailPath, data);
+            if (packed == null) {
+                // Too large for a segment; served from the heap copy instead
+                return toThumbnail(data);
+            }
+        }
+        String contentType = detectContentType(packed);
+        return contentType != null ? new Thumbnail(packed, contentType) : null;
+    }
+
+    private Thumbnail toThumbnail(byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data).asReadOnlyBuffer();
+        String contentType = detectContentType(buffer);
+        return contentType != null ? new Thumbnail(buffer, contentType) : null;
+    }
+
+    private Thumbnail readFromRedis(ThumbnailKey key) {
+        byte[] data;
+        try {
+            data = redisTemplate.opsForValue().get(key.redisKey());
+        } catch (DataAccessException e) {
+            // Redis being down only costs a disk read
+            log.warn("Failed to read thumbnail {} from Redis: {}", key.redisKey(), e.getMessage());
+            return null;
+        }
+        // Entries written in an older format are not images; they get overwritten from disk
+        return toThumbnail(data);
+    }
+
+    private void storeInRedis(ThumbnailKey key, byte[] data) {
+        try {
+            redisTemplate.opsForValue().set(key.redisKey(), data, redisTtlHours, TimeUnit.HOURS);
+        } catch (DataAccessException e) {
+            log.warn("Failed to cache thumbnail {} in Redis: {}", key.redisKey(), e.getMessage());
+        }
+    }
+
+    private byte[] readFile(String thumbnailPath) {
+        if (!UploadPaths.isUploadPath(thumbnailPath)) {
+            return null;
+        }
+        Path file = uploadPaths.resolve(thumbnailPath);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            return Files.readAllBytes(file);
+        } catch (IOException e) {
+            log.warn("Failed to read thumbnail {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private static String detectContentType(ByteBuffer data) {
+        int start = data.position();
+        int length = data.remaining();
+        if (length >= 3 && (data.get(start) & 0xFF) == 0xFF && (data.get(start + 1) & 0xFF) == 0xD8
+                && (data.get(start + 2) & 0xFF) == 0xFF) {
+            return MediaType.IMAGE_JPEG_VALUE;
+        }
+        if (length >= 8 && data.getLong(start) == PNG_SIGNATURE) {
+            return MediaType.IMAGE_PNG_VALUE;
+        }
+        return null;
+    }
+
+    private List<ThumbnailKey> keysOf(Long videoId) {
+        List<ThumbnailKey> keys = new ArrayList<>();
+        keys.add(new ThumbnailKey(videoId, 0));
+        for (int width : variantService.getWidths()) {
+            keys.add(new ThumbnailKey(videoId, width));
+        }
+        return keys;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Image bytes as a read-only buffer; a slice of a mapped segment when the thumbnail is packed.
+     * Readers should work on data().duplicate() so concurrent responses do not share a position.
+     */
+    public record Thumbnail(ByteBuffer data, String contentType) {
+    }
+
+    /**
+     * Video and variant width; width 0 is the original upload.
+     */
+    private record ThumbnailKey(Long videoId, int width) {
+        String redisKey() {
+            return width == 0 ? REDIS_KEY_PREFIX + videoId : REDIS_KEY_PREFIX + videoId + ":w" + width;
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only store that packs thumbnails into large memory-mapped segment files, keyed by
+ * their public path (/uploads/thumbnails/{hash}.png). A read is a hash lookup plus a read-only
+ * slice of the mapping, so serving a packed thumbnail never opens a file or copies it to the heap.
+ *
+ * Each segment is preallocated to a fixed size and mapped once; records are
+ * [magic, key length, data length, key, data, CRC32 of data]. The key -> offset index is rebuilt
+ * at startup by walking the record headers, where a later copy of a key wins over an earlier one.
+ * Only the segment being appended to can hold a torn record after a crash, so only its checksums
+ * are verified. The per-file layout written by BlobStoreService stays the source of truth: a
+ * thumbnail missing here is packed again the next time it is read.
+ *
+ * Deleted videos leave dead records behind. Compaction drops thumbnails no video references any
+ * more from the index and rewrites sealed segments that are mostly dead. Slices handed out before
+ * a segment file is deleted stay readable, because a mapping lives until it is garbage collected.
+ */
+@Service
+public class ThumbnailSegmentStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailSegmentStore.class);
+
+    private static final int RECORD_MAGIC = 0x54484D42; // "THMB"
+
+    // magic (4) + key length (2) + data length (4); the key and data follow, then the CRC32 (4)
+    private static final int HEADER_BYTES = 10;
+    private static final int TRAILER_BYTES = 4;
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d{6})\\.seg");
+
+    private static final String LIVE_PATHS_SQL =
+            "SELECT DISTINCT thumbnail_path FROM videos WHERE thumbnail_path IS NOT NULL";
+
+    @Value("${thumbnails.segments.enabled:true}")
+    private boolean enabled;
+
+    @Value("${thumbnails.segments.dir:thumbnail-segments}")
+    private String segmentDir;
+
+    @Value("${thumbnails.segments.segment-size-bytes:67108864}")
+    private int segmentSize;
+
+    @Value("${thumbnails.segments.compaction-min-dead-ratio:0.5}")
+    private double compactionMinDeadRatio;
+
+    @Value("${thumbnails.segments.migrate-on-startup:true}")
+    private boolean migrateOnStartup;
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Map<String, Location> locations = new ConcurrentHashMap<>();
+
+    private final Map<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+
+    // Guarded by this, like every write to a segment
+    private Segment active;
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Path dir = Paths.get(segmentDir);
+        Files.createDirectories(dir);
+
+        List<Integer> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    ids.add(Integer.parseInt(matcher.group(1)));
+                }
+            });
+        }
+        ids.sort(null);
+
+        for (int i = 0; i < ids.size(); i++) {
+            Segment segment = map(ids.get(i), false);
+            scan(segment, i == ids.size() - 1);
+            segments.put(segment.id, segment);
+        }
+
+        synchronized (this) {
+            active = ids.isEmpty() ? create(1) : segments.get(ids.get(ids.size() - 1));
+        }
+        log.info("Opened thumbnail segment store: {} thumbnails in {} segments", locations.size(), segments.size());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Read-only view of a packed thumbnail, or null when it is not in the store.
+     */
+    public ByteBuffer get(String key) {
+        // A concurrent compaction moves the record before it drops the segment, so one retry is enough
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Location location = locations.get(key);
+            if (location == null) {
+                return null;
+            }
+            Segment segment = segments.get(location.segmentId());
+            if (segment != null) {
+                return segment.buffer.slice(location.dataOffset(), location.dataLength()).asReadOnlyBuffer();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Packs a thumbnail unless it is already there, and returns the packed view.
+     * Returns null when the thumbnail is larger than a segment, in which case it stays a plain file.
+     */
+    public ByteBuffer put(String key, byte[] data) {
+        ByteBuffer packed = get(key);
+        if (packed != null) {
+            return packed;
+        }
+        synchronized (this) {
+            if (!locations.containsKey(key) && append(key, ByteBuffer.wrap(data)) == null) {
+                return null;
+            }
+        }
+        return get(key);
+    }
+
+    /**
+     * Packs the thumbnails of the per-file layout that videos still reference and that are not in
+     * the store yet. Safe to run again; files stay where they are.
+     *
+     * @return number of thumbnails packed
+     */
+    public int migrateFromFiles() {
+        if (!enabled) {
+            return 0;
+        }
+        Path thumbnails = Paths.get(uploadDir, "thumbnails");
+        if (!Files.isDirectory(thumbnails)) {
+            return 0;
+        }
+        Set<String> live = new HashSet<>(jdbcTemplate.queryForList(LIVE_PATHS_SQL, String.class));
+
+        int packed = 0;
+        try (Stream<Path> files = Files.list(thumbnails)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String key = "/uploads/thumbnails/" + file.getFileName();
+                if (!live.contains(key) || locations.containsKey(key) || !Files.isRegularFile(file)) {
+                    continue;
+                }
+                if (put(key, Files.readAllBytes(file)) != null) {
+                    packed++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("Packed {} thumbnail files into segments", packed);
+        return packed;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if (!enabled || !migrateOnStartup) {
+            return;
+        }
+        Thread migration = new Thread(() -> {
+            try {
+                migrateFromFiles();
+            } catch (RuntimeException e) {
+                log.error("Thumbnail migration failed: {}", e.getMessage());
+            }
+        }, "thumbnail-migrate");
+        migration.setDaemon(true);
+        migration.start();
+    }
+
+    /**
+     * Forgets thumbnails (and their resized variants) no video references and rewrites sealed segments whose dead share reached
+     * thumbnails.segments.compaction-min-dead-ratio.
+     *
+     * A thumbnail packed for a video committed after the live set was read may be dropped too;
+     * it is packed again on its next read.
+     */
+    @Scheduled(fixedDelayString = "${thumbnails.segments.compaction-interval-ms:3600000}",
+            initialDelayString = "${thumbnails.segments.compaction-interval-ms:3600000}")
+    public void compact() {
+        if (!enabled) {
+            return;
+        }
+        Set<String> live = new HashSet<>(jdbcTemplate.queryForList(LIVE_PATHS_SQL, String.class));
+        locations.keySet().removeIf(key -> !live.contains(key)
+                && !live.contains(ThumbnailVariantService.sourcePathOf(key)));
+
+        Map<Integer, List<Map.Entry<String, Location>>> entriesBySegment = new HashMap<>();
+        Map<Integer, Long> liveBytes = new HashMap<>();
+        for (Map.Entry<String, Location> entry : locations.entrySet()) {
+            int segmentId = entry.getValue().segmentId();
+            entriesBySegment.computeIfAbsent(segmentId, id -> new ArrayList<>()).add(entry);
+            liveBytes.merge(segmentId, (long) entry.getValue().recordLength(), Long::sum);
+        }
+
+        int rewritten = 0;
+        for (Segment segment : new ArrayList<>(segments.values())) {
+            synchronized (this) {
+                if (segment == active) {
+                    continue;
+                }
+            }
+            long dead = segment.writePosition - liveBytes.getOrDefault(segment.id, 0L);
+            if (segment.writePosition > 0 && dead < compactionMinDeadRatio * segment.writePosition) {
+                continue;
+            }
+
+            for (Map.Entry<String, Location> entry : entriesBySegment.getOrDefault(segment.id, List.of())) {
+                synchronized (this) {
+                    // Skip records that were dropped or re-packed since the snapshot
+                    if (locations.get(entry.getKey()) == entry.getValue()) {
+                        Location location = entry.getValue();
+                        append(entry.getKey(), segment.buffer.slice(location.dataOffset(), location.dataLength()));
+                    }
+                }
+            }
+            segments.remove(segment.id);
+            try {
+                Files.deleteIfExists(segment.file);
+            } catch (IOException e) {
+                // Still mapped on some platforms; its records are superseded by the copies anyway
+                log.warn("Could not delete compacted thumbnail segment {}: {}", segment.file, e.getMessage());
+            }
+            rewritten++;
+        }
+        if (rewritten > 0) {
+            log.info("Compacted {} thumbnail segments, {} thumbnails live", rewritten, locations.size());
+        }
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    /**
+     * Appends one record to the active segment, starting a new segment when it is full.
+     * Caller holds the lock.
+     */
+    private Location append(String key, ByteBuffer data) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int length = data.remaining();
+        long recordLength = (long) HEADER_BYTES + keyBytes.length + length + TRAILER_BYTES;
+        if (keyBytes.length > 0xFFFF || recordLength > segmentSize) {
+            return null;
+        }
+
+        if (active.writePosition + recordLength > active.buffer.capacity()) {
+            seal(active);
+            active = create(active.id + 1);
+        }
+
+        MappedByteBuffer buffer = active.buffer;
+        int offset = active.writePosition;
+        int dataOffset = offset + HEADER_BYTES + keyBytes.length;
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate());
+
+        buffer.putShort(offset + 4, (short) keyBytes.length);
+        buffer.putInt(offset + 6, length);
+        buffer.put(offset + HEADER_BYTES, keyBytes);
+        buffer.put(dataOffset, data, data.position(), length);
+        buffer.putInt(dataOffset + length, (int) crc.getValue());
+        // Magic last, so a record torn by a crash has no valid header
+        buffer.putInt(offset, RECORD_MAGIC);
+        active.writePosition += (int) recordLength;
+
+        Location location = new Location(active.id, dataOffset, length, (int) recordLength);
+        locations.put(key, location);
+        return location;
+    }
+
+    private void scan(Segment segment, boolean verify) {
+        MappedByteBuffer buffer = segment.buffer;
+        int position = 0;
+        while (position + HEADER_BYTES + TRAILER_BYTES <= buffer.capacity()
+                && buffer.getInt(position) == RECORD_MAGIC) {
+            int keyLength = Short.toUnsignedInt(buffer.getShort(position + 4));
+            int dataLength = buffer.getInt(position + 6);
+            int dataOffset = position + HEADER_BYTES + keyLength;
+            long recordLength = (long) HEADER_BYTES + keyLength + dataLength + TRAILER_BYTES;
+            if (dataLength < 0 || position + recordLength > buffer.capacity()) {
+                break;
+            }
+            if (verify) {
+                CRC32 crc = new CRC32();
+                crc.update(buffer.slice(dataOffset, dataLength));
+                if ((int) crc.getValue() != buffer.getInt(dataOffset + dataLength)) {
+                    log.warn("Thumbnail segment {} ends with a torn record at offset {}", segment.file, position);
+                    break;
+                }
+            }
+
+            byte[] keyBytes = new byte[keyLength];
+            buffer.get(position + HEADER_BYTES, keyBytes);
+            locations.put(new String(keyBytes, StandardCharsets.UTF_8),
+                    new Location(segment.id, dataOffset, dataLength, (int) recordLength));
+            position += (int) recordLength;
+        }
+        segment.writePosition = position;
+        if (verify && position + HEADER_BYTES <= buffer.capacity()) {
+            // Clear what a torn record left behind, so the next append is not mistaken for it
+            buffer.putInt(position, 0);
+        }
+    }
+
+    private Segment create(int id) {
+        try {
+            return segments.computeIfAbsent(id, key -> map(key, true));
+        } catch (UncheckedIOException e) {
+            throw new IllegalStateException("Could not create thumbnail segment " + id, e);
+        }
+    }
+
+    private Segment map(int id, boolean create) {
+        Path file = Paths.get(segmentDir, String.format("segment-%06d.seg", id));
+        try (FileChannel channel = create
+                ? FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = create ? segmentSize : Math.min(channel.size(), Integer.MAX_VALUE);
+            // The mapping stays valid after the channel is closed
+            return new Segment(id, file, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void seal(Segment segment) {
+        // Flushed once when sealed; after a crash only the active segment has to be checked
+        segment.buffer.force();
+    }
+
+    private static final class Segment {
+        final int id;
+        final Path file;
+        final MappedByteBuffer buffer;
+        // Written under the store lock; read by compaction
+        volatile int writePosition;
+
+        Segment(int id, Path file, MappedByteBuffer buffer) {
+            this.id = id;
+            this.file = file;
+            this.buffer = buffer;
+        }
+    }
+
+    private record Location(int segmentId, int dataOffset, int dataLength, int recordLength) {
+    }
+}
@@ -0,0 +1,308 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import isa.vezbe1.spring_boot_example.repository.VideoRepository;
+import isa.vezbe1.spring_boot_example.util.UploadPaths;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Derives resized JPEG variants of uploaded thumbnails, so grids can fetch a 320px image
+ * instead of the multi-megabyte original.
+ *
+ * The original is decoded once and scaled down step by step into every configured width; widths
+ * above the original's are re-encoded at the original size rather than upscaled. Variants are
+ * named after the content-addressed original (/uploads/thumbnails/variants/{hash}.png-w320.jpg),
+ * so identical uploads share them and they never go stale. Work runs on a small bounded pool;
+ * when the queue is full the job is dropped and the variant is derived on a later request.
+ * The dimensions are read from the image header first, and images of more than
+ * thumbnails.variants.max-pixels are rejected before a pixel is decoded.
+ */
+@Service
+public class ThumbnailVariantService {
+
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailVariantService.class);
+
+    private static final String THUMBNAILS_PREFIX = "/uploads/thumbnails/";
+    private static final String VARIANTS_PREFIX = THUMBNAILS_PREFIX + "variants/";
+    private static final String WIDTH_MARKER = "-w";
+
+    @Autowired
+    private UploadPaths uploadPaths;
+
+    @Value("${thumbnails.variants.jpeg-quality:0.8}")
+    private float jpegQuality;
+
+    @Value("${thumbnails.variants.max-pixels:40000000}")
+    private long maxPixels;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    private final int[] widths;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Map<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+
+    // Sources that could not be decoded are not retried on every request
+    private final Cache<String, Boolean> failedSources = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofHours(1))
+            .build();
+
+    public ThumbnailVariantService(@Value("${thumbnails.variants.widths:160,320,640}") int[] widths,
+                                   @Value("${thumbnails.variants.threads:2}") int threads,
+                                   @Value("${thumbnails.variants.queue-capacity:100}") int queueCapacity) {
+        this.widths = Arrays.stream(widths).filter(width -> width > 0).sorted().distinct().toArray();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "thumbnail-variants-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    public int[] getWidths() {
+        return widths.clone();
+    }
+
+    /**
+     * Smallest variant at least as wide as requested, or 0 for the original when no width was
+     * asked for or the request is wider than every variant.
+     */
+    public int pickWidth(Integer requestedWidth) {
+        if (requestedWidth == null || requestedWidth <= 0) {
+            return 0;
+        }
+        for (int width : widths) {
+            if (width >= requestedWidth) {
+                return width;
+            }
+        }
+        return 0;
+    }
+
+    public static String variantPath(String sourcePath, int width) {
+        String fileName = sourcePath.substring(sourcePath.lastIndexOf('/') + 1);
+        return VARIANTS_PREFIX + fileName + WIDTH_MARKER + width + ".jpg";
+    }
+
+    /**
+     * Original a variant was derived from, or null when the path is not a variant.
+     */
+    public static String sourcePathOf(String path) {
+        if (!path.startsWith(VARIANTS_PREFIX)) {
+            return null;
+        }
+        int marker = path.lastIndexOf(WIDTH_MARKER);
+        return marker > VARIANTS_PREFIX.length() ? THUMBNAILS_PREFIX + path.substring(VARIANTS_PREFIX.length(), marker) : null;
+    }
+
+    public void deriveAfterCommit(String sourcePath) {
+        afterCommit(() -> deriveAsync(sourcePath));
+    }
+
+    /**
+     * Queues derivation of all variants of a thumbnail; a source that is already queued is not
+     * queued twice and its callers share one future. The future fails when the image cannot be
+     * decoded or the queue is full.
+     */
+    public CompletableFuture<Void> deriveAsync(String sourcePath) {
+        if (failedSources.getIfPresent(sourcePath) != null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Thumbnail cannot be decoded"));
+        }
+        CompletableFuture<Void> derived = new CompletableFuture<>();
+        CompletableFuture<Void> queued = inFlight.putIfAbsent(sourcePath, derived);
+        if (queued != null) {
+            return queued;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    derive(sourcePath);
+                    derived.complete(null);
+                } catch (IOException | RuntimeException e) {
+                    failedSources.put(sourcePath, Boolean.TRUE);
+                    log.warn("Failed to derive variants of {}: {}", sourcePath, e.getMessage());
+                    derived.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(sourcePath, derived);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(sourcePath, derived);
+            log.debug("Variant queue full, skipping {}", sourcePath);
+            derived.completeExceptionally(e);
+        }
+        return derived;
+    }
+
+    /**
+     * Deletes the variants of a thumbnail after commit, unless another video still uses it.
+     */
+    public void releaseAfterCommit(String sourcePath) {
+        if (sourcePath == null) {
+            return;
+        }
+        afterCommit(() -> {
+            if (videoRepository.existsByThumbnailPath(sourcePath)) {
+                return;
+            }
+            for (int width : widths) {
+                try {
+                    Files.deleteIfExists(uploadPaths.resolve(variantPath(sourcePath, width)));
+                } catch (IOException e) {
+                    log.warn("Failed to delete thumbnail variant: {}", e.getMessage());
+                }
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private void derive(String sourcePath) throws IOException {
+        if (Arrays.stream(widths).allMatch(width -> Files.exists(uploadPaths.resolve(variantPath(sourcePath, width))))) {
+            return;
+        }
+
+        BufferedImage original = read(uploadPaths.resolve(sourcePath));
+
+        // JPEG has no alpha: flatten onto white once, then scale down from widest to narrowest
+        BufferedImage current = scale(original, original.getWidth(), original.getHeight());
+        for (int i = widths.length - 1; i >= 0; i--) {
+            int width = Math.min(widths[i], original.getWidth());
+            int height = Math.max(1, Math.round((float) original.getHeight() * width / original.getWidth()));
+            current = scale(current, width, height);
+            write(current, uploadPaths.resolve(variantPath(sourcePath, widths[i])));
+        }
+    }
+
+    /**
+     * Decodes the first image of the file, after checking its dimensions against maxPixels.
+     */
+    private BufferedImage read(Path file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new IllegalArgumentException("Not a decodable image");
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new IllegalArgumentException("Image of " + width + "x" + height + " exceeds " + maxPixels + " pixels");
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Bilinear scaling, halving at most per pass so that large reductions do not alias.
+     */
+    private BufferedImage scale(BufferedImage source, int width, int height) {
+        BufferedImage current = source;
+        do {
+            int stepWidth = Math.max(width, current.getWidth() / 2);
+            int stepHeight = Math.max(height, current.getHeight() / 2);
+            BufferedImage next = new BufferedImage(stepWidth, stepHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, stepWidth, stepHeight);
+                graphics.drawImage(current, 0, 0, stepWidth, stepHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (current.getWidth() != width || current.getHeight() != height);
+        return current;
+    }
+
+    private void write(BufferedImage image, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), "variant-", ".tmp");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (OutputStream out = Files.newOutputStream(temp);
+             ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.setOutput(imageOut);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        } finally {
+            writer.dispose();
+        }
+        // Readers either see the whole variant or none
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.repository.VideoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * The original title search: case-insensitive LIKE '%query%' over videos.title, newest first.
+ * Needs no index, so it is the fallback while other strategies warm up and the baseline in benchmarks.
+ * The cursor is the offset of the next page.
+ */
+@Service
+public class TitleScanSearch implements VideoSearchStrategy {
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Override
+    public String getName() {
+        return "like";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public SearchHits search(String query, String after, int limit) {
+        int offset = 0;
+        if (after != null && !after.isBlank()) {
+            try {
+                offset = Integer.parseInt(after);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid search cursor");
+            }
+        }
+
+        // One extra row tells whether there is a next page
+        List<Long> ids = videoRepository.searchIdsByTitle(query, PageRequest.of(0, offset + limit + 1))
+                .stream()
+                .skip(offset)
+                .toList();
+
+        String nextCursor = null;
+        if (ids.size() > limit) {
+            ids = ids.subList(0, limit);
+            nextCursor = String.valueOf(offset + limit);
+        }
+        return new SearchHits(ids, nextCursor, null);
+    }
+}
@@ -0,0 +1,381 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.dto.RenditionDTO;
+import isa.vezbe1.spring_boot_example.model.RenditionStatus;
+import isa.vezbe1.spring_boot_example.model.Video;
+import isa.vezbe1.spring_boot_example.model.VideoRendition;
+import isa.vezbe1.spring_boot_example.repository.VideoRenditionRepository;
+import isa.vezbe1.spring_boot_example.repository.VideoRepository;
+import isa.vezbe1.spring_boot_example.util.UploadPaths;
+import jakarta.annotation.PreDestroy;
+import org.jcodec.api.FrameGrab;
+import org.jcodec.api.JCodecException;
+import org.jcodec.api.SequenceEncoder;
+import org.jcodec.common.DemuxerTrackMeta;
+import org.jcodec.common.io.FileChannelWrapper;
+import org.jcodec.common.io.NIOUtils;
+import org.jcodec.common.model.ColorSpace;
+import org.jcodec.common.model.Picture;
+import org.jcodec.common.model.Rational;
+import org.jcodec.scale.ColorUtil;
+import org.jcodec.scale.Transform;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+/**
+ * Produces a ladder of lower-resolution H.264 renditions (240p, 480p, 720p by default) of every
+ * READY H.264 upload, so that slow connections do not have to pull the original bitrate.
+ * Decoding and encoding use JCodec, which is pure Java, so no native ffmpeg is needed.
+ *
+ * The queue is the video_renditions table: UploadPipeline inserts a PENDING row per rung below
+ * the source height, a poller claims rows and runs each one as a task on a work-stealing pool
+ * with one thread per core. Progress is checkpointed per job: a finished rendition is never
+ * encoded again, and frame progress is saved as it goes. An MP4 cannot be appended to, so a
+ * rendition interrupted by a restart is encoded again from its first frame.
+ */
+@Service
+public class TranscodingService {
+
+    private static final Logger log = LoggerFactory.getLogger(TranscodingService.class);
+
+    private static final String RENDITIONS_PREFIX = "/uploads/renditions/";
+
+    // JCodec decodes H.264 only
+    private static final String SUPPORTED_CODEC = "avc1";
+
+    @Autowired
+    private UploadPaths uploadPaths;
+
+    @Value("${transcoding.enabled:true}")
+    private boolean enabled;
+
+    @Value("${transcoding.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${transcoding.checkpoint-frames:120}")
+    private int checkpointFrames;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private VideoRenditionRepository renditionRepository;
+
+    private final int[] ladder;
+
+    private final ForkJoinPool pool;
+
+    // Bounds how many claimed jobs wait in the pool, so the rest stay PENDING in the database
+    private final Semaphore slots;
+
+    private final TransactionTemplate transaction;
+
+    // Polling waits for interrupted jobs to be requeued, or it could requeue jobs it just claimed
+    private volatile boolean started;
+
+    public TranscodingService(PlatformTransactionManager transactionManager,
+                              @Value("${transcoding.ladder:240,480,720}") int[] ladder,
+                              @Value("${transcoding.threads:0}") int threads) {
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.ladder = Arrays.stream(ladder).filter(height -> height > 0).sorted().distinct().toArray();
+        int parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("transcoding-" + thread.getPoolIndex());
+            // Transcoding is bulk work; request threads come first
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }, null, false);
+        this.slots = new Semaphore(parallelism * 2);
+    }
+
+    /**
+     * Queues a rendition for every rung of the ladder below the video's height. Runs in the
+     * caller's transaction, so jobs exist exactly when the video is READY.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(Long videoId) {
+        if (!enabled) {
+            return;
+        }
+        Video video = videoRepository.findById(videoId).orElse(null);
+        if (video == null || video.getHeight() == null || !SUPPORTED_CODEC.equals(video.getVideoCodec())) {
+            return;
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        for (int height : ladder) {
+            if (height < video.getHeight()) {
+                renditionRepository.save(new VideoRendition(video, height, now));
+            }
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<RenditionDTO> getRenditions(Long videoId) {
+        return renditionRepository.findByVideoIdAndStatus(videoId, RenditionStatus.READY).stream()
+                .map(RenditionDTO::new)
+                .toList();
+    }
+
+    /**
+     * Claims pending jobs while the pool has room for them.
+     */
+    @Scheduled(fixedDelayString = "${transcoding.poll-interval-ms:2000}",
+            initialDelayString = "${transcoding.poll-interval-ms:2000}")
+    public void poll() {
+        if (!enabled || !started || slots.availablePermits() == 0) {
+            return;
+        }
+        List<Long> pending = renditionRepository.findIdsByStatus(RenditionStatus.PENDING, Limit.of(slots.availablePermits()));
+        for (Long renditionId : pending) {
+            if (!slots.tryAcquire()) {
+                return;
+            }
+            RenditionJob job = claim(renditionId);
+            if (job == null) {
+                slots.release();
+                continue;
+            }
+            pool.execute(() -> {
+                try {
+                    run(job);
+                } finally {
+                    slots.release();
+                }
+            });
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void requeueInterrupted() {
+        Integer requeued = transaction.execute(status -> renditionRepository.requeueRunning());
+        if (requeued != null && requeued > 0) {
+            log.info("Requeued {} interrupted transcoding jobs", requeued);
+        }
+        started = true;
+    }
+
+    /**
+     * Deletes a deleted video's rendition files once the delete is committed; the rows go with
+     * the video. A job still running finds its row gone and deletes its own output.
+     */
+    public void removeAfterCommit(Long videoId) {
+        Runnable remove = () -> {
+            Path directory = uploadPaths.resolve(RENDITIONS_PREFIX + videoId + "/");
+            if (!Files.isDirectory(directory)) {
+                return;
+            }
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(this::deleteQuietly);
+            } catch (IOException e) {
+                log.warn("Failed to delete renditions of video {}: {}", videoId, e.getMessage());
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remove.run();
+                }
+            });
+        } else {
+            remove.run();
+        }
+    }
+
+    /**
+     * Encodes one rendition of an H.264 MP4.
+     *
+     * @param progress called every transcoding.checkpoint-frames frames with (frames done, total frames)
+     * @return number of frames encoded and the output width
+     */
+    public TranscodeResult transcode(Path source, Path target, int height, ProgressListener progress)
+            throws IOException, JCodecException {
+        try (FileChannelWrapper in = NIOUtils.readableChannel(source.toFile());
+             FileChannelWrapper out = NIOUtils.writableChannel(target.toFile())) {
+            FrameGrab grab = FrameGrab.createFrameGrab(in);
+            DemuxerTrackMeta meta = grab.getVideoTrack().getMeta();
+            int totalFrames = meta.getTotalFrames();
+            double seconds = meta.getTotalDuration();
+            // Millihertz keeps 29.97 and 23.976 exact enough
+            int fpsMilli = totalFrames > 0 && seconds > 0 ? (int) Math.round(totalFrames * 1000 / seconds) : 25_000;
+            SequenceEncoder encoder = SequenceEncoder.createWithFps(out, Rational.R(fpsMilli, 1000));
+
+            Picture scaled = null;
+            Picture rgb = null;
+            Transform toRgb = null;
+            int frames = 0;
+            Picture frame;
+            while ((frame = grab.getNativeFrame()) != null) {
+                if (scaled == null) {
+                    int width = alignedWidth(frame.getCroppedWidth(), frame.getCroppedHeight(), height);
+                    scaled = Picture.create(width, height, frame.getColor());
+                    rgb = Picture.create(width, height, ColorSpace.RGB);
+                    toRgb = ColorUtil.getTransform(frame.getColor(), ColorSpace.RGB);
+                }
+                scale(frame, scaled);
+                // SequenceEncoder takes RGB and converts to the encoder's YUV itself
+                toRgb.transform(scaled, rgb);
+                encoder.encodeNativeFrame(rgb);
+                if (++frames % checkpointFrames == 0) {
+                    progress.onProgress(frames, totalFrames);
+                }
+            }
+            encoder.finish();
+            if (scaled == null) {
+                throw new IllegalArgumentException("Video has no frames");
+            }
+            return new TranscodeResult(frames, scaled.getWidth());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private RenditionJob claim(Long renditionId) {
+        return transaction.execute(status -> {
+            if (renditionRepository.claim(renditionId, new Timestamp(System.currentTimeMillis())) == 0) {
+                return null;
+            }
+            VideoRendition rendition = renditionRepository.findById(renditionId).orElse(null);
+            return rendition != null
+                    ? new RenditionJob(rendition.getId(), rendition.getVideo().getId(),
+                    rendition.getVideo().getVideoPath(), rendition.getHeight())
+                    : null;
+        });
+    }
+
+    private void run(RenditionJob job) {
+        String publicPath = RENDITIONS_PREFIX + job.videoId() + "/" + job.height() + "p.mp4";
+        Path target = uploadPaths.resolve(publicPath);
+        Path temp = null;
+        try {
+            Files.createDirectories(target.getParent());
+            temp = Files.createTempFile(target.getParent(), job.height() + "p-", ".tmp");
+
+            long started = System.nanoTime();
+            TranscodeResult result = transcode(uploadPaths.resolve(job.sourcePath()), temp, job.height(),
+                    (framesDone, totalFrames) -> transaction.executeWithoutResult(status ->
+                            renditionRepository.saveProgress(job.renditionId(), framesDone, totalFrames,
+                                    new Timestamp(System.currentTimeMillis()))));
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            double seconds = (System.nanoTime() - started) / 1e9;
+            long durationMs = videoRepository.findById(job.videoId()).map(Video::getDurationMs).orElse(0L);
+            Integer bitrateKbps = durationMs > 0 ? (int) (Files.size(target) * 8 / durationMs) : null;
+            Integer updated = transaction.execute(status -> renditionRepository.markReady(job.renditionId(),
+                    result.width(), publicPath, bitrateKbps, result.frames(), new Timestamp(System.currentTimeMillis())));
+            if (updated == null || updated == 0) {
+                // Video deleted while we were encoding
+                deleteQuietly(target);
+                return;
+            }
+            log.info("Transcoded video {} to {}p: {} frames in {}s ({} fps)", job.videoId(), job.height(),
+                    result.frames(), String.format("%.1f", seconds), String.format("%.1f", result.frames() / seconds));
+
+        } catch (IOException | JCodecException | RuntimeException e) {
+            log.warn("Transcoding video {} to {}p failed: {}", job.videoId(), job.height(), e.getMessage());
+            if (temp != null) {
+                deleteQuietly(temp);
+            }
+            transaction.executeWithoutResult(status -> renditionRepository.markFailed(job.renditionId(), maxAttempts,
+                    new Timestamp(System.currentTimeMillis())));
+        }
+    }
+
+    /**
+     * Box-filter downscale of every plane: each output sample is the mean of the source samples
+     * it covers, which does not alias the way point sampling does.
+     */
+    static void scale(Picture source, Picture target) {
+        for (int plane = 0; plane < target.getColor().nComp; plane++) {
+            int shiftX = source.getWidth() / source.getPlaneWidth(plane) == 2 ? 1 : 0;
+            int shiftY = source.getHeight() / source.getPlaneHeight(plane) == 2 ? 1 : 0;
+            int srcWidth = source.getCroppedWidth() >> shiftX;
+            int srcHeight = source.getCroppedHeight() >> shiftY;
+            int srcStride = source.getPlaneWidth(plane);
+            int dstWidth = target.getPlaneWidth(plane);
+            int dstHeight = target.getPlaneHeight(plane);
+            byte[] src = source.getPlaneData(plane);
+            byte[] dst = target.getPlaneData(plane);
+
+            for (int y = 0; y < dstHeight; y++) {
+                int y0 = y * srcHeight / dstHeight;
+                int y1 = Math.max(y0 + 1, (y + 1) * srcHeight / dstHeight);
+                for (int x = 0; x < dstWidth; x++) {
+                    int x0 = x * srcWidth / dstWidth;
+                    int x1 = Math.max(x0 + 1, (x + 1) * srcWidth / dstWidth);
+                    int sum = 0;
+                    for (int sy = y0; sy < y1; sy++) {
+                        int row = sy * srcStride;
+                        for (int sx = x0; sx < x1; sx++) {
+                            sum += src[row + sx];
+                        }
+                    }
+                    dst[y * dstWidth + x] = (byte) Math.round((float) sum / ((y1 - y0) * (x1 - x0)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Width for the given height at the source aspect ratio, rounded to whole 16-pixel macroblocks.
+     */
+    private static int alignedWidth(int sourceWidth, int sourceHeight, int height) {
+        int width = (int) Math.round((double) sourceWidth * height / sourceHeight / 16) * 16;
+        return Math.max(16, width);
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete {}: {}", file, e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(int framesDone, int totalFrames);
+    }
+
+    public record TranscodeResult(int frames, int width) {
+    }
+
+    /**
+     * What a claimed job needs, read in the claiming transaction.
+     */
+    private record RenditionJob(Long renditionId, Long videoId, String sourcePath, int height) {
+    }
+}
@@ -0,0 +1,391 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.dto.VideoDTO;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Popularity ranking with exponentially time-decayed scores.
+ *
+ * Instead of decaying every score over time, each event adds weight * 2^((t - epoch) / halfLife).
+ * Newer events are simply worth more, which gives the same ordering as decaying all scores, so
+ * scores only change when an event arrives. Scores live in a Redis sorted set capped at
+ * trending.max-tracked members; the top K videos are kept as a ready-made DTO list and
+ * GET /api/videos/trending just returns a prefix of it.
+ */
+@Service
+public class TrendingService {
+
+    private static final Logger log = LoggerFactory.getLogger(TrendingService.class);
+
+    // Hash tag keeps the rebuild key in the same cluster slot, as RENAME requires
+    private static final String SCORES_KEY = "trending:{scores}";
+    private static final String EPOCH_KEY = "trending:epoch";
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    // Rebase before 2^exponent gets anywhere near the double range
+    private static final double MAX_EXPONENT = 600;
+
+    @Value("${trending.half-life-hours:24}")
+    private double halfLifeHours;
+
+    @Value("${trending.weight.view:1}")
+    private double viewWeight;
+
+    @Value("${trending.weight.comment:5}")
+    private double commentWeight;
+
+    @Value("${trending.weight.upload:20}")
+    private double uploadWeight;
+
+    @Value("${trending.top-k:100}")
+    private int topK;
+
+    @Value("${trending.max-tracked:10000}")
+    private int maxTracked;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private VideoSummaryService videoSummaryService;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final ConcurrentHashMap<Long, DoubleAdder> pendingWeights = new ConcurrentHashMap<>();
+
+    private volatile long epochMillis = System.currentTimeMillis();
+
+    private volatile boolean rebuilding;
+
+    private volatile List<VideoDTO> topVideos = List.of();
+
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "trending-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public TrendingService(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public void recordView(Long videoId) {
+        addWeight(videoId, viewWeight);
+    }
+
+    /**
+     * Adds the comment weight once the comment's transaction commits.
+     */
+    public void recordCommentAfterCommit(Long videoId) {
+        afterCommit(() -> addWeight(videoId, commentWeight));
+    }
+
+    /**
+     * Adds the upload weight once the inserting transaction commits, so a rolled-back upload
+     * never reaches the trending set.
+     */
+    public void recordUploadAfterCommit(Long videoId) {
+        afterCommit(() -> addWeight(videoId, uploadWeight));
+    }
+
+    /**
+     * Drops a deleted video from trending once the delete commits.
+     */
+    public void removeAfterCommit(Long videoId) {
+        afterCommit(() -> removeVideo(videoId));
+    }
+
+    public void removeVideo(Long videoId) {
+        pendingWeights.remove(videoId);
+        try {
+            stringRedisTemplate.opsForZSet().remove(SCORES_KEY, String.valueOf(videoId));
+        } catch (RuntimeException e) {
+            log.warn("Failed to remove video {} from trending: {}", videoId, e.getMessage());
+        }
+        topVideos = topVideos.stream()
+                .filter(video -> !video.getId().equals(videoId))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the current top videos from memory; no database or Redis access.
+     */
+    public List<VideoDTO> getTrending(int limit) {
+        List<VideoDTO> snapshot = topVideos;
+        return snapshot.subList(0, Math.min(limit, snapshot.size()));
+    }
+
+    @Scheduled(fixedDelayString = "${trending.flush-interval-ms:1000}")
+    public void flush() {
+        if (rebuilding) {
+            return;
+        }
+
+        Map<Long, Double> weights = new HashMap<>();
+        for (Map.Entry<Long, DoubleAdder> entry : pendingWeights.entrySet()) {
+            double weight = entry.getValue().sumThenReset();
+            if (weight == 0) {
+                pendingWeights.remove(entry.getKey(), entry.getValue());
+                // An event may have landed between the read and the removal; keep it
+                weight = entry.getValue().sumThenReset();
+            }
+            if (weight > 0) {
+                weights.put(entry.getKey(), weight);
+            }
+        }
+
+        if (weights.isEmpty()) {
+            return;
+        }
+
+        double factor = factor(System.currentTimeMillis(), epochMillis);
+        try {
+            incrementScores(SCORES_KEY, weights, factor);
+        } catch (RuntimeException e) {
+            log.error("Failed to flush trending scores: {}", e.getMessage());
+            weights.forEach(this::addWeight);
+            return;
+        }
+        log.debug("Flushed trending scores for {} videos", weights.size());
+    }
+
+    @Scheduled(fixedDelayString = "${trending.refresh-interval-ms:5000}")
+    public void refreshTopVideos() {
+        if (rebuilding) {
+            return;
+        }
+
+        try {
+            if (needsRebuild()) {
+                rebuildInBackground();
+                return;
+            }
+
+            Long tracked = stringRedisTemplate.opsForZSet().zCard(SCORES_KEY);
+            if (tracked != null && tracked > maxTracked) {
+                stringRedisTemplate.opsForZSet().removeRange(SCORES_KEY, 0, tracked - maxTracked - 1);
+            }
+
+            Set<String> ids = stringRedisTemplate.opsForZSet().reverseRange(SCORES_KEY, 0, topK - 1);
+            topVideos = loadVideos(ids != null ? ids : Set.of());
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh trending videos: {}", e.getMessage());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        refreshTopVideos();
+    }
+
+    /**
+     * Starts a rebuild on the dedicated rebuild thread, so a long scan never holds up the scheduler
+     * that also flushes view counts.
+     */
+    public void rebuildInBackground() {
+        rebuilding = true;
+        rebuildExecutor.execute(() -> {
+            try {
+                // Another node or an explicit rebuild may have finished in the meantime
+                if (needsRebuild()) {
+                    rebuild();
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to rebuild trending scores: {}", e.getMessage());
+            } finally {
+                rebuilding = false;
+            }
+            refreshTopVideos();
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+        flush();
+    }
+
+    /**
+     * Recomputes all scores by streaming over videos and comments with a server-side cursor.
+     * Historical views have no timestamps, so each video's views are treated as spread evenly
+     * between its upload and now. The new set is built under a temporary key and swapped in with RENAME.
+     */
+    public synchronized void rebuild() {
+        rebuilding = true;
+        long now = System.currentTimeMillis();
+        long newEpoch = now;
+        String tempKey = SCORES_KEY + ":rebuild:" + UUID.randomUUID();
+
+        try {
+            long started = System.nanoTime();
+            long[] rows = new long[2];
+
+            readOnlyTransaction.executeWithoutResult(status -> {
+                Map<Long, Double> batch = new HashMap<>();
+
+                streamQuery("SELECT id, created_at, view_count FROM videos", rs -> {
+                    long createdAt = rs.getTimestamp(2).getTime();
+                    double score = uploadWeight * factor(createdAt, newEpoch)
+                            + viewWeight * spreadViews(rs.getLong(3), createdAt, now, newEpoch);
+                    batch.put(rs.getLong(1), score);
+                    rows[0]++;
+                    if (batch.size() >= STREAM_FETCH_SIZE) {
+                        incrementScores(tempKey, batch, 1.0);
+                        batch.clear();
+                    }
+                });
+                incrementScores(tempKey, batch, 1.0);
+                batch.clear();
+
+                streamQuery("SELECT video_id, created_at FROM comments", rs -> {
+                    batch.merge(rs.getLong(1), commentWeight * factor(rs.getTimestamp(2).getTime(), newEpoch), Double::sum);
+                    rows[1]++;
+                    if (batch.size() >= STREAM_FETCH_SIZE) {
+                        incrementScores(tempKey, batch, 1.0);
+                        batch.clear();
+                    }
+                });
+                incrementScores(tempKey, batch, 1.0);
+            });
+
+            if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(tempKey))) {
+                Long tracked = stringRedisTemplate.opsForZSet().zCard(tempKey);
+                if (tracked != null && tracked > maxTracked) {
+                    stringRedisTemplate.opsForZSet().removeRange(tempKey, 0, tracked - maxTracked - 1);
+                }
+                stringRedisTemplate.rename(tempKey, SCORES_KEY);
+            } else {
+                stringRedisTemplate.delete(SCORES_KEY);
+            }
+            stringRedisTemplate.opsForValue().set(EPOCH_KEY, String.valueOf(newEpoch));
+            epochMillis = newEpoch;
+
+            log.info("Rebuilt trending scores from {} videos and {} comments in {} ms",
+                    rows[0], rows[1], (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException e) {
+            stringRedisTemplate.delete(tempKey);
+            log.error("Failed to rebuild trending scores: {}", e.getMessage());
+        } finally {
+            rebuilding = false;
+        }
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private boolean needsRebuild() {
+        String storedEpoch = stringRedisTemplate.opsForValue().get(EPOCH_KEY);
+        if (storedEpoch == null) {
+            return true;
+        }
+        epochMillis = Long.parseLong(storedEpoch);
+        return exponent(System.currentTimeMillis()) > MAX_EXPONENT;
+    }
+
+    private void addWeight(Long videoId, double weight) {
+        pendingWeights.computeIfAbsent(videoId, id -> new DoubleAdder()).add(weight);
+    }
+
+    private double exponent(long timeMillis) {
+        return (timeMillis - epochMillis) / (halfLifeHours * 3_600_000.0);
+    }
+
+    private double factor(long timeMillis, long epoch) {
+        return Math.pow(2, (timeMillis - epoch) / (halfLifeHours * 3_600_000.0));
+    }
+
+    /**
+     * Sum of view weights for views spread evenly over [createdAt, now]:
+     * the integral of 2^((t - epoch) / h) over that interval, divided by its length.
+     */
+    private double spreadViews(long views, long createdAt, long now, long epoch) {
+        if (views <= 0) {
+            return 0;
+        }
+        double halfLifeMillis = halfLifeHours * 3_600_000.0;
+        double span = now - createdAt;
+        if (span < 60_000) {
+            return views * factor(now, epoch);
+        }
+        double lambda = Math.log(2) / halfLifeMillis;
+        return views * (factor(now, epoch) - factor(createdAt, epoch)) / (lambda * span);
+    }
+
+    private void streamQuery(String sql, RowCallbackHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            return statement;
+        }, handler);
+    }
+
+    private void incrementScores(String key, Map<Long, Double> weights, double factor) {
+        if (weights.isEmpty()) {
+            return;
+        }
+
+        stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                for (Map.Entry<Long, Double> entry : weights.entrySet()) {
+                    ops.opsForZSet().incrementScore(key, String.valueOf(entry.getKey()), entry.getValue() * factor);
+                }
+                return null;
+            }
+        });
+    }
+
+    private List<VideoDTO> loadVideos(Set<String> orderedIds) {
+        List<Long> ids = orderedIds.stream().map(Long::valueOf).collect(Collectors.toList());
+        return List.copyOf(videoSummaryService.getByIds(ids));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
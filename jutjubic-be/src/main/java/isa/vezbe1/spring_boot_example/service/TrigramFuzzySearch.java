@@ -0,0 +1,138 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Typo-tolerant title search with pg_trgm ("spirng boot" still finds "Java Spring Boot Tutorial").
+ *
+ * A GIN trigram index on lower(title) answers the word-similarity operator (<%), so only titles
+ * sharing enough trigrams with the query are ever read; no edit distance is computed over the table.
+ * Candidates below search.fuzzy.min-similarity are cut off, the rest are ranked by similarity
+ * plus a small log(view_count) popularity bonus. Pages are keyset on (score, id).
+ */
+@Service
+@ConditionalOnProperty(name = "search.fuzzy.enabled", havingValue = "true", matchIfMissing = true)
+public class TrigramFuzzySearch implements VideoSearchStrategy {
+
+    private static final Logger log = LoggerFactory.getLogger(TrigramFuzzySearch.class);
+
+    private static final String CANDIDATES_SQL =
+            "SELECT id, score FROM (" +
+            "  SELECT v.id, (word_similarity(?, lower(v.title)) + ? * ln(1 + v.view_count))::float8 AS score " +
+            "  FROM videos v WHERE ? <% lower(v.title)" +
+            ") ranked ";
+
+    private static final String AFTER_CURSOR_SQL = "WHERE (score, id) < (?, ?) ";
+
+    private static final String ORDER_SQL = "ORDER BY score DESC, id DESC LIMIT ?";
+
+    @Value("${search.fuzzy.min-similarity:0.4}")
+    private double minSimilarity;
+
+    @Value("${search.fuzzy.view-weight:0.01}")
+    private double viewWeight;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile boolean available;
+
+    public TrigramFuzzySearch(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public String getName() {
+        return "fuzzy";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return available;
+    }
+
+    @Override
+    public SearchHits search(String query, String after, int limit) {
+        String normalized = query == null ? "" : query.trim().toLowerCase();
+        if (normalized.isEmpty()) {
+            return SearchHits.empty();
+        }
+
+        List<Object> args = new ArrayList<>(List.of(normalized, viewWeight, normalized));
+        String sql = CANDIDATES_SQL;
+        if (after != null && !after.isBlank()) {
+            Object[] cursor = decodeCursor(after);
+            sql += AFTER_CURSOR_SQL;
+            args.add(cursor[0]);
+            args.add(cursor[1]);
+        }
+        args.add(limit + 1);
+        String pageSql = sql + ORDER_SQL;
+
+        List<Long> ids = new ArrayList<>();
+        List<Double> scores = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            // The <% operator uses this threshold; SET LOCAL semantics keep it to this transaction
+            jdbcTemplate.queryForObject("SELECT set_config('pg_trgm.word_similarity_threshold', ?, true)",
+                    String.class, String.valueOf(minSimilarity));
+            jdbcTemplate.query(pageSql, rs -> {
+                ids.add(rs.getLong(1));
+                scores.add(rs.getDouble(2));
+            }, args.toArray());
+        });
+
+        if (ids.size() > limit) {
+            String nextCursor = encodeCursor(scores.get(limit - 1), ids.get(limit - 1));
+            return new SearchHits(new ArrayList<>(ids.subList(0, limit)), nextCursor, null);
+        }
+        return new SearchHits(ids, null, null);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_videos_title_trgm ON videos USING GIN (lower(title) gin_trgm_ops)");
+            available = true;
+            log.info("Fuzzy search ready (min similarity {})", minSimilarity);
+        } catch (DataAccessException e) {
+            log.warn("pg_trgm not available, fuzzy search disabled: {}", e.getMessage());
+        }
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private String encodeCursor(double score, long videoId) {
+        String raw = score + "," + videoId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Object[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int comma = raw.indexOf(',');
+            return new Object[]{Double.parseDouble(raw.substring(0, comma)), Long.parseLong(raw.substring(comma + 1))};
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid search cursor");
+        }
+    }
+}
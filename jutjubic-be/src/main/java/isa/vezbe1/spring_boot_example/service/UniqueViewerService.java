@@ -0,0 +1,147 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.dto.UniqueViewersDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Estimates unique viewers per video with Redis HyperLogLog sketches, each capped at ~12 KB regardless
+ * of how many viewers it has seen: one all-time sketch uv:{videoId} and one per UTC day uv:{videoId}:yyyyMMdd,
+ * kept 8 days. PFCOUNT is within ~0.8% of the true number of distinct viewers; over several day sketches it
+ * merges them, so the 24 hour and 7 day figures cover whole days and may include up to one day more.
+ *
+ * views.unique.count-mode decides which views reach view_count:
+ *  all    - every view (default, previous behaviour)
+ *  sketch - views that raise the sketch's estimate, so view_count follows PFCOUNT
+ *  dedup  - only the first view per viewer within views.unique.dedup-ttl-seconds
+ */
+@Service
+public class UniqueViewerService {
+
+    private static final Logger log = LoggerFactory.getLogger(UniqueViewerService.class);
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd").withZone(ZoneOffset.UTC);
+
+    // Today and 7 full days before it
+    private static final int DAY_SKETCHES = 8;
+    private static final Duration DAY_TTL = Duration.ofDays(DAY_SKETCHES);
+
+    // KEYS: all-time, today. ARGV: viewer, day TTL in seconds, "1" to return the growth of the all-time estimate.
+    // PFADD only reports whether a register changed, and a new viewer often changes none, so the
+    // growth of the estimate is what is counted; in a script so concurrent viewers are not counted twice
+    private static final RedisScript<Long> ADD_VIEWER = new DefaultRedisScript<>(
+            "local before = 0 " +
+            "if ARGV[3] == '1' then before = redis.call('pfcount', KEYS[1]) end " +
+            "redis.call('pfadd', KEYS[1], ARGV[1]) " +
+            "redis.call('pfadd', KEYS[2], ARGV[1]) " +
+            "redis.call('expire', KEYS[2], ARGV[2]) " +
+            "if ARGV[3] == '1' then return redis.call('pfcount', KEYS[1]) - before end " +
+            "return 0",
+            Long.class);
+
+    @Value("${views.unique.count-mode:all}")
+    private String countMode;
+
+    @Value("${views.unique.dedup-ttl-seconds:1800}")
+    private long dedupTtlSeconds;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * Adds the viewer to the video's all-time and daily sketches.
+     *
+     * @param viewerKey user or IP based viewer identity
+     * @return how many views to count toward view_count, usually 0 or 1
+     */
+    public long recordViewer(Long videoId, String viewerKey) {
+        boolean sketchMode = "sketch".equals(countMode);
+        try {
+            Long growth = stringRedisTemplate.execute(ADD_VIEWER, List.of(allTimeKey(videoId), dayKey(videoId, Instant.now())),
+                    viewerKey, String.valueOf(DAY_TTL.toSeconds()), sketchMode ? "1" : "0");
+            switch (countMode) {
+                case "sketch":
+                    return growth != null ? Math.max(0L, growth) : 0L;
+                case "dedup":
+                    Boolean first = stringRedisTemplate.opsForValue().setIfAbsent(
+                            "uv:" + videoId + ":seen:" + viewerKey, "1", Duration.ofSeconds(dedupTtlSeconds));
+                    return Boolean.TRUE.equals(first) ? 1L : 0L;
+                default:
+                    return 1L;
+            }
+        } catch (RuntimeException e) {
+            // Never lose a view because Redis is unavailable
+            log.warn("Failed to record unique viewer for video {}: {}", videoId, e.getMessage());
+            return 1L;
+        }
+    }
+
+    public UniqueViewersDTO getUniqueViewers(Long videoId) {
+        List<String> dayKeys = dayKeys(videoId);
+
+        // PFCOUNT over several keys merges the sketches on the fly
+        Long last24Hours = stringRedisTemplate.opsForHyperLogLog().size(dayKeys.get(0), dayKeys.get(1));
+        Long last7Days = stringRedisTemplate.opsForHyperLogLog().size(dayKeys.toArray(new String[0]));
+        Long allTime = stringRedisTemplate.opsForHyperLogLog().size(allTimeKey(videoId));
+
+        return new UniqueViewersDTO(last24Hours, last7Days, allTime);
+    }
+
+    /**
+     * Drops a deleted video's sketches once the delete is committed; the all-time sketch has no TTL.
+     */
+    public void removeAfterCommit(Long videoId) {
+        Runnable remove = () -> {
+            List<String> keys = dayKeys(videoId);
+            keys.add(allTimeKey(videoId));
+            stringRedisTemplate.delete(keys);
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remove.run();
+                }
+            });
+        } else {
+            remove.run();
+        }
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    // Hash tag keeps all sketches of a video in one cluster slot so PFCOUNT can merge them
+    private String allTimeKey(Long videoId) {
+        return "uv:{" + videoId + "}";
+    }
+
+    private String dayKey(Long videoId, Instant time) {
+        return allTimeKey(videoId) + ":" + DAY_FORMAT.format(time);
+    }
+
+    // Newest first
+    private List<String> dayKeys(Long videoId) {
+        Instant now = Instant.now();
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < DAY_SKETCHES; i++) {
+            keys.add(dayKey(videoId, now.minus(i, ChronoUnit.DAYS)));
+        }
+        return keys;
+    }
+}
@@ -1,17 +1,25 @@
 package isa.vezbe1.spring_boot_example.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import isa.vezbe1.spring_boot_example.config.RabbitMQConfig;
 import isa.vezbe1.spring_boot_example.dto.UploadEvent;
 import isa.vezbe1.spring_boot_example.proto.UploadEventProtos;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.UncheckedIOException;
+
+/**
+ * Sends upload events to RabbitMQ. Failures are logged and thrown (AmqpException from the broker,
+ * UncheckedIOException from serialization), so that the upload pipeline retries the stage.
+ */
 @Service
 public class UploadEventProducer {
 
@@ -40,9 +48,12 @@ public class UploadEventProducer {
                     event.getVideoId(), jsonBytes.length, serializationTime);
 
             return new long[]{serializationTime, jsonBytes.length};
-        } catch (Exception e) {
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize JSON event: {}", e.getMessage());
+            throw new UncheckedIOException(e);
+        } catch (AmqpException e) {
             log.error("Failed to send JSON event: {}", e.getMessage());
-            return new long[]{0, 0};
+            throw e;
         }
     }
 
@@ -75,9 +86,9 @@ public class UploadEventProducer {
                     event.getVideoId(), protoBytes.length, serializationTime);
 
             return new long[]{serializationTime, protoBytes.length};
-        } catch (Exception e) {
+        } catch (AmqpException e) {
             log.error("Failed to send Protobuf event: {}", e.getMessage());
-            return new long[]{0, 0};
+            throw e;
         }
     }
 }
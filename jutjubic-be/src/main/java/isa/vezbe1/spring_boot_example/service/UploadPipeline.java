@@ -0,0 +1,363 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.dto.UploadEvent;
+import isa.vezbe1.spring_boot_example.dto.VideoStatusDTO;
+import isa.vezbe1.spring_boot_example.exception.ServiceBusyException;
+import isa.vezbe1.spring_boot_example.model.VideoStatus;
+import isa.vezbe1.spring_boot_example.repository.VideoRepository;
+import isa.vezbe1.spring_boot_example.util.UploadPaths;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Post-upload work that the uploader does not have to wait for. The request thread only stores
+ * the files and commits a PROCESSING row; this pipeline then runs three stages and sets the video
+ * READY (or FAILED when its file turns out to be unusable):
+ *
+ *   thumbnails - warm the thumbnail cache and queue the resized variants
+ *   metadata   - read duration, dimensions, bitrate and codec from the MP4 boxes
+ *   events     - publish the upload event to RabbitMQ (JSON and Protobuf)
+ *
+ * A video that becomes READY also gets its transcoding jobs and storyboard queued (see
+ * TranscodingService and StoryboardService).
+ *
+ * Every stage has its own small pool. Back-pressure is applied when an upload is admitted: admit()
+ * takes one of upload.pipeline.max-in-flight slots before anything is stored, or refuses the upload
+ * with ServiceBusyException (503), so stages are never run on a request thread. The slot passes to
+ * the video when its row is inserted and is freed when the video leaves the pipeline or the insert
+ * rolls back. Each stage opens a transaction only for the statement it needs.
+ *
+ * A stage that fails because the file is unusable marks the video FAILED. Any other failure
+ * (database, broker, disk) is retried with a growing delay; UploadEventProducer throws broker
+ * failures for this. When the attempts run out the video stays PROCESSING and is picked up again
+ * at the next startup, like videos whose node stopped mid-pipeline, so upload events are delivered
+ * at least once.
+ */
+@Service
+public class UploadPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadPipeline.class);
+
+    static final String STAGE_THUMBNAILS = "thumbnails";
+    static final String STAGE_METADATA = "metadata";
+    static final String STAGE_EVENTS = "events";
+
+    @Autowired
+    private UploadPaths uploadPaths;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private ThumbnailCache thumbnailCache;
+
+    @Autowired
+    private ThumbnailVariantService thumbnailVariantService;
+
+    @Autowired
+    private UploadEventProducer uploadEventProducer;
+
+    @Autowired
+    private Mp4MetadataService mp4MetadataService;
+
+    @Autowired
+    private TranscodingService transcodingService;
+
+    @Autowired
+    private StoryboardService storyboardService;
+
+    private final TransactionTemplate transaction;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final ThreadPoolExecutor thumbnailStage;
+    private final ThreadPoolExecutor metadataStage;
+    private final ThreadPoolExecutor eventStage;
+
+    private final ScheduledExecutorService retries;
+
+    private final int maxInFlight;
+    private final int maxAttempts;
+    private final long retryDelayMs;
+
+    // Stage each video is queued for or running in; absent once it is READY or FAILED
+    private final Map<Long, String> stages = new ConcurrentHashMap<>();
+
+    // Admitted uploads plus videos in stages; each holds one slot
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public UploadPipeline(PlatformTransactionManager transactionManager,
+                          @Value("${upload.pipeline.threads-per-stage:2}") int threadsPerStage,
+                          @Value("${upload.pipeline.max-in-flight:200}") int maxInFlight,
+                          @Value("${upload.pipeline.max-attempts:3}") int maxAttempts,
+                          @Value("${upload.pipeline.retry-delay-ms:2000}") long retryDelayMs) {
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.thumbnailStage = stageExecutor(STAGE_THUMBNAILS, threadsPerStage);
+        this.metadataStage = stageExecutor(STAGE_METADATA, threadsPerStage);
+        this.eventStage = stageExecutor(STAGE_EVENTS, threadsPerStage);
+        this.retries = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "upload-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maxInFlight = maxInFlight;
+        this.maxAttempts = maxAttempts;
+        this.retryDelayMs = retryDelayMs;
+    }
+
+    /**
+     * Called before an upload stores anything. Takes a slot, so concurrent uploads cannot all pass
+     * the check and overfill the pipeline; close the admission in a finally block.
+     *
+     * @throws ServiceBusyException when the pipeline already holds max-in-flight videos
+     */
+    public Admission admit() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= maxInFlight) {
+                throw new ServiceBusyException("Too many uploads are being processed, please try again shortly");
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return new Admission();
+    }
+
+    /**
+     * Starts the pipeline for a freshly inserted video once the inserting transaction commits.
+     * The admission's slot passes to the video, and is freed if the transaction rolls back.
+     */
+    public void submitAfterCommit(Long videoId, Admission admission) {
+        if (!admission.handOver()) {
+            throw new IllegalStateException("Admission was already used or closed");
+        }
+        stages.put(videoId, STAGE_THUMBNAILS);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(videoId);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        leave(videoId);
+                    }
+                }
+            });
+        } else {
+            submit(videoId);
+        }
+    }
+
+    public VideoStatusDTO getStatus(Long videoId) {
+        VideoStatus status = videoRepository.findStatusById(videoId)
+                .orElseThrow(() -> new RuntimeException("Video not found with id: " + videoId));
+        String stage = status == VideoStatus.PROCESSING ? stages.get(videoId) : null;
+        return new VideoStatusDTO(videoId, status.name(), stage);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinished() {
+        List<Long> unfinished = videoRepository.findIdsByStatus(VideoStatus.PROCESSING);
+        if (!unfinished.isEmpty()) {
+            log.info("Resuming the upload pipeline for {} videos", unfinished.size());
+        }
+        for (Long videoId : unfinished) {
+            // Resumed videos are not refused, even when they alone fill the pipeline
+            if (stages.putIfAbsent(videoId, STAGE_THUMBNAILS) == null) {
+                inFlight.incrementAndGet();
+                submit(videoId);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        retries.shutdownNow();
+        thumbnailStage.shutdownNow();
+        metadataStage.shutdownNow();
+        eventStage.shutdownNow();
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private void submit(Long videoId) {
+        execute(videoId, thumbnailStage, () -> {
+            UploadJob job = loadJob(videoId);
+            // No job: the video was deleted before the pipeline got to it
+            if (job == null) {
+                leave(videoId);
+                return;
+            }
+            thumbnailCache.warmAfterCommit(videoId, job.thumbnailPath());
+            thumbnailVariantService.deriveAsync(job.thumbnailPath());
+            advance(job, STAGE_METADATA, metadataStage, this::extractMetadata);
+        });
+    }
+
+    private void extractMetadata(UploadJob job) {
+        Path file = uploadPaths.resolve(job.videoPath());
+        if (!Files.isRegularFile(file)) {
+            throw new IllegalStateException("Stored video file is missing: " + file);
+        }
+        Mp4MetadataService.MediaInfo info;
+        try {
+            // Throws IllegalArgumentException for files that are not MP4, which fails the video
+            info = mp4MetadataService.inspect(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!info.fastStart()) {
+            // Uploads are made fast-start while staged; this is a file that could not be rewritten
+            log.info("Video {} has its moov box after the media data", job.videoId());
+        }
+        transaction.executeWithoutResult(tx -> videoRepository.updateMediaInfo(job.videoId(), info.durationMs(),
+                info.width(), info.height(), info.bitrateKbps(), info.videoCodec()));
+        advance(job, STAGE_EVENTS, eventStage, this::publishEvents);
+    }
+
+    private void publishEvents(UploadJob job) {
+        // Broker failures are thrown and retry the stage, so either event may be sent more than once
+        uploadEventProducer.sendJsonEvent(job.event());
+        uploadEventProducer.sendProtobufEvent(job.event());
+        finish(job.videoId(), VideoStatus.READY);
+    }
+
+    private void advance(UploadJob job, String stage, ThreadPoolExecutor executor, Consumer<UploadJob> next) {
+        stages.put(job.videoId(), stage);
+        execute(job.videoId(), executor, () -> next.accept(job));
+    }
+
+    private void execute(Long videoId, ThreadPoolExecutor executor, Runnable stage) {
+        executor.execute(() -> runStage(videoId, executor, stage, 1));
+    }
+
+    /**
+     * Runs one stage. An unusable upload marks the video FAILED; any other failure is retried,
+     * and after the last attempt the video is left PROCESSING for the next startup to resume.
+     */
+    private void runStage(Long videoId, ThreadPoolExecutor executor, Runnable stage, int attempt) {
+        try {
+            stage.run();
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            log.error("Upload pipeline failed for video {} in stage {}: {}", videoId, stages.get(videoId), e.getMessage());
+            finish(videoId, VideoStatus.FAILED);
+        } catch (RuntimeException e) {
+            if (attempt < maxAttempts) {
+                long delay = retryDelayMs * attempt;
+                log.warn("Upload pipeline stage {} of video {} failed (attempt {} of {}), retrying in {}ms: {}",
+                        stages.get(videoId), videoId, attempt, maxAttempts, delay, e.getMessage());
+                try {
+                    retries.schedule(() -> executor.execute(() -> runStage(videoId, executor, stage, attempt + 1)),
+                            delay, TimeUnit.MILLISECONDS);
+                    return;
+                } catch (RejectedExecutionException rejected) {
+                    // Shutting down; the video is resumed at the next startup
+                }
+            }
+            log.error("Upload pipeline stage {} of video {} failed, leaving it PROCESSING to be resumed: {}",
+                    stages.get(videoId), videoId, e.getMessage());
+            leave(videoId);
+        }
+    }
+
+    private UploadJob loadJob(Long videoId) {
+        return readOnlyTransaction.execute(status -> videoRepository.findById(videoId)
+                .map(video -> new UploadJob(video.getId(), video.getVideoPath(), video.getThumbnailPath(),
+                        UploadEvent.fromVideo(video)))
+                .orElse(null));
+    }
+
+    private void finish(Long videoId, VideoStatus status) {
+        try {
+            transaction.executeWithoutResult(tx -> {
+                if (videoRepository.updateStatus(videoId, VideoStatus.PROCESSING, status) > 0 && status == VideoStatus.READY) {
+                    transcodingService.enqueue(videoId);
+                    storyboardService.generateAfterCommit(videoId);
+                }
+            });
+        } finally {
+            leave(videoId);
+        }
+    }
+
+    private void leave(Long videoId) {
+        if (stages.remove(videoId) != null) {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * The queue is not bounded here: admit bounds the videos in the pipeline, and videos
+     * resumed at startup must be queued without running on the startup thread.
+     */
+    private static ThreadPoolExecutor stageExecutor(String stage, int threads) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "upload-" + stage + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * A slot taken by admit(). It either passes to a video in submitAfterCommit or is freed by close;
+     * closing after the hand-over does nothing.
+     */
+    public final class Admission implements AutoCloseable {
+
+        private final AtomicBoolean held = new AtomicBoolean(true);
+
+        private Admission() {
+        }
+
+        @Override
+        public void close() {
+            if (held.compareAndSet(true, false)) {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        private boolean handOver() {
+            return held.compareAndSet(true, false);
+        }
+    }
+
+    /**
+     * What the later stages need, read once when the pipeline starts.
+     */
+    private record UploadJob(Long videoId, String videoPath, String thumbnailPath, UploadEvent event) {
+    }
+}
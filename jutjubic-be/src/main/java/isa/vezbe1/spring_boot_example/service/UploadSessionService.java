@@ -0,0 +1,372 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import isa.vezbe1.spring_boot_example.dto.CreateUploadSessionDTO;
+import isa.vezbe1.spring_boot_example.dto.UploadSessionDTO;
+import isa.vezbe1.spring_boot_example.dto.VideoDTO;
+import isa.vezbe1.spring_boot_example.dto.VideoUploadDTO;
+import isa.vezbe1.spring_boot_example.model.User;
+import isa.vezbe1.spring_boot_example.util.UploadPaths;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resumable (tus-style) video uploads.
+ * Chunks are written at their offset straight into a partial file with positional NIO writes,
+ * and the received byte ranges are tracked in Redis so an interrupted upload can continue where it stopped.
+ * Each user may hold a limited number of open sessions; partial files whose session has expired
+ * are deleted by a periodic sweep.
+ */
+@Service
+public class UploadSessionService {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadSessionService.class);
+
+    private static final String SESSION_PREFIX = "upload:session:";
+    private static final String RANGES_SUFFIX = ":ranges";
+    private static final String USER_SESSIONS_PREFIX = "upload:user:";
+    private static final String PARTIAL_DIRECTORY = "partial";
+    private static final long SESSION_TTL_HOURS = 24;
+    private static final long MAX_VIDEO_SIZE = 200L * 1024 * 1024;
+
+    // Received ranges are recorded after every slice, so a dropped connection loses at most one slice
+    private static final long TRANSFER_SLICE = 1024 * 1024;
+
+    // Adds a received range and starts the ranges TTL on the first write
+    private static final DefaultRedisScript<Long> RECORD_RANGE = new DefaultRedisScript<>(
+            "redis.call('ZADD', KEYS[1], ARGV[1], ARGV[2]) " +
+            "if redis.call('TTL', KEYS[1]) < 0 then redis.call('EXPIRE', KEYS[1], ARGV[3]) end " +
+            "return 1",
+            Long.class);
+
+    @Value("${upload.sessions.max-open-per-user:5}")
+    private int maxOpenPerUser;
+
+    @Autowired
+    private UploadPaths uploadPaths;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private VideoService videoService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public UploadSessionDTO createSession(CreateUploadSessionDTO createDTO, User uploader) throws IOException {
+        if (createDTO.getFileSize() > MAX_VIDEO_SIZE) {
+            throw new IllegalArgumentException("Video file exceeds maximum size of 200MB");
+        }
+        if (!createDTO.getFileName().toLowerCase().endsWith(".mp4")) {
+            throw new IllegalArgumentException("Only MP4 format is supported");
+        }
+
+        String uploadId = UUID.randomUUID().toString();
+        Map<String, String> session = new HashMap<>();
+        session.put("userId", String.valueOf(uploader.getId()));
+        session.put("title", createDTO.getTitle());
+        session.put("description", createDTO.getDescription() != null ? createDTO.getDescription() : "");
+        session.put("location", createDTO.getLocation() != null ? createDTO.getLocation() : "");
+        session.put("latitude", createDTO.getLatitude() != null ? String.valueOf(createDTO.getLatitude()) : "");
+        session.put("longitude", createDTO.getLongitude() != null ? String.valueOf(createDTO.getLongitude()) : "");
+        session.put("tags", objectMapper.writeValueAsString(createDTO.getTags() != null ? createDTO.getTags() : List.of()));
+        session.put("fileName", createDTO.getFileName());
+        session.put("fileSize", String.valueOf(createDTO.getFileSize()));
+
+        // The session key is written before the part file, so the sweep never sees a file without one mid-create
+        String key = SESSION_PREFIX + uploadId;
+        stringRedisTemplate.opsForHash().putAll(key, session);
+        stringRedisTemplate.expire(key, SESSION_TTL_HOURS, TimeUnit.HOURS);
+
+        Path partFile = partFilePath(uploadId);
+        try {
+            reserveSlot(uploader, uploadId);
+
+            Files.createDirectories(partFile.getParent());
+            // Sized up front: transferFrom writes nothing at a position past the end of the file,
+            // which would silently drop a chunk sent ahead of a gap
+            try (RandomAccessFile file = new RandomAccessFile(partFile.toFile(), "rw")) {
+                file.setLength(createDTO.getFileSize());
+            }
+        } catch (RuntimeException | IOException e) {
+            Files.deleteIfExists(partFile);
+            deleteSession(uploadId, new HashMap<>(session));
+            throw e;
+        }
+
+        return new UploadSessionDTO(uploadId, createDTO.getFileSize(), 0L, 0L);
+    }
+
+    public UploadSessionDTO getSession(String uploadId, User user) {
+        Map<Object, Object> session = loadSession(uploadId, user);
+        return toDTO(uploadId, session);
+    }
+
+    /**
+     * Writes one chunk of the request body at the given offset.
+     * Chunks may arrive out of order or be re-sent; overlapping writes simply overwrite the same bytes.
+     */
+    public UploadSessionDTO writeChunk(String uploadId, long offset, long contentLength,
+                                       InputStream body, User user) throws IOException {
+        Map<Object, Object> session = loadSession(uploadId, user);
+        if (session.containsKey("finalizing")) {
+            throw new IllegalStateException("Upload is already being finalized");
+        }
+
+        long fileSize = Long.parseLong((String) session.get("fileSize"));
+        if (offset < 0 || offset >= fileSize) {
+            throw new IllegalArgumentException("Upload offset must be between 0 and " + (fileSize - 1));
+        }
+        if (contentLength > fileSize - offset) {
+            throw new IllegalArgumentException("Chunk exceeds the declared file size");
+        }
+
+        long count = contentLength >= 0 ? contentLength : fileSize - offset;
+        long written = 0;
+
+        try (FileChannel channel = FileChannel.open(partFilePath(uploadId), StandardOpenOption.WRITE);
+             ReadableByteChannel in = Channels.newChannel(body)) {
+            while (written < count) {
+                long slice = Math.min(TRANSFER_SLICE, count - written);
+                long transferred = channel.transferFrom(in, offset + written, slice);
+                if (transferred <= 0) {
+                    break;
+                }
+                recordRange(uploadId, offset + written, transferred);
+                written += transferred;
+            }
+        } catch (IOException e) {
+            log.warn("Upload {} interrupted after {} bytes at offset {}: {}", uploadId, written, offset, e.getMessage());
+            throw e;
+        }
+
+        refreshTtl(uploadId);
+        return toDTO(uploadId, session);
+    }
+
+    public VideoDTO finalizeUpload(String uploadId, MultipartFile thumbnailFile, User user) throws IOException {
+        String key = SESSION_PREFIX + uploadId;
+        Map<Object, Object> session = loadSession(uploadId, user);
+
+        UploadSessionDTO state = toDTO(uploadId, session);
+        if (state.getOffset() < state.getFileSize()) {
+            throw new IllegalStateException("Upload is incomplete: received " + state.getOffset()
+                    + " of " + state.getFileSize() + " bytes");
+        }
+
+        Boolean claimed = stringRedisTemplate.opsForHash().putIfAbsent(key, "finalizing", "1");
+        if (!Boolean.TRUE.equals(claimed)) {
+            throw new IllegalStateException("Upload is already being finalized");
+        }
+
+        Path partFile = partFilePath(uploadId);
+        try {
+            VideoUploadDTO uploadDTO = new VideoUploadDTO(
+                    (String) session.get("title"),
+                    (String) session.get("description"),
+                    objectMapper.readValue((String) session.get("tags"), new TypeReference<List<String>>() {}),
+                    emptyToNull((String) session.get("location")));
+            uploadDTO.setLatitude(parseCoordinate((String) session.get("latitude")));
+            uploadDTO.setLongitude(parseCoordinate((String) session.get("longitude")));
+
+            VideoDTO video = videoService.completeResumableUpload(partFile, thumbnailFile, uploadDTO, user);
+
+            deleteSession(uploadId, session);
+            return video;
+
+        } catch (RuntimeException | IOException e) {
+            if (Files.exists(partFile)) {
+                // Bytes are still there, let the client retry finalize
+                stringRedisTemplate.opsForHash().delete(key, "finalizing");
+            } else {
+                deleteSession(uploadId, session);
+            }
+            throw e;
+        }
+    }
+
+    public void abortSession(String uploadId, User user) throws IOException {
+        Map<Object, Object> session = loadSession(uploadId, user);
+        Files.deleteIfExists(partFilePath(uploadId));
+        deleteSession(uploadId, session);
+    }
+
+    /**
+     * Deletes partial files whose session has expired from Redis without being finalized or aborted.
+     *
+     * @return Number of deleted files
+     */
+    @Scheduled(fixedDelayString = "${upload.sessions.sweep-interval-ms:3600000}")
+    public int sweepOrphanedParts() {
+        Path directory = uploadPaths.root().resolve(PARTIAL_DIRECTORY);
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+
+        int deleted = 0;
+        try (DirectoryStream<Path> parts = Files.newDirectoryStream(directory, "*.part")) {
+            for (Path part : parts) {
+                String fileName = part.getFileName().toString();
+                String uploadId = fileName.substring(0, fileName.length() - ".part".length());
+                try {
+                    if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(SESSION_PREFIX + uploadId))
+                            && Files.deleteIfExists(part)) {
+                        deleted++;
+                    }
+                } catch (IOException e) {
+                    log.warn("Failed to sweep partial upload {}: {}", part, e.getMessage());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to sweep partial uploads: {}", e.getMessage());
+        }
+
+        if (deleted > 0) {
+            log.info("Deleted {} partial uploads whose session expired", deleted);
+        }
+        return deleted;
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private Map<Object, Object> loadSession(String uploadId, User user) {
+        Map<Object, Object> session = stringRedisTemplate.opsForHash().entries(SESSION_PREFIX + uploadId);
+        if (session.isEmpty()) {
+            throw new RuntimeException("Upload session not found");
+        }
+        if (!String.valueOf(user.getId()).equals(session.get("userId"))) {
+            // Same message as a missing session so other users' upload ids are not revealed
+            throw new RuntimeException("Upload session not found");
+        }
+        return session;
+    }
+
+    /**
+     * Counts the new session against the user's open sessions, dropping ids whose session has
+     * expired. Added before counting, so concurrent creates cannot both slip under the cap.
+     */
+    private void reserveSlot(User uploader, String uploadId) {
+        String key = USER_SESSIONS_PREFIX + uploader.getId() + ":sessions";
+        Set<String> open = stringRedisTemplate.opsForSet().members(key);
+        if (open != null) {
+            for (String id : open) {
+                if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(SESSION_PREFIX + id))) {
+                    stringRedisTemplate.opsForSet().remove(key, id);
+                }
+            }
+        }
+
+        stringRedisTemplate.opsForSet().add(key, uploadId);
+        stringRedisTemplate.expire(key, SESSION_TTL_HOURS, TimeUnit.HOURS);
+        Long count = stringRedisTemplate.opsForSet().size(key);
+        if (count != null && count > maxOpenPerUser) {
+            stringRedisTemplate.opsForSet().remove(key, uploadId);
+            throw new IllegalStateException("Too many open upload sessions, finish or abort one first (max "
+                    + maxOpenPerUser + ")");
+        }
+    }
+
+    private void releaseSlot(String userId, String uploadId) {
+        stringRedisTemplate.opsForSet().remove(USER_SESSIONS_PREFIX + userId + ":sessions", uploadId);
+    }
+
+    private void recordRange(String uploadId, long start, long length) {
+        long end = start + length - 1;
+        stringRedisTemplate.execute(RECORD_RANGE, List.of(SESSION_PREFIX + uploadId + RANGES_SUFFIX),
+                String.valueOf(start), start + "-" + end, String.valueOf(TimeUnit.HOURS.toSeconds(SESSION_TTL_HOURS)));
+    }
+
+    private void refreshTtl(String uploadId) {
+        stringRedisTemplate.expire(SESSION_PREFIX + uploadId, SESSION_TTL_HOURS, TimeUnit.HOURS);
+        stringRedisTemplate.expire(SESSION_PREFIX + uploadId + RANGES_SUFFIX, SESSION_TTL_HOURS, TimeUnit.HOURS);
+    }
+
+    /**
+     * Merges the recorded ranges (ordered by start) into the contiguous prefix and the total received bytes.
+     */
+    private UploadSessionDTO toDTO(String uploadId, Map<Object, Object> session) {
+        long fileSize = Long.parseLong((String) session.get("fileSize"));
+        Set<String> ranges = stringRedisTemplate.opsForZSet().range(SESSION_PREFIX + uploadId + RANGES_SUFFIX, 0, -1);
+
+        long offset = 0;
+        long received = 0;
+        long mergedStart = -1;
+        long mergedEnd = -1;
+        boolean prefixOpen = true;
+
+        if (ranges != null) {
+            for (String range : ranges) {
+                int dash = range.indexOf('-');
+                long start = Long.parseLong(range.substring(0, dash));
+                long end = Long.parseLong(range.substring(dash + 1));
+
+                if (mergedStart < 0) {
+                    mergedStart = start;
+                    mergedEnd = end;
+                } else if (start <= mergedEnd + 1) {
+                    mergedEnd = Math.max(mergedEnd, end);
+                } else {
+                    received += mergedEnd - mergedStart + 1;
+                    if (prefixOpen && mergedStart == 0) {
+                        offset = mergedEnd + 1;
+                    }
+                    prefixOpen = false;
+                    mergedStart = start;
+                    mergedEnd = end;
+                }
+            }
+        }
+
+        if (mergedStart >= 0) {
+            received += mergedEnd - mergedStart + 1;
+            if (prefixOpen && mergedStart == 0) {
+                offset = mergedEnd + 1;
+            }
+        }
+
+        return new UploadSessionDTO(uploadId, fileSize, Math.min(offset, fileSize), Math.min(received, fileSize));
+    }
+
+    private void deleteSession(String uploadId, Map<Object, Object> session) {
+        stringRedisTemplate.delete(List.of(SESSION_PREFIX + uploadId, SESSION_PREFIX + uploadId + RANGES_SUFFIX));
+        releaseSlot((String) session.get("userId"), uploadId);
+    }
+
+    private Path partFilePath(String uploadId) {
+        return uploadPaths.root().resolve(PARTIAL_DIRECTORY).resolve(uploadId + ".part");
+    }
+
+    private String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    // Sessions created before coordinates were stored have no such field
+    private Double parseCoordinate(String value) {
+        return value == null || value.isEmpty() ? null : Double.valueOf(value);
+    }
+}
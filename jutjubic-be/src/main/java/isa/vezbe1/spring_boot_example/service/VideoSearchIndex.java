@@ -0,0 +1,449 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.util.TextNormalizer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory inverted index over video title, tag names and description, ranked with BM25.
+ *
+ * Text is folded with TextNormalizer (lowercase, no diacritics, Cyrillic transliterated), so "čačak",
+ * "cacak" and "Чачак" match each other. Every video gets a dense document number; a term's posting list
+ * is a sorted int[] of document numbers with a byte[] of (field-weighted) term frequencies. A query
+ * walks the shortest posting list and gallops through the others, so the cost follows the rarest
+ * query term rather than the catalogue size.
+ *
+ * The index is built at startup by streaming over videos and then kept current from upload and delete
+ * events (applied after commit). Deleted documents are tombstoned; once too many pile up the index is
+ * rebuilt in the background and swapped in.
+ */
+@Service
+public class VideoSearchIndex implements VideoSearchStrategy {
+
+    private static final Logger log = LoggerFactory.getLogger(VideoSearchIndex.class);
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // A title hit counts as three description hits, a tag hit as two
+    private static final int TITLE_WEIGHT = 3;
+    private static final int TAG_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private static final int MAX_QUERY_TERMS = 16;
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private static final String STREAM_SQL =
+            "SELECT v.id, v.title, v.description, " +
+            "(SELECT string_agg(t.name, ' ') FROM video_tag_mapping m JOIN video_tags t ON t.id = m.tag_id " +
+            " WHERE m.video_id = v.id) " +
+            "FROM videos v";
+
+    private static final Comparator<Hit> BEST_FIRST = Comparator.comparingDouble((Hit hit) -> hit.score)
+            .thenComparingLong(hit -> hit.videoId)
+            .reversed();
+
+    @Value("${search.index.max-deleted-ratio:0.2}")
+    private double maxDeletedRatio;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock; null until the first build finishes
+    private Index index;
+
+    // Guarded by lock; changes made while a rebuild streams, replayed onto the new index before the swap
+    private List<Consumer<Index>> pendingChanges;
+
+    private final ExecutorService buildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "search-index-build");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public VideoSearchIndex(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Override
+    public String getName() {
+        return "index";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return isReady();
+    }
+
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return index != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds videos containing all query terms, best BM25 score first.
+     *
+     * @param after cursor returned as nextCursor by the previous page, or null for the first page
+     */
+    @Override
+    public SearchHits search(String query, String after, int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(TextNormalizer.tokenize(query)));
+        if (terms.size() > MAX_QUERY_TERMS) {
+            terms = terms.subList(0, MAX_QUERY_TERMS);
+        }
+        Hit cursor = after != null && !after.isBlank() ? decodeCursor(after) : null;
+
+        lock.readLock().lock();
+        try {
+            if (index == null) {
+                throw new IllegalStateException("Search index is still being built");
+            }
+            return index.search(terms, cursor, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void indexAfterCommit(Long videoId, String title, String description, String tagNames) {
+        afterCommit(target -> target.add(videoId, title, description, tagNames));
+    }
+
+    public void removeAfterCommit(Long videoId) {
+        afterCommit(target -> target.remove(videoId));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        rebuildInBackground();
+    }
+
+    public void rebuildInBackground() {
+        lock.writeLock().lock();
+        try {
+            if (pendingChanges != null) {
+                return;
+            }
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        buildExecutor.execute(this::rebuild);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        buildExecutor.shutdownNow();
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private void afterCommit(Consumer<Index> change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(change);
+                }
+            });
+        } else {
+            apply(change);
+        }
+    }
+
+    private void apply(Consumer<Index> change) {
+        boolean compact;
+        lock.writeLock().lock();
+        try {
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+            if (index == null) {
+                return;
+            }
+            change.accept(index);
+            compact = index.deletedRatio() > maxDeletedRatio;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (compact) {
+            rebuildInBackground();
+        }
+    }
+
+    private void rebuild() {
+        Index fresh = new Index();
+        long started = System.nanoTime();
+
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(STREAM_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(STREAM_FETCH_SIZE);
+                return statement;
+            }, rs -> {
+                fresh.add(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4));
+            }));
+        } catch (RuntimeException e) {
+            log.error("Failed to build search index: {}", e.getMessage());
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            // Add and remove are idempotent, so replaying a change the scan already saw is harmless
+            pendingChanges.forEach(change -> change.accept(fresh));
+            pendingChanges = null;
+            index = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("Built search index: {} videos, {} terms in {} ms",
+                fresh.liveDocs, fresh.terms.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private static String encodeCursor(Hit hit) {
+        String raw = hit.score + "," + hit.videoId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Hit decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int comma = raw.indexOf(',');
+            return new Hit(Long.parseLong(raw.substring(comma + 1)), Double.parseDouble(raw.substring(0, comma)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid search cursor");
+        }
+    }
+
+    private static class Hit {
+        final long videoId;
+        final double score;
+
+        Hit(long videoId, double score) {
+            this.videoId = videoId;
+            this.score = score;
+        }
+    }
+
+    private static class Postings {
+        int[] docs = new int[4];
+        byte[] freqs = new byte[4];
+        int size;
+
+        void add(int doc, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = (byte) Math.min(freq, 255);
+            size++;
+        }
+
+        int freq(int position) {
+            return freqs[position] & 0xFF;
+        }
+
+        /**
+         * Position of the first doc >= target at or after from: exponential probe, then binary search.
+         */
+        int advance(int from, int target) {
+            if (from >= size || docs[from] >= target) {
+                return from;
+            }
+            int low = from;
+            int step = 1;
+            int high = from + 1;
+            while (high < size && docs[high] < target) {
+                low = high;
+                step <<= 1;
+                high = from + step;
+            }
+            int found = Arrays.binarySearch(docs, low + 1, Math.min(high + 1, size), target);
+            return found >= 0 ? found : -found - 1;
+        }
+    }
+
+    private static class Index {
+        final Map<String, Postings> terms = new HashMap<>();
+        final Map<Long, Integer> docByVideo = new HashMap<>();
+        final BitSet deleted = new BitSet();
+        long[] videoIds = new long[1024];
+        int[] lengths = new int[1024];
+        int docCount;
+        int liveDocs;
+        long totalLength;
+
+        void add(long videoId, String title, String description, String tagNames) {
+            remove(videoId);
+
+            Map<String, Integer> frequencies = new HashMap<>();
+            int length = countTokens(frequencies, title, TITLE_WEIGHT)
+                    + countTokens(frequencies, tagNames, TAG_WEIGHT)
+                    + countTokens(frequencies, description, DESCRIPTION_WEIGHT);
+
+            int doc = docCount++;
+            if (doc == videoIds.length) {
+                videoIds = Arrays.copyOf(videoIds, doc * 2);
+                lengths = Arrays.copyOf(lengths, doc * 2);
+            }
+            videoIds[doc] = videoId;
+            lengths[doc] = length;
+            docByVideo.put(videoId, doc);
+            liveDocs++;
+            totalLength += length;
+
+            // New docs always get the highest number, so appending keeps every posting list sorted
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                terms.computeIfAbsent(entry.getKey(), term -> new Postings()).add(doc, entry.getValue());
+            }
+        }
+
+        void remove(long videoId) {
+            Integer doc = docByVideo.remove(videoId);
+            if (doc != null) {
+                deleted.set(doc);
+                liveDocs--;
+                totalLength -= lengths[doc];
+            }
+        }
+
+        double deletedRatio() {
+            return docCount == 0 ? 0 : (double) (docCount - liveDocs) / docCount;
+        }
+
+        SearchHits search(List<String> queryTerms, Hit after, int limit) {
+            if (queryTerms.isEmpty() || liveDocs == 0) {
+                return SearchHits.empty();
+            }
+
+            Postings[] lists = new Postings[queryTerms.size()];
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = terms.get(queryTerms.get(i));
+                if (lists[i] == null) {
+                    return SearchHits.empty();
+                }
+            }
+            Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+
+            double[] idf = new double[lists.length];
+            for (int i = 0; i < lists.length; i++) {
+                double df = lists[i].size;
+                idf[i] = Math.log(1 + (docCount - df + 0.5) / (df + 0.5));
+            }
+            double averageLength = Math.max(1.0, (double) totalLength / liveDocs);
+
+            // Worst hit on top, so the heap keeps the best limit + 1 (one extra to know if there is a next page)
+            PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1, BEST_FIRST.reversed());
+            int[] positions = new int[lists.length];
+            long totalHits = 0;
+
+            Postings lead = lists[0];
+            candidates:
+            for (int i = 0; i < lead.size; i++) {
+                int doc = lead.docs[i];
+                if (deleted.get(doc)) {
+                    continue;
+                }
+
+                double lengthNorm = K1 * (1 - B + B * lengths[doc] / averageLength);
+                double score = idf[0] * bm25(lead.freq(i), lengthNorm);
+                for (int j = 1; j < lists.length; j++) {
+                    int position = lists[j].advance(positions[j], doc);
+                    positions[j] = position;
+                    if (position >= lists[j].size) {
+                        break candidates;
+                    }
+                    if (lists[j].docs[position] != doc) {
+                        continue candidates;
+                    }
+                    score += idf[j] * bm25(lists[j].freq(position), lengthNorm);
+                }
+
+                totalHits++;
+                Hit hit = new Hit(videoIds[doc], score);
+                // Hits that rank at or above the cursor were on earlier pages
+                if (after != null && BEST_FIRST.compare(hit, after) <= 0) {
+                    continue;
+                }
+                top.offer(hit);
+                if (top.size() > limit + 1) {
+                    top.poll();
+                }
+            }
+
+            List<Hit> ranked = new ArrayList<>(top);
+            ranked.sort(BEST_FIRST);
+
+            String nextCursor = null;
+            if (ranked.size() > limit) {
+                ranked = ranked.subList(0, limit);
+                nextCursor = encodeCursor(ranked.get(limit - 1));
+            }
+
+            List<Long> ids = new ArrayList<>(ranked.size());
+            for (Hit hit : ranked) {
+                ids.add(hit.videoId);
+            }
+            return new SearchHits(ids, nextCursor, totalHits);
+        }
+
+        private static double bm25(int frequency, double lengthNorm) {
+            return frequency * (K1 + 1) / (frequency + lengthNorm);
+        }
+
+        private static int countTokens(Map<String, Integer> frequencies, String text, int weight) {
+            List<String> tokens = TextNormalizer.tokenize(text);
+            for (String token : tokens) {
+                frequencies.merge(token, weight, Integer::sum);
+            }
+            return tokens.size() * weight;
+        }
+    }
+}
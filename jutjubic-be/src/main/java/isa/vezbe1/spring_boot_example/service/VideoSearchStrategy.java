@@ -0,0 +1,23 @@
+package isa.vezbe1.spring_boot_example.service;
+
+/**
+ * A search backend for VideoService.searchVideos, selected with search.mode.
+ */
+public interface VideoSearchStrategy {
+
+    /**
+     * @return value of search.mode that selects this strategy
+     */
+    String getName();
+
+    /**
+     * @return false while the strategy cannot answer yet (e.g. its index is still being built)
+     */
+    boolean isAvailable();
+
+    /**
+     * @param after cursor returned as nextCursor by the previous page, or null for the first page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    SearchHits search(String query, String after, int limit);
+}
@@ -1,155 +1,281 @@
 package isa.vezbe1.spring_boot_example.service;
 
 import isa.vezbe1.spring_boot_example.dto.CreateVideoDTO;
-import isa.vezbe1.spring_boot_example.dto.UploadEvent;
 import isa.vezbe1.spring_boot_example.dto.VideoDTO;
+import isa.vezbe1.spring_boot_example.dto.VideoFeedDTO;
+import isa.vezbe1.spring_boot_example.dto.VideoSearchResultDTO;
+import isa.vezbe1.spring_boot_example.dto.VideoStatusDTO;
 import isa.vezbe1.spring_boot_example.dto.VideoUploadDTO;
 import isa.vezbe1.spring_boot_example.model.User;
 import isa.vezbe1.spring_boot_example.model.Video;
+import isa.vezbe1.spring_boot_example.model.VideoStatus;
 import isa.vezbe1.spring_boot_example.model.VideoTag;
 import isa.vezbe1.spring_boot_example.repository.VideoRepository;
-import isa.vezbe1.spring_boot_example.repository.VideoTagRepository;
+import isa.vezbe1.spring_boot_example.util.UploadPaths;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.sql.Timestamp;
-import java.util.HashSet;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
-import java.util.Set;
-import java.util.UUID;
-import java.util.concurrent.TimeUnit;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
 public class VideoService {
 
-    @Value("${file.upload.dir:uploads}")
-    private String uploadDir;
-
     @Autowired
     private VideoRepository videoRepository;
 
     @Autowired
-    private VideoTagRepository videoTagRepository;
+    private TagDictionaryService tagDictionaryService;
+
+    @Autowired
+    private ThumbnailCache thumbnailCache;
+
+    @Autowired
+    private ThumbnailVariantService thumbnailVariantService;
+
+    @Autowired
+    private UploadPipeline uploadPipeline;
+
+    @Autowired
+    private Mp4MetadataService mp4MetadataService;
+
+    @Autowired
+    private TranscodingService transcodingService;
+
+    @Autowired
+    private StoryboardService storyboardService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private BlobStoreService blobStoreService;
+
+    @Autowired
+    private VideoStreamService videoStreamService;
+
+    @Autowired
+    private ViewCounter viewCounter;
+
+    @Autowired
+    private UniqueViewerService uniqueViewerService;
+
+    @Autowired
+    private TrendingService trendingService;
+
+    @Autowired
+    private VideoSummaryService videoSummaryService;
 
     @Autowired
-    @Qualifier("thumbnailRedisTemplate")
-    private RedisTemplate<String, byte[]> redisTemplate;
+    private VideoSearchIndex videoSearchIndex;
 
     @Autowired
-    private UploadEventProducer uploadEventProducer;
+    private VideoTagIndex videoTagIndex;
+
+    @Autowired
+    private RelatedVideoService relatedVideoService;
+
+    @Autowired
+    private GeoTileIndex geoTileIndex;
+
+    @Autowired
+    private List<VideoSearchStrategy> searchStrategies;
+
+    @Autowired
+    private TitleScanSearch titleScanSearch;
+
+    @Value("${search.mode:index}")
+    private String searchMode;
 
     @Transactional(readOnly = true)
     public List<VideoDTO> getAllVideos() {
-        List<Video> videos = videoRepository.findAllByOrderByCreatedAtDesc();
-        return videos.stream()
-                .map(VideoDTO::new)
-                .collect(Collectors.toList());
+        return videoSummaryService.complete(videoRepository.findAllSummaries());
     }
 
     @Transactional(readOnly = true)
     public Page<VideoDTO> getAllVideos(Pageable pageable) {
-        Page<Video> videos = videoRepository.findAllByOrderByCreatedAtDesc(pageable);
-        return videos.map(VideoDTO::new);
+        Page<VideoDTO> videos = videoRepository.findSummaryPage(pageable);
+        videoSummaryService.complete(videos.getContent());
+        return videos;
+    }
+
+    /**
+     * Newest-first feed page using a seek predicate instead of OFFSET, so every page costs the same.
+     *
+     * @param after cursor returned as nextCursor by the previous page, or null for the first page
+     */
+    @Transactional(readOnly = true)
+    public VideoFeedDTO getFeed(String after, int limit) {
+        // One extra row tells whether there is a next page without a count query
+        List<VideoDTO> videos;
+        if (after == null || after.isBlank()) {
+            videos = videoRepository.findFeedSummaries(Limit.of(limit + 1));
+        } else {
+            FeedCursor cursor = FeedCursor.decode(after);
+            videos = videoRepository.findFeedSummariesAfter(cursor.createdAt, cursor.id, Limit.of(limit + 1));
+        }
+
+        String nextCursor = null;
+        if (videos.size() > limit) {
+            videos = new ArrayList<>(videos.subList(0, limit));
+            VideoDTO last = videos.get(limit - 1);
+            nextCursor = new FeedCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        return new VideoFeedDTO(videoSummaryService.complete(videos), nextCursor);
+    }
+
+    /**
+     * Videos filtered by tags, newest first. Matching runs on the in-memory tag bitmaps;
+     * the database is only asked for the videos on the page.
+     *
+     * @param after cursor returned as nextCursor by the previous page, or null for the first page
+     */
+    public VideoFeedDTO getVideosByTags(List<String> all, List<String> any, List<String> none, String after, int limit) {
+        SearchHits hits = videoTagIndex.find(all, any, none, after, limit);
+        return new VideoFeedDTO(videoSummaryService.getByIds(hits.getVideoIds()), hits.getNextCursor());
+    }
+
+    public List<VideoDTO> getRelatedVideos(Long videoId, int limit) {
+        if (!videoRepository.existsById(videoId)) {
+            throw new RuntimeException("Video not found");
+        }
+        return relatedVideoService.findRelated(videoId, limit);
     }
 
     @Transactional(readOnly = true)
     public VideoDTO getVideoById(Long id) {
-        Video video = videoRepository.findById(id)
+        VideoDTO dto = videoRepository.findSummaryById(id)
                 .orElseThrow(() -> new RuntimeException("Video not found with id: " + id));
-        return new VideoDTO(video);
+        videoSummaryService.complete(List.of(dto));
+        dto.setRenditions(transcodingService.getRenditions(id));
+
+        try {
+            dto.setUniqueViewers(uniqueViewerService.getUniqueViewers(id));
+        } catch (Exception e) {
+            System.err.println("Failed to read unique viewers: " + e.getMessage());
+        }
+        return dto;
     }
 
 
-    @Transactional(rollbackFor = Exception.class, timeout = 300)
+    /**
+     * Stores the files and commits the video as PROCESSING; thumbnails, metadata and the upload
+     * event are handled afterwards by the UploadPipeline. The bytes are written before the
+     * transaction starts, so a slow upload never holds a database connection.
+     */
     public VideoDTO uploadVideo(
             MultipartFile videoFile,
             MultipartFile thumbnailFile,
             VideoUploadDTO uploadDTO,
             User uploader) throws IOException {
 
-        // Step 1: Validate files
+        // Step 1: Validate files, and refuse the upload while the pipeline is saturated
         validateVideoFile(videoFile);
         validateThumbnailFile(thumbnailFile);
+        validateCoordinates(uploadDTO.getLatitude(), uploadDTO.getLongitude());
+        UploadPipeline.Admission admission = uploadPipeline.admit();
 
         // Step 2: Create video entity
         Video video = new Video();
         video.setTitle(uploadDTO.getTitle());
         video.setDescription(uploadDTO.getDescription());
         video.setLocation(uploadDTO.getLocation());
+        video.setLatitude(uploadDTO.getLatitude());
+        video.setLongitude(uploadDTO.getLongitude());
         video.setUploader(uploader);
         video.setCreatedAt(new Timestamp(System.currentTimeMillis()));
         video.setVideoSizeMb(videoFile.getSize() / (1024.0 * 1024.0));
 
-        String videoPath = null;
-        String thumbnailPath = null;
-
+        // Step 3: Stream files to the staging area, outside any transaction
+        BlobStoreService.StagedBlob stagedVideo = null;
+        BlobStoreService.StagedBlob stagedThumbnail = null;
         try {
-            // Step 3: Save files to disk
-            videoPath = saveVideoFile(videoFile);
-            thumbnailPath = saveThumbnailFile(thumbnailFile);
-
-            video.setVideoPath(videoPath);
-            video.setThumbnailPath(thumbnailPath);
-
-            // Step 4: Handle tags (transactional)
-            Set<VideoTag> tags = new HashSet<>();
-            if (uploadDTO.getTags() != null && !uploadDTO.getTags().isEmpty()) {
-                for (String tagName : uploadDTO.getTags()) {
-                    VideoTag tag = videoTagRepository.findByNameIgnoreCase(tagName)
-                            .orElseGet(() -> {
-                                VideoTag newTag = new VideoTag(tagName);
-                                return videoTagRepository.save(newTag);
-                            });
-                    tags.add(tag);
-                }
-            }
-            video.setTags(tags);
+            stagedVideo = saveVideoFile(videoFile);
+            stagedThumbnail = saveThumbnailFile(thumbnailFile);
 
-            // Step 5: Save video to database (transactional)
-            video = videoRepository.save(video);
+            return persistUploadedVideo(video, uploadDTO, stagedVideo, stagedThumbnail, admission);
 
-            // Step 6: Cache thumbnail in Redis
-            cacheThumbnail(video.getId(), thumbnailPath);
+        } catch (Exception e) {
+            // Rollback: the blob store deletes files it moved in during the transaction
+            blobStoreService.discard(stagedVideo);
+            blobStoreService.discard(stagedThumbnail);
+            throw new RuntimeException("Failed to upload video: " + e.getMessage(), e);
+        } finally {
+            // Frees the pipeline slot unless the committed video took it over
+            admission.close();
+        }
+    }
 
-            // Step 7: Send upload event to RabbitMQ (fire-and-forget)
-            try {
-                UploadEvent event = UploadEvent.fromVideo(video);
-                uploadEventProducer.sendJsonEvent(event);
-                uploadEventProducer.sendProtobufEvent(event);
-            } catch (Exception ex) {
-                // Don't let MQ failure break the upload
-                System.err.println("Failed to send upload event to MQ: " + ex.getMessage());
-            }
+    /**
+     * Finishes a resumable upload whose bytes were already written to a partial file.
+     * The file is renamed into the blob store instead of copied, then the usual upload steps run.
+     */
+    public VideoDTO completeResumableUpload(
+            Path partFile,
+            MultipartFile thumbnailFile,
+            VideoUploadDTO uploadDTO,
+            User uploader) throws IOException {
 
-            return new VideoDTO(video);
+        validateThumbnailFile(thumbnailFile);
+        validateCoordinates(uploadDTO.getLatitude(), uploadDTO.getLongitude());
+
+        Video video = new Video();
+        video.setTitle(uploadDTO.getTitle());
+        video.setDescription(uploadDTO.getDescription());
+        video.setLocation(uploadDTO.getLocation());
+        video.setLatitude(uploadDTO.getLatitude());
+        video.setLongitude(uploadDTO.getLongitude());
+        video.setUploader(uploader);
+        video.setCreatedAt(new Timestamp(System.currentTimeMillis()));
+        video.setVideoSizeMb(Files.size(partFile) / (1024.0 * 1024.0));
+
+        UploadPipeline.Admission admission = uploadPipeline.admit();
+        BlobStoreService.StagedBlob stagedThumbnail = null;
+        try {
+            BlobStoreService.StagedBlob stagedVideo = blobStoreService.stage(partFile, "videos", ".mp4", this::makeFastStart);
+            stagedThumbnail = saveThumbnailFile(thumbnailFile);
+
+            return persistUploadedVideo(video, uploadDTO, stagedVideo, stagedThumbnail, admission);
 
         } catch (Exception e) {
-            // Rollback: Delete uploaded files if DB operation fails
-            cleanupFiles(videoPath, thumbnailPath);
+            // The partial file is left in place so that the client can retry
+            blobStoreService.discard(stagedThumbnail);
             throw new RuntimeException("Failed to upload video: " + e.getMessage(), e);
+        } finally {
+            admission.close();
         }
     }
 
-
     @Transactional
     public VideoDTO createVideo(CreateVideoDTO createVideoDTO, User uploader) {
 
         if (createVideoDTO.getVideoSizeMb() > 200) {
             throw new RuntimeException("Video size cannot exceed 200MB");
         }
+        validateCoordinates(createVideoDTO.getLatitude(), createVideoDTO.getLongitude());
+        if (!UploadPaths.isUploadPath(createVideoDTO.getVideoPath())
+                || !UploadPaths.isUploadPath(createVideoDTO.getThumbnailPath())) {
+            throw new IllegalArgumentException("Video and thumbnail paths must be /uploads/ paths");
+        }
 
         Video video = new Video();
         video.setTitle(createVideoDTO.getTitle());
@@ -157,46 +283,75 @@ public class VideoService {
         video.setThumbnailPath(createVideoDTO.getThumbnailPath());
         video.setVideoPath(createVideoDTO.getVideoPath());
         video.setVideoSizeMb(createVideoDTO.getVideoSizeMb());
+        video.setLatitude(createVideoDTO.getLatitude());
+        video.setLongitude(createVideoDTO.getLongitude());
         video.setUploader(uploader);
         video.setCreatedAt(new Timestamp(System.currentTimeMillis()));
 
-        Set<VideoTag> tags = new HashSet<>();
-        if (createVideoDTO.getTags() != null && !createVideoDTO.getTags().isEmpty()) {
-            for (String tagName : createVideoDTO.getTags()) {
-                VideoTag tag = videoTagRepository.findByNameIgnoreCase(tagName)
-                        .orElseGet(() -> {
-                            VideoTag newTag = new VideoTag(tagName);
-                            return videoTagRepository.save(newTag);
-                        });
-                tags.add(tag);
-            }
-        }
-        video.setTags(tags);
+        video.setTags(tagDictionaryService.resolve(createVideoDTO.getTags()));
 
         Video savedVideo = videoRepository.save(video);
+        trendingService.recordUploadAfterCommit(savedVideo.getId());
+        indexForSearch(savedVideo);
 
-        return new VideoDTO(savedVideo);
+        return toDTO(savedVideo);
     }
 
-    @Transactional
     public void incrementViewCount(Long videoId) {
-        videoRepository.incrementViewCount(videoId);
+        // Buffered and written to the database in batches (see views.mode)
+        viewCounter.recordView(videoId);
+        trendingService.recordView(videoId);
+    }
+
+    public void incrementViewCount(Long videoId, String viewerKey) {
+        // Depending on views.unique.count-mode, repeat views from the same viewer are not counted
+        for (long i = uniqueViewerService.recordViewer(videoId, viewerKey); i > 0; i--) {
+            viewCounter.recordView(videoId);
+            trendingService.recordView(videoId);
+        }
     }
 
     @Transactional(readOnly = true)
     public List<VideoDTO> getVideosByUploader(User uploader) {
-        List<Video> videos = videoRepository.findByUploaderOrderByCreatedAtDesc(uploader);
-        return videos.stream()
-                .map(VideoDTO::new)
-                .collect(Collectors.toList());
+        return videoSummaryService.complete(videoRepository.findSummariesByUploader(uploader));
+    }
+
+    /**
+     * Ranked, paginated search through the strategy selected with search.mode (index, fulltext, fuzzy or like).
+     * A first page with no results is retried with the typo-tolerant fuzzy strategy.
+     *
+     * @param mode strategy to use, or null for search.mode
+     * @param after cursor returned as nextCursor by the previous page, or null for the first page
+     */
+    @Transactional(readOnly = true)
+    public VideoSearchResultDTO searchVideos(String mode, String query, String after, int limit) {
+        VideoSearchStrategy strategy = findSearchStrategy(mode != null ? mode : searchMode)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown search mode: " + mode));
+
+        if (!strategy.isAvailable()) {
+            // e.g. the in-memory index right after startup; the LIKE scan always works, first page only
+            strategy = titleScanSearch;
+            after = null;
+        }
+
+        SearchHits hits = strategy.search(query, after, limit);
+
+        if (hits.getVideoIds().isEmpty() && after == null) {
+            Optional<VideoSearchStrategy> fuzzy = findSearchStrategy("fuzzy")
+                    .filter(VideoSearchStrategy::isAvailable);
+            if (fuzzy.isPresent() && fuzzy.get() != strategy) {
+                strategy = fuzzy.get();
+                hits = strategy.search(query, null, limit);
+            }
+        }
+
+        return new VideoSearchResultDTO(videoSummaryService.getByIds(hits.getVideoIds()),
+                hits.getNextCursor(), hits.getTotalHits(), strategy.getName());
     }
 
     @Transactional(readOnly = true)
     public List<VideoDTO> searchVideosByTitle(String title) {
-        List<Video> videos = videoRepository.findByTitleContainingIgnoreCaseOrderByCreatedAtDesc(title);
-        return videos.stream()
-                .map(VideoDTO::new)
-                .collect(Collectors.toList());
+        return videoSummaryService.complete(videoRepository.searchSummariesByTitle(title));
     }
 
     @Transactional
@@ -210,15 +365,128 @@ public class VideoService {
         }
 
         videoRepository.delete(video);
+
+        // Files are shared between identical uploads, so they go away only with the last reference
+        blobStoreService.release(video.getVideoPath());
+        blobStoreService.release(video.getThumbnailPath());
+        videoStreamService.evictAfterCommit(video.getVideoPath());
+        trendingService.removeAfterCommit(videoId);
+        uniqueViewerService.removeAfterCommit(videoId);
+        videoSearchIndex.removeAfterCommit(videoId);
+        videoTagIndex.removeAfterCommit(videoId);
+        relatedVideoService.removeAfterCommit(videoId);
+        geoTileIndex.removeAfterCommit(videoId);
+        thumbnailCache.evictAfterCommit(videoId);
+        thumbnailVariantService.releaseAfterCommit(video.getThumbnailPath());
+        transcodingService.removeAfterCommit(videoId);
+        storyboardService.removeAfterCommit(video.getVideoPath());
+    }
+
+    public VideoStatusDTO getVideoStatus(Long videoId) {
+        return uploadPipeline.getStatus(videoId);
     }
 
-    public byte[] getCachedThumbnail(Long videoId) {
-        String cacheKey = "thumbnail:" + videoId;
-        return redisTemplate.opsForValue().get(cacheKey);
+    public Optional<ThumbnailCache.Thumbnail> getThumbnail(Long videoId) {
+        return thumbnailCache.get(videoId);
+    }
+
+    public Optional<ThumbnailCache.Thumbnail> getThumbnail(Long videoId, Integer width) {
+        return thumbnailCache.get(videoId, width);
     }
 
     // ========== PRIVATE HELPER METHODS ==========
 
+    private Optional<VideoSearchStrategy> findSearchStrategy(String name) {
+        return searchStrategies.stream()
+                .filter(candidate -> candidate.getName().equals(name))
+                .findFirst();
+    }
+
+    private void indexForSearch(Video video) {
+        List<String> tagNames = video.getTags().stream()
+                .map(VideoTag::getName)
+                .collect(Collectors.toList());
+        videoSearchIndex.indexAfterCommit(video.getId(), video.getTitle(), video.getDescription(), String.join(" ", tagNames));
+        videoTagIndex.addAfterCommit(video.getId(), video.getCreatedAt(), video.getTags());
+        relatedVideoService.indexVideo(video.getId(), video.getTitle(), tagNames);
+        geoTileIndex.addAfterCommit(video.getId(), video.getLatitude(), video.getLongitude());
+    }
+
+    private VideoDTO toDTO(Video video) {
+        VideoDTO dto = new VideoDTO(video);
+        dto.setViewCount(viewCounter.overlay(video.getId(), video.getViewCount()));
+        return dto;
+    }
+
+    /**
+     * Position in the feed: (created_at, id) of the last video on a page, as base64url so clients treat it as opaque.
+     */
+    private static class FeedCursor {
+        final Timestamp createdAt;
+        final Long id;
+
+        FeedCursor(Timestamp createdAt, Long id) {
+            this.createdAt = createdAt;
+            this.id = id;
+        }
+
+        String encode() {
+            String raw = createdAt.toInstant() + "," + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static FeedCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int comma = raw.lastIndexOf(',');
+                return new FeedCursor(Timestamp.from(Instant.parse(raw.substring(0, comma))),
+                        Long.valueOf(raw.substring(comma + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid feed cursor");
+            }
+        }
+    }
+
+    private VideoDTO persistUploadedVideo(Video video, VideoUploadDTO uploadDTO,
+                                          BlobStoreService.StagedBlob stagedVideo,
+                                          BlobStoreService.StagedBlob stagedThumbnail,
+                                          UploadPipeline.Admission admission) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setTimeout(30);
+        return transaction.execute(status -> {
+            try {
+                // Step 4: Move staged files into the blob store (renames; duplicates only add a reference)
+                video.setVideoPath(blobStoreService.store(stagedVideo));
+                video.setThumbnailPath(blobStoreService.store(stagedThumbnail));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            // Step 5: Handle tags (at most two statements)
+            video.setTags(tagDictionaryService.resolve(uploadDTO.getTags()));
+
+            // Step 6: Save video as PROCESSING
+            video.setStatus(VideoStatus.PROCESSING);
+            Video saved = videoRepository.save(video);
+            trendingService.recordUploadAfterCommit(saved.getId());
+            indexForSearch(saved);
+
+            // Step 7: Thumbnails, metadata and the upload event run in the background once committed
+            uploadPipeline.submitAfterCommit(saved.getId(), admission);
+
+            return toDTO(saved);
+        });
+    }
+
+    private void validateCoordinates(Double latitude, Double longitude) {
+        if ((latitude == null) != (longitude == null)) {
+            throw new IllegalArgumentException("Latitude and longitude must be given together");
+        }
+        if (latitude != null && (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180)) {
+            throw new IllegalArgumentException("Coordinates are out of range");
+        }
+    }
+
     private void validateVideoFile(MultipartFile file) {
         if (file == null || file.isEmpty()) {
             throw new IllegalArgumentException("Video file is required");
@@ -250,60 +518,21 @@ public class VideoService {
         }
     }
 
-    private String saveVideoFile(MultipartFile file) throws IOException {
-        String filename = UUID.randomUUID() + "_" + sanitizeFilename(file.getOriginalFilename());
-        Path videoDir = Paths.get(uploadDir, "videos");
-        Files.createDirectories(videoDir);
-
-        Path filePath = videoDir.resolve(filename);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-
-        return "/uploads/videos/" + filename;
+    private BlobStoreService.StagedBlob saveVideoFile(MultipartFile file) throws IOException {
+        return blobStoreService.stage(file, "videos", ".mp4", this::makeFastStart);
     }
 
-    private String saveThumbnailFile(MultipartFile file) throws IOException {
-        String filename = UUID.randomUUID() + "_" + sanitizeFilename(file.getOriginalFilename());
-        Path thumbDir = Paths.get(uploadDir, "thumbnails");
-        Files.createDirectories(thumbDir);
-
-        Path filePath = thumbDir.resolve(filename);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-
-        return "/uploads/thumbnails/" + filename;
-    }
-
-    private void cacheThumbnail(Long videoId, String thumbnailPath) throws IOException {
-        // Read thumbnail file and cache in Redis
-        Path path = Paths.get(uploadDir, thumbnailPath.replace("/uploads/", ""));
-        if (Files.exists(path)) {
-            byte[] thumbnailData = Files.readAllBytes(path);
-
-            String cacheKey = "thumbnail:" + videoId;
-            redisTemplate.opsForValue().set(cacheKey, thumbnailData, 24, TimeUnit.HOURS);
-        }
-    }
-
-    private void cleanupFiles(String videoPath, String thumbnailPath) {
+    private boolean makeFastStart(Path file) throws IOException {
         try {
-            if (videoPath != null) {
-                Path vPath = Paths.get(uploadDir, videoPath.replace("/uploads/", ""));
-                Files.deleteIfExists(vPath);
-            }
-            if (thumbnailPath != null) {
-                Path tPath = Paths.get(uploadDir, thumbnailPath.replace("/uploads/", ""));
-                Files.deleteIfExists(tPath);
-            }
-        } catch (IOException e) {
-            // Log but don't throw - we're already in error handling
-            System.err.println("Failed to cleanup files: " + e.getMessage());
+            return mp4MetadataService.makeFastStart(file);
+        } catch (IllegalArgumentException e) {
+            // Not a readable MP4; stored as is and marked FAILED by the upload pipeline
+            return false;
         }
     }
 
-    private String sanitizeFilename(String filename) {
-        if (filename == null) {
-            return "unnamed";
-        }
-        // Remove potentially dangerous characters
-        return filename.replaceAll("[^a-zA-Z0-9._-]", "_");
+    private BlobStoreService.StagedBlob saveThumbnailFile(MultipartFile file) throws IOException {
+        String extension = file.getContentType().startsWith("image/png") ? ".png" : ".jpg";
+        return blobStoreService.stage(file, "thumbnails", extension);
     }
 }
\ No newline at end of file
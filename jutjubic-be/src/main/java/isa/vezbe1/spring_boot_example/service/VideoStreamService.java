@@ -0,0 +1,317 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.exception.ResourceNotFoundException;
+import isa.vezbe1.spring_boot_example.repository.VideoRepository;
+import isa.vezbe1.spring_boot_example.util.UploadPaths;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serves uploaded videos with HTTP Range support.
+ * Bytes go from disk to socket through Tomcat sendfile when the connector supports it,
+ * otherwise through FileChannel.transferTo, so the file content is never copied into heap arrays.
+ */
+@Service
+public class VideoStreamService {
+
+    private static final Logger log = LoggerFactory.getLogger(VideoStreamService.class);
+
+    private static final String VIDEO_CONTENT_TYPE = "video/mp4";
+
+    // Tomcat request attributes for handing a file region to the connector's sendfile support
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    @Value("${video.stream.channel-cache-size:64}")
+    private int channelCacheSize;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private UploadPaths uploadPaths;
+
+    // Access-ordered, so iteration starts from the least recently used channel
+    private final Map<Path, CachedChannel> openChannels = new LinkedHashMap<>(16, 0.75f, true);
+
+    public void streamVideo(Long videoId, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String videoPath = videoRepository.findVideoPathById(videoId)
+                .orElseThrow(() -> new ResourceNotFoundException("Video not found with id: " + videoId));
+
+        if (!UploadPaths.isUploadPath(videoPath)) {
+            throw new ResourceNotFoundException("Video file not found for id: " + videoId);
+        }
+        Path file = uploadPaths.resolve(videoPath);
+        if (!Files.isRegularFile(file)) {
+            throw new ResourceNotFoundException("Video file not found for id: " + videoId);
+        }
+
+        CachedChannel cached = acquire(file);
+        try {
+            long length = cached.channel.size();
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+            List<HttpRange> ranges = parseRanges(request.getHeader(HttpHeaders.RANGE), length);
+            if (ranges == null) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return;
+            }
+
+            if (ranges.isEmpty()) {
+                response.setStatus(HttpServletResponse.SC_OK);
+                response.setContentType(VIDEO_CONTENT_TYPE);
+                response.setContentLengthLong(length);
+                sendRegion(file, cached.channel, 0, length, request, response);
+                return;
+            }
+
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+
+            if (ranges.size() == 1) {
+                long start = ranges.get(0).getRangeStart(length);
+                long end = ranges.get(0).getRangeEnd(length);
+                response.setContentType(VIDEO_CONTENT_TYPE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+                response.setContentLengthLong(end - start + 1);
+                sendRegion(file, cached.channel, start, end - start + 1, request, response);
+                return;
+            }
+
+            sendMultipart(cached.channel, ranges, length, response);
+        } finally {
+            release(cached);
+        }
+    }
+
+    /**
+     * Closes the cached channel for a video file once the deleting transaction commits; a rolled
+     * back delete leaves the channel open. Runs immediately when there is no transaction.
+     */
+    public void evictAfterCommit(String videoPath) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(videoPath);
+                }
+            });
+        } else {
+            evict(videoPath);
+        }
+    }
+
+    /**
+     * Closes the cached channel for a video file, e.g. after the file has been deleted.
+     */
+    public void evict(String videoPath) {
+        if (!UploadPaths.isUploadPath(videoPath)) {
+            // Never resolved by streamVideo, so never cached
+            return;
+        }
+        Path file = uploadPaths.resolve(videoPath);
+        synchronized (openChannels) {
+            CachedChannel cached = openChannels.remove(file);
+            if (cached != null) {
+                retire(cached);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        synchronized (openChannels) {
+            for (CachedChannel cached : openChannels.values()) {
+                retire(cached);
+            }
+            openChannels.clear();
+        }
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    /**
+     * Returns an empty list for a plain request, null when the Range header cannot be satisfied.
+     */
+    private List<HttpRange> parseRanges(String rangeHeader, long length) {
+        if (rangeHeader == null || rangeHeader.isBlank()) {
+            return List.of();
+        }
+
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        long total = 0;
+        for (HttpRange range : ranges) {
+            try {
+                long start = range.getRangeStart(length);
+                long end = range.getRangeEnd(length);
+                if (start >= length || end < start) {
+                    return null;
+                }
+                total += end - start + 1;
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        // Overlapping ranges that add up to more than the file are rejected, same as Spring's resource handling
+        if (ranges.size() > 1 && total > length) {
+            return null;
+        }
+
+        return ranges;
+    }
+
+    private void sendRegion(Path file, FileChannel channel, long start, long count,
+                            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            // Tomcat writes the region with sendfile once the request returns
+            request.setAttribute(SENDFILE_FILENAME_ATTR, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, start + count);
+            return;
+        }
+
+        WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+        transfer(channel, start, count, out);
+    }
+
+    private void sendMultipart(FileChannel channel, List<HttpRange> ranges, long length,
+                               HttpServletResponse response) throws IOException {
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+
+        WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+        for (HttpRange range : ranges) {
+            long start = range.getRangeStart(length);
+            long end = range.getRangeEnd(length);
+
+            String partHeader = "\r\n--" + boundary + "\r\n" +
+                    HttpHeaders.CONTENT_TYPE + ": " + VIDEO_CONTENT_TYPE + "\r\n" +
+                    HttpHeaders.CONTENT_RANGE + ": bytes " + start + "-" + end + "/" + length + "\r\n\r\n";
+            writeFully(out, partHeader);
+            transfer(channel, start, end - start + 1, out);
+        }
+        writeFully(out, "\r\n--" + boundary + "--\r\n");
+    }
+
+    private void transfer(FileChannel channel, long position, long count, WritableByteChannel out) throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            long sent = channel.transferTo(position, remaining, out);
+            if (sent <= 0) {
+                break;
+            }
+            position += sent;
+            remaining -= sent;
+        }
+    }
+
+    private void writeFully(WritableByteChannel out, String text) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private CachedChannel acquire(Path file) throws IOException {
+        synchronized (openChannels) {
+            CachedChannel cached = openChannels.get(file);
+            if (cached != null && cached.channel.isOpen()) {
+                cached.refs++;
+                return cached;
+            }
+        }
+
+        // Open outside the lock so a slow disk does not block other streams
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+
+        synchronized (openChannels) {
+            CachedChannel cached = openChannels.get(file);
+            if (cached != null && cached.channel.isOpen()) {
+                closeQuietly(channel);
+                cached.refs++;
+                return cached;
+            }
+
+            cached = new CachedChannel(channel);
+            cached.refs = 1;
+            openChannels.put(file, cached);
+
+            Iterator<CachedChannel> eldest = openChannels.values().iterator();
+            while (openChannels.size() > channelCacheSize && eldest.hasNext()) {
+                CachedChannel evicted = eldest.next();
+                eldest.remove();
+                retire(evicted);
+            }
+            return cached;
+        }
+    }
+
+    private void release(CachedChannel cached) {
+        synchronized (openChannels) {
+            cached.refs--;
+            if (cached.retired && cached.refs == 0) {
+                closeQuietly(cached.channel);
+            }
+        }
+    }
+
+    // Must be called while holding the openChannels lock
+    private void retire(CachedChannel cached) {
+        cached.retired = true;
+        if (cached.refs == 0) {
+            closeQuietly(cached.channel);
+        }
+    }
+
+    private void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close video channel: {}", e.getMessage());
+        }
+    }
+
+    private static class CachedChannel {
+        final FileChannel channel;
+        int refs;
+        boolean retired;
+
+        CachedChannel(FileChannel channel) {
+            this.channel = channel;
+        }
+    }
+}
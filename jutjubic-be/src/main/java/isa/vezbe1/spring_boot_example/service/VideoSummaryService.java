@@ -0,0 +1,69 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.dto.VideoDTO;
+import isa.vezbe1.spring_boot_example.repository.VideoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Read model for video listings.
+ * Rows come from the VideoDTO projection queries in VideoRepository (uploader summary and comment count
+ * in the same query), so no Video entity, lazy collection or comment is loaded. This class adds the
+ * tags of a whole page with one more query and the pending view counts.
+ */
+@Service
+public class VideoSummaryService {
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private ViewCounter viewCounter;
+
+    /**
+     * Fills in tags and view counts of projected rows. Always one query, whatever the page size.
+     */
+    public List<VideoDTO> complete(List<VideoDTO> videos) {
+        if (videos.isEmpty()) {
+            return videos;
+        }
+
+        Map<Long, VideoDTO> byId = new HashMap<>();
+        for (VideoDTO video : videos) {
+            byId.put(video.getId(), video);
+        }
+        for (VideoRepository.TagName tag : videoRepository.findTagNamesByVideoIds(byId.keySet())) {
+            byId.get(tag.getVideoId()).getTags().add(tag.getName());
+        }
+
+        viewCounter.overlay(videos);
+        return videos;
+    }
+
+    /**
+     * Loads complete DTOs for the given ids, in the order of the ids; missing videos are skipped.
+     */
+    @Transactional(readOnly = true)
+    public List<VideoDTO> getByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, VideoDTO> byId = videoRepository.findSummariesByIds(ids).stream()
+                .collect(Collectors.toMap(VideoDTO::getId, Function.identity()));
+
+        List<VideoDTO> ordered = ids.stream()
+                .distinct()
+                .map(byId::get)
+                .filter(video -> video != null)
+                .collect(Collectors.toList());
+        return complete(ordered);
+    }
+}
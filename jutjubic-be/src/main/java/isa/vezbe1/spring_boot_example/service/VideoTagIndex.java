@@ -0,0 +1,378 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.model.VideoTag;
+import jakarta.annotation.PreDestroy;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Tag browsing without joins: one compressed bitmap (RoaringBitmap) of videos per tag.
+ *
+ * Videos are numbered in (created_at, id) order when the index is loaded and new uploads get the
+ * next number, so a bitmap walked from its highest bit down yields videos newest first. A query is
+ * AND over the 'all' tags, OR over the 'any' tags and ANDNOT of the 'none' tags, and a page is the
+ * first N bits below the cursor; nothing touches the database. Loaded at startup from
+ * video_tag_mapping and kept current from upload and delete events (applied after commit).
+ */
+@Service
+public class VideoTagIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(VideoTagIndex.class);
+
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private static final String VIDEOS_SQL = "SELECT id, created_at FROM videos ORDER BY created_at, id";
+    private static final String TAGS_SQL = "SELECT id, name FROM video_tags";
+    private static final String MAPPING_SQL = "SELECT video_id, tag_id FROM video_tag_mapping";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock; null until the first load finishes
+    private Index index;
+
+    // Guarded by lock; changes made while the load streams, replayed onto the new index before the swap
+    private List<Consumer<Index>> pendingChanges;
+
+    private final ExecutorService loadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "tag-index-load");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public VideoTagIndex(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return index != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Videos carrying every 'all' tag, at least one 'any' tag and no 'none' tag, newest first.
+     * Tag names are case-insensitive; an unknown 'all' tag matches nothing, unknown 'any' and
+     * 'none' tags are ignored.
+     *
+     * @param after cursor returned as nextCursor by the previous page, or null for the first page
+     */
+    public SearchHits find(Collection<String> all, Collection<String> any, Collection<String> none, String after, int limit) {
+        Position cursor = after != null && !after.isBlank() ? Position.decode(after) : null;
+
+        lock.readLock().lock();
+        try {
+            if (index == null) {
+                throw new IllegalStateException("Tag index is still being loaded");
+            }
+            return index.find(all, any, none, cursor, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void addAfterCommit(Long videoId, Timestamp createdAt, Collection<VideoTag> tags) {
+        List<VideoTag> tagList = new ArrayList<>(tags);
+        afterCommit(target -> {
+            target.addVideo(videoId, createdAt.getTime());
+            for (VideoTag tag : tagList) {
+                target.addTag(tag.getId(), tag.getName());
+                target.tagVideo(videoId, tag.getId());
+            }
+        });
+    }
+
+    public void removeAfterCommit(Long videoId) {
+        afterCommit(target -> target.removeVideo(videoId));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        lock.writeLock().lock();
+        try {
+            if (pendingChanges != null) {
+                return;
+            }
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        loadExecutor.execute(this::load);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loadExecutor.shutdownNow();
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private void afterCommit(Consumer<Index> change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(change);
+                }
+            });
+        } else {
+            apply(change);
+        }
+    }
+
+    private void apply(Consumer<Index> change) {
+        lock.writeLock().lock();
+        try {
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+            if (index != null) {
+                change.accept(index);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void load() {
+        Index fresh = new Index();
+        long started = System.nanoTime();
+
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                stream(VIDEOS_SQL, rs -> fresh.addVideo(rs.getLong(1), rs.getTimestamp(2).getTime()));
+                stream(TAGS_SQL, rs -> fresh.addTag(rs.getLong(1), rs.getString(2)));
+                stream(MAPPING_SQL, rs -> fresh.tagVideo(rs.getLong(1), rs.getLong(2)));
+            });
+        } catch (RuntimeException e) {
+            log.error("Failed to load tag index: {}", e.getMessage());
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            // Every change is idempotent, so replaying one the load already saw is harmless
+            pendingChanges.forEach(change -> change.accept(fresh));
+            pendingChanges = null;
+            fresh.optimize();
+            index = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("Loaded tag index: {} videos, {} tags in {} ms",
+                fresh.live.getCardinality(), fresh.bitmaps.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void stream(String sql, RowCallbackHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            return statement;
+        }, handler);
+    }
+
+    private static String key(String tagName) {
+        return tagName.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Bitmaps hold recency numbers rather than video ids: number n is the n-th video by (created_at, id).
+     * Not thread-safe; guarded by the enclosing lock.
+     */
+    private static class Index {
+        final Map<String, Long> tagIds = new HashMap<>();
+        final Map<Long, RoaringBitmap> bitmaps = new HashMap<>();
+        final Map<Long, Integer> numbers = new HashMap<>();
+        final RoaringBitmap live = new RoaringBitmap();
+        long[] videoIds = new long[1024];
+        long[] createdAt = new long[1024];
+        int size;
+
+        void addVideo(long videoId, long createdAtMillis) {
+            if (numbers.containsKey(videoId)) {
+                return;
+            }
+            if (size == videoIds.length) {
+                videoIds = Arrays.copyOf(videoIds, size << 1);
+                createdAt = Arrays.copyOf(createdAt, size << 1);
+            }
+            videoIds[size] = videoId;
+            createdAt[size] = createdAtMillis;
+            numbers.put(videoId, size);
+            live.add(size);
+            size++;
+        }
+
+        void addTag(long tagId, String name) {
+            tagIds.put(key(name), tagId);
+        }
+
+        void tagVideo(long videoId, long tagId) {
+            Integer number = numbers.get(videoId);
+            if (number != null && live.contains(number)) {
+                bitmaps.computeIfAbsent(tagId, id -> new RoaringBitmap()).add(number);
+            }
+        }
+
+        void removeVideo(long videoId) {
+            Integer number = numbers.get(videoId);
+            if (number == null || !live.contains(number)) {
+                return;
+            }
+            live.remove(number);
+            for (RoaringBitmap bitmap : bitmaps.values()) {
+                bitmap.remove(number);
+            }
+        }
+
+        void optimize() {
+            // Turns long runs of consecutive numbers into run containers
+            live.runOptimize();
+            bitmaps.values().forEach(RoaringBitmap::runOptimize);
+        }
+
+        SearchHits find(Collection<String> all, Collection<String> any, Collection<String> none, Position cursor, int limit) {
+            RoaringBitmap result = live.clone();
+
+            for (String name : all) {
+                RoaringBitmap bitmap = bitmap(name);
+                if (bitmap == null) {
+                    return SearchHits.empty();
+                }
+                result.and(bitmap);
+            }
+
+            if (!any.isEmpty()) {
+                RoaringBitmap union = new RoaringBitmap();
+                for (String name : any) {
+                    RoaringBitmap bitmap = bitmap(name);
+                    if (bitmap != null) {
+                        union.or(bitmap);
+                    }
+                }
+                result.and(union);
+            }
+
+            for (String name : none) {
+                RoaringBitmap bitmap = bitmap(name);
+                if (bitmap != null) {
+                    result.andNot(bitmap);
+                }
+            }
+
+            long totalHits = result.getLongCardinality();
+            if (cursor != null) {
+                result.remove((long) numberAtOrAfter(cursor), (long) size);
+            }
+
+            List<Long> ids = new ArrayList<>(limit);
+            IntIterator newestFirst = result.getReverseIntIterator();
+            int last = -1;
+            while (newestFirst.hasNext() && ids.size() < limit) {
+                last = newestFirst.next();
+                ids.add(videoIds[last]);
+            }
+
+            String nextCursor = newestFirst.hasNext() ? new Position(createdAt[last], videoIds[last]).encode() : null;
+            return new SearchHits(ids, nextCursor, totalHits);
+        }
+
+        private RoaringBitmap bitmap(String name) {
+            Long tagId = tagIds.get(key(name));
+            return tagId == null ? null : bitmaps.getOrDefault(tagId, new RoaringBitmap());
+        }
+
+        /**
+         * First number whose (created_at, id) is not older than the cursor. Numbers follow
+         * (created_at, id) order, so this is a binary search; the cursor video itself is excluded.
+         */
+        private int numberAtOrAfter(Position cursor) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                boolean older = createdAt[mid] < cursor.createdAt
+                        || (createdAt[mid] == cursor.createdAt && videoIds[mid] < cursor.videoId);
+                if (older) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    /**
+     * (created_at, id) of the last video on a page, as base64url. Stays valid across reloads,
+     * unlike the internal numbers.
+     */
+    private static class Position {
+        final long createdAt;
+        final long videoId;
+
+        Position(long createdAt, long videoId) {
+            this.createdAt = createdAt;
+            this.videoId = videoId;
+        }
+
+        String encode() {
+            String raw = createdAt + "," + videoId;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Position decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int comma = raw.indexOf(',');
+                return new Position(Long.parseLong(raw.substring(0, comma)), Long.parseLong(raw.substring(comma + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid tag filter cursor");
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind view counter for a single node.
+ * Views are accumulated in memory with one LongAdder per video (no locks, no DB round trip per view)
+ * and flushed periodically as one UPDATE ... FROM (VALUES ...) statement per batch.
+ */
+@Service
+@ConditionalOnProperty(name = "views.mode", havingValue = "local", matchIfMissing = true)
+public class ViewCountAggregator implements ViewCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(ViewCountAggregator.class);
+
+    private static final Flush NO_FLUSH = new Flush(0, Long.MIN_VALUE);
+
+    @Autowired
+    private ViewCountBatchWriter viewCountBatchWriter;
+
+    private final ConcurrentHashMap<Long, Counter> counters = new ConcurrentHashMap<>();
+
+    // Counters removed as idle in the previous flush; drained once more in case a view raced the removal
+    private List<Counter> retired = new ArrayList<>();
+
+    @Override
+    public void recordView(Long videoId) {
+        counters.computeIfAbsent(videoId, id -> new Counter()).pending.increment();
+    }
+
+    /**
+     * Adds the views not yet visible in the given database value.
+     * A flush that is in progress, or committed after the caller read the row, is still counted,
+     * so the number never goes down between reads.
+     */
+    @Override
+    public long overlay(Long videoId, Long dbViewCount) {
+        long base = dbViewCount != null ? dbViewCount : 0L;
+        Counter counter = counters.get(videoId);
+        if (counter == null) {
+            return base;
+        }
+
+        Flush lastFlush = counter.lastFlush;
+        long inFlight = base < lastFlush.valueAfter ? lastFlush.delta : 0;
+        return base + inFlight + counter.pending.sum();
+    }
+
+    @Scheduled(fixedDelayString = "${views.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        Map<Long, Counter> batch = new HashMap<>();
+        Map<Long, Long> deltas = new HashMap<>();
+
+        for (Counter counter : retired) {
+            // Residual views are moved back into a live counter and flushed next time
+            long residual = counter.pending.sumThenReset();
+            if (residual > 0) {
+                counters.computeIfAbsent(counter.videoId, id -> new Counter()).pending.add(residual);
+            }
+        }
+        retired = new ArrayList<>();
+
+        for (Map.Entry<Long, Counter> entry : counters.entrySet()) {
+            Counter counter = entry.getValue();
+            long delta = counter.pending.sumThenReset();
+            if (delta > 0) {
+                // Until the UPDATE commits and reports the new value, readers keep adding this delta
+                counter.lastFlush = new Flush(delta, Long.MAX_VALUE);
+                batch.put(entry.getKey(), counter);
+                deltas.put(entry.getKey(), delta);
+            } else if (counter.idleFlushes++ > 0 && counters.remove(entry.getKey(), counter)) {
+                counter.videoId = entry.getKey();
+                retired.add(counter);
+            }
+        }
+
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        try {
+            // New values are recorded before commit, so a reader that sees them never adds the delta twice
+            viewCountBatchWriter.addViews(deltas, (videoId, viewCount) -> {
+                Counter counter = batch.get(videoId);
+                counter.lastFlush = new Flush(counter.lastFlush.delta, viewCount);
+            });
+        } catch (RuntimeException e) {
+            // Put the views back so they are retried on the next flush
+            log.error("Failed to flush view counts for {} videos: {}", deltas.size(), e.getMessage());
+            for (Map.Entry<Long, Long> entry : deltas.entrySet()) {
+                Counter counter = batch.get(entry.getKey());
+                counter.lastFlush = NO_FLUSH;
+                counter.pending.add(entry.getValue());
+            }
+            return;
+        }
+
+        for (Counter counter : batch.values()) {
+            counter.idleFlushes = 0;
+        }
+        log.debug("Flushed view counts for {} videos", deltas.size());
+    }
+
+    @PreDestroy
+    public void drain() {
+        flush();
+        // Second pass picks up residual views from counters retired in the first one
+        flush();
+    }
+
+    private static class Counter {
+        final LongAdder pending = new LongAdder();
+        volatile Flush lastFlush = NO_FLUSH;
+        int idleFlushes;
+        Long videoId;
+    }
+
+    /**
+     * The last delta written for a video and the view_count the UPDATE produced.
+     * Readers whose row value is below valueAfter have not seen this delta yet.
+     */
+    private static class Flush {
+        final long delta;
+        final long valueAfter;
+
+        Flush(long delta, long valueAfter) {
+            this.delta = delta;
+            this.valueAfter = valueAfter;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Applies accumulated view deltas to videos.view_count with UPDATE ... FROM (VALUES ...),
+ * one statement per 1000 videos, all in a single transaction.
+ */
+@Service
+public class ViewCountBatchWriter {
+
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Same as addViews, but applies the batch at most once: the batch id is recorded in the same
+     * transaction, and a batch that was already recorded is skipped.
+     *
+     * @return false when the batch had already been applied
+     */
+    @Transactional
+    public boolean addViewsOnce(String batchId, Map<Long, Long> deltas) {
+        int recorded = jdbcTemplate.update("INSERT INTO applied_view_batches (batch_id, applied_at) VALUES (?, NOW()) " +
+                "ON CONFLICT (batch_id) DO NOTHING", batchId);
+        if (recorded == 0) {
+            return false;
+        }
+        addViews(deltas, (videoId, viewCount) -> { });
+        return true;
+    }
+
+    /**
+     * Forgets batch markers older than the given age; by then no Redis copy of the batch is left.
+     */
+    @Transactional
+    public int pruneAppliedBatches(Duration olderThan) {
+        return jdbcTemplate.update("DELETE FROM applied_view_batches WHERE applied_at < ?",
+                Timestamp.from(Instant.now().minus(olderThan)));
+    }
+
+    /**
+     * Reads view_count of the given videos together with which of the given batches are already applied.
+     * One statement, so both come from the same snapshot: a batch either is in view_count and marked, or neither.
+     */
+    @Transactional(readOnly = true)
+    public StoredViews readStoredViews(Collection<Long> videoIds, Collection<String> batchIds) {
+        StringBuilder sql = new StringBuilder("SELECT id, view_count, CAST(NULL AS VARCHAR) FROM videos WHERE id IN (");
+        List<Object> args = new ArrayList<>(videoIds);
+        appendPlaceholders(sql, videoIds.size());
+        if (!batchIds.isEmpty()) {
+            sql.append(" UNION ALL SELECT NULL, NULL, batch_id FROM applied_view_batches WHERE batch_id IN (");
+            args.addAll(batchIds);
+            appendPlaceholders(sql, batchIds.size());
+        }
+
+        Map<Long, Long> viewCounts = new HashMap<>();
+        Set<String> appliedBatches = new HashSet<>();
+        jdbcTemplate.query(sql.toString(), rs -> {
+            String batchId = rs.getString(3);
+            if (batchId != null) {
+                appliedBatches.add(batchId);
+            } else {
+                viewCounts.put(rs.getLong(1), rs.getLong(2));
+            }
+        }, args.toArray());
+        return new StoredViews(viewCounts, appliedBatches);
+    }
+
+    /**
+     * @param onUpdated receives (videoId, new view_count) for every updated row, before the transaction commits
+     */
+    @Transactional
+    public void addViews(Map<Long, Long> deltas, BiConsumer<Long, Long> onUpdated) {
+        List<Map.Entry<Long, Long>> entries = new ArrayList<>(deltas.entrySet());
+
+        for (int from = 0; from < entries.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<Map.Entry<Long, Long>> chunk = entries.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, entries.size()));
+
+            StringBuilder sql = new StringBuilder("UPDATE videos AS v SET view_count = v.view_count + d.delta FROM (VALUES ");
+            Object[] args = new Object[chunk.size() * 2];
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "" : ", ").append("(CAST(? AS BIGINT), CAST(? AS BIGINT))");
+                args[i * 2] = chunk.get(i).getKey();
+                args[i * 2 + 1] = chunk.get(i).getValue();
+            }
+            sql.append(") AS d(id, delta) WHERE v.id = d.id RETURNING v.id, v.view_count");
+
+            jdbcTemplate.query(sql.toString(), rs -> {
+                onUpdated.accept(rs.getLong(1), rs.getLong(2));
+            }, args);
+        }
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private void appendPlaceholders(StringBuilder sql, int count) {
+        for (int i = 0; i < count; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+    }
+
+    public record StoredViews(Map<Long, Long> viewCounts, Set<String> appliedBatches) {
+    }
+}
@@ -0,0 +1,26 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.dto.VideoDTO;
+
+import java.util.List;
+
+/**
+ * Counts video views. Implementations buffer views and write them to videos.view_count later,
+ * so reads combine the stored value with the views still pending.
+ * Selected with the views.mode property: "local" (default) or "redis".
+ */
+public interface ViewCounter {
+
+    void recordView(Long videoId);
+
+    /**
+     * @return the stored view count plus the views not yet written to the database
+     */
+    long overlay(Long videoId, Long dbViewCount);
+
+    default void overlay(List<VideoDTO> videos) {
+        for (VideoDTO video : videos) {
+            video.setViewCount(overlay(video.getId(), video.getViewCount()));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package isa.vezbe1.spring_boot_example.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public class TextNormalizer {
+
+    // Serbian Cyrillic, in alphabet order, and its folded Latin form (diacritics already removed)
+    private static final String CYRILLIC = "абвгдђежзијклљмнњопрстћуфхцчџш";
+    private static final String[] LATIN = {
+            "a", "b", "v", "g", "d", "dj", "e", "z", "z", "i", "j", "k", "l", "lj", "m",
+            "n", "nj", "o", "p", "r", "s", "t", "c", "u", "f", "h", "c", "c", "dz", "s"
+    };
+
+    /**
+     * Lowercase, transliterate Serbian Cyrillic and strip diacritics,
+     * so "Čačak", "cacak" and "Чачак" all become "cacak"
+     *
+     * @param text Text to fold, may be null
+     * @return Folded text (empty string for null)
+     */
+    public static String fold(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+
+        String lower = text.toLowerCase(Locale.ROOT);
+        StringBuilder folded = new StringBuilder(lower.length());
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            int cyrillic = CYRILLIC.indexOf(c);
+            if (cyrillic >= 0) {
+                folded.append(LATIN[cyrillic]);
+            } else if (c == 'đ') {
+                // đ has no decomposition, so NFD below would leave it as is
+                folded.append("dj");
+            } else {
+                folded.append(c);
+            }
+        }
+
+        // č, ć, š, ž -> c, c, s, z
+        return Normalizer.normalize(folded, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "");
+    }
+
+    /**
+     * Split text into folded word tokens (letters and digits)
+     *
+     * @param text Text to tokenize, may be null
+     * @return Tokens in order of appearance, duplicates kept
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        String folded = fold(text);
+
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
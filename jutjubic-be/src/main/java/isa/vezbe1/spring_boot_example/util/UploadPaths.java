@@ -0,0 +1,61 @@
+package isa.vezbe1.spring_boot_example.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+@Component
+public class UploadPaths {
+
+    public static final String PUBLIC_PREFIX = "/uploads/";
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    /**
+     * Resolve a public path such as /uploads/videos/a.mp4 to its file under the upload directory
+     *
+     * @param publicPath Path as stored on the video, starting with /uploads/
+     * @return Absolute, normalized file path inside the upload directory
+     * @throws IllegalArgumentException if the path is not an upload path or points outside the upload directory
+     */
+    public Path resolve(String publicPath) {
+        if (!isUploadPath(publicPath)) {
+            throw new IllegalArgumentException("Not an upload path: " + publicPath);
+        }
+
+        Path root = root();
+        Path file = root.resolve(publicPath.substring(PUBLIC_PREFIX.length())).normalize();
+        if (!file.startsWith(root)) {
+            throw new IllegalArgumentException("Path escapes the upload directory: " + publicPath);
+        }
+        return file;
+    }
+
+    /**
+     * @return Absolute, normalized upload directory
+     */
+    public Path root() {
+        return Paths.get(uploadDir).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Check that a path is a public upload path with no parent segments
+     *
+     * @param publicPath Path to check, may be null
+     * @return true for /uploads/... paths without ".." or backslashes
+     */
+    public static boolean isUploadPath(String publicPath) {
+        if (publicPath == null || !publicPath.startsWith(PUBLIC_PREFIX) || publicPath.indexOf('\\') >= 0) {
+            return false;
+        }
+        for (String segment : publicPath.split("/")) {
+            if (segment.equals("..")) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -43,6 +43,11 @@ INSERT INTO video_tag_mapping (video_id, tag_id) VALUES (3, 8);
 INSERT INTO video_tag_mapping (video_id, tag_id) VALUES (4, 10);
 INSERT INTO video_tag_mapping (video_id, tag_id) VALUES (4, 3);
 INSERT INTO video_tag_mapping (video_id, tag_id) VALUES (5, 3);
+-- Recording locations (video 4 has none)
+UPDATE videos SET latitude = 45.2671, longitude = 19.8335 WHERE id = 1;
+UPDATE videos SET latitude = 45.2551, longitude = 19.8451 WHERE id = 2;
+UPDATE videos SET latitude = 44.8125, longitude = 20.4612 WHERE id = 3;
+UPDATE videos SET latitude = 43.3209, longitude = 21.8958 WHERE id = 5;
 -- Comments
 INSERT INTO comments (id, text, author_id, video_id, created_at) VALUES (1, 'Great tutorial! Very clear explanations.', 3, 1, NOW() - INTERVAL '4 days');
 INSERT INTO comments (id, text, author_id, video_id, created_at) VALUES (2, 'This helped me finally understand Spring Boot. Thanks!', 1, 1, NOW() - INTERVAL '3 days');
@@ -55,6 +60,9 @@ INSERT INTO comments (id, text, author_id, video_id, created_at) VALUES (8, 'Thi
 INSERT INTO comments (id, text, author_id, video_id, created_at) VALUES (9, 'Bookmarking this for reference.', 3, 4, NOW() - INTERVAL '5 days');
 INSERT INTO comments (id, text, author_id, video_id, created_at) VALUES (10, 'Would love to see more content like this.', 2, 4, NOW() - INTERVAL '4 days');
 
+-- Denormalized comment counts for the seeded comments
+UPDATE videos v SET comment_count = (SELECT COUNT(*) FROM comments c WHERE c.video_id = v.id);
+
 SELECT setval('users_id_seq', (SELECT MAX(id) FROM users));
 SELECT setval('videos_id_seq', (SELECT MAX(id) FROM videos));
 SELECT setval('comments_id_seq', (SELECT MAX(id) FROM comments));
@@ -0,0 +1,72 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.dto.AutocompleteSuggestionDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class AutocompleteServiceTest {
+
+    @Autowired
+    private AutocompleteService autocompleteService;
+
+    @BeforeEach
+    public void buildDictionary() {
+        autocompleteService.rebuild();
+    }
+
+    @Test
+    public void testPrefixMatchesTitlesAndTags() {
+        System.out.println("========================================");
+        System.out.println("TEST: Autocomplete over titles and tags");
+        System.out.println("========================================");
+
+        assertTrue(autocompleteService.isReady());
+
+        List<AutocompleteSuggestionDTO> java = autocompleteService.suggest("Jav", 10);
+        System.out.println("'Jav' -> " + java.stream().map(AutocompleteSuggestionDTO::getText).toList());
+        assertTrue(java.stream().anyMatch(s -> "video".equals(s.getType()) && s.getId() == 1L));
+        assertTrue(java.stream().anyMatch(s -> "tag".equals(s.getType()) && "Java".equals(s.getText())));
+
+        // Any word of the title, case and diacritics folded
+        List<AutocompleteSuggestionDTO> boot = autocompleteService.suggest("BÓOT", 10);
+        assertTrue(boot.stream().anyMatch(s -> s.getId() == 1L && "video".equals(s.getType())));
+
+        // Two-letter prefixes come from the precomputed table
+        List<AutocompleteSuggestionDTO> re = autocompleteService.suggest("re", 10);
+        assertTrue(re.stream().anyMatch(s -> s.getId() == 2L && "video".equals(s.getType())));
+
+        assertTrue(autocompleteService.suggest("zzqxv", 10).isEmpty());
+        assertTrue(autocompleteService.suggest("   ", 10).isEmpty());
+        assertEquals(1, autocompleteService.suggest("j", 1).size());
+    }
+
+    @Test
+    public void testLookupLatency() {
+        String[] prefixes = {"j", "ja", "java s", "rea", "post", "git", "full st", "tu", "be", "20"};
+        int rounds = 20_000;
+        long[] nanos = new long[rounds * prefixes.length];
+
+        int n = 0;
+        for (int round = 0; round < rounds; round++) {
+            for (String prefix : prefixes) {
+                long started = System.nanoTime();
+                autocompleteService.suggest(prefix, 10);
+                nanos[n++] = System.nanoTime() - started;
+            }
+        }
+
+        Arrays.sort(nanos);
+        long p50 = nanos[nanos.length / 2];
+        long p99 = nanos[(int) (nanos.length * 0.99)];
+        System.out.printf("Autocomplete latency: p50 %d us, p99 %d us%n", p50 / 1000, p99 / 1000);
+        assertTrue(p99 < 1_000_000, "p99 should stay under 1 ms");
+    }
+}
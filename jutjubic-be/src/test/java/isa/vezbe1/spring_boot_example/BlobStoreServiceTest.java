@@ -0,0 +1,169 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.model.ContentBlob;
+import isa.vezbe1.spring_boot_example.repository.ContentBlobRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class BlobStoreServiceTest {
+
+    @Autowired
+    private BlobStoreService blobStoreService;
+
+    @Autowired
+    private ContentBlobRepository contentBlobRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    @Test
+    public void testDuplicateContentSharesOneBlob() throws Exception {
+        System.out.println("========================================");
+        System.out.println("TEST: Content-addressed blob dedup");
+        System.out.println("========================================");
+
+        byte[] content = ("thumbnail " + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+        String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+
+        BlobStoreService.StagedBlob png = blobStoreService.stage(file(content), "thumbnails", ".png");
+        assertEquals(hash, png.hash(), "Hash computed while copying should match the content");
+        assertEquals(content.length, png.size());
+        String first = store(png);
+
+        // Same bytes under another extension reuse the stored path instead of writing a second file
+        String second = store(blobStoreService.stage(file(content), "thumbnails", ".jpg"));
+        System.out.println("Stored " + first + " and " + second);
+
+        assertEquals(first, second);
+        assertEquals(Integer.valueOf(2), contentBlobRepository.findById(hash).orElseThrow().getRefCount());
+        assertFalse(Files.exists(Paths.get(uploadDir, "thumbnails", hash + ".jpg")));
+
+        Path stored = Paths.get(uploadDir, first.substring("/uploads/".length()));
+        assertArrayEquals(content, Files.readAllBytes(stored));
+
+        release(first);
+        ContentBlob blob = contentBlobRepository.findById(hash).orElseThrow();
+        assertEquals(Integer.valueOf(1), blob.getRefCount());
+        assertTrue(Files.exists(stored), "File stays while a reference remains");
+
+        release(second);
+        assertFalse(contentBlobRepository.existsById(hash));
+        assertFalse(Files.exists(stored), "File is deleted after the last reference is released");
+    }
+
+    @Test
+    public void testRolledBackStoreLeavesNothingBehind() throws Exception {
+        byte[] content = ("rollback " + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+        BlobStoreService.StagedBlob staged = blobStoreService.stage(file(content), "thumbnails", ".png");
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            try {
+                blobStoreService.store(staged);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            status.setRollbackOnly();
+        });
+
+        assertFalse(contentBlobRepository.existsById(staged.hash()));
+        assertFalse(Files.exists(Paths.get(uploadDir, "thumbnails", staged.hash() + ".png")));
+    }
+
+    @Test
+    public void testReleaseDoesNotDeleteFileOfConcurrentReupload() throws Exception {
+        System.out.println("========================================");
+        System.out.println("TEST: Blob release racing a re-upload of the same content");
+        System.out.println("========================================");
+
+        byte[] content = ("reupload " + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+        String path = store(blobStoreService.stage(file(content), "thumbnails", ".png"));
+        Path stored = Paths.get(uploadDir, path.substring("/uploads/".length()));
+        BlobStoreService.StagedBlob again = blobStoreService.stage(file(content), "thumbnails", ".png");
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Future<String> reupload;
+        try {
+            // The last reference is dropped, but the delete has not committed yet
+            reupload = transaction.execute(status -> {
+                blobStoreService.release(path);
+
+                // The re-upload waits for the deleted row, then inserts it again and moves its file
+                // into place, and is slow to commit
+                Future<String> pending = executor.submit(() -> new TransactionTemplate(transactionManager).execute(inner -> {
+                    try {
+                        String reuploaded = blobStoreService.store(again);
+                        Thread.sleep(500);
+                        return reuploaded;
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }));
+                sleep(200);
+                return pending;
+            });
+            assertEquals(path, reupload.get());
+        } finally {
+            executor.shutdown();
+        }
+
+        ContentBlob blob = contentBlobRepository.findById(again.hash()).orElseThrow();
+        assertEquals(Integer.valueOf(1), blob.getRefCount());
+        assertTrue(Files.exists(stored), "File of the re-uploaded blob must survive the release cleanup");
+        assertArrayEquals(content, Files.readAllBytes(stored));
+
+        release(path);
+        assertFalse(Files.exists(stored));
+    }
+
+    private String store(BlobStoreService.StagedBlob staged) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        return transaction.execute(status -> {
+            try {
+                return blobStoreService.store(staged);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    private void release(String publicPath) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> blobStoreService.release(publicPath));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static MockMultipartFile file(byte[] content) {
+        return new MockMultipartFile("thumbnail", "thumbnail.png", "image/png", content);
+    }
+}
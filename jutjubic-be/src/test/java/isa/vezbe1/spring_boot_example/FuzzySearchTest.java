@@ -0,0 +1,44 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.dto.VideoSearchResultDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class FuzzySearchTest {
+
+    @Autowired
+    private TrigramFuzzySearch trigramFuzzySearch;
+
+    @Autowired
+    private VideoService videoService;
+
+    @Test
+    public void testMisspelledQueryFindsVideo() {
+        System.out.println("========================================");
+        System.out.println("TEST: Typo-tolerant trigram search");
+        System.out.println("========================================");
+
+        assertTrue(trigramFuzzySearch.isAvailable(), "pg_trgm should be set up at startup");
+
+        SearchHits hits = trigramFuzzySearch.search("spirng boot", null, 10);
+        System.out.println("'spirng boot' -> " + hits.getVideoIds());
+
+        assertFalse(hits.getVideoIds().isEmpty());
+        assertEquals(1L, hits.getVideoIds().get(0));
+        assertTrue(trigramFuzzySearch.search("zzqxv", null, 10).getVideoIds().isEmpty(),
+                "Queries below the similarity cutoff should find nothing");
+    }
+
+    @Test
+    public void testEmptySearchFallsBackToFuzzy() {
+        VideoSearchResultDTO results = videoService.searchVideos("like", "Postgrse", null, 10);
+
+        System.out.println("'Postgrse' answered by " + results.getMode());
+        assertEquals("fuzzy", results.getMode());
+        assertEquals(3L, results.getVideos().get(0).getId());
+    }
+}
@@ -0,0 +1,86 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.dto.CreateVideoDTO;
+import isa.vezbe1.spring_boot_example.dto.MapClusterDTO;
+import isa.vezbe1.spring_boot_example.dto.VideoDTO;
+import isa.vezbe1.spring_boot_example.model.User;
+import isa.vezbe1.spring_boot_example.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class GeoTileIndexTest {
+
+    // Roughly Serbia
+    private static final double MIN_LAT = 42.0;
+    private static final double MIN_LON = 18.5;
+    private static final double MAX_LAT = 46.5;
+    private static final double MAX_LON = 23.5;
+
+    @Autowired
+    private GeoTileIndex geoTileIndex;
+
+    @Autowired
+    private VideoService videoService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    public void waitForLoad() throws InterruptedException {
+        for (int i = 0; i < 100 && !geoTileIndex.isReady(); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(geoTileIndex.isReady(), "Map index should load at startup");
+    }
+
+    @Test
+    public void testClustersPerZoomLevel() {
+        System.out.println("========================================");
+        System.out.println("TEST: Map tile clusters");
+        System.out.println("========================================");
+
+        // Zoomed out, the seeded videos in Novi Sad, Belgrade and Nis share one tile
+        List<MapClusterDTO> country = geoTileIndex.clusters(MIN_LAT, MIN_LON, MAX_LAT, MAX_LON, 4);
+        assertEquals(4L, total(country));
+
+        // Zoomed in, the two Novi Sad videos stay together and the other cities split off
+        List<MapClusterDTO> cities = geoTileIndex.clusters(MIN_LAT, MIN_LON, MAX_LAT, MAX_LON, 10);
+        System.out.println("Zoom 10 clusters: " + cities.size());
+        assertEquals(4L, total(cities));
+        assertTrue(cities.stream().anyMatch(cluster -> cluster.getCount() == 2L
+                && Math.abs(cluster.getLatitude() - 45.2611) < 0.001));
+
+        assertThrows(IllegalArgumentException.class, () -> geoTileIndex.clusters(-80, -179, 80, 179, 16),
+                "The whole world at street zoom is too many tiles");
+        assertThrows(IllegalArgumentException.class, () -> geoTileIndex.clusters(MIN_LAT, MIN_LON, MAX_LAT, MAX_LON, 99));
+    }
+
+    @Test
+    public void testUploadAndDeleteUpdateTiles() {
+        User uploader = userRepository.findByEmail("darjan@jutjubic.com")
+                .orElseThrow(() -> new RuntimeException("Test user not found. Make sure import.sql is loaded."));
+        long before = total(geoTileIndex.clusters(MIN_LAT, MIN_LON, MAX_LAT, MAX_LON, 6));
+
+        CreateVideoDTO dto = new CreateVideoDTO("Map test", "Recorded in Subotica", "/uploads/thumbnails/none.png",
+                "/uploads/videos/none.mp4", 1.0, List.of());
+        dto.setLatitude(46.1003);
+        dto.setLongitude(19.6656);
+        VideoDTO video = videoService.createVideo(dto, uploader);
+
+        assertEquals(before + 1, total(geoTileIndex.clusters(MIN_LAT, MIN_LON, MAX_LAT, MAX_LON, 6)));
+
+        videoService.deleteVideo(video.getId(), uploader);
+        assertEquals(before, total(geoTileIndex.clusters(MIN_LAT, MIN_LON, MAX_LAT, MAX_LON, 6)));
+    }
+
+    private static long total(List<MapClusterDTO> clusters) {
+        return clusters.stream().mapToLong(MapClusterDTO::getCount).sum();
+    }
+}
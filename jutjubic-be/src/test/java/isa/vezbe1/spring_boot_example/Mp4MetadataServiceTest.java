@@ -0,0 +1,115 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class Mp4MetadataServiceTest {
+
+    @Autowired
+    private Mp4MetadataService mp4MetadataService;
+
+    @Test
+    public void testInspect() throws Exception {
+        System.out.println("========================================");
+        System.out.println("TEST: MP4 metadata extraction");
+        System.out.println("========================================");
+
+        Path file = Files.createTempFile("mp4-inspect-", ".mp4");
+        try {
+            Mp4TestFiles.write(file, true);
+            Mp4MetadataService.MediaInfo info = mp4MetadataService.inspect(file);
+            System.out.println("Parsed: " + info);
+
+            assertEquals(Long.valueOf(Mp4TestFiles.DURATION_MS), info.durationMs());
+            assertEquals(Integer.valueOf(Mp4TestFiles.WIDTH), info.width());
+            assertEquals(Integer.valueOf(Mp4TestFiles.HEIGHT), info.height());
+            assertEquals("avc1", info.videoCodec());
+            assertEquals(Integer.valueOf((int) (Files.size(file) * 8 / Mp4TestFiles.DURATION_MS)), info.bitrateKbps());
+            assertTrue(info.fastStart());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testMoovIsMovedToFront() throws Exception {
+        System.out.println("========================================");
+        System.out.println("TEST: MP4 fast-start relocation");
+        System.out.println("========================================");
+
+        Path file = Files.createTempFile("mp4-faststart-", ".mp4");
+        try {
+            Mp4TestFiles.write(file, false);
+            long size = Files.size(file);
+            assertFalse(mp4MetadataService.inspect(file).fastStart());
+
+            assertTrue(mp4MetadataService.makeFastStart(file), "Trailing moov should be relocated");
+
+            Mp4MetadataService.MediaInfo info = mp4MetadataService.inspect(file);
+            assertTrue(info.fastStart());
+            assertEquals(Long.valueOf(Mp4TestFiles.DURATION_MS), info.durationMs());
+            assertEquals(size, Files.size(file), "Relocation only reorders boxes");
+
+            // Shifted chunk offsets must still point at the chunks
+            byte[] bytes = Files.readAllBytes(file);
+            long[] offsets = Mp4TestFiles.chunkOffsets(bytes);
+            for (int i = 0; i < offsets.length; i++) {
+                assertEquals(Mp4TestFiles.CHUNK_MARKERS[i], bytes[(int) offsets[i]], "Chunk " + i);
+            }
+
+            // Already fast-start: left alone
+            assertFalse(mp4MetadataService.makeFastStart(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testRejectsNonMp4() throws Exception {
+        Path file = Files.createTempFile("mp4-invalid-", ".mp4");
+        try {
+            Files.write(file, new byte[4096]);
+            assertThrows(IllegalArgumentException.class, () -> mp4MetadataService.inspect(file));
+            assertFalse(mp4MetadataService.makeFastStart(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testRejectsCorruptMoov() throws Exception {
+        System.out.println("========================================");
+        System.out.println("TEST: MP4 with truncated boxes inside moov");
+        System.out.println("========================================");
+
+        for (String type : new String[]{"mvhd", "hdlr"}) {
+            Path file = Files.createTempFile("mp4-corrupt-", ".mp4");
+            try {
+                Mp4TestFiles.writeWithShortBox(file, type);
+                IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                        () -> mp4MetadataService.inspect(file), "Short '" + type + "' box");
+                System.out.println(type + ": " + e.getMessage());
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+
+        // Chunk offsets are only read when relocating moov
+        Path file = Files.createTempFile("mp4-corrupt-", ".mp4");
+        try {
+            Mp4TestFiles.writeWithShortBox(file, "stco");
+            byte[] original = Files.readAllBytes(file);
+            assertThrows(IllegalArgumentException.class, () -> mp4MetadataService.makeFastStart(file));
+            assertArrayEquals(original, Files.readAllBytes(file), "A rejected file is left untouched");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Builds minimal MP4 files for tests: ftyp, one mdat with two chunks and a moov describing a
+ * single 640x360 avc1 track of 10 seconds. Chunk i starts with the byte CHUNK_MARKERS[i].
+ */
+final class Mp4TestFiles {
+
+    static final int WIDTH = 640;
+    static final int HEIGHT = 360;
+    static final long DURATION_MS = 10_000;
+    static final byte[] CHUNK_MARKERS = {0x11, 0x22};
+
+    private static final int CHUNK_SIZE = 2048;
+
+    private Mp4TestFiles() {
+    }
+
+    static void write(Path file, boolean moovFirst) throws IOException {
+        write(file, moovFirst, null);
+    }
+
+    /**
+     * Writes a file with a trailing moov whose box of the given type keeps only 4 payload bytes,
+     * while every box size stays consistent.
+     */
+    static void writeWithShortBox(Path file, String type) throws IOException {
+        write(file, false, type);
+    }
+
+    private static void write(Path file, boolean moovFirst, String shortBox) throws IOException {
+        byte[] ftyp = box("ftyp", ascii("isom"), ints(0x200), ascii("isom"));
+        byte[] mdatPayload = new byte[CHUNK_SIZE * CHUNK_MARKERS.length];
+        for (int i = 0; i < CHUNK_MARKERS.length; i++) {
+            mdatPayload[i * CHUNK_SIZE] = CHUNK_MARKERS[i];
+        }
+        byte[] mdat = box("mdat", mdatPayload);
+
+        // moov has the same size whatever the offsets are, so build it once to learn its size
+        int moovSize = moov(0, shortBox).length;
+        long mdatPayloadStart = ftyp.length + (moovFirst ? moovSize : 0) + 8;
+        byte[] moov = moov(mdatPayloadStart, shortBox);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(ftyp);
+        if (moovFirst) {
+            out.write(moov);
+            out.write(mdat);
+        } else {
+            out.write(mdat);
+            out.write(moov);
+        }
+        Files.write(file, out.toByteArray());
+    }
+
+    /**
+     * Chunk offsets from the file's stco box.
+     */
+    static long[] chunkOffsets(byte[] file) {
+        String text = new String(file, StandardCharsets.ISO_8859_1);
+        int stco = text.indexOf("stco");
+        ByteBuffer buffer = ByteBuffer.wrap(file);
+        int count = buffer.getInt(stco + 8);
+        long[] offsets = new long[count];
+        for (int i = 0; i < count; i++) {
+            offsets[i] = buffer.getInt(stco + 12 + i * 4) & 0xFFFFFFFFL;
+        }
+        return offsets;
+    }
+
+    private static byte[] moov(long mdatPayloadStart, String shortBox) {
+        byte[] mvhd = leaf("mvhd", shortBox, ints(0, 0, 0, 1000, (int) DURATION_MS), new byte[80]);
+        byte[] tkhd = box("tkhd", new byte[76], ints(WIDTH << 16, HEIGHT << 16));
+        byte[] mdhd = box("mdhd", ints(0, 0, 0, 1000, (int) DURATION_MS, 0));
+        byte[] hdlr = leaf("hdlr", shortBox, ints(0, 0), ascii("vide"), new byte[13]);
+        byte[] avc1 = box("avc1", new byte[24], shorts(WIDTH, HEIGHT), new byte[50]);
+        byte[] stsd = box("stsd", ints(0, 1), avc1);
+        byte[] stco = leaf("stco", shortBox, ints(0, CHUNK_MARKERS.length,
+                (int) mdatPayloadStart, (int) mdatPayloadStart + CHUNK_SIZE));
+        byte[] stbl = box("stbl", stsd, stco);
+        byte[] mdia = box("mdia", mdhd, hdlr, box("minf", stbl));
+        return box("moov", mvhd, box("trak", tkhd, mdia));
+    }
+
+    private static byte[] leaf(String type, String shortBox, byte[]... parts) {
+        byte[] box = box(type, parts);
+        if (!type.equals(shortBox)) {
+            return box;
+        }
+        byte[] truncated = new byte[12];
+        ByteBuffer.wrap(truncated).putInt(truncated.length).put(ascii(type)).put(box, 8, 4);
+        return truncated;
+    }
+
+    private static byte[] box(String type, byte[]... parts) {
+        int size = 8;
+        for (byte[] part : parts) {
+            size += part.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(size).put(ascii(type));
+        for (byte[] part : parts) {
+            buffer.put(part);
+        }
+        return buffer.array();
+    }
+
+    private static byte[] ints(int... values) {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * 4);
+        for (int value : values) {
+            buffer.putInt(value);
+        }
+        return buffer.array();
+    }
+
+    private static byte[] shorts(int... values) {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * 2);
+        for (int value : values) {
+            buffer.putShort((short) value);
+        }
+        return buffer.array();
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,278 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(properties = {
+        "views.mode=redis",
+        "views.redis.shards=4",
+        // Pushed and reconciled by the tests themselves
+        "views.redis.push-interval-ms=3600000",
+        "views.redis.reconcile-interval-ms=3600000"
+})
+public class RedisViewCounterTest {
+
+    private static final int SHARDS = 4;
+
+    @Autowired
+    private RedisViewCounter redisViewCounter;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoSpyBean
+    private ViewCountBatchWriter viewCountBatchWriter;
+
+    private List<Long> videoIds;
+
+    @BeforeEach
+    public void setup() {
+        List<String> keys = new ArrayList<>();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            keys.add("views:{" + shard + "}");
+            keys.add("views:{" + shard + "}:reconciling");
+            keys.add("views:{" + shard + "}:batch");
+        }
+        keys.add("views:reconciler:leader");
+        stringRedisTemplate.delete(keys);
+
+        videoIds = jdbcTemplate.queryForList("SELECT id FROM videos ORDER BY id", Long.class);
+        assertTrue(videoIds.size() >= SHARDS, "Seed videos should cover every shard");
+    }
+
+    @Test
+    public void testConcurrentViewsAcrossShardsAreCountedOnce() throws Exception {
+        System.out.println("========================================");
+        System.out.println("TEST: Redis view counting across shards");
+        System.out.println("========================================");
+
+        Map<Long, Long> before = viewCounts();
+        int threads = 8;
+        int viewsPerThread = 500;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+
+        List<Future<?>> viewers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            viewers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < viewsPerThread; i++) {
+                    redisViewCounter.recordView(videoIds.get(i % videoIds.size()));
+                }
+                return null;
+            }));
+        }
+        // Pushes and reconciles while views are still coming in
+        Future<?> flusher = executor.submit(() -> {
+            start.await();
+            for (int i = 0; i < 20; i++) {
+                redisViewCounter.push();
+                redisViewCounter.reconcile();
+            }
+            return null;
+        });
+        start.countDown();
+        for (Future<?> viewer : viewers) {
+            viewer.get();
+        }
+        flusher.get();
+        executor.shutdown();
+
+        redisViewCounter.push();
+        redisViewCounter.reconcile();
+
+        Map<Long, Long> after = viewCounts();
+        long expectedTotal = (long) threads * viewsPerThread;
+        long total = 0;
+        for (int i = 0; i < videoIds.size(); i++) {
+            Long id = videoIds.get(i);
+            long expected = (long) threads * ((viewsPerThread - i + videoIds.size() - 1) / videoIds.size());
+            assertEquals(expected, after.get(id) - before.get(id), "Views of video " + id);
+            total += after.get(id) - before.get(id);
+        }
+        System.out.println("Counted " + total + " of " + expectedTotal + " views");
+        assertEquals(expectedTotal, total);
+    }
+
+    @Test
+    public void testReconcileRetriedAfterCommitIsNotAppliedTwice() {
+        System.out.println("========================================");
+        System.out.println("TEST: Redis view count reconcile retried after a failure");
+        System.out.println("========================================");
+
+        Map<Long, Long> before = viewCounts();
+        for (Long id : videoIds) {
+            for (int i = 0; i < 10; i++) {
+                redisViewCounter.recordView(id);
+            }
+        }
+        redisViewCounter.push();
+
+        // The counts commit, then the leader loses Redis before it can delete the reconciling hashes
+        doAnswer(invocation -> {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    throw new IllegalStateException("Connection to Redis lost");
+                }
+            });
+            return invocation.callRealMethod();
+        }).when(viewCountBatchWriter).addViewsOnce(anyString(), any());
+        redisViewCounter.reconcile();
+
+        Map<Long, Long> committed = viewCounts();
+        for (Long id : videoIds) {
+            assertEquals(10L, committed.get(id) - before.get(id));
+        }
+        assertTrue(leftoverShards() > 0, "Reconciling hashes should be left behind");
+
+        // The next run finds the batches already applied and only cleans up
+        reset(viewCountBatchWriter);
+        redisViewCounter.reconcile();
+
+        Map<Long, Long> after = viewCounts();
+        for (Long id : videoIds) {
+            assertEquals(10L, after.get(id) - before.get(id), "Views of video " + id + " applied twice");
+        }
+        assertEquals(0, leftoverShards());
+    }
+
+    @Test
+    public void testOverlayBetweenCommitAndCleanupCountsBatchOnce() {
+        System.out.println("========================================");
+        System.out.println("TEST: Redis view count read while a batch is committed but not cleaned up");
+        System.out.println("========================================");
+
+        Map<Long, Long> before = viewCounts();
+        for (Long id : videoIds) {
+            for (int i = 0; i < 10; i++) {
+                redisViewCounter.recordView(id);
+            }
+        }
+        redisViewCounter.push();
+
+        // Read every count right after the batch commits, while its reconciling hash still exists
+        Map<Long, Long> seen = new HashMap<>();
+        doAnswer(invocation -> {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    Map<Long, Long> stored = viewCounts();
+                    for (Long id : videoIds) {
+                        seen.putIfAbsent(id, redisViewCounter.overlay(id, stored.get(id)));
+                    }
+                }
+            });
+            return invocation.callRealMethod();
+        }).when(viewCountBatchWriter).addViewsOnce(anyString(), any());
+        redisViewCounter.reconcile();
+        reset(viewCountBatchWriter);
+
+        assertEquals(videoIds.size(), seen.size());
+        for (Long id : videoIds) {
+            assertEquals(before.get(id) + 10, seen.get(id), "Views of video " + id);
+        }
+    }
+
+    @Test
+    public void testOverlayStaysWithinRecordedViewsWhilePushingAndReconciling() throws Exception {
+        System.out.println("========================================");
+        System.out.println("TEST: Redis view count read while views are pushed and reconciled");
+        System.out.println("========================================");
+
+        Long videoId = videoIds.get(0);
+        long stored = viewCounts().get(videoId);
+        // started is counted before a view is recorded and finished after, so the read must fall between them
+        AtomicLong started = new AtomicLong();
+        AtomicLong finished = new AtomicLong();
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+
+        Future<?> viewer = executor.submit(() -> {
+            for (int i = 0; i < 20000; i++) {
+                started.incrementAndGet();
+                redisViewCounter.recordView(videoId);
+                finished.incrementAndGet();
+            }
+            return null;
+        });
+        Future<?> flusher = executor.submit(() -> {
+            while (running.get()) {
+                redisViewCounter.push();
+                redisViewCounter.reconcile();
+            }
+            return null;
+        });
+        Future<Integer> reader = executor.submit(() -> {
+            int reads = 0;
+            long previous = 0;
+            while (running.get()) {
+                long lower = finished.get();
+                long count = redisViewCounter.overlay(videoId, viewCounts().get(videoId)) - stored;
+                long upper = started.get();
+                assertTrue(count >= lower, "Read " + count + " views, " + lower + " were already recorded");
+                assertTrue(count <= upper, "Read " + count + " views, only " + upper + " were recorded");
+                assertTrue(count >= previous, "Read " + count + " views after " + previous);
+                previous = count;
+                reads++;
+            }
+            return reads;
+        });
+
+        viewer.get();
+        Thread.sleep(500);
+        running.set(false);
+        flusher.get();
+        int reads = reader.get();
+        executor.shutdown();
+
+        redisViewCounter.push();
+        redisViewCounter.reconcile();
+        System.out.println("Checked " + reads + " reads");
+        assertEquals(stored + 20000, viewCounts().get(videoId));
+    }
+
+    private Map<Long, Long> viewCounts() {
+        Map<Long, Long> counts = new HashMap<>();
+        jdbcTemplate.query("SELECT id, view_count FROM videos", rs -> {
+            counts.put(rs.getLong(1), rs.getLong(2));
+        });
+        return counts;
+    }
+
+    private int leftoverShards() {
+        int leftover = 0;
+        for (int shard = 0; shard < SHARDS; shard++) {
+            if (Boolean.TRUE.equals(stringRedisTemplate.hasKey("views:{" + shard + "}:reconciling"))) {
+                leftover++;
+            }
+        }
+        return leftover;
+    }
+}
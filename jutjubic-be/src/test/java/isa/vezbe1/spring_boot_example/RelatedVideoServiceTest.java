@@ -0,0 +1,93 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.dto.CreateVideoDTO;
+import isa.vezbe1.spring_boot_example.dto.VideoDTO;
+import isa.vezbe1.spring_boot_example.model.User;
+import isa.vezbe1.spring_boot_example.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class RelatedVideoServiceTest {
+
+    @Autowired
+    private RelatedVideoService relatedVideoService;
+
+    @Autowired
+    private VideoService videoService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    public void waitForLoad() throws InterruptedException {
+        for (int i = 0; i < 100 && !relatedVideoService.isReady(); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(relatedVideoService.isReady(), "Related videos index should load at startup");
+    }
+
+    @Test
+    public void testSignatureEstimatesJaccard() {
+        System.out.println("========================================");
+        System.out.println("TEST: MinHash similarity estimate");
+        System.out.println("========================================");
+
+        int[] a = RelatedVideoService.signature("Kotlin Coroutines Deep Dive", List.of("Kotlin", "Android", "Tutorial"));
+        int[] same = RelatedVideoService.signature("kotlin coroutines deep dive", List.of("tutorial", "ANDROID", "kotlin"));
+        int[] other = RelatedVideoService.signature("Baking Sourdough Bread", List.of("Cooking"));
+
+        assertArrayEquals(a, same, "Case and tag order must not change the signature");
+        assertTrue(equalShare(a, other) < 0.2, "Unrelated videos should look unrelated");
+    }
+
+    @Test
+    public void testUploadedVideosFindEachOther() {
+        User uploader = userRepository.findByEmail("darjan@jutjubic.com")
+                .orElseThrow(() -> new RuntimeException("Test user not found. Make sure import.sql is loaded."));
+
+        VideoDTO first = videoService.createVideo(video("Kotlin Coroutines Deep Dive Part 1"), uploader);
+        VideoDTO second = videoService.createVideo(video("Kotlin Coroutines Deep Dive Part 2"), uploader);
+
+        try {
+            List<VideoDTO> related = videoService.getRelatedVideos(first.getId(), 5);
+            System.out.println("Related to " + first.getId() + ": " + related.stream().map(VideoDTO::getId).toList());
+
+            assertFalse(related.isEmpty());
+            assertEquals(second.getId(), related.get(0).getId(), "The other part should be the best match");
+            assertTrue(related.stream().noneMatch(video -> video.getId().equals(first.getId())));
+        } finally {
+            videoService.deleteVideo(first.getId(), uploader);
+            videoService.deleteVideo(second.getId(), uploader);
+        }
+
+        assertThrows(RuntimeException.class, () -> videoService.getRelatedVideos(first.getId(), 5));
+    }
+
+    private static CreateVideoDTO video(String title) {
+        CreateVideoDTO dto = new CreateVideoDTO();
+        dto.setTitle(title);
+        dto.setDescription("Related videos test");
+        dto.setThumbnailPath("/uploads/thumbnails/none.png");
+        dto.setVideoPath("/uploads/videos/none.mp4");
+        dto.setVideoSizeMb(1.0);
+        dto.setTags(List.of("Kotlin", "Coroutines", "Tutorial"));
+        return dto;
+    }
+
+    private static double equalShare(int[] a, int[] b) {
+        int equal = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / a.length;
+    }
+}
@@ -0,0 +1,86 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the LIKE scan with PostgreSQL full-text and trigram search on a seeded catalogue.
+ * Defaults to 10,000 rows; run with -Dsearch.benchmark.rows=1000000 for the full-size comparison.
+ */
+@SpringBootTest(properties = "search.fulltext.enabled=true")
+public class SearchStrategyBenchmarkTest {
+
+    private static final String SEED_VIDEO_PATH = "/uploads/videos/search-benchmark.mp4";
+    private static final int RUNS = 20;
+
+    @Autowired
+    private TitleScanSearch titleScanSearch;
+
+    @Autowired
+    private PostgresFullTextSearch postgresFullTextSearch;
+
+    @Autowired
+    private TrigramFuzzySearch trigramFuzzySearch;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void seed() {
+        int rows = Integer.getInteger("search.benchmark.rows", 10_000);
+        jdbcTemplate.update(
+                "INSERT INTO videos (title, description, thumbnail_path, video_path, video_size_mb, view_count, comment_count, uploader_id, created_at) " +
+                "SELECT 'Video ' || g || ' ' || (ARRAY['spring', 'react', 'java', 'postgres', 'docker', 'kotlin'])[1 + g % 6] || ' tutorial', " +
+                "       'Episode ' || g || ' of the ' || (ARRAY['beginner', 'advanced', 'expert'])[1 + g % 3] || ' series', " +
+                "       '/uploads/thumbnails/search-benchmark.png', ?, 1.0, 0, 0, 2, NOW() - g * INTERVAL '1 second' " +
+                "FROM generate_series(1, ?) g", SEED_VIDEO_PATH, rows);
+        jdbcTemplate.execute("ANALYZE videos");
+        System.out.println("Seeded " + rows + " videos");
+    }
+
+    @AfterEach
+    public void cleanup() {
+        jdbcTemplate.update("DELETE FROM videos WHERE video_path = ?", SEED_VIDEO_PATH);
+    }
+
+    @Test
+    public void compareLikeScanWithFullTextSearch() {
+        System.out.println("========================================");
+        System.out.println("BENCHMARK: LIKE scan vs PostgreSQL full-text and trigram search");
+        System.out.println("========================================");
+
+        assertTrue(postgresFullTextSearch.isAvailable(), "Full-text search should be initialized at startup");
+
+        long likeMicros = time(titleScanSearch, "kotlin tutorial");
+        long fullTextMicros = time(postgresFullTextSearch, "kotlin tutorial");
+
+        System.out.println("  like:     " + likeMicros + " µs per query");
+        System.out.println("  fulltext: " + fullTextMicros + " µs per query");
+
+        long fuzzyMicros = time(trigramFuzzySearch, "kotln tutoral");
+        System.out.println("  fuzzy:    " + fuzzyMicros + " µs per query (misspelled)");
+
+        SearchHits ranked = postgresFullTextSearch.search("kotlin expert", null, 20);
+        assertEquals(20, ranked.getVideoIds().size());
+        assertNotNull(ranked.getNextCursor());
+
+        SearchHits next = postgresFullTextSearch.search("kotlin expert", ranked.getNextCursor(), 20);
+        assertTrue(next.getVideoIds().stream().noneMatch(ranked.getVideoIds()::contains), "Pages must not overlap");
+    }
+
+    private long time(VideoSearchStrategy strategy, String query) {
+        strategy.search(query, null, 20);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            assertFalse(strategy.search(query, null, 20).getVideoIds().isEmpty());
+        }
+        return (System.nanoTime() - start) / 1000 / RUNS;
+    }
+}
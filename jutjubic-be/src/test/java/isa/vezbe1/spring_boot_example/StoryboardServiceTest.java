@@ -0,0 +1,224 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.dto.CreateVideoDTO;
+import isa.vezbe1.spring_boot_example.dto.VideoDTO;
+import isa.vezbe1.spring_boot_example.model.User;
+import isa.vezbe1.spring_boot_example.repository.UserRepository;
+import org.jcodec.api.SequenceEncoder;
+import org.jcodec.common.io.FileChannelWrapper;
+import org.jcodec.common.io.NIOUtils;
+import org.jcodec.common.model.ColorSpace;
+import org.jcodec.common.model.Picture;
+import org.jcodec.common.model.Rational;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "storyboard.interval-seconds=2",
+        "storyboard.tile-width=160",
+        "storyboard.columns=2",
+        "storyboard.rows=2"
+})
+public class StoryboardServiceTest {
+
+    // 12 seconds at 5 fps: six 2-second tiles, so one full 2x2 sheet and one half sheet
+    private static final int FPS = 5;
+    private static final int FRAMES = 60;
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    @Autowired
+    private StoryboardService storyboardService;
+
+    @Autowired
+    private VideoService videoService;
+
+    @Autowired
+    private Mp4MetadataService mp4MetadataService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    public void testStoryboardIsBuilt() throws Exception {
+        System.out.println("========================================");
+        System.out.println("TEST: Storyboard sprite sheets and WebVTT index");
+        System.out.println("========================================");
+
+        User uploader = userRepository.findByEmail("darjan@jutjubic.com")
+                .orElseThrow(() -> new RuntimeException("Test user not found. Make sure import.sql is loaded."));
+        String fileName = "storyboard-test-" + System.nanoTime() + ".mp4";
+        Path file = Paths.get(uploadDir, "videos", fileName);
+        Files.createDirectories(file.getParent());
+        writeRedVideo(file);
+
+        VideoDTO video = videoService.createVideo(new CreateVideoDTO("Storyboard test", "Scrub previews",
+                "/uploads/thumbnails/none.png", "/uploads/videos/" + fileName, 1.0, List.of()), uploader);
+        try {
+            long start = System.currentTimeMillis();
+            storyboardService.generateAsync(video.getId()).get(30, TimeUnit.SECONDS);
+            System.out.println("Built in " + (System.currentTimeMillis() - start) + "ms");
+
+            Path index = storyboardService.getIndex(video.getId()).orElseThrow();
+            String vtt = Files.readString(index);
+            System.out.println(vtt);
+            String key = StoryboardService.keyOf("/uploads/videos/" + fileName);
+
+            assertTrue(vtt.startsWith("WEBVTT\n"));
+            List<String> cues = Arrays.stream(vtt.split("\n")).filter(line -> line.contains("#xywh=")).toList();
+            assertEquals(6, cues.size());
+            assertTrue(vtt.contains("00:00:00.000 --> 00:00:02.000\n"
+                    + StoryboardService.sheetUrl(key, 0) + "#xywh=0,0,160,90\n"));
+            assertTrue(vtt.contains("00:00:10.000 --> 00:00:12.000\n"
+                    + StoryboardService.sheetUrl(key, 1) + "#xywh=160,0,160,90\n"));
+
+            BufferedImage full = ImageIO.read(storyboardService.getSheet(key, 0).orElseThrow().toFile());
+            assertEquals(320, full.getWidth());
+            assertEquals(180, full.getHeight());
+            BufferedImage half = ImageIO.read(storyboardService.getSheet(key, 1).orElseThrow().toFile());
+            assertEquals(320, half.getWidth());
+            assertEquals(90, half.getHeight(), "The last sheet only has the rows it uses");
+            assertTrue(storyboardService.getSheet(key, 2).isEmpty());
+
+            // Channel order survives YUV -> BGR -> JPEG
+            int rgb = full.getRGB(80, 45);
+            assertTrue(((rgb >> 16) & 0xFF) > 200 && ((rgb >> 8) & 0xFF) < 60 && (rgb & 0xFF) < 60,
+                    "Tile should be red, was " + Integer.toHexString(rgb));
+        } finally {
+            videoService.deleteVideo(video.getId(), uploader);
+            Files.deleteIfExists(file);
+        }
+        assertTrue(storyboardService.getSheet(StoryboardService.keyOf("/uploads/videos/" + fileName), 0).isEmpty(),
+                "Deleting the video removes its storyboard");
+    }
+
+    @Test
+    public void testTruncatedVideoKeepsTilesDrawn() throws Exception {
+        System.out.println("========================================");
+        System.out.println("TEST: Storyboard of a truncated upload");
+        System.out.println("========================================");
+
+        User uploader = userRepository.findByEmail("darjan@jutjubic.com")
+                .orElseThrow(() -> new RuntimeException("Test user not found. Make sure import.sql is loaded."));
+        String fileName = "storyboard-truncated-" + System.nanoTime() + ".mp4";
+        Path file = Paths.get(uploadDir, "videos", fileName);
+        Files.createDirectories(file.getParent());
+        writeRedVideo(file);
+        // moov in front, then cut the media data after ~80%: the tile at 10s (frame 50) is lost,
+        // leaving the second sheet with a single tile
+        mp4MetadataService.makeFastStart(file);
+        int mdat = new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1).indexOf("mdat") - 4;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(mdat + (channel.size() - mdat) * 4 / 5);
+        }
+
+        VideoDTO video = videoService.createVideo(new CreateVideoDTO("Storyboard truncated", "Scrub previews",
+                "/uploads/thumbnails/none.png", "/uploads/videos/" + fileName, 1.0, List.of()), uploader);
+        try {
+            storyboardService.generateAsync(video.getId()).get(30, TimeUnit.SECONDS);
+            String vtt = Files.readString(storyboardService.getIndex(video.getId()).orElseThrow());
+            System.out.println(vtt);
+            String key = StoryboardService.keyOf("/uploads/videos/" + fileName);
+
+            List<String> cues = Arrays.stream(vtt.split("\n")).filter(line -> line.contains("#xywh=")).toList();
+            assertEquals(5, cues.size(), "Tiles past the end of the data are dropped");
+
+            // Every cue points into a sheet that was written and is large enough to hold its tile
+            for (String cue : cues) {
+                String url = cue.substring(0, cue.indexOf('#'));
+                int sheetNumber = Integer.parseInt(url.substring(url.lastIndexOf('/') + 1, url.lastIndexOf('.')));
+                int[] xywh = Arrays.stream(cue.substring(cue.indexOf('=') + 1).split(","))
+                        .mapToInt(Integer::parseInt).toArray();
+                BufferedImage sheet = ImageIO.read(storyboardService.getSheet(key, sheetNumber)
+                        .orElseThrow(() -> new AssertionError("Missing sheet for cue " + cue)).toFile());
+                assertTrue(xywh[0] + xywh[2] <= sheet.getWidth() && xywh[1] + xywh[3] <= sheet.getHeight(),
+                        "Cue " + cue + " outside its " + sheet.getWidth() + "x" + sheet.getHeight() + " sheet");
+            }
+            BufferedImage partial = ImageIO.read(storyboardService.getSheet(key, 1).orElseThrow().toFile());
+            assertEquals(160, partial.getWidth(), "The partial sheet is cropped to the tiles drawn");
+            assertEquals(90, partial.getHeight());
+        } finally {
+            videoService.deleteVideo(video.getId(), uploader);
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testStoryboardFollowsTheVideoFileNotTheId() throws Exception {
+        System.out.println("========================================");
+        System.out.println("TEST: Storyboards keyed by video content");
+        System.out.println("========================================");
+
+        User uploader = userRepository.findByEmail("darjan@jutjubic.com")
+                .orElseThrow(() -> new RuntimeException("Test user not found. Make sure import.sql is loaded."));
+        String fileName = "storyboard-shared-" + System.nanoTime() + ".mp4";
+        Path file = Paths.get(uploadDir, "videos", fileName);
+        Files.createDirectories(file.getParent());
+        writeRedVideo(file);
+        String videoPath = "/uploads/videos/" + fileName;
+        String key = StoryboardService.keyOf(videoPath);
+
+        // Two uploads of the same file share one storyboard
+        VideoDTO first = videoService.createVideo(new CreateVideoDTO("Storyboard shared 1", "Scrub previews",
+                "/uploads/thumbnails/none.png", videoPath, 1.0, List.of()), uploader);
+        VideoDTO second = videoService.createVideo(new CreateVideoDTO("Storyboard shared 2", "Scrub previews",
+                "/uploads/thumbnails/none.png", videoPath, 1.0, List.of()), uploader);
+        try {
+            storyboardService.generateAsync(first.getId()).get(30, TimeUnit.SECONDS);
+            Path index = storyboardService.getIndex(second.getId()).orElseThrow();
+            assertEquals(storyboardService.getIndex(first.getId()).orElseThrow(), index);
+            assertEquals(key, index.getParent().getFileName().toString());
+            assertFalse(Files.readString(index).contains("/" + first.getId() + "/"), "Sheet URLs must not carry a video id");
+
+            videoService.deleteVideo(first.getId(), uploader);
+            assertTrue(storyboardService.getSheet(key, 0).isPresent(), "The other video still uses the storyboard");
+        } finally {
+            videoService.deleteVideo(second.getId(), uploader);
+            Files.deleteIfExists(file);
+        }
+        assertTrue(storyboardService.getSheet(key, 0).isEmpty(), "Deleting the last video removes the storyboard");
+    }
+
+    @Test
+    public void testMissingVideoHasNoStoryboard() {
+        assertTrue(storyboardService.getSheet("missing", 0).isEmpty());
+        assertTrue(storyboardService.getSheet("..", 0).isEmpty());
+        assertTrue(storyboardService.getIndex(Long.MAX_VALUE).isEmpty());
+        assertEquals("3f2a", StoryboardService.keyOf("/uploads/videos/3f2a.mp4"));
+        assertEquals(64, StoryboardService.keyOf("/uploads/videos/my video.mp4").length());
+    }
+
+    private static void writeRedVideo(Path file) throws Exception {
+        try (FileChannelWrapper out = NIOUtils.writableChannel(file.toFile())) {
+            SequenceEncoder encoder = SequenceEncoder.createWithFps(out, Rational.R(FPS, 1));
+            Picture frame = Picture.create(320, 180, ColorSpace.RGB);
+            byte[] rgb = frame.getPlaneData(0);
+            for (int i = 0; i < rgb.length; i += 3) {
+                rgb[i] = 127;
+                rgb[i + 1] = -128;
+                rgb[i + 2] = -128;
+            }
+            for (int i = 0; i < FRAMES; i++) {
+                encoder.encodeNativeFrame(frame);
+            }
+            encoder.finish();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.model.VideoTag;
+import isa.vezbe1.spring_boot_example.repository.VideoTagRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class TagDictionaryServiceTest {
+
+    @Autowired
+    private TagDictionaryService tagDictionaryService;
+
+    @Autowired
+    private VideoTagRepository videoTagRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void testResolvesCaseInsensitivelyAndCreatesMissing() {
+        System.out.println("========================================");
+        System.out.println("TEST: Batched tag resolution");
+        System.out.println("========================================");
+
+        String newName = "Tag " + UUID.randomUUID();
+        Set<VideoTag> tags = resolve(List.of("java", " JAVA ", newName, newName.toUpperCase()));
+
+        assertEquals(2, tags.size(), "Names differing only in case should resolve to one tag");
+        VideoTag java = tags.stream().filter(tag -> tag.getId() == 1L).findFirst().orElseThrow();
+        assertEquals("Java", java.getName(), "Existing tags keep their stored spelling");
+
+        VideoTag created = tags.stream().filter(tag -> tag.getId() != 1L).findFirst().orElseThrow();
+        assertNotNull(created.getId());
+        assertEquals(Set.of(created.getId()), ids(resolve(List.of(newName.toLowerCase()))));
+        assertTrue(resolve(null).isEmpty());
+    }
+
+    @Test
+    public void testConcurrentUploadsOfNewTagAgree() throws Exception {
+        String newName = "Race " + UUID.randomUUID();
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        List<Future<Set<Long>>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return ids(resolve(List.of(newName, "Spring Boot")));
+            }));
+        }
+        start.countDown();
+
+        Set<Long> first = results.get(0).get();
+        for (Future<Set<Long>> result : results) {
+            assertEquals(first, result.get(), "Every upload should see the same tag ids");
+        }
+        assertEquals(2, first.size());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testRolledBackTagIsNotCached() {
+        String newName = "Rollback " + UUID.randomUUID();
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Long rolledBackId = transaction.execute(status -> {
+            Long id = tagDictionaryService.resolve(List.of(newName)).iterator().next().getId();
+            status.setRollbackOnly();
+            return id;
+        });
+        assertFalse(videoTagRepository.existsById(rolledBackId));
+
+        // The id of the rolled back insert must not be served from the cache
+        Long id = resolve(List.of(newName)).iterator().next().getId();
+        assertNotEquals(rolledBackId, id);
+        assertTrue(videoTagRepository.existsById(id));
+    }
+
+    private Set<VideoTag> resolve(List<String> names) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        return transaction.execute(status -> tagDictionaryService.resolve(names));
+    }
+
+    private static Set<Long> ids(Set<VideoTag> tags) {
+        return tags.stream().map(VideoTag::getId).collect(Collectors.toSet());
+    }
+}
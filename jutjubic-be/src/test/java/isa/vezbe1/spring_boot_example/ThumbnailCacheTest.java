@@ -0,0 +1,91 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.dto.CreateVideoDTO;
+import isa.vezbe1.spring_boot_example.dto.VideoDTO;
+import isa.vezbe1.spring_boot_example.model.User;
+import isa.vezbe1.spring_boot_example.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class ThumbnailCacheTest {
+
+    private static final byte[] PNG_HEADER = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    @Autowired
+    private VideoService videoService;
+
+    @Autowired
+    private ThumbnailCache thumbnailCache;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    public void testReadThroughFromDisk() throws Exception {
+        System.out.println("========================================");
+        System.out.println("TEST: Thumbnail read-through and coalescing");
+        System.out.println("========================================");
+
+        User uploader = userRepository.findByEmail("darjan@jutjubic.com")
+                .orElseThrow(() -> new RuntimeException("Test user not found. Make sure import.sql is loaded."));
+
+        // A video created without the upload path: nothing was ever put into Redis for it
+        String fileName = "cache-test-" + System.nanoTime() + ".png";
+        Path file = Paths.get(uploadDir, "thumbnails", fileName);
+        Files.createDirectories(file.getParent());
+        byte[] image = new byte[2048];
+        System.arraycopy(PNG_HEADER, 0, image, 0, PNG_HEADER.length);
+        Files.write(file, image);
+
+        CreateVideoDTO dto = new CreateVideoDTO("Thumbnail cache test", "Read from disk",
+                "/uploads/thumbnails/" + fileName, "/uploads/videos/none.mp4", 1.0, List.of());
+        VideoDTO video = videoService.createVideo(dto, uploader);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<CompletableFuture<Optional<ThumbnailCache.Thumbnail>>> requests = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                requests.add(CompletableFuture.supplyAsync(() -> videoService.getThumbnail(video.getId()), pool));
+            }
+
+            ThumbnailCache.Thumbnail first = requests.get(0).join().orElseThrow();
+            assertEquals(MediaType.IMAGE_PNG_VALUE, first.contentType());
+            assertEquals(ByteBuffer.wrap(image), first.data());
+            for (CompletableFuture<Optional<ThumbnailCache.Thumbnail>> request : requests) {
+                // One load answered everyone, so they all got the very same array
+                assertSame(first.data(), request.join().orElseThrow().data());
+            }
+        } finally {
+            pool.shutdownNow();
+            videoService.deleteVideo(video.getId(), uploader);
+            Files.deleteIfExists(file);
+        }
+
+        assertTrue(thumbnailCache.get(video.getId()).isEmpty(), "Deleted video must not keep its thumbnail");
+    }
+
+    @Test
+    public void testMissingThumbnail() {
+        assertTrue(videoService.getThumbnail(Long.MAX_VALUE).isEmpty());
+    }
+}
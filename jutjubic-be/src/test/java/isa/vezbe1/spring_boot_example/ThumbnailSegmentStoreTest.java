@@ -0,0 +1,85 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.dto.CreateVideoDTO;
+import isa.vezbe1.spring_boot_example.dto.VideoDTO;
+import isa.vezbe1.spring_boot_example.model.User;
+import isa.vezbe1.spring_boot_example.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class ThumbnailSegmentStoreTest {
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    @Autowired
+    private ThumbnailSegmentStore segmentStore;
+
+    @Autowired
+    private VideoService videoService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    public void testPackedThumbnailIsMappedSlice() {
+        System.out.println("========================================");
+        System.out.println("TEST: Thumbnail segment store");
+        System.out.println("========================================");
+
+        String key = "/uploads/thumbnails/segment-test-" + System.nanoTime() + ".png";
+        byte[] image = new byte[4096];
+        for (int i = 0; i < image.length; i++) {
+            image[i] = (byte) i;
+        }
+
+        ByteBuffer packed = segmentStore.put(key, image);
+        assertNotNull(packed);
+        assertTrue(packed.isDirect(), "Packed thumbnails are served from the mapping");
+        assertTrue(packed.isReadOnly());
+        assertEquals(ByteBuffer.wrap(image), packed);
+        assertEquals(ByteBuffer.wrap(image), segmentStore.get(key));
+
+        // No video references this thumbnail, so compaction forgets it
+        segmentStore.compact();
+        assertNull(segmentStore.get(key));
+    }
+
+    @Test
+    public void testMigrationPacksReferencedFiles() throws Exception {
+        User uploader = userRepository.findByEmail("darjan@jutjubic.com")
+                .orElseThrow(() -> new RuntimeException("Test user not found. Make sure import.sql is loaded."));
+
+        String fileName = "migrate-test-" + System.nanoTime() + ".jpg";
+        Path file = Paths.get(uploadDir, "thumbnails", fileName);
+        Files.createDirectories(file.getParent());
+        byte[] image = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 1, 2, 3, 4};
+        Files.write(file, image);
+
+        String key = "/uploads/thumbnails/" + fileName;
+        CreateVideoDTO dto = new CreateVideoDTO("Segment migration test", "Packed from a single file",
+                key, "/uploads/videos/none.mp4", 1.0, List.of());
+        VideoDTO video = videoService.createVideo(dto, uploader);
+
+        try {
+            assertNull(segmentStore.get(key));
+            segmentStore.migrateFromFiles();
+            assertEquals(ByteBuffer.wrap(image), segmentStore.get(key));
+            assertEquals(0, segmentStore.migrateFromFiles(), "A second run has nothing left to pack");
+        } finally {
+            videoService.deleteVideo(video.getId(), uploader);
+            Files.deleteIfExists(file);
+        }
+    }
+}
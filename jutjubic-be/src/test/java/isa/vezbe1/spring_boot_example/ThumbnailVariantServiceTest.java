@@ -0,0 +1,141 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.dto.CreateVideoDTO;
+import isa.vezbe1.spring_boot_example.dto.VideoDTO;
+import isa.vezbe1.spring_boot_example.model.User;
+import isa.vezbe1.spring_boot_example.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class ThumbnailVariantServiceTest {
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    @Autowired
+    private ThumbnailVariantService variantService;
+
+    @Autowired
+    private VideoService videoService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    public void testWidthSelection() {
+        System.out.println("========================================");
+        System.out.println("TEST: Thumbnail variant widths");
+        System.out.println("========================================");
+
+        assertEquals(0, variantService.pickWidth(null));
+        assertEquals(160, variantService.pickWidth(100));
+        assertEquals(320, variantService.pickWidth(300));
+        assertEquals(640, variantService.pickWidth(640));
+        assertEquals(0, variantService.pickWidth(2000), "Wider than every variant gets the original");
+
+        String variant = ThumbnailVariantService.variantPath("/uploads/thumbnails/abc.png", 320);
+        assertEquals("/uploads/thumbnails/variants/abc.png-w320.jpg", variant);
+        assertEquals("/uploads/thumbnails/abc.png", ThumbnailVariantService.sourcePathOf(variant));
+        assertNull(ThumbnailVariantService.sourcePathOf("/uploads/thumbnails/abc.png"));
+    }
+
+    @Test
+    public void testVariantsAreDerivedAndServed() throws Exception {
+        User uploader = userRepository.findByEmail("darjan@jutjubic.com")
+                .orElseThrow(() -> new RuntimeException("Test user not found. Make sure import.sql is loaded."));
+
+        String fileName = "variant-test-" + System.nanoTime() + ".png";
+        Path file = Paths.get(uploadDir, "thumbnails", fileName);
+        Files.createDirectories(file.getParent());
+        BufferedImage image = new BufferedImage(1280, 720, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.ORANGE);
+        graphics.fillOval(100, 100, 900, 500);
+        graphics.dispose();
+        ImageIO.write(image, "png", file.toFile());
+
+        String sourcePath = "/uploads/thumbnails/" + fileName;
+        CreateVideoDTO dto = new CreateVideoDTO("Thumbnail variant test", "Resized variants",
+                sourcePath, "/uploads/videos/none.mp4", 1.0, List.of());
+        VideoDTO video = videoService.createVideo(dto, uploader);
+
+        try {
+            variantService.deriveAsync(sourcePath).join();
+
+            ThumbnailCache.Thumbnail small = null;
+            for (int i = 0; i < 50; i++) {
+                small = videoService.getThumbnail(video.getId(), 300).orElseThrow();
+                if (small.contentType().equals(MediaType.IMAGE_JPEG_VALUE)) {
+                    break;
+                }
+                Thread.sleep(100);
+            }
+            assertEquals(MediaType.IMAGE_JPEG_VALUE, small.contentType());
+
+            BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(toArray(small.data())));
+            assertEquals(320, decoded.getWidth());
+            assertEquals(180, decoded.getHeight());
+
+            ThumbnailCache.Thumbnail original = videoService.getThumbnail(video.getId()).orElseThrow();
+            System.out.println("Original: " + original.data().remaining() + " B, 320px variant: " + small.data().remaining() + " B");
+            assertEquals(MediaType.IMAGE_PNG_VALUE, original.contentType());
+        } finally {
+            videoService.deleteVideo(video.getId(), uploader);
+            Files.deleteIfExists(file);
+        }
+
+        Path variant = Paths.get(uploadDir, ThumbnailVariantService.variantPath(sourcePath, 320).replace("/uploads/", ""));
+        assertFalse(Files.exists(variant), "Variants go away with the last video using the thumbnail");
+    }
+
+    @Test
+    public void testOversizedImageIsRejectedBeforeDecoding() throws Exception {
+        System.out.println("========================================");
+        System.out.println("TEST: Thumbnail variants of an oversized image");
+        System.out.println("========================================");
+
+        // 50M pixels at one bit each: small on disk, ~200 MB once decoded and flattened
+        String fileName = "variant-oversized-" + System.nanoTime() + ".png";
+        Path file = Paths.get(uploadDir, "thumbnails", fileName);
+        Files.createDirectories(file.getParent());
+        ImageIO.write(new BufferedImage(10_000, 5_000, BufferedImage.TYPE_BYTE_BINARY), "png", file.toFile());
+
+        String sourcePath = "/uploads/thumbnails/" + fileName;
+        try {
+            CompletionException failure = assertThrows(CompletionException.class,
+                    () -> variantService.deriveAsync(sourcePath).join());
+            System.out.println("Rejected: " + failure.getCause().getMessage());
+            assertInstanceOf(IllegalArgumentException.class, failure.getCause());
+            assertTrue(failure.getCause().getMessage().contains("10000x5000"));
+
+            Path variant = Paths.get(uploadDir, ThumbnailVariantService.variantPath(sourcePath, 160).replace("/uploads/", ""));
+            assertFalse(Files.exists(variant));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,142 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import org.jcodec.api.FrameGrab;
+import org.jcodec.api.SequenceEncoder;
+import org.jcodec.common.io.FileChannelWrapper;
+import org.jcodec.common.io.NIOUtils;
+import org.jcodec.common.model.ColorSpace;
+import org.jcodec.common.model.Picture;
+import org.jcodec.common.model.Rational;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "transcoding.checkpoint-frames=25")
+public class TranscodingBenchmarkTest {
+
+    private static final int SOURCE_WIDTH = 1280;
+    private static final int SOURCE_HEIGHT = 720;
+    private static final int SOURCE_FRAMES = 100;
+
+    @Autowired
+    private TranscodingService transcodingService;
+
+    private Path source;
+    private final List<Path> outputs = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() throws IOException {
+        source = Files.createTempFile("transcode-source-", ".mp4");
+        try (FileChannelWrapper out = NIOUtils.writableChannel(source.toFile())) {
+            SequenceEncoder encoder = SequenceEncoder.createWithFps(out, Rational.R(25, 1));
+            Picture frame = Picture.create(SOURCE_WIDTH, SOURCE_HEIGHT, ColorSpace.RGB);
+            for (int i = 0; i < SOURCE_FRAMES; i++) {
+                drawFrame(frame, i);
+                encoder.encodeNativeFrame(frame);
+            }
+            encoder.finish();
+        }
+    }
+
+    @AfterEach
+    public void cleanup() throws IOException {
+        Files.deleteIfExists(source);
+        for (Path output : outputs) {
+            Files.deleteIfExists(output);
+        }
+    }
+
+    @Test
+    public void testRenditionIsDecodable() throws Exception {
+        Path output = newOutput();
+        AtomicInteger checkpoints = new AtomicInteger();
+
+        TranscodingService.TranscodeResult result = transcodingService.transcode(source, output, 240,
+                (framesDone, totalFrames) -> checkpoints.incrementAndGet());
+
+        assertEquals(SOURCE_FRAMES, result.frames());
+        assertEquals(432, result.width(), "16:9 at 240p, rounded to whole macroblocks");
+        assertEquals(SOURCE_FRAMES / 25, checkpoints.get(), "Progress should be checkpointed while encoding");
+
+        try (FileChannelWrapper in = NIOUtils.readableChannel(output.toFile())) {
+            FrameGrab grab = FrameGrab.createFrameGrab(in);
+            Picture frame = grab.getNativeFrame();
+            assertEquals(432, frame.getCroppedWidth());
+            assertEquals(240, frame.getCroppedHeight());
+            assertEquals(SOURCE_FRAMES, grab.getVideoTrack().getMeta().getTotalFrames());
+        }
+    }
+
+    @Test
+    public void testThroughputPerCore() throws Exception {
+        System.out.println("========================================");
+        System.out.println("BENCHMARK: Transcoding frames/sec per core");
+        System.out.println("========================================");
+
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        // Warm up the JIT so the single-core run is not mostly interpreter time
+        transcodingService.transcode(source, newOutput(), 240, (framesDone, totalFrames) -> { });
+
+        long start = System.nanoTime();
+        int frames = transcodingService.transcode(source, newOutput(), 480, (framesDone, totalFrames) -> { }).frames();
+        double singleFps = frames / ((System.nanoTime() - start) / 1e9);
+
+        // One job per core on a work-stealing pool, as the service runs them
+        ForkJoinPool pool = new ForkJoinPool(cores);
+        List<Future<TranscodingService.TranscodeResult>> jobs = new ArrayList<>();
+        start = System.nanoTime();
+        for (int i = 0; i < cores; i++) {
+            Path output = newOutput();
+            jobs.add(pool.submit(() -> transcodingService.transcode(source, output, 480, (framesDone, totalFrames) -> { })));
+        }
+        int totalFrames = 0;
+        for (Future<TranscodingService.TranscodeResult> job : jobs) {
+            totalFrames += job.get().frames();
+        }
+        double parallelSeconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        double parallelFps = totalFrames / parallelSeconds;
+        System.out.println("Source:              " + SOURCE_WIDTH + "x" + SOURCE_HEIGHT + ", " + SOURCE_FRAMES + " frames -> 480p");
+        System.out.println("Single job:          " + String.format("%.1f", singleFps) + " frames/sec");
+        System.out.println("Parallel (" + cores + " cores):  " + String.format("%.1f", parallelFps) + " frames/sec total, "
+                + String.format("%.1f", parallelFps / cores) + " frames/sec per core");
+
+        assertEquals(SOURCE_FRAMES * cores, totalFrames);
+    }
+
+    private Path newOutput() throws IOException {
+        Path output = Files.createTempFile("transcode-output-", ".mp4");
+        outputs.add(output);
+        return output;
+    }
+
+    /**
+     * Moving gradients, so that frames differ and the encoder has real work to do.
+     */
+    private static void drawFrame(Picture frame, int index) {
+        byte[] rgb = frame.getPlaneData(0);
+        for (int y = 0; y < SOURCE_HEIGHT; y++) {
+            for (int x = 0; x < SOURCE_WIDTH; x++) {
+                int i = (y * SOURCE_WIDTH + x) * 3;
+                rgb[i] = (byte) (((x + index * 8) & 0xFF) - 128);
+                rgb[i + 1] = (byte) (((y + index * 4) & 0xFF) - 128);
+                rgb[i + 2] = (byte) (((x ^ y) & 0xFF) - 128);
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.dto.VideoDTO;
+import isa.vezbe1.spring_boot_example.model.Video;
+import isa.vezbe1.spring_boot_example.repository.VideoRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class TrendingServiceTest {
+
+    @Autowired
+    private TrendingService trendingService;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Test
+    public void testRecentActivityMovesVideoToTop() {
+        System.out.println("========================================");
+        System.out.println("TEST: Trending ranking follows recent activity");
+        System.out.println("========================================");
+
+        trendingService.rebuild();
+
+        List<Video> videos = videoRepository.findAll();
+        Video video = videos.stream()
+                .reduce((first, second) -> second)
+                .orElseThrow(() -> new RuntimeException("No videos found in database. Make sure import.sql is loaded."));
+
+        // Other tests sharing this context may have added views to seed videos. Rebuilt scores never
+        // exceed a video's raw weights, so outnumbering the busiest video's views is enough.
+        long busiest = videos.stream().mapToLong(Video::getViewCount).max().orElse(0);
+        for (long i = 0; i < busiest + 1000; i++) {
+            trendingService.recordView(video.getId());
+        }
+        trendingService.recordCommentAfterCommit(video.getId());
+        trendingService.flush();
+        trendingService.refreshTopVideos();
+
+        long start = System.nanoTime();
+        List<VideoDTO> trending = trendingService.getTrending(10);
+        long micros = (System.nanoTime() - start) / 1000;
+
+        System.out.println("Top video: " + trending.get(0).getId() + " (expected " + video.getId() + ")");
+        System.out.println("getTrending(10) took " + micros + " µs");
+
+        assertFalse(trending.isEmpty(), "Seed videos should be ranked after a rebuild");
+        assertEquals(video.getId(), trending.get(0).getId(), "Most recently active video should be first");
+    }
+}
@@ -0,0 +1,87 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.dto.UniqueViewersDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "views.unique.count-mode=sketch")
+public class UniqueViewerServiceTest {
+
+    private static final Long VIDEO_ID = Long.MAX_VALUE - 6;
+    private static final int VIEWERS = 10_000;
+
+    @Autowired
+    private UniqueViewerService uniqueViewerService;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @AfterEach
+    public void cleanup() {
+        uniqueViewerService.removeAfterCommit(VIDEO_ID);
+    }
+
+    @Test
+    public void testEstimateIsAccurateAndRepeatsAreNotCounted() {
+        System.out.println("========================================");
+        System.out.println("TEST: HyperLogLog unique viewer accuracy");
+        System.out.println("========================================");
+
+        long counted = 0;
+        for (int i = 0; i < VIEWERS; i++) {
+            counted += uniqueViewerService.recordViewer(VIDEO_ID, "user:" + i);
+        }
+        long estimate = uniqueViewerService.getUniqueViewers(VIDEO_ID).getAllTime();
+        System.out.println("Distinct viewers: " + VIEWERS + ", estimate: " + estimate + ", views counted: " + counted);
+
+        assertEquals(VIEWERS, estimate, VIEWERS * 0.02, "Estimate should be within 2%");
+        assertEquals(estimate, counted, "Counted views follow the estimate instead of PFADD's register changes");
+
+        // Every viewer comes back: neither the estimate nor the counted views move
+        long repeats = 0;
+        for (int i = 0; i < VIEWERS; i++) {
+            repeats += uniqueViewerService.recordViewer(VIDEO_ID, "user:" + i);
+        }
+        assertEquals(0, repeats);
+        UniqueViewersDTO viewers = uniqueViewerService.getUniqueViewers(VIDEO_ID);
+        assertEquals(Long.valueOf(estimate), viewers.getAllTime());
+        // Everyone watched today, so the daily sketches hold the same viewers
+        assertEquals(Long.valueOf(estimate), viewers.getLast24Hours());
+        assertEquals(Long.valueOf(estimate), viewers.getLast7Days());
+    }
+
+    @Test
+    public void testWindowsMergeOnlyTheirDays() {
+        System.out.println("========================================");
+        System.out.println("TEST: HyperLogLog unique viewers per window");
+        System.out.println("========================================");
+
+        for (int i = 0; i < 100; i++) {
+            uniqueViewerService.recordViewer(VIDEO_ID, "user:" + i);
+        }
+        // Viewers from three days ago, half of whom came back today
+        DateTimeFormatter dayFormat = DateTimeFormatter.ofPattern("yyyyMMdd").withZone(ZoneOffset.UTC);
+        String earlierDay = "uv:{" + VIDEO_ID + "}:" + dayFormat.format(Instant.now().minus(3, ChronoUnit.DAYS));
+        for (int i = 50; i < 150; i++) {
+            stringRedisTemplate.opsForHyperLogLog().add(earlierDay, "user:" + i);
+        }
+
+        UniqueViewersDTO viewers = uniqueViewerService.getUniqueViewers(VIDEO_ID);
+        System.out.println("24h: " + viewers.getLast24Hours() + ", 7d: " + viewers.getLast7Days() + ", all time: " + viewers.getAllTime());
+        assertEquals(100L, viewers.getLast24Hours(), 2);
+        assertEquals(150L, viewers.getLast7Days(), 3);
+        assertEquals(100L, viewers.getAllTime(), 2);
+        assertTrue(stringRedisTemplate.getExpire("uv:{" + VIDEO_ID + "}:" + dayFormat.format(Instant.now())) > 0,
+                "Daily sketches should expire");
+    }
+}
@@ -0,0 +1,307 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.dto.CreateVideoDTO;
+import isa.vezbe1.spring_boot_example.dto.VideoDTO;
+import isa.vezbe1.spring_boot_example.dto.VideoStatusDTO;
+import isa.vezbe1.spring_boot_example.dto.VideoUploadDTO;
+import isa.vezbe1.spring_boot_example.exception.ServiceBusyException;
+import isa.vezbe1.spring_boot_example.model.User;
+import isa.vezbe1.spring_boot_example.model.VideoStatus;
+import isa.vezbe1.spring_boot_example.repository.UserRepository;
+import isa.vezbe1.spring_boot_example.repository.VideoRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(properties = {
+        "upload.pipeline.max-in-flight=1",
+        "upload.pipeline.retry-delay-ms=100"
+})
+public class UploadPipelineTest {
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    @Autowired
+    private UploadPipeline uploadPipeline;
+
+    @Autowired
+    private VideoService videoService;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoSpyBean
+    private Mp4MetadataService mp4MetadataService;
+
+    // No broker in tests; sends succeed unless a test makes them fail
+    @MockitoBean
+    private UploadEventProducer uploadEventProducer;
+
+    @Test
+    public void testProcessingVideoBecomesReady() throws Exception {
+        System.out.println("========================================");
+        System.out.println("TEST: Upload pipeline PROCESSING -> READY");
+        System.out.println("========================================");
+
+        User uploader = findUploader();
+        String fileName = "pipeline-test-" + System.nanoTime() + ".mp4";
+        Path file = Paths.get(uploadDir, "videos", fileName);
+        Files.createDirectories(file.getParent());
+        Mp4TestFiles.write(file, true);
+
+        VideoDTO video = createProcessingVideo(uploader, "/uploads/videos/" + fileName);
+        try {
+            assertEquals("PROCESSING", uploadPipeline.getStatus(video.getId()).getStatus());
+
+            uploadPipeline.submitAfterCommit(video.getId(), uploadPipeline.admit());
+            VideoStatusDTO status = awaitFinished(video.getId());
+
+            System.out.println("Final status: " + status.getStatus());
+            assertEquals("READY", status.getStatus());
+            assertNull(status.getStage(), "Finished videos have no stage");
+
+            VideoDTO processed = videoService.getVideoById(video.getId());
+            assertEquals(Long.valueOf(Mp4TestFiles.DURATION_MS), processed.getDurationMs());
+            assertEquals(Integer.valueOf(Mp4TestFiles.WIDTH), processed.getWidth());
+            assertEquals("avc1", processed.getVideoCodec());
+        } finally {
+            videoService.deleteVideo(video.getId(), uploader);
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testMissingVideoFileFails() throws Exception {
+        System.out.println("========================================");
+        System.out.println("TEST: Upload pipeline marks missing files FAILED");
+        System.out.println("========================================");
+
+        User uploader = findUploader();
+        VideoDTO video = createProcessingVideo(uploader, "/uploads/videos/missing-" + System.nanoTime() + ".mp4");
+        try {
+            uploadPipeline.submitAfterCommit(video.getId(), uploadPipeline.admit());
+            VideoStatusDTO status = awaitFinished(video.getId());
+
+            System.out.println("Final status: " + status.getStatus());
+            assertEquals("FAILED", status.getStatus());
+        } finally {
+            videoService.deleteVideo(video.getId(), uploader);
+        }
+    }
+
+    @Test
+    public void testTransientFailureIsRetried() throws Exception {
+        System.out.println("========================================");
+        System.out.println("TEST: Upload pipeline retries a transient failure");
+        System.out.println("========================================");
+
+        User uploader = findUploader();
+        String fileName = "pipeline-retry-" + System.nanoTime() + ".mp4";
+        Path file = Paths.get(uploadDir, "videos", fileName);
+        Files.createDirectories(file.getParent());
+        Mp4TestFiles.write(file, true);
+
+        doThrow(new TransientDataAccessResourceException("Connection reset"))
+                .doCallRealMethod()
+                .when(mp4MetadataService).inspect(any());
+
+        VideoDTO video = createProcessingVideo(uploader, "/uploads/videos/" + fileName);
+        try {
+            uploadPipeline.submitAfterCommit(video.getId(), uploadPipeline.admit());
+            VideoStatusDTO status = awaitFinished(video.getId());
+
+            System.out.println("Final status: " + status.getStatus());
+            assertEquals("READY", status.getStatus(), "A failed database call should not fail the video");
+            verify(mp4MetadataService, times(2)).inspect(any());
+        } finally {
+            videoService.deleteVideo(video.getId(), uploader);
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testUploadsAreRefusedWhileSaturated() throws Exception {
+        System.out.println("========================================");
+        System.out.println("TEST: Upload pipeline admission control");
+        System.out.println("========================================");
+
+        User uploader = findUploader();
+        String fileName = "pipeline-busy-" + System.nanoTime() + ".mp4";
+        Path file = Paths.get(uploadDir, "videos", fileName);
+        Files.createDirectories(file.getParent());
+        Mp4TestFiles.write(file, true);
+
+        // Hold the only in-flight video in the metadata stage
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            entered.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return invocation.callRealMethod();
+        }).when(mp4MetadataService).inspect(any());
+
+        VideoDTO video = createProcessingVideo(uploader, "/uploads/videos/" + fileName);
+        try {
+            uploadPipeline.submitAfterCommit(video.getId(), uploadPipeline.admit());
+            assertTrue(entered.await(10, TimeUnit.SECONDS));
+
+            assertThrows(ServiceBusyException.class, () -> uploadPipeline.admit());
+            MockMultipartFile upload = new MockMultipartFile("video", "busy.mp4", "video/mp4", Files.readAllBytes(file));
+            MockMultipartFile thumbnail = new MockMultipartFile("thumbnail", "busy.png", "image/png", new byte[]{1, 2, 3});
+            assertThrows(ServiceBusyException.class, () -> videoService.uploadVideo(upload, thumbnail,
+                    new VideoUploadDTO("Busy", "Refused", List.of(), null), uploader));
+
+            release.countDown();
+            assertEquals("READY", awaitFinished(video.getId()).getStatus());
+            assertDoesNotThrow(() -> uploadPipeline.admit().close());
+        } finally {
+            release.countDown();
+            videoService.deleteVideo(video.getId(), uploader);
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testBrokerFailureIsRetried() throws Exception {
+        System.out.println("========================================");
+        System.out.println("TEST: Upload pipeline retries a failed event send");
+        System.out.println("========================================");
+
+        User uploader = findUploader();
+        String fileName = "pipeline-broker-" + System.nanoTime() + ".mp4";
+        Path file = Paths.get(uploadDir, "videos", fileName);
+        Files.createDirectories(file.getParent());
+        Mp4TestFiles.write(file, true);
+
+        doThrow(new AmqpConnectException(new ConnectException("Connection refused")))
+                .doReturn(new long[]{0, 0})
+                .when(uploadEventProducer).sendJsonEvent(any());
+
+        VideoDTO video = createProcessingVideo(uploader, "/uploads/videos/" + fileName);
+        try {
+            uploadPipeline.submitAfterCommit(video.getId(), uploadPipeline.admit());
+            VideoStatusDTO status = awaitFinished(video.getId());
+
+            System.out.println("Final status: " + status.getStatus());
+            assertEquals("READY", status.getStatus(), "A broker outage should not fail the video");
+            verify(uploadEventProducer, times(2)).sendJsonEvent(any());
+            verify(uploadEventProducer, times(1)).sendProtobufEvent(any());
+        } finally {
+            videoService.deleteVideo(video.getId(), uploader);
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testConcurrentAdmissionsTakeOneSlot() throws Exception {
+        System.out.println("========================================");
+        System.out.println("TEST: Upload pipeline admission under concurrency");
+        System.out.println("========================================");
+
+        int threads = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<UploadPipeline.Admission>> attempts = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            attempts.add(executor.submit(() -> {
+                start.await();
+                try {
+                    return uploadPipeline.admit();
+                } catch (ServiceBusyException e) {
+                    return null;
+                }
+            }));
+        }
+        start.countDown();
+
+        List<UploadPipeline.Admission> admitted = new ArrayList<>();
+        for (Future<UploadPipeline.Admission> attempt : attempts) {
+            if (attempt.get() != null) {
+                admitted.add(attempt.get());
+            }
+        }
+        executor.shutdown();
+
+        System.out.println("Admitted " + admitted.size() + " of " + threads + " concurrent uploads");
+        assertEquals(1, admitted.size(), "max-in-flight is 1");
+        admitted.get(0).close();
+        admitted.get(0).close();
+        assertDoesNotThrow(() -> uploadPipeline.admit().close(), "Closing twice frees the slot once");
+    }
+
+    @Test
+    public void testRolledBackInsertFreesItsSlot() {
+        System.out.println("========================================");
+        System.out.println("TEST: Upload pipeline slot of a rolled back upload");
+        System.out.println("========================================");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(tx -> {
+            uploadPipeline.submitAfterCommit(Long.MAX_VALUE - 22, uploadPipeline.admit());
+            assertThrows(ServiceBusyException.class, () -> uploadPipeline.admit());
+            tx.setRollbackOnly();
+        });
+
+        assertDoesNotThrow(() -> uploadPipeline.admit().close());
+    }
+
+    @Test
+    public void testSeedVideosAreReady() {
+        assertEquals("READY", videoService.getVideoStatus(1L).getStatus());
+        assertThrows(RuntimeException.class, () -> videoService.getVideoStatus(Long.MAX_VALUE));
+    }
+
+    private User findUploader() {
+        return userRepository.findByEmail("darjan@jutjubic.com")
+                .orElseThrow(() -> new RuntimeException("Test user not found. Make sure import.sql is loaded."));
+    }
+
+    private VideoDTO createProcessingVideo(User uploader, String videoPath) {
+        CreateVideoDTO dto = new CreateVideoDTO("Upload pipeline test", "Background processing",
+                "/uploads/thumbnails/none.png", videoPath, 1.0, List.of());
+        VideoDTO video = videoService.createVideo(dto, uploader);
+        new TransactionTemplate(transactionManager).executeWithoutResult(tx ->
+                videoRepository.updateStatus(video.getId(), VideoStatus.READY, VideoStatus.PROCESSING));
+        return video;
+    }
+
+    private VideoStatusDTO awaitFinished(Long videoId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        VideoStatusDTO status = uploadPipeline.getStatus(videoId);
+        while ("PROCESSING".equals(status.getStatus()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            status = uploadPipeline.getStatus(videoId);
+        }
+        return status;
+    }
+}
@@ -0,0 +1,242 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.dto.CreateUploadSessionDTO;
+import isa.vezbe1.spring_boot_example.dto.UploadSessionDTO;
+import isa.vezbe1.spring_boot_example.dto.VideoDTO;
+import isa.vezbe1.spring_boot_example.model.User;
+import isa.vezbe1.spring_boot_example.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class UploadSessionServiceTest {
+
+    @Autowired
+    private UploadSessionService uploadSessionService;
+
+    @Autowired
+    private VideoService videoService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    private User uploader;
+    private byte[] video;
+    private String uploadId;
+    private final List<String> extraSessions = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() throws Exception {
+        uploader = userRepository.findByEmail("darjan@jutjubic.com")
+                .orElseThrow(() -> new RuntimeException("Test user not found. Make sure import.sql is loaded."));
+
+        Path file = Files.createTempFile("upload-session-", ".mp4");
+        try {
+            Mp4TestFiles.write(file, true);
+            video = Files.readAllBytes(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        // Sessions left open by an earlier, interrupted run would count against the cap
+        stringRedisTemplate.delete("upload:user:" + uploader.getId() + ":sessions");
+        uploadId = createSession(video.length);
+    }
+
+    @AfterEach
+    public void cleanup() throws Exception {
+        extraSessions.add(uploadId);
+        for (String id : extraSessions) {
+            try {
+                uploadSessionService.abortSession(id, uploader);
+            } catch (RuntimeException e) {
+                // Already finalized or aborted by the test
+            }
+        }
+        // Part files of sessions the tests expired by hand
+        uploadSessionService.sweepOrphanedParts();
+    }
+
+    @Test
+    public void testChunksAppendAtTheirOffset() throws Exception {
+        System.out.println("========================================");
+        System.out.println("TEST: Resumable upload chunks");
+        System.out.println("========================================");
+
+        int half = video.length / 2;
+        UploadSessionDTO state = writeChunk(0, half);
+        assertEquals(Long.valueOf(half), state.getOffset());
+
+        state = writeChunk(half, video.length);
+        assertEquals(Long.valueOf(video.length), state.getOffset());
+        assertEquals(Long.valueOf(video.length), state.getReceivedBytes());
+
+        // A re-sent chunk overwrites the same bytes and changes nothing
+        state = writeChunk(0, half);
+        assertEquals(Long.valueOf(video.length), state.getOffset());
+    }
+
+    @Test
+    public void testOffsetMismatchIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> uploadSessionService.writeChunk(uploadId, -1, 1,
+                new ByteArrayInputStream(new byte[1]), uploader), "Negative offset");
+        assertThrows(IllegalArgumentException.class, () -> uploadSessionService.writeChunk(uploadId, video.length, 1,
+                new ByteArrayInputStream(new byte[1]), uploader), "Offset past the declared size");
+        assertThrows(IllegalArgumentException.class, () -> uploadSessionService.writeChunk(uploadId, 10, video.length,
+                new ByteArrayInputStream(video), uploader), "Chunk running past the declared size");
+
+        assertEquals(Long.valueOf(0), uploadSessionService.getSession(uploadId, uploader).getOffset());
+    }
+
+    @Test
+    public void testResumeAfterGap() throws Exception {
+        System.out.println("========================================");
+        System.out.println("TEST: Resumable upload with a missing range");
+        System.out.println("========================================");
+
+        int third = video.length / 3;
+        writeChunk(0, third);
+        writeChunk(2 * third, video.length);
+
+        // The offset to resume from stops at the gap, even though later bytes have arrived
+        UploadSessionDTO state = uploadSessionService.getSession(uploadId, uploader);
+        System.out.println("Offset " + state.getOffset() + ", received " + state.getReceivedBytes() + " of " + state.getFileSize());
+        assertEquals(Long.valueOf(third), state.getOffset());
+        assertEquals(Long.valueOf(third + (video.length - 2 * third)), state.getReceivedBytes());
+        assertThrows(IllegalStateException.class, () -> uploadSessionService.finalizeUpload(uploadId, thumbnail(), uploader),
+                "Incomplete uploads cannot be finalized");
+
+        state = writeChunk(state.getOffset().intValue(), 2 * third);
+        assertEquals(Long.valueOf(video.length), state.getOffset());
+    }
+
+    @Test
+    public void testFinalizeIsClaimedOnce() throws Exception {
+        System.out.println("========================================");
+        System.out.println("TEST: Resumable upload finalize claim");
+        System.out.println("========================================");
+
+        writeChunk(0, video.length);
+
+        // Another request holds the claim: finalize and further chunks are refused
+        String key = "upload:session:" + uploadId;
+        stringRedisTemplate.opsForHash().put(key, "finalizing", "1");
+        assertThrows(IllegalStateException.class, () -> uploadSessionService.finalizeUpload(uploadId, thumbnail(), uploader));
+        assertThrows(IllegalStateException.class, () -> writeChunk(0, 10));
+        stringRedisTemplate.opsForHash().delete(key, "finalizing");
+
+        VideoDTO created = uploadSessionService.finalizeUpload(uploadId, thumbnail(), uploader);
+        try {
+            System.out.println("Created video " + created.getId());
+            assertEquals("Resumable upload test", created.getTitle());
+            RuntimeException second = assertThrows(RuntimeException.class,
+                    () -> uploadSessionService.finalizeUpload(uploadId, thumbnail(), uploader));
+            assertEquals("Upload session not found", second.getMessage());
+        } finally {
+            videoService.deleteVideo(created.getId(), uploader);
+        }
+    }
+
+    @Test
+    public void testOpenSessionsAreCappedPerUser() throws Exception {
+        System.out.println("========================================");
+        System.out.println("TEST: Open upload sessions per user");
+        System.out.println("========================================");
+
+        // The session from setup plus four more reach the default cap of five
+        for (int i = 0; i < 4; i++) {
+            extraSessions.add(createSession(video.length));
+        }
+        assertThrows(IllegalStateException.class, () -> createSession(video.length));
+
+        uploadSessionService.abortSession(extraSessions.remove(0), uploader);
+        extraSessions.add(createSession(video.length));
+
+        // An expired session no longer counts
+        stringRedisTemplate.delete("upload:session:" + extraSessions.get(0));
+        extraSessions.add(createSession(video.length));
+    }
+
+    @Test
+    public void testRangesExpireWhileChunkIsInterrupted() throws Exception {
+        int size = 3 * 1024 * 1024;
+        String id = createSession(size);
+        extraSessions.add(id);
+
+        // Fails after a slice and a half, before the session TTL is refreshed at the end of the chunk;
+        // the bytes read before the failure are still written and recorded
+        InputStream broken = new InputStream() {
+            private int read;
+
+            @Override
+            public int read() throws IOException {
+                if (read++ >= size / 2) {
+                    throw new IOException("Connection reset");
+                }
+                return 0;
+            }
+        };
+        assertThrows(IOException.class, () -> uploadSessionService.writeChunk(id, 0, size, broken, uploader));
+
+        Long ttl = stringRedisTemplate.getExpire("upload:session:" + id + ":ranges");
+        assertTrue(ttl != null && ttl > 0, "Ranges key should expire with the session, TTL was " + ttl);
+        assertEquals(Long.valueOf(size / 2), uploadSessionService.getSession(id, uploader).getOffset());
+    }
+
+    @Test
+    public void testSweepDeletesPartsOfExpiredSessions() throws Exception {
+        String expired = createSession(video.length);
+        extraSessions.add(expired);
+        Path expiredPart = Paths.get(uploadDir, "partial", expired + ".part");
+        Path livePart = Paths.get(uploadDir, "partial", uploadId + ".part");
+        assertTrue(Files.exists(expiredPart));
+
+        stringRedisTemplate.delete("upload:session:" + expired);
+        assertTrue(uploadSessionService.sweepOrphanedParts() >= 1);
+
+        assertFalse(Files.exists(expiredPart), "Part file of the expired session should be deleted");
+        assertTrue(Files.exists(livePart), "Part file of an open session should stay");
+    }
+
+    private String createSession(long fileSize) throws Exception {
+        CreateUploadSessionDTO create = new CreateUploadSessionDTO();
+        create.setTitle("Resumable upload test");
+        create.setFileName("resumable.mp4");
+        create.setFileSize(fileSize);
+        create.setTags(List.of());
+        return uploadSessionService.createSession(create, uploader).getUploadId();
+    }
+
+    private UploadSessionDTO writeChunk(int from, int to) throws Exception {
+        byte[] chunk = Arrays.copyOfRange(video, from, to);
+        return uploadSessionService.writeChunk(uploadId, from, chunk.length, new ByteArrayInputStream(chunk), uploader);
+    }
+
+    private static MockMultipartFile thumbnail() {
+        return new MockMultipartFile("thumbnail", "thumbnail.png", "image/png", new byte[]{(byte) 0x89, 'P', 'N', 'G'});
+    }
+}
@@ -0,0 +1,53 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.dto.VideoDTO;
+import isa.vezbe1.spring_boot_example.dto.VideoFeedDTO;
+import isa.vezbe1.spring_boot_example.repository.VideoRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class VideoFeedTest {
+
+    @Autowired
+    private VideoService videoService;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Test
+    public void testCursorWalksWholeFeedOnce() {
+        System.out.println("========================================");
+        System.out.println("TEST: Keyset feed pagination");
+        System.out.println("========================================");
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+
+        do {
+            VideoFeedDTO page = videoService.getFeed(cursor, 2);
+            for (VideoDTO video : page.getVideos()) {
+                seen.add(video.getId());
+            }
+            cursor = page.getNextCursor();
+            pages++;
+            System.out.println("Page " + pages + ": " + page.getVideos().size() + " videos, next cursor " + cursor);
+        } while (cursor != null);
+
+        assertEquals(videoRepository.count(), seen.size(), "Every video should appear in the feed");
+        assertEquals(seen.size(), new HashSet<>(seen).size(), "No video should appear twice");
+    }
+
+    @Test
+    public void testInvalidCursorIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> videoService.getFeed("not-a-cursor", 10));
+    }
+}
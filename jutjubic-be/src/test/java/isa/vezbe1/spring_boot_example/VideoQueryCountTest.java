@@ -0,0 +1,173 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.dto.CommentDTO;
+import isa.vezbe1.spring_boot_example.dto.CreateCommentDTO;
+import isa.vezbe1.spring_boot_example.dto.VideoDTO;
+import isa.vezbe1.spring_boot_example.model.Comment;
+import isa.vezbe1.spring_boot_example.model.User;
+import isa.vezbe1.spring_boot_example.model.Video;
+import isa.vezbe1.spring_boot_example.repository.CommentRepository;
+import isa.vezbe1.spring_boot_example.repository.UserRepository;
+import isa.vezbe1.spring_boot_example.repository.VideoRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        // Keep the scheduled jobs from running queries while statements are being counted
+        "trending.refresh-interval-ms=3600000",
+        "trending.flush-interval-ms=3600000",
+        "views.flush-interval-ms=3600000",
+        "transcoding.enabled=false",
+        "transcoding.poll-interval-ms=3600000"
+})
+public class VideoQueryCountTest {
+
+    // Smaller than the seed data, so every page needs the count query as well
+    private static final int PAGE_SIZE = 2;
+
+    // Page rows (with uploader and comment count), the total count and the tags of the page
+    private static final long QUERIES_PER_PAGE = 3;
+
+    @Autowired
+    private VideoService videoService;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CommentCountRepairService commentCountRepairService;
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private final List<Comment> addedComments = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        commentRepository.deleteAll(addedComments);
+        addedComments.clear();
+        commentCountRepairService.repairAll();
+    }
+
+    @Test
+    public void testPageQueryCountDoesNotDependOnComments() {
+        System.out.println("========================================");
+        System.out.println("TEST: Query count per video page");
+        System.out.println("========================================");
+
+        assertTrue(videoRepository.count() > PAGE_SIZE, "Seed videos should fill more than one page");
+
+        Page<VideoDTO>[] page = new Page[1];
+        long before = countStatements(() -> page[0] = videoService.getAllVideos(PageRequest.of(0, PAGE_SIZE)));
+
+        User author = userRepository.findByEmail("darjan@jutjubic.com")
+                .orElseThrow(() -> new RuntimeException("Test user not found. Make sure import.sql is loaded."));
+        Video video = videoRepository.findById(page[0].getContent().get(0).getId())
+                .orElseThrow(() -> new RuntimeException("No videos found in database. Make sure import.sql is loaded."));
+        for (int i = 0; i < 500; i++) {
+            addedComments.add(new Comment("Load comment #" + i, video, author, new Timestamp(System.currentTimeMillis())));
+        }
+        // Inserted behind CommentService's back, so the repair job has to pick them up
+        commentRepository.saveAll(addedComments);
+        assertEquals(1, commentCountRepairService.repairAll());
+
+        long after = countStatements(() -> page[0] = videoService.getAllVideos(PageRequest.of(0, PAGE_SIZE)));
+
+        VideoDTO withComments = page[0].getContent().stream()
+                .filter(dto -> dto.getId().equals(video.getId()))
+                .findFirst()
+                .orElseThrow();
+
+        System.out.println("Statements before adding comments: " + before);
+        System.out.println("Statements after adding 500 comments: " + after);
+        System.out.println("Comment count of video " + video.getId() + ": " + withComments.getCommentCount());
+
+        assertEquals(QUERIES_PER_PAGE, before);
+        assertEquals(QUERIES_PER_PAGE, after);
+        assertTrue(withComments.getCommentCount() >= 500);
+        assertNotNull(withComments.getUploader());
+    }
+
+    @Test
+    public void testCommentCountFollowsCommentService() {
+        System.out.println("========================================");
+        System.out.println("TEST: Comment count kept in sync by CommentService");
+        System.out.println("========================================");
+
+        User author = userRepository.findByEmail("darjan@jutjubic.com")
+                .orElseThrow(() -> new RuntimeException("Test user not found. Make sure import.sql is loaded."));
+        Long videoId = videoRepository.findAll().get(0).getId();
+        stringRedisTemplate.delete("comment_rate_limit:" + author.getId());
+        long initial = videoService.getVideoById(videoId).getCommentCount();
+
+        List<Long> created = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            CommentDTO comment = commentService.createComment(new CreateCommentDTO("Synced comment #" + i, videoId), author);
+            created.add(comment.getId());
+        }
+        assertEquals(initial + 5, videoService.getVideoById(videoId).getCommentCount());
+
+        for (Long commentId : created.subList(0, 3)) {
+            commentService.deleteComment(commentId, author);
+        }
+        assertEquals(initial + 2, videoService.getVideoById(videoId).getCommentCount());
+
+        for (Long commentId : created.subList(3, 5)) {
+            commentService.deleteComment(commentId, author);
+        }
+        assertEquals(initial, videoService.getVideoById(videoId).getCommentCount());
+        // Nothing for the repair job to fix
+        assertEquals(0, commentCountRepairService.repairAll());
+    }
+
+    @Test
+    public void testSingleVideoQueryCount() {
+        Long videoId = videoRepository.findAll().get(0).getId();
+
+        long statements = countStatements(() -> videoService.getVideoById(videoId));
+
+        // Video row with uploader and comment count, its tags, then its ready renditions.
+        // Renditions are a separate table read only for the watch page, so they take their own round trip.
+        assertEquals(3, statements);
+    }
+
+    private long countStatements(Runnable action) {
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
+}
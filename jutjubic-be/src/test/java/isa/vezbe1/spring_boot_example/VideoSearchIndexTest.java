@@ -0,0 +1,68 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.util.TextNormalizer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class VideoSearchIndexTest {
+
+    @Autowired
+    private VideoSearchIndex videoSearchIndex;
+
+    @BeforeEach
+    public void waitForIndex() throws InterruptedException {
+        // The index is built in the background once the application is ready
+        for (int i = 0; i < 100 && !videoSearchIndex.isReady(); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(videoSearchIndex.isReady(), "Search index should be built after startup");
+    }
+
+    @Test
+    public void testAllTermsMustMatch() {
+        System.out.println("========================================");
+        System.out.println("TEST: Multi-term AND search with BM25 ranking");
+        System.out.println("========================================");
+
+        SearchHits hits = videoSearchIndex.search("spring BOOT", null, 10);
+        System.out.println("'spring BOOT' -> " + hits.getVideoIds());
+
+        assertEquals(1L, hits.getTotalHits());
+        assertEquals(1L, hits.getVideoIds().get(0));
+
+        assertEquals(0L, videoSearchIndex.search("spring react", null, 10).getTotalHits());
+    }
+
+    @Test
+    public void testCursorPaginationReturnsEveryHitOnce() {
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        long total;
+
+        do {
+            SearchHits page = videoSearchIndex.search("tutorial", cursor, 1);
+            seen.addAll(page.getVideoIds());
+            total = page.getTotalHits();
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        System.out.println("'tutorial' pages -> " + seen);
+        assertEquals(total, (long) seen.size());
+        assertEquals(seen.size(), new HashSet<>(seen).size());
+    }
+
+    @Test
+    public void testSerbianTextIsFolded() {
+        assertEquals("cacak djordje zivot", TextNormalizer.fold("Čačak Ђорђе ŽIVOT"));
+        assertEquals(List.of("sta", "je", "novo"), TextNormalizer.tokenize("Šta je novo?!"));
+    }
+}
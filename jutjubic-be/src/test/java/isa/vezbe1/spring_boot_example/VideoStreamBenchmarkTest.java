@@ -0,0 +1,234 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.dto.CreateVideoDTO;
+import isa.vezbe1.spring_boot_example.model.User;
+import isa.vezbe1.spring_boot_example.model.Video;
+import isa.vezbe1.spring_boot_example.repository.UserRepository;
+import isa.vezbe1.spring_boot_example.repository.VideoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class VideoStreamBenchmarkTest {
+
+    private static final int FILE_SIZE = 32 * 1024 * 1024;
+    private static final int RANGE_SIZE = 1024 * 1024;
+    private static final int REQUESTS = 200;
+
+    @LocalServerPort
+    private int port;
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private VideoService videoService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    private Path videoFile;
+    private Video testVideo;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        String filename = "stream-benchmark-" + System.nanoTime() + ".mp4";
+        videoFile = Paths.get(uploadDir, "videos", filename);
+        Files.createDirectories(videoFile.getParent());
+
+        byte[] content = new byte[FILE_SIZE];
+        new Random(42).nextBytes(content);
+        Files.write(videoFile, content);
+
+        User uploader = userRepository.findByEmail("darjan@jutjubic.com")
+                .orElseThrow(() -> new RuntimeException("Test user not found. Make sure import.sql is loaded."));
+
+        Video video = new Video("Stream benchmark", "Range streaming benchmark video",
+                "/uploads/thumbnails/none.png", "/uploads/videos/" + filename,
+                uploader, new Timestamp(System.currentTimeMillis()));
+        testVideo = videoRepository.save(video);
+    }
+
+    @AfterEach
+    public void cleanup() throws IOException {
+        videoRepository.deleteById(testVideo.getId());
+        Files.deleteIfExists(videoFile);
+    }
+
+    @Test
+    public void testSingleRangeReturnsPartialContent() throws Exception {
+        HttpResponse<byte[]> response = httpClient.send(
+                rangeRequest(streamUrl(), "bytes=100-199"), HttpResponse.BodyHandlers.ofByteArray());
+
+        assertEquals(206, response.statusCode());
+        assertEquals("bytes 100-199/" + FILE_SIZE, response.headers().firstValue("Content-Range").orElse(null));
+        assertEquals(100, response.body().length);
+
+        byte[] expected = Files.readAllBytes(videoFile);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(expected[100 + i], response.body()[i]);
+        }
+    }
+
+    @Test
+    public void testMultiRangeReturnsMultipart() throws Exception {
+        HttpResponse<String> response = httpClient.send(
+                rangeRequest(streamUrl(), "bytes=0-9,1000-1009"), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(206, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("multipart/byteranges"));
+        assertTrue(response.body().contains("Content-Range: bytes 0-9/" + FILE_SIZE));
+        assertTrue(response.body().contains("Content-Range: bytes 1000-1009/" + FILE_SIZE));
+    }
+
+    @Test
+    public void testUnsatisfiableRange() throws Exception {
+        HttpResponse<Void> response = httpClient.send(
+                rangeRequest(streamUrl(), "bytes=" + FILE_SIZE + "-"), HttpResponse.BodyHandlers.discarding());
+
+        assertEquals(416, response.statusCode());
+        assertEquals("bytes */" + FILE_SIZE, response.headers().firstValue("Content-Range").orElse(null));
+    }
+
+    @Test
+    public void testMissingVideoIsNotFound() throws Exception {
+        Path moved = videoFile.resolveSibling(videoFile.getFileName() + ".moved");
+        Files.move(videoFile, moved);
+        try {
+            HttpResponse<Void> response = httpClient.send(
+                    HttpRequest.newBuilder(URI.create(streamUrl())).GET().build(), HttpResponse.BodyHandlers.discarding());
+            assertEquals(404, response.statusCode(), "Missing file");
+        } finally {
+            Files.move(moved, videoFile);
+        }
+
+        HttpResponse<Void> response = httpClient.send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/videos/" + Long.MAX_VALUE + "/stream"))
+                        .GET().build(),
+                HttpResponse.BodyHandlers.discarding());
+        assertEquals(404, response.statusCode(), "Unknown video");
+    }
+
+    @Test
+    public void testPathOutsideUploadsIsNotServed() throws Exception {
+        String escaping = "/uploads/../pom.xml";
+        assertTrue(Files.exists(Paths.get(uploadDir, "..", "pom.xml")), "Target of the traversal should exist");
+
+        CreateVideoDTO dto = new CreateVideoDTO("Traversal", "Outside the upload directory",
+                "/uploads/thumbnails/none.png", escaping, 1.0, List.of());
+        assertThrows(IllegalArgumentException.class, () -> videoService.createVideo(dto, testVideo.getUploader()));
+
+        // A row stored before paths were validated is still not served
+        Video video = videoRepository.save(new Video("Traversal", "Outside the upload directory",
+                "/uploads/thumbnails/none.png", escaping, testVideo.getUploader(), new Timestamp(System.currentTimeMillis())));
+        try {
+            HttpResponse<String> response = httpClient.send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/videos/" + video.getId() + "/stream"))
+                            .GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(404, response.statusCode());
+            assertFalse(response.body().contains("<project"));
+        } finally {
+            videoRepository.deleteById(video.getId());
+        }
+    }
+
+    @Test
+    public void benchmarkStreamEndpointAgainstResourceHandler() throws Exception {
+        System.out.println("========================================");
+        System.out.println("BENCHMARK: /stream endpoint vs /uploads/** resource handler");
+        System.out.println("========================================");
+
+        String resourceUrl = "http://localhost:" + port + testVideo.getVideoPath();
+
+        // Warm up both paths so class loading and JIT don't skew the first run
+        runRangeRequests(resourceUrl, 20);
+        runRangeRequests(streamUrl(), 20);
+
+        long[] resourceResult = runRangeRequests(resourceUrl, REQUESTS);
+        long[] streamResult = runRangeRequests(streamUrl(), REQUESTS);
+
+        double resourceMbPerSec = throughputMbPerSec(resourceResult[0]);
+        double streamMbPerSec = throughputMbPerSec(streamResult[0]);
+
+        System.out.println();
+        System.out.println("Results (" + REQUESTS + " random " + (RANGE_SIZE / 1024) + " KB ranges):");
+        System.out.println("  Resource handler: " + String.format("%.1f", resourceMbPerSec) + " MB/s, heap allocated: "
+                + (resourceResult[1] / (1024 * 1024)) + " MB");
+        System.out.println("  Stream endpoint:  " + String.format("%.1f", streamMbPerSec) + " MB/s, heap allocated: "
+                + (streamResult[1] / (1024 * 1024)) + " MB");
+
+        assertTrue(streamMbPerSec > 0);
+    }
+
+    // Returns [elapsed ns, heap bytes allocated by all JVM threads during the run]
+    private long[] runRangeRequests(String url, int count) throws Exception {
+        Random random = new Random(7);
+        long allocatedBefore = totalAllocatedBytes();
+        long start = System.nanoTime();
+
+        for (int i = 0; i < count; i++) {
+            long offset = (long) random.nextInt(FILE_SIZE - RANGE_SIZE);
+            String range = "bytes=" + offset + "-" + (offset + RANGE_SIZE - 1);
+            HttpResponse<Void> response = httpClient.send(rangeRequest(url, range), HttpResponse.BodyHandlers.discarding());
+            assertEquals(206, response.statusCode());
+        }
+
+        long elapsed = System.nanoTime() - start;
+        return new long[]{elapsed, totalAllocatedBytes() - allocatedBefore};
+    }
+
+    private long totalAllocatedBytes() {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (long allocated : threadBean.getThreadAllocatedBytes(threadBean.getAllThreadIds())) {
+            if (allocated > 0) {
+                total += allocated;
+            }
+        }
+        return total;
+    }
+
+    private double throughputMbPerSec(long elapsedNanos) {
+        double megabytes = (double) REQUESTS * RANGE_SIZE / (1024 * 1024);
+        return megabytes / (elapsedNanos / 1_000_000_000.0);
+    }
+
+    private String streamUrl() {
+        return "http://localhost:" + port + "/api/videos/" + testVideo.getId() + "/stream";
+    }
+
+    private HttpRequest rangeRequest(String url, String range) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Range", range)
+                .GET()
+                .build();
+    }
+}
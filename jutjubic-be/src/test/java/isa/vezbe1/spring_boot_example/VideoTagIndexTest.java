@@ -0,0 +1,69 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class VideoTagIndexTest {
+
+    @Autowired
+    private VideoTagIndex videoTagIndex;
+
+    @BeforeEach
+    public void waitForLoad() throws InterruptedException {
+        for (int i = 0; i < 100 && !videoTagIndex.isReady(); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(videoTagIndex.isReady(), "Tag index should load at startup");
+    }
+
+    @Test
+    public void testBitmapQueries() {
+        System.out.println("========================================");
+        System.out.println("TEST: Tag bitmap filtering");
+        System.out.println("========================================");
+
+        SearchHits tutorials = find(List.of("tutorial"), List.of(), List.of(), null, 20);
+        System.out.println("all=tutorial -> " + tutorials.getVideoIds());
+        assertEquals(Set.of(1L, 2L, 4L, 5L), Set.copyOf(tutorials.getVideoIds()));
+        assertEquals(4L, tutorials.getTotalHits());
+
+        assertEquals(List.of(1L), find(List.of("Tutorial", "BACKEND"), List.of(), List.of(), null, 20).getVideoIds());
+        assertEquals(Set.of(2L, 3L), Set.copyOf(find(List.of(), List.of("React", "PostgreSQL"), List.of(), null, 20).getVideoIds()));
+        assertEquals(Set.of(1L, 4L, 5L), Set.copyOf(find(List.of("Tutorial"), List.of(), List.of("Frontend"), null, 20).getVideoIds()));
+        assertTrue(find(List.of("Tutorial", "no-such-tag"), List.of(), List.of(), null, 20).getVideoIds().isEmpty());
+    }
+
+    @Test
+    public void testCursorPagesNewestFirst() {
+        List<Long> all = find(List.of("Tutorial"), List.of(), List.of(), null, 20).getVideoIds();
+
+        List<Long> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            SearchHits page = find(List.of("Tutorial"), List.of(), List.of(), cursor, 1);
+            paged.addAll(page.getVideoIds());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(all, paged, "Walking one video per page should give the same order");
+        // Seed upload dates: 5 one day ago, 2 three, 1 five and 4 seven days ago
+        assertTrue(all.indexOf(5L) < all.indexOf(2L));
+        assertTrue(all.indexOf(2L) < all.indexOf(1L));
+        assertTrue(all.indexOf(1L) < all.indexOf(4L));
+        assertThrows(IllegalArgumentException.class,
+                () -> find(List.of("Tutorial"), List.of(), List.of(), "not a cursor!", 1));
+    }
+
+    private SearchHits find(List<String> all, List<String> any, List<String> none, String after, int limit) {
+        return videoTagIndex.find(all, any, none, after, limit);
+    }
+}
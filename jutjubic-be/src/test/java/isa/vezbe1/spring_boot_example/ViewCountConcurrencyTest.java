@@ -23,6 +23,9 @@ public class ViewCountConcurrencyTest {
     @Autowired
     private VideoRepository videoRepository;
 
+    @Autowired
+    private ViewCountAggregator viewCountAggregator;
+
     private Video testVideo;
     private Long initialViewCount;
 
@@ -89,6 +92,9 @@ public class ViewCountConcurrencyTest {
         doneLatch.await();
         executor.shutdown();
 
+        // Write buffered views to the database
+        viewCountAggregator.flush();
+
         // Refresh video from database to get the updated count
         Video updatedVideo = videoRepository.findById(testVideo.getId())
                 .orElseThrow(() -> new RuntimeException("Video not found"));
@@ -112,7 +118,7 @@ public class ViewCountConcurrencyTest {
 
         System.out.println();
         System.out.println("SUCCESS: All " + totalExpectedIncrements + " concurrent increments recorded correctly!");
-        System.out.println("The atomic database UPDATE prevents lost updates.");
+        System.out.println("The batched write-behind UPDATE prevents lost updates.");
     }
 
     @Test
@@ -158,6 +164,7 @@ public class ViewCountConcurrencyTest {
         long endTime = System.currentTimeMillis();
 
         executor.shutdown();
+        viewCountAggregator.flush();
 
         Video updatedVideo = videoRepository.findById(testVideo.getId())
                 .orElseThrow(() -> new RuntimeException("Video not found"));
@@ -178,7 +185,7 @@ public class ViewCountConcurrencyTest {
                 "High concurrency: All increments should be recorded");
 
         System.out.println();
-        System.out.println("SUCCESS: Stress test passed - atomic increments work correctly!");
+        System.out.println("SUCCESS: Stress test passed - buffered increments work correctly!");
     }
 
     @Test
@@ -242,6 +249,7 @@ public class ViewCountConcurrencyTest {
         startLatch.countDown();
         doneLatch.await();
         executor.shutdown();
+        viewCountAggregator.flush();
 
         Video updated1 = videoRepository.findById(video1.getId()).orElseThrow();
         Video updated2 = videoRepository.findById(video2.getId()).orElseThrow();
@@ -252,8 +260,8 @@ public class ViewCountConcurrencyTest {
         System.out.println("Video 1 - Expected: " + expectedPerVideo + ", Actual: " + (updated1.getViewCount() - initialCount1));
         System.out.println("Video 2 - Expected: " + expectedPerVideo + ", Actual: " + (updated2.getViewCount() - initialCount2));
 
-        assertEquals(expectedPerVideo, (updated1.getViewCount() - initialCount1).intValue());
-        assertEquals(expectedPerVideo, (updated2.getViewCount() - initialCount2).intValue());
+        assertEquals(expectedPerVideo, (int) (updated1.getViewCount() - initialCount1));
+        assertEquals(expectedPerVideo, (int) (updated2.getViewCount() - initialCount2));
 
         System.out.println();
         System.out.println("SUCCESS: Multiple videos handle concurrent views independently!");
@@ -0,0 +1,109 @@
+package isa.vezbe1.spring_boot_example.service;
+
+import isa.vezbe1.spring_boot_example.model.Video;
+import isa.vezbe1.spring_boot_example.repository.VideoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class ViewCountThroughputTest {
+
+    private static final int THREADS = 50;
+    private static final int VIEWS_PER_THREAD = 200;
+
+    @Autowired
+    private VideoService videoService;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private ViewCountAggregator viewCountAggregator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Video hotVideo;
+
+    @BeforeEach
+    public void setup() {
+        hotVideo = videoRepository.findAll().stream()
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("No videos found in database. Make sure import.sql is loaded."));
+    }
+
+    @Test
+    public void compareRowUpdateWithWriteBehind() throws InterruptedException {
+        System.out.println("========================================");
+        System.out.println("LOAD TEST: per-view UPDATE vs write-behind aggregation");
+        System.out.println("========================================");
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Long videoId = hotVideo.getId();
+        int totalViews = THREADS * VIEWS_PER_THREAD;
+
+        long before = videoRepository.findById(videoId).orElseThrow().getViewCount();
+
+        // Old path: one UPDATE transaction per view, all serialized on the hot row
+        long rowUpdateMillis = runConcurrently(() ->
+                transactionTemplate.executeWithoutResult(status -> videoRepository.incrementViewCount(videoId)));
+
+        // New path: LongAdder in memory, flushed in one batch
+        long writeBehindMillis = runConcurrently(() -> videoService.incrementViewCount(videoId));
+        long flushStart = System.currentTimeMillis();
+        viewCountAggregator.flush();
+        long flushMillis = System.currentTimeMillis() - flushStart;
+
+        long after = videoRepository.findById(videoId).orElseThrow().getViewCount();
+
+        System.out.println();
+        System.out.println("Results (" + THREADS + " threads x " + VIEWS_PER_THREAD + " views on one video):");
+        System.out.println("  Per-view UPDATE: " + rowUpdateMillis + " ms, " + viewsPerSecond(totalViews, rowUpdateMillis) + " views/sec");
+        System.out.println("  Write-behind:    " + writeBehindMillis + " ms, " + viewsPerSecond(totalViews, writeBehindMillis)
+                + " views/sec (+ " + flushMillis + " ms flush)");
+
+        assertEquals(2L * totalViews, after - before, "Both paths must record every view");
+    }
+
+    private long runConcurrently(Runnable view) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        CountDownLatch doneLatch = new CountDownLatch(THREADS);
+
+        for (int i = 0; i < THREADS; i++) {
+            executor.submit(() -> {
+                try {
+                    startLatch.await();
+                    for (int j = 0; j < VIEWS_PER_THREAD; j++) {
+                        view.run();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    doneLatch.countDown();
+                }
+            });
+        }
+
+        long start = System.currentTimeMillis();
+        startLatch.countDown();
+        doneLatch.await();
+        long elapsed = System.currentTimeMillis() - start;
+        executor.shutdown();
+        return elapsed;
+    }
+
+    private long viewsPerSecond(int views, long millis) {
+        return views * 1000L / Math.max(1, millis);
+    }
+}